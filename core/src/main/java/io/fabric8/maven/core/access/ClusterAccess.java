@@ -19,13 +19,18 @@ import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
 import io.fabric8.maven.core.config.RuntimeMode;
 import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.openshift.client.DefaultOpenShiftClient;
 import io.fabric8.openshift.client.OpenShiftAPIGroups;
 import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.OpenShiftConfig;
+import okhttp3.OkHttpClient;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.UnknownHostException;
 
 /**
@@ -38,6 +43,10 @@ public class ClusterAccess {
 
     private KubernetesClient client;
 
+    private final ClusterMetrics metrics = new ClusterMetrics();
+
+    private RateLimiter rateLimiter;
+
     public ClusterAccess(ClusterConfiguration clusterConfiguration) {
         this.clusterConfiguration = clusterConfiguration;
 
@@ -70,11 +79,46 @@ public class ClusterAccess {
     }
 
     public KubernetesClient createKubernetesClient() {
-        return new DefaultKubernetesClient(createDefaultConfig());
+        Config config = createDefaultConfig();
+        return new DefaultKubernetesClient(createHttpClient(config), config);
     }
 
     public OpenShiftClient createOpenShiftClient() {
-        return new DefaultOpenShiftClient(createDefaultConfig());
+        Config config = createDefaultConfig();
+        return new DefaultOpenShiftClient(createHttpClient(config), OpenShiftConfig.wrap(config));
+    }
+
+    /**
+     * Replace the rate limiter for the clients created afterwards. By default a token bucket is used
+     * if a limit is configured.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public ClusterMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Log a summary of the calls made by the clients of this object and add them to the metrics file
+     * of the project. Nothing is reported if no call was made.
+     *
+     * @param buildDirectory build directory of the project
+     * @param goal goal which made the calls
+     * @param log logger for the summary
+     */
+    public void reportMetrics(File buildDirectory, String goal, Logger log) {
+        if (metrics.getCalls() == 0) {
+            return;
+        }
+        metrics.logSummary(log);
+        File file = new File(buildDirectory, ClusterMetrics.METRICS_FILE);
+        try {
+            metrics.write(file, goal);
+        } catch (IOException e) {
+            log.warn("Cannot write cluster metrics to %s: %s", file, e.getMessage());
+        }
     }
 
     // ============================================================================
@@ -83,6 +127,16 @@ public class ClusterAccess {
         return this.clusterConfiguration.getConfig();
     }
 
+    private OkHttpClient createHttpClient(Config config) {
+        if (rateLimiter == null && clusterConfiguration.getApiQps() > 0) {
+            rateLimiter = TokenBucketRateLimiter.forCluster(config.getMasterUrl(), clusterConfiguration.getApiQps(), clusterConfiguration.getApiBurst());
+        }
+        // Added as network interceptor as the OpenShift client replaces all application interceptors
+        return HttpClientUtils.createHttpClient(config).newBuilder()
+                              .addNetworkInterceptor(new ClusterCallInterceptor(rateLimiter, metrics))
+                              .build();
+    }
+
     public String getNamespace() {
         return this.clusterConfiguration.getNamespace();
     }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Applies the rate limit to all calls of a client and records them in the metrics
+ */
+class ClusterCallInterceptor implements Interceptor {
+
+    private final RateLimiter rateLimiter;
+    private final ClusterMetrics metrics;
+
+    ClusterCallInterceptor(RateLimiter rateLimiter, ClusterMetrics metrics) {
+        this.rateLimiter = rateLimiter;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long throttled = 0;
+        if (rateLimiter != null) {
+            try {
+                throttled = rateLimiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the rate limit of " + request.url());
+            }
+        }
+        String[] verbAndKind = getVerbAndKind(request.method(), request.url());
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Response response = chain.proceed(request);
+            // Looking up a resource which doesn't exist is not a failure
+            failed = response.code() >= 400 && response.code() != 404;
+            return response;
+        } finally {
+            metrics.record(verbAndKind[0], verbAndKind[1], System.nanoTime() - start, throttled, failed);
+        }
+    }
+
+    /**
+     * Determine the API verb and the resource type of a call from its method and path
+     */
+    static String[] getVerbAndKind(String method, HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        int start;
+        if (segments.size() >= 2 && ("api".equals(segments.get(0)) || "oapi".equals(segments.get(0)))) {
+            start = 2;
+        } else if (segments.size() >= 3 && "apis".equals(segments.get(0))) {
+            start = 3;
+        } else {
+            return new String[] { method.toLowerCase(), "discovery" };
+        }
+        List<String> resource = segments.subList(start, segments.size());
+        if (resource.size() >= 3 && "namespaces".equals(resource.get(0))) {
+            resource = resource.subList(2, resource.size());
+        }
+        if (resource.isEmpty() || resource.get(0).isEmpty()) {
+            return new String[] { method.toLowerCase(), "discovery" };
+        }
+        boolean collection = resource.size() == 1;
+        String kind = resource.size() > 2 ? resource.get(0) + "/" + resource.get(2) : resource.get(0);
+        return new String[] { getVerb(method, collection, "true".equals(url.queryParameter("watch"))), kind };
+    }
+
+    private static String getVerb(String method, boolean collection, boolean watch) {
+        switch (method) {
+            case "GET":
+                return watch ? "watch" : collection ? "list" : "get";
+            case "POST":
+                return "create";
+            case "PUT":
+                return "update";
+            case "PATCH":
+                return "patch";
+            case "DELETE":
+                return collection ? "deletecollection" : "delete";
+            default:
+                return method.toLowerCase();
+        }
+    }
+}
@@ -42,6 +42,8 @@ public class ClusterConfiguration {
     private String trustStorePassphrase;
     private String keyStoreFile;
     private String keyStorePassphrase;
+    private String apiQps;
+    private String apiBurst;
 
     public ClusterConfiguration() {
         this.namespace = KubernetesHelper.getDefaultNamespace();
@@ -51,6 +53,21 @@ public class ClusterConfiguration {
         return namespace;
     }
 
+    /**
+     * Maximum number of calls per second to the API server, 0 for no limit
+     */
+    public double getApiQps() {
+        return StringUtils.isNotBlank(apiQps) ? Double.parseDouble(apiQps) : 0;
+    }
+
+    /**
+     * Number of calls to the API server which can be made at once before the limit of
+     * calls per second applies
+     */
+    public int getApiBurst() {
+        return StringUtils.isNotBlank(apiBurst) ? Integer.parseInt(apiBurst) : (int) Math.ceil(getApiQps());
+    }
+
     public Config getConfig() {
         final ConfigBuilder configBuilder = new ConfigBuilder();
 
@@ -259,6 +276,16 @@ public class ClusterConfiguration {
             return this;
         }
 
+        public Builder apiQps(String apiQps) {
+            this.clusterConfiguration.apiQps = apiQps;
+            return this;
+        }
+
+        public Builder apiBurst(String apiBurst) {
+            this.clusterConfiguration.apiBurst = apiBurst;
+            return this;
+        }
+
         public ClusterConfiguration build(){
             return this.clusterConfiguration;
         }
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.maven.core.util.GoalReport;
+import io.fabric8.maven.docker.util.Logger;
+
+import static io.fabric8.maven.core.util.GoalReport.toMillis;
+
+/**
+ * Number and latency of the calls made to the API server of a cluster, per verb and kind
+ */
+public class ClusterMetrics {
+
+    /**
+     * {@link GoalReport} in the build directory holding the cluster calls
+     */
+    public static final String METRICS_FILE = "fabric8/cluster-metrics.json";
+
+    // Upper bounds of the latency histogram buckets in milliseconds
+    static final long[] BUCKET_BOUNDS = { 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000 };
+
+    private final Map<String, CallStatistics> statistics = new TreeMap<>();
+    private long throttledNanos;
+
+    /**
+     * Record a call
+     *
+     * @param verb API verb like get, list or create
+     * @param kind resource type of the call as used in the path, e.g. services or pods/log
+     * @param nanos duration of the call
+     * @param throttledNanos time the call had to wait for the rate limiter
+     * @param failed whether the call failed
+     */
+    public synchronized void record(String verb, String kind, long nanos, long throttledNanos, boolean failed) {
+        statistics.computeIfAbsent(verb + " " + kind, k -> new CallStatistics(verb, kind)).record(nanos, failed);
+        this.throttledNanos += throttledNanos;
+    }
+
+    public synchronized int getCalls() {
+        return statistics.values().stream().mapToInt(s -> s.count).sum();
+    }
+
+    /**
+     * Add the calls made by a goal to a report
+     *
+     * @param file the report
+     * @param goal goal which made the calls
+     * @throws IOException if the report cannot be written
+     */
+    public synchronized void write(File file, String goal) throws IOException {
+        GoalReport.write(file, goal, toJson());
+    }
+
+    /**
+     * Log a summary of the calls, the calls per verb and kind are logged in debug mode
+     */
+    public synchronized void logSummary(Logger log) {
+        int calls = 0;
+        int errors = 0;
+        long nanos = 0;
+        for (CallStatistics stats : statistics.values()) {
+            calls += stats.count;
+            errors += stats.errors;
+            nanos += stats.totalNanos;
+        }
+        log.info("Made %d calls to the cluster (%d failed) taking %d ms, %d ms waited for the rate limit",
+                 calls, errors, toMillis(nanos), toMillis(throttledNanos));
+        for (CallStatistics stats : GoalReport.sortedDescending(statistics.values(), s -> s.totalNanos)) {
+            log.debug("  %-6s %-30s %5d calls, %6d ms total, %5d ms max",
+                      stats.verb, stats.kind, stats.count, toMillis(stats.totalNanos), toMillis(stats.maxNanos));
+        }
+    }
+
+    ObjectNode toJson() {
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        int calls = 0;
+        int errors = 0;
+        long nanos = 0;
+        ArrayNode operations = json.arrayNode();
+        for (CallStatistics stats : statistics.values()) {
+            calls += stats.count;
+            errors += stats.errors;
+            nanos += stats.totalNanos;
+            operations.add(stats.toJson());
+        }
+        json.put("calls", calls);
+        json.put("errors", errors);
+        json.put("totalMillis", toMillis(nanos));
+        json.put("throttledMillis", toMillis(throttledNanos));
+        json.set("operations", operations);
+        return json;
+    }
+
+    private static class CallStatistics {
+
+        private final String verb;
+        private final String kind;
+        private final int[] buckets = new int[BUCKET_BOUNDS.length + 1];
+        private int count;
+        private int errors;
+        private long totalNanos;
+        private long maxNanos;
+
+        CallStatistics(String verb, String kind) {
+            this.verb = verb;
+            this.kind = kind;
+        }
+
+        void record(long nanos, boolean failed) {
+            count++;
+            if (failed) {
+                errors++;
+            }
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            long millis = toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket]++;
+        }
+
+        ObjectNode toJson() {
+            ObjectNode json = JsonNodeFactory.instance.objectNode();
+            json.put("verb", verb);
+            json.put("kind", kind);
+            json.put("count", count);
+            json.put("errors", errors);
+            json.put("totalMillis", toMillis(totalNanos));
+            json.put("maxMillis", toMillis(maxNanos));
+            ObjectNode histogram = json.putObject("histogramMillis");
+            for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+                histogram.put("le" + BUCKET_BOUNDS[i], buckets[i]);
+            }
+            histogram.put("inf", buckets[BUCKET_BOUNDS.length]);
+            return json;
+        }
+    }
+}
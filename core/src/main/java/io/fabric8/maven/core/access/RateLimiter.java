@@ -0,0 +1,30 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+/**
+ * Limits the rate of the calls to the API server of a cluster
+ */
+public interface RateLimiter {
+
+    /**
+     * Wait until the next call may be made
+     *
+     * @return the time waited in nanoseconds
+     * @throws InterruptedException if interrupted while waiting
+     */
+    long acquire() throws InterruptedException;
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket allowing bursts of calls up to the size of the bucket, which is refilled with
+ * a constant number of tokens per second.
+ *
+ * The buckets are shared by all goals of the build which use the same cluster with the same limits,
+ * so that modules built in parallel don't exceed the limits together.
+ */
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    private static final Map<String, TokenBucketRateLimiter> SHARED_BUCKETS = new ConcurrentHashMap<>();
+
+    private final double tokensPerNano;
+    private final double burst;
+
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Create a bucket
+     *
+     * @param qps tokens added per second
+     * @param burst maximum number of tokens in the bucket, at least 1
+     */
+    public TokenBucketRateLimiter(double qps, int burst) {
+        if (qps <= 0) {
+            throw new IllegalArgumentException("QPS must be positive but is " + qps);
+        }
+        this.tokensPerNano = qps / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Get the bucket shared by all calls to the given cluster with the given limits
+     */
+    public static TokenBucketRateLimiter forCluster(String masterUrl, double qps, int burst) {
+        return SHARED_BUCKETS.computeIfAbsent(masterUrl + "|" + qps + "|" + burst, k -> new TokenBucketRateLimiter(qps, burst));
+    }
+
+    @Override
+    public long acquire() throws InterruptedException {
+        long wait = reserve(System.nanoTime());
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return wait;
+    }
+
+    // Take a token, which may be handed out in the future, and return the time until it is available
+    synchronized long reserve(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        tokens -= 1;
+        return tokens < 0 ? (long) Math.ceil(-tokens / tokensPerNano) : 0;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.config;
+
+/**
+ * Where a JIB build puts the created image. Only in effect for JIB builds.
+ *
+ * The possible values are:
+ *
+ * <ul>
+ *   <li><strong>tar</strong> : The image is written to a tarball in the output directory,
+ *       from which it is pushed by <code>fabric8:push</code></li>
+ *   <li><strong>registry</strong> : The image is pushed directly to the registry during the build.
+ *       Only layers missing in the registry are uploaded</li>
+ *   <li><strong>docker</strong> : The image is loaded into the local Docker daemon</li>
+ * </ul>
+ */
+public enum JibBuildTarget {
+    tar,
+    registry,
+    docker
+}
@@ -127,14 +127,14 @@ class ContainerHandler {
         return new ImageName(imageConfiguration.getName()).getFullName(configuredRegistry);
     }
 
+    // Returns a copy so that the project properties are not modified
     private Properties getPropertiesWithSystemOverrides(Properties configurationProperties) {
-
-        if (configurationProperties == null) {
-            configurationProperties = new Properties();
+        Properties ret = new Properties();
+        if (configurationProperties != null) {
+            ret.putAll(configurationProperties);
         }
-
-        configurationProperties.putAll(System.getProperties());
-        return configurationProperties;
+        ret.putAll(System.getProperties());
+        return ret;
     }
 
     private SecurityContext createSecurityContext(ResourceConfig config) {
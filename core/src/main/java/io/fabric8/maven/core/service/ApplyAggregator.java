@@ -0,0 +1,136 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Collects the manifests of all modules of a Maven session which should be applied together.
+ *
+ * Each module registers its generated manifests, and the last module of the session running an apply goal drains them
+ * and applies all resources at once. The resources are applied in tiers, so that e.g. the secrets
+ * and config maps of one module exist before the workloads of another module which use them.
+ */
+@Component(role = ApplyAggregator.class, instantiationStrategy = "singleton")
+public class ApplyAggregator {
+
+    // Kinds are applied tier by tier, kinds not listed here are applied in the last tier
+    private static final List<List<String>> KIND_TIERS = Arrays.asList(
+        Arrays.asList("SecurityContextConstraints", "CustomResourceDefinition", "LimitRange", "ResourceQuota",
+                      "PersistentVolume", "StorageClass", "ClusterRole", "ClusterRoleBinding"),
+        Arrays.asList("ServiceAccount", "Secret", "ConfigMap", "PersistentVolumeClaim", "Role", "RoleBinding",
+                      "OAuthClient", "ImageStream", "ImageStreamTag", "Template"),
+        Collections.singletonList("Service"),
+        Arrays.asList("Deployment", "DeploymentConfig", "StatefulSet", "DaemonSet", "ReplicaSet",
+                      "ReplicationController", "Pod", "Job", "CronJob", "BuildConfig")
+    );
+
+    private final Map<Object, Map<String, ModuleManifests>> registrations = new HashMap<>();
+
+    /**
+     * Register the manifests of a module. A module registering twice replaces its former registration.
+     *
+     * @param session the session to which the module belongs
+     * @param manifests the manifests of the module
+     */
+    public synchronized void register(Object session, ModuleManifests manifests) {
+        registrations.computeIfAbsent(session, k -> new LinkedHashMap<>()).put(manifests.getProjectId(), manifests);
+    }
+
+    /**
+     * Remove and return all manifests registered for a session, in the order of registration.
+     *
+     * @param session the session to drain
+     * @return the manifests of all modules of this session
+     */
+    public synchronized List<ModuleManifests> drain(Object session) {
+        Map<String, ModuleManifests> manifests = registrations.remove(session);
+        return manifests != null ? new ArrayList<>(manifests.values()) : Collections.emptyList();
+    }
+
+    /**
+     * Sort resources into tiers which have to be applied one after the other. The resources
+     * within one tier don't depend on each other and can be applied concurrently.
+     *
+     * @param entities resources to sort
+     * @return non-empty tiers in the order in which they should be applied
+     */
+    public static List<List<HasMetadata>> getApplyTiers(Collection<HasMetadata> entities) {
+        Map<Integer, List<HasMetadata>> tiers = new TreeMap<>();
+        for (HasMetadata entity : entities) {
+            tiers.computeIfAbsent(getTier(entity.getKind()), k -> new ArrayList<>()).add(entity);
+        }
+        return new ArrayList<>(tiers.values());
+    }
+
+    private static int getTier(String kind) {
+        for (int i = 0; i < KIND_TIERS.size(); i++) {
+            if (KIND_TIERS.get(i).contains(kind)) {
+                return i;
+            }
+        }
+        return KIND_TIERS.size();
+    }
+
+    /**
+     * Manifests and custom resources of a single module
+     */
+    public static class ModuleManifests {
+
+        private final String projectId;
+        private final File kubernetesManifest;
+        private final File openshiftManifest;
+        private final List<String> customResourceDefinitions;
+        private final Map<File, String> customResourceFiles;
+
+        public ModuleManifests(String projectId, File kubernetesManifest, File openshiftManifest,
+                               List<String> customResourceDefinitions, Map<File, String> customResourceFiles) {
+            this.projectId = projectId;
+            this.kubernetesManifest = kubernetesManifest;
+            this.openshiftManifest = openshiftManifest;
+            this.customResourceDefinitions = customResourceDefinitions;
+            this.customResourceFiles = customResourceFiles;
+        }
+
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public File getManifest(boolean openShift) {
+            return openShift ? openshiftManifest : kubernetesManifest;
+        }
+
+        public List<String> getCustomResourceDefinitions() {
+            return customResourceDefinitions;
+        }
+
+        public Map<File, String> getCustomResourceFiles() {
+            return customResourceFiles;
+        }
+    }
+}
@@ -40,6 +40,7 @@ import io.fabric8.kubernetes.api.model.rbac.RoleBinding;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
 import io.fabric8.maven.core.util.FileUtil;
@@ -70,11 +71,11 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static io.fabric8.maven.core.util.kubernetes.KubernetesHelper.getKind;
 import static io.fabric8.maven.core.util.kubernetes.KubernetesHelper.getName;
@@ -104,8 +105,9 @@ public class ApplyService {
     private boolean rollingUpgradePreserveScale = true;
     private boolean recreateMode;
     private PatchService patchService;
+    private ResourceCache resourceCache;
     // This map is to track projects created.
-    private static Set<String> projectsCreated = new HashSet<>();
+    private static final Set<String> projectsCreated = ConcurrentHashMap.newKeySet();
 
     public ApplyService(KubernetesClient kubernetesClient, Logger log) {
         this.kubernetesClient = kubernetesClient;
@@ -216,7 +218,7 @@ public class ApplyService {
                     log.debug("Only processing Services right now so ignoring OAuthClient: " + id);
                     return;
                 }
-                OAuthClient old = openShiftClient.oAuthClients().withName(id).get();
+                OAuthClient old = getCurrent(OAuthClient.class, null, id, openShiftClient.oAuthClients());
                 if (isRunning(old)) {
                     if (isIgnoreRunningOAuthClients()) {
                         log.info("Not updating the OAuthClient which are shared across namespaces as its already running");
@@ -281,7 +283,7 @@ public class ApplyService {
             String namespace = getNamespace(entity);
             String id = getName(entity);
             Objects.requireNonNull(id, "No name for " + entity + " " + sourceName);
-            Template old = openShiftClient.templates().inNamespace(namespace).withName(id).get();
+            Template old = getCurrent(Template.class, namespace, id, openShiftClient.templates().inNamespace(namespace));
             if (isRunning(old)) {
                 if (UserConfigurationCompare.configEqual(entity, old)) {
                     log.info("Template has not changed so not doing anything");
@@ -340,7 +342,7 @@ public class ApplyService {
             log.debug("Only processing Services right now so ignoring ServiceAccount: " + id);
             return;
         }
-        ServiceAccount old = kubernetesClient.serviceAccounts().inNamespace(namespace).withName(id).get();
+        ServiceAccount old = getCurrent(ServiceAccount.class, namespace, id, kubernetesClient.serviceAccounts().inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(serviceAccount, old)) {
                 log.info("ServiceAccount has not changed so not doing anything");
@@ -393,7 +395,7 @@ public class ApplyService {
             log.debug("Only processing Services right now so ignoring PersistentVolumeClaim: " + id);
             return;
         }
-        PersistentVolumeClaim old = kubernetesClient.persistentVolumeClaims().inNamespace(namespace).withName(id).get();
+        PersistentVolumeClaim old = getCurrent(PersistentVolumeClaim.class, namespace, id, kubernetesClient.persistentVolumeClaims().inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(entity, old)) {
                 log.info("PersistentVolumeClaim has not changed so not doing anything");
@@ -435,7 +437,7 @@ public class ApplyService {
             log.debug("Only processing Services right now so ignoring Custom Resource Definition: " + namespace + ":" + id);
             return;
         }
-        CustomResourceDefinition old = kubernetesClient.customResourceDefinitions().withName(id).get();
+        CustomResourceDefinition old = getCurrent(CustomResourceDefinition.class, null, id, kubernetesClient.customResourceDefinitions());
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(entity, old)) {
                 log.info("Custom Resource Definition has not changed so not doing anything");
@@ -551,7 +553,7 @@ public class ApplyService {
             return;
         }
 
-        Secret old = kubernetesClient.secrets().inNamespace(namespace).withName(id).get();
+        Secret old = getCurrent(Secret.class, namespace, id, kubernetesClient.secrets().inNamespace(namespace));
         // check if the secret already exists or not
         if (isRunning(old)) {
             // if the secret already exists and is the same, then do nothing
@@ -674,7 +676,7 @@ public class ApplyService {
             if (StringUtils.isBlank(namespace)) {
                 namespace = getNamespace(entity);
             }
-            Route route = openShiftClient.routes().inNamespace(namespace).withName(id).get();
+            Route route = getCurrent(Route.class, namespace, id, openShiftClient.routes().inNamespace(namespace));
             if (route == null) {
                 try {
                     log.info("Creating Route " + namespace + ":" + id + " " +
@@ -700,7 +702,7 @@ public class ApplyService {
                 namespace = getNamespace(entity);
             }
             applyNamespace(namespace);
-            BuildConfig old = openShiftClient.buildConfigs().inNamespace(namespace).withName(id).get();
+            BuildConfig old = getCurrent(BuildConfig.class, namespace, id, openShiftClient.buildConfigs().inNamespace(namespace));
             if (isRunning(old)) {
                 if (UserConfigurationCompare.configEqual(entity, old)) {
                     log.info("BuildConfig has not changed so not doing anything");
@@ -755,7 +757,7 @@ public class ApplyService {
                 namespace = getNamespace(entity);
             }
             applyNamespace(namespace);
-            RoleBinding old = openShiftClient.rbac().roleBindings().inNamespace(namespace).withName(id).get();
+            RoleBinding old = getCurrent(RoleBinding.class, namespace, id, openShiftClient.rbac().roleBindings().inNamespace(namespace));
             if (isRunning(old)) {
                 if (UserConfigurationCompare.configEqual(entity, old)) {
                     log.info("RoleBinding has not changed so not doing anything");
@@ -807,7 +809,7 @@ public class ApplyService {
             String namespace = getNamespace(entity);
             try {
                 Resource<ImageStream, DoneableImageStream> resource = openShiftClient.imageStreams().inNamespace(namespace).withName(name);
-                ImageStream old = resource.get();
+                ImageStream old = getCurrent(ImageStream.class, namespace, name, openShiftClient.imageStreams().inNamespace(namespace));
                 if (old == null) {
                     log.info("Creating " + kind + " " + name + " from " + sourceName);
                     resource.create(entity);
@@ -885,7 +887,7 @@ public class ApplyService {
             log.debug("Ignoring Service: " + namespace + ":" + id);
             return;
         }
-        Service old = kubernetesClient.services().inNamespace(namespace).withName(id).get();
+        Service old = getCurrent(Service.class, namespace, id, kubernetesClient.services().inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(service, old)) {
                 log.info("Service has not changed so not doing anything");
@@ -922,7 +924,7 @@ public class ApplyService {
             log.debug("Ignoring " + kind + ": " + namespace + ":" + id);
             return;
         }
-        T old = resources.inNamespace(namespace).withName(id).get();
+        T old = getCurrent((Class<T>) resource.getClass(), namespace, id, resources.inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(resource, old)) {
                 log.info(kind + " has not changed so not doing anything");
@@ -999,7 +1001,7 @@ public class ApplyService {
             return false;
         }
         else {
-            return kubernetesClient.namespaces().withName(namespaceName).get() != null;
+            return getCurrent(Namespace.class, null, namespaceName, kubernetesClient.namespaces()) != null;
         }
     }
 
@@ -1066,7 +1068,7 @@ public class ApplyService {
         log.info("Using namespace: " + namespace);
         String name = getName(entity);
         Objects.requireNonNull(name, "No name for " + entity );
-        Namespace old = kubernetesClient.namespaces().withName(name).get();
+        Namespace old = getCurrent(Namespace.class, null, name, kubernetesClient.namespaces());
         if (!isRunning(old)) {
             try {
                 Object answer = kubernetesClient.namespaces().create(entity);
@@ -1094,6 +1096,13 @@ public class ApplyService {
      * Returns true if the ProjectRequest is created
      */
     public boolean applyProjectRequest(ProjectRequest entity) {
+        // Modules of a parallel build may request the same project
+        synchronized (projectsCreated) {
+            return applyProjectRequestOnce(entity);
+        }
+    }
+
+    private boolean applyProjectRequestOnce(ProjectRequest entity) {
         // Check whether project creation attempted before
         if (projectsCreated.contains(getName(entity))) {
             return false;
@@ -1130,7 +1139,7 @@ public class ApplyService {
             log.debug("Only processing Services right now so ignoring ReplicationController: " + namespace + ":" + id);
             return;
         }
-        ReplicationController old = kubernetesClient.replicationControllers().inNamespace(namespace).withName(id).get();
+        ReplicationController old = getCurrent(ReplicationController.class, namespace, id, kubernetesClient.replicationControllers().inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(replicationController, old)) {
                 log.info("ReplicationController has not changed so not doing anything");
@@ -1201,7 +1210,7 @@ public class ApplyService {
             log.debug("Only processing Services right now so ignoring Pod: " + namespace + ":" + id);
             return;
         }
-        Pod old = kubernetesClient.pods().inNamespace(namespace).withName(id).get();
+        Pod old = getCurrent(Pod.class, namespace, id, kubernetesClient.pods().inNamespace(namespace));
         if (isRunning(old)) {
             if (UserConfigurationCompare.configEqual(pod, old)) {
                 log.info("Pod has not changed so not doing anything");
@@ -1257,7 +1266,7 @@ public class ApplyService {
             doCreateJob(job, namespace, sourceName);
         } catch (KubernetesClientException exception) {
             if(exception.getStatus().getCode().equals(HttpURLConnection.HTTP_CONFLICT)) {
-                Job old = kubernetesClient.batch().jobs().inNamespace(namespace).withName(id).get();
+                Job old = getCurrent(Job.class, namespace, id, kubernetesClient.batch().jobs().inNamespace(namespace));
                 Job updatedJob = patchService.compareAndPatchEntity(namespace, job, old);
                 log.info("Updated Job: " + old.getMetadata().getName());
                 return;
@@ -1293,6 +1302,19 @@ public class ApplyService {
         this.namespace = namespace;
     }
 
+    /**
+     * Serve the lookups of existing resources from the given cache instead of getting each resource
+     * from the cluster. The cache is not closed by this service.
+     */
+    public void setResourceCache(ResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+    }
+
+    private <T extends HasMetadata> T getCurrent(Class<T> type, String namespace, String name,
+                                                 NonNamespaceOperation<T, ?, ?, ? extends Resource<T, ?>> resources) {
+        return resourceCache != null ? resourceCache.get(type, namespace, name, resources) : resources.withName(name).get();
+    }
+
     public boolean isProcessTemplatesLocally() {
         return processTemplatesLocally;
     }
@@ -16,12 +16,17 @@
 package io.fabric8.maven.core.service;
 
 import java.io.File;
+import java.util.List;
+
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.maven.core.config.BuildRecreateMode;
+import io.fabric8.maven.core.config.JibBuildTarget;
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.config.ResourceConfig;
+import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.service.ImagePullManager;
+import io.fabric8.maven.docker.service.RegistryService;
 import io.fabric8.maven.docker.util.MojoParameters;
 import io.fabric8.maven.docker.util.Task;
 
@@ -38,11 +43,23 @@ public interface BuildService {
      */
     void build(ImageConfiguration imageConfig) throws Fabric8ServiceException;
 
+    /**
+     * Builds the given images. By default the images are built one after another, but
+     * implementations can decide to build them concurrently.
+     *
+     * @param imageConfigs the images to build
+     */
+    default void build(List<ImageConfiguration> imageConfigs) throws Fabric8ServiceException {
+        for (ImageConfiguration imageConfig : imageConfigs) {
+            build(imageConfig);
+        }
+    }
+
     /**
      * Post processing step called after all images has been build
      * @param config build configuration
      */
-    void postProcess(BuildServiceConfig config);
+    void postProcess(BuildServiceConfig config) throws Fabric8ServiceException;
 
     /**
      * Class to hold configuration parameters for the building service.
@@ -77,6 +94,22 @@ public interface BuildService {
 
         private File resourceDir;
 
+        private boolean streamBuildArchive;
+
+        private ArchiveCompression buildArchiveCompression = ArchiveCompression.none;
+
+        private boolean skipUnchangedBuild;
+
+        private List<String> jibLayers;
+
+        private JibBuildTarget jibBuildTarget = JibBuildTarget.tar;
+
+        private RegistryService.RegistryConfig pushRegistryConfig;
+
+        private boolean reproducibleBuild;
+
+        private File jibImageIndexDirectory;
+
         public BuildServiceConfig() {
         }
 
@@ -134,6 +167,38 @@ public interface BuildService {
             return resourceDir;
         }
 
+        public boolean isStreamBuildArchive() {
+            return streamBuildArchive;
+        }
+
+        public ArchiveCompression getBuildArchiveCompression() {
+            return buildArchiveCompression;
+        }
+
+        public boolean isSkipUnchangedBuild() {
+            return skipUnchangedBuild;
+        }
+
+        public List<String> getJibLayers() {
+            return jibLayers;
+        }
+
+        public JibBuildTarget getJibBuildTarget() {
+            return jibBuildTarget;
+        }
+
+        public RegistryService.RegistryConfig getPushRegistryConfig() {
+            return pushRegistryConfig;
+        }
+
+        public boolean isReproducibleBuild() {
+            return reproducibleBuild;
+        }
+
+        public File getJibImageIndexDirectory() {
+            return jibImageIndexDirectory;
+        }
+
         public void attachArtifact(String classifier, File destFile) {
             if (attacher != null) {
                 attacher.attach(classifier, destFile);
@@ -221,6 +286,46 @@ public interface BuildService {
                 return this;
             }
 
+            public Builder streamBuildArchive(boolean streamBuildArchive) {
+                config.streamBuildArchive = streamBuildArchive;
+                return this;
+            }
+
+            public Builder buildArchiveCompression(ArchiveCompression buildArchiveCompression) {
+                config.buildArchiveCompression = buildArchiveCompression != null ? buildArchiveCompression : ArchiveCompression.none;
+                return this;
+            }
+
+            public Builder skipUnchangedBuild(boolean skipUnchangedBuild) {
+                config.skipUnchangedBuild = skipUnchangedBuild;
+                return this;
+            }
+
+            public Builder jibLayers(List<String> jibLayers) {
+                config.jibLayers = jibLayers;
+                return this;
+            }
+
+            public Builder jibBuildTarget(JibBuildTarget jibBuildTarget) {
+                config.jibBuildTarget = jibBuildTarget != null ? jibBuildTarget : JibBuildTarget.tar;
+                return this;
+            }
+
+            public Builder pushRegistryConfig(RegistryService.RegistryConfig pushRegistryConfig) {
+                config.pushRegistryConfig = pushRegistryConfig;
+                return this;
+            }
+
+            public Builder reproducibleBuild(boolean reproducibleBuild) {
+                config.reproducibleBuild = reproducibleBuild;
+                return this;
+            }
+
+            public Builder jibImageIndexDirectory(File jibImageIndexDirectory) {
+                config.jibImageIndexDirectory = jibImageIndexDirectory;
+                return this;
+            }
+
             public BuildServiceConfig build() {
                 return config;
             }
@@ -25,6 +25,7 @@ import io.fabric8.maven.core.service.kubernetes.DockerBuildService;
 import io.fabric8.maven.core.service.kubernetes.jib.JibBuildService;
 import io.fabric8.maven.core.service.openshift.OpenshiftBuildService;
 import io.fabric8.maven.core.service.kubernetes.jib.JibAssemblyManager;
+import io.fabric8.maven.core.service.kubernetes.jib.JibCacheManager;
 import io.fabric8.maven.core.util.LazyBuilder;
 import io.fabric8.maven.docker.service.ServiceHub;
 import io.fabric8.maven.docker.util.Logger;
@@ -68,6 +69,8 @@ public class Fabric8ServiceHub {
 
     private JibAssemblyManager jibAssemblyManager;
 
+    private JibCacheManager jibCacheManager;
+
     private ConcurrentHashMap<Class<?>, LazyBuilder<?>> services = new ConcurrentHashMap<>();
 
     private Fabric8ServiceHub() {
@@ -105,7 +108,7 @@ public class Fabric8ServiceHub {
                 } else {
                     // Kubernetes services
                     if(isJib) {
-                        buildService = new JibBuildService(buildServiceConfig, jibAssemblyManager, log);
+                        buildService = new JibBuildService(buildServiceConfig, jibAssemblyManager, jibCacheManager, log);
                     } else {
                         buildService = new DockerBuildService(dockerServiceHub, buildServiceConfig);
                     }
@@ -130,6 +133,10 @@ public class Fabric8ServiceHub {
         return (ArtifactResolverService) this.services.get(ArtifactResolverService.class).get();
     }
 
+    public boolean isJibMode() {
+        return isJib;
+    }
+
     // =================================================
 
     public static class Builder {
@@ -184,6 +191,11 @@ public class Fabric8ServiceHub {
             return this;
         }
 
+        public Builder jibCacheManager(JibCacheManager jibCacheManager) {
+            hub.jibCacheManager = jibCacheManager;
+            return this;
+        }
+
         public Fabric8ServiceHub build() {
             hub.init();
             return hub;
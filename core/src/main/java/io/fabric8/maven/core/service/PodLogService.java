@@ -42,7 +42,6 @@ import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
 import io.fabric8.maven.docker.util.Logger;
 import org.apache.commons.lang3.StringUtils;
 
-import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.deleteEntities;
 import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.getPodStatusDescription;
 import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.getPodStatusMessagePostfix;
 import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.resizeApp;
@@ -96,7 +95,11 @@ public class PodLogService {
                     public void run() {
                         if (onExitOperationLower.equals(OPERATION_UNDEPLOY)) {
                             log.info("Undeploying the app:");
-                            deleteEntities(kubernetes, namespace, entities, context.getS2iBuildNameSuffix(), log);
+                            try {
+                                new UndeployService(kubernetes, log).undeploy(namespace, entities, context.getS2iBuildNameSuffix(), 0);
+                            } catch (Fabric8ServiceException e) {
+                                log.warn("%s", e.getMessage());
+                            }
                         } else if (onExitOperationLower.equals(OPERATION_STOP)) {
                             log.info("Stopping the app:");
                             resizeApp(kubernetes, namespace, entities, 0, log);
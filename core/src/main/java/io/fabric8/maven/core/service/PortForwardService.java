@@ -16,144 +16,99 @@
 package io.fabric8.maven.core.service;
 
 import java.io.Closeable;
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.PortForward;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
-import io.fabric8.maven.core.util.ProcessUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
-import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
 import io.fabric8.maven.docker.util.Logger;
-import org.apache.commons.lang3.StringUtils;
 
 /**
  * A service for forwarding connections to remote pods.
  *
+ * Connections are forwarded in-process over the port-forward websocket of the Kubernetes API server,
+ * so neither kubectl nor oc need to be installed.
+ *
  * @author nicola
  * @since 28/03/2017
  */
 public class PortForwardService {
 
-    private ClientToolsService clientToolsService;
-
     private Logger log;
 
     private KubernetesClient kubernetes;
 
     public PortForwardService(KubernetesClient kubernetes, Logger log) {
-        this.clientToolsService = new ClientToolsService(log);
         this.log = Objects.requireNonNull(log, "log");
         this.kubernetes = Objects.requireNonNull(kubernetes, "kubernetes");
     }
 
     /**
      * Forwards a port to the newest pod matching the given selector.
-     * If another pod is created, it forwards connections to the new pod once it's ready.
+     * If another pod is created, new connections are forwarded to the new pod once it's ready.
+     * The local port stays open while switching pods.
      */
-    public Closeable forwardPortAsync(final Logger externalProcessLogger, final LabelSelector podSelector, final int remotePort, final int localPort) throws Fabric8ServiceException {
-
-        final Lock monitor = new ReentrantLock(true);
-        final Condition podChanged = monitor.newCondition();
-        final Pod[] nextForwardedPod = new Pod[1];
-
-        final Thread forwarderThread = new Thread() {
-            @Override
-            public void run() {
-
-                Pod currentPod = null;
-                Closeable currentPortForward = null;
-
-                try {
-                    monitor.lock();
+    public LocalForward forwardPortAsync(final Logger connectionLogger, final LabelSelector podSelector, final int remotePort, final int localPort) throws Fabric8ServiceException {
 
-                    while (true) {
-                        if (podEquals(currentPod, nextForwardedPod[0])) {
-                            podChanged.await();
-                        } else {
-                            Pod nextPod = nextForwardedPod[0]; // may be null
-                            try {
-                                monitor.unlock();
-                                // out of critical section
-
-                                if (currentPortForward != null) {
-                                    log.info("Closing port-forward from pod %s", KubernetesHelper.getName(currentPod));
-                                    currentPortForward.close();
-                                    currentPortForward = null;
-                                }
-
-                                if (nextPod != null) {
-                                    log.info("Starting port-forward to pod %s", KubernetesHelper.getName(nextPod));
-                                    currentPortForward = forwardPortAsync(externalProcessLogger, KubernetesHelper.getName(nextPod), remotePort, localPort);
-                                } else {
-                                    log.info("Waiting for a pod to become ready before starting port-forward");
-                                }
-                                currentPod = nextPod;
-                            } finally {
-                                monitor.lock();
-                            }
-                        }
-
-                    }
-
-                } catch (InterruptedException e) {
-                    log.debug("Port-forwarding thread interrupted", e);
-                    Thread.currentThread().interrupt();
-                } catch (Exception e) {
-                    log.warn("Error while port-forwarding to pod", e);
-                } finally {
-                    monitor.unlock();
-
-                    if (currentPortForward != null) {
-                        try {
-                            currentPortForward.close();
-                        } catch (Exception e) {}
-                    }
-                }
-            }
-        };
+        final AtomicReference<Pod> forwardedPod = new AtomicReference<>(getNewestPod(podSelector));
+        if (forwardedPod.get() != null) {
+            log.info("Starting port-forward to pod %s", KubernetesHelper.getName(forwardedPod.get()));
+        } else {
+            log.info("Waiting for a pod to become ready before forwarding connections");
+        }
 
-        // Switching forward to the current pod if present
-        Pod newPod = getNewestPod(podSelector);
-        nextForwardedPod[0] = newPod;
+        final LocalForward forward = new LocalForward(remotePort, localPort, () -> {
+            Pod pod = forwardedPod.get();
+            return pod != null ? KubernetesHelper.getName(pod) : null;
+        }, connectionLogger);
 
         final Watch watch = KubernetesClientUtil.withSelector(kubernetes.pods(), podSelector, log).watch(new Watcher<Pod>() {
 
             @Override
             public void eventReceived(Action action, Pod pod) {
-                monitor.lock();
-                try {
+                synchronized (forwardedPod) {
+                    Pod currentPod = forwardedPod.get();
                     List<Pod> candidatePods;
-                    if (nextForwardedPod[0] != null) {
+                    if (currentPod != null) {
                         candidatePods = new LinkedList<>();
-                        candidatePods.add(nextForwardedPod[0]);
+                        candidatePods.add(currentPod);
                         candidatePods.add(pod);
                     } else {
                         candidatePods = Collections.singletonList(pod);
                     }
                     Pod newPod = getNewestPod(candidatePods); // may be null
-                    if (!podEquals(nextForwardedPod[0], newPod)) {
-                        nextForwardedPod[0] = newPod;
-                        podChanged.signal();
+                    if (!podEquals(currentPod, newPod)) {
+                        forwardedPod.set(newPod);
+                        if (newPod != null) {
+                            log.info("Forwarding new connections to pod %s", KubernetesHelper.getName(newPod));
+                        } else {
+                            log.info("Waiting for a pod to become ready before forwarding connections");
+                        }
                     }
-                } finally {
-                    monitor.unlock();
                 }
             }
 
@@ -162,30 +117,16 @@ public class PortForwardService {
                 // don't care
             }
         });
+        forward.onClose(watch::close);
 
-        forwarderThread.start();
-
-        final Closeable handle = () -> {
-            try {
-                watch.close();
-            } catch (Exception e) {}
-            try {
-                forwarderThread.interrupt();
-                forwarderThread.join(15000);
-            } catch (Exception e) {}
-        };
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
-                try {
-                    handle.close();
-                } catch (Exception e) {
-                    // suppress
-                }
+                forward.close();
             }
         });
 
-        return handle;
+        return forward;
     }
 
     private boolean podEquals(Pod pod1, Pod pod2) {
@@ -224,25 +165,138 @@ public class PortForwardService {
         return targetPod;
     }
 
-    public void forwardPort(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
-        forwardPortAsync(externalProcessLogger, pod, remotePort, localPort).await();
+    public void forwardPort(Logger connectionLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
+        try {
+            forwardPortAsync(connectionLogger, pod, remotePort, localPort).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public ProcessUtil.ProcessExecutionContext forwardPortAsync(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
-        File command = clientToolsService.getKubeCtlExecutable(OpenshiftHelper.isOpenShiftClient(kubernetes));
-        log.info("Port forwarding to port " + remotePort + " on pod " + pod + " using command " + command);
+    public LocalForward forwardPortAsync(Logger connectionLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
+        log.info("Port forwarding to port " + remotePort + " on pod " + pod);
+        return new LocalForward(remotePort, localPort, () -> pod, connectionLogger);
+    }
 
-        List<String> args = new ArrayList<>();
-        args.add("port-forward");
-        args.add(pod);
-        args.add(localPort + ":" + remotePort);
+    /**
+     * Local port whose connections are forwarded to a port of a pod. Each accepted connection gets its own
+     * port-forward stream, the pod is looked up for every new connection.
+     */
+    public class LocalForward implements Closeable {
+
+        private final int remotePort;
+        private final Supplier<String> podName;
+        private final Logger connectionLogger;
+        private final ServerSocketChannel serverChannel;
+        private final Map<PortForward, SocketChannel> connections = new ConcurrentHashMap<>();
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private final List<Closeable> closeables = new LinkedList<>();
+
+        LocalForward(int remotePort, int localPort, Supplier<String> podName, Logger connectionLogger) throws Fabric8ServiceException {
+            this.remotePort = remotePort;
+            this.podName = podName;
+            this.connectionLogger = connectionLogger != null ? connectionLogger : log;
+            try {
+                serverChannel = ServerSocketChannel.open();
+                serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), localPort));
+            } catch (IOException e) {
+                throw new Fabric8ServiceException("Cannot listen on local port " + localPort + " for port-forward", e);
+            }
+            Thread acceptor = new Thread(this::acceptConnections, "port-forward-" + localPort);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        /**
+         * @return the local port on which connections are accepted
+         */
+        public int getLocalPort() {
+            return serverChannel.socket().getLocalPort();
+        }
+
+        /**
+         * @return the name of the pod to which new connections are forwarded, or null if no pod is available
+         */
+        public String getPodName() {
+            return podName.get();
+        }
+
+        /**
+         * Wait until the forward is closed
+         */
+        public void await() throws InterruptedException {
+            closed.await();
+        }
+
+        @Override
+        public void close() {
+            synchronized (closeables) {
+                for (Closeable closeable : closeables) {
+                    closeQuietly(closeable);
+                }
+                closeables.clear();
+            }
+            closeQuietly(serverChannel);
+            for (Map.Entry<PortForward, SocketChannel> connection : connections.entrySet()) {
+                closeQuietly(connection.getKey());
+                closeQuietly(connection.getValue());
+            }
+            connections.clear();
+        }
+
+        private void onClose(Closeable closeable) {
+            synchronized (closeables) {
+                closeables.add(closeable);
+            }
+        }
+
+        private void acceptConnections() {
+            try {
+                while (serverChannel.isOpen()) {
+                    SocketChannel socket = serverChannel.accept();
+                    removeClosedConnections();
+                    String pod = podName.get();
+                    if (pod == null) {
+                        connectionLogger.warn("No pod available for port-forward, closing connection from %s", socket.getRemoteAddress());
+                        closeQuietly(socket);
+                        continue;
+                    }
+                    try {
+                        connectionLogger.debug("Forwarding connection from %s to port %d of pod %s", socket.getRemoteAddress(), remotePort, pod);
+                        PortForward forward = kubernetes.pods().withName(pod).portForward(remotePort, socket, socket);
+                        connections.put(forward, socket);
+                    } catch (KubernetesClientException e) {
+                        connectionLogger.warn("Cannot forward connection to pod %s: %s", pod, e.getMessage());
+                        closeQuietly(socket);
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                // Forward has been closed
+            } catch (IOException e) {
+                log.warn("Error while accepting connections for port-forward: %s", e.getMessage());
+            } finally {
+                closed.countDown();
+            }
+        }
+
+        // Connections whose stream ended are only cleaned up when a new connection is accepted or the forward is closed
+        private void removeClosedConnections() {
+            for (Iterator<Map.Entry<PortForward, SocketChannel>> it = connections.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<PortForward, SocketChannel> connection = it.next();
+                if (!connection.getKey().isAlive() || !connection.getValue().isOpen()) {
+                    closeQuietly(connection.getKey());
+                    closeQuietly(connection.getValue());
+                    it.remove();
+                }
+            }
+        }
+    }
 
-        String commandLine = command + " " + StringUtils.join(args, " ");
-        log.verbose(Logger.LogVerboseCategory.BUILD, "Executing command " + commandLine);
+    private static void closeQuietly(Closeable closeable) {
         try {
-            return ProcessUtil.runAsyncCommand(externalProcessLogger, command, args, true, false);
-        } catch (IOException e) {
-            throw new Fabric8ServiceException("Error while executing the port-forward command", e);
+            closeable.close();
+        } catch (Exception e) {
+            // suppress
         }
     }
 }
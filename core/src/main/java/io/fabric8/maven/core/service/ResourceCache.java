@@ -0,0 +1,155 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.docker.util.Logger;
+
+/**
+ * Read cache for the resources looked up while applying resources.
+ *
+ * The first lookup of a kind in a namespace lists all resources of this kind and keeps the list
+ * current with a watch, so that all further lookups of this kind are served from memory. Kinds which
+ * cannot be listed or watched (e.g. because of missing permissions) are looked up one by one.
+ *
+ * A resource is looked up before it is created, replaced or deleted, and the watch may report such a change
+ * only after a later lookup of the same resource. Therefore each resource is served from the cache only for
+ * its first lookup, all further lookups of it get the resource from the cluster.
+ */
+public class ResourceCache implements Closeable {
+
+    private final Logger log;
+
+    private final Map<String, KindCache<?>> caches = new ConcurrentHashMap<>();
+
+    public ResourceCache(Logger log) {
+        this.log = log;
+    }
+
+    /**
+     * Get a resource from the cache
+     *
+     * @param type type of the resource
+     * @param namespace namespace of the resource, null for cluster scoped resources
+     * @param name name of the resource
+     * @param resources operation for the resources of this type, restricted to the namespace
+     * @return the resource or null if it doesn't exist
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends HasMetadata> T get(Class<T> type, String namespace, String name,
+                                         NonNamespaceOperation<T, ?, ?, ? extends Resource<T, ?>> resources) {
+        String key = (namespace != null ? namespace + "/" : "") + type.getName();
+        KindCache<T> cache = (KindCache<T>) caches.computeIfAbsent(key, k -> new KindCache<T>(type.getSimpleName(), namespace));
+        return cache.get(name, resources);
+    }
+
+    @Override
+    public void close() {
+        for (KindCache<?> cache : caches.values()) {
+            cache.close();
+        }
+        caches.clear();
+    }
+
+    private class KindCache<T extends HasMetadata> implements Watcher<T> {
+
+        private final String description;
+        private final Map<String, T> resources = new ConcurrentHashMap<>();
+        // Names of the resources already served from the cache, which may have been changed since
+        private final Set<String> served = ConcurrentHashMap.newKeySet();
+
+        private Watch watch;
+        // Whether the list is complete and watched
+        private volatile boolean current;
+        // Whether listing or watching failed, resources are then looked up one by one
+        private boolean uncacheable;
+
+        KindCache(String kind, String namespace) {
+            this.description = kind + (namespace != null ? " in namespace " + namespace : "");
+        }
+
+        synchronized T get(String name, NonNamespaceOperation<T, ?, ?, ? extends Resource<T, ?>> operation) {
+            if (!current && !uncacheable) {
+                load(operation);
+            }
+            return current && served.add(name) ? resources.get(name) : operation.withName(name).get();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void load(NonNamespaceOperation<T, ?, ?, ? extends Resource<T, ?>> operation) {
+            closeWatch();
+            try {
+                KubernetesResourceList<T> list = (KubernetesResourceList<T>) operation.list();
+                resources.clear();
+                for (T item : list.getItems()) {
+                    resources.put(KubernetesHelper.getName(item), item);
+                }
+                watch = operation.withResourceVersion(list.getMetadata().getResourceVersion()).watch(this);
+                current = true;
+                log.debug("Cached %d resources of kind %s", resources.size(), description);
+            } catch (KubernetesClientException e) {
+                uncacheable = true;
+                closeWatch();
+                log.debug("Cannot cache %s, looking up resources one by one: %s", description, e.getMessage());
+            }
+        }
+
+        @Override
+        public void eventReceived(Action action, T resource) {
+            switch (action) {
+                case ADDED:
+                case MODIFIED:
+                    resources.put(KubernetesHelper.getName(resource), resource);
+                    break;
+                case DELETED:
+                    resources.remove(KubernetesHelper.getName(resource));
+                    break;
+                default:
+                    // List again on the next lookup
+                    current = false;
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException cause) {
+            current = false;
+        }
+
+        synchronized void close() {
+            current = false;
+            closeWatch();
+        }
+
+        private void closeWatch() {
+            if (watch != null) {
+                watch.close();
+                watch = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.maven.core.util.ResourceClassifier;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Hands the resources generated by the resource goal over to the apply goal of the same module
+ * without going through the manifest files.
+ *
+ * The manifests are still written, but in the background while the resources are applied.
+ * The goal applying the resources waits for the manifests to be written before it finishes.
+ * Resources which are never taken must be taken with {@link #takeAll(Object)} at the end of the session,
+ * so that failures to write their manifests are not lost.
+ */
+@Component(role = ResourceHandoff.class, instantiationStrategy = "singleton")
+public class ResourceHandoff {
+
+    private final Map<Object, Map<String, ModuleResources>> handoffs = new HashMap<>();
+
+    /**
+     * Start a handoff for a module. If the module already has a pending handoff, its manifests are
+     * written completely before the new one is started, so that the manifest files are never written concurrently.
+     *
+     * @param session the session to which the module belongs
+     * @param projectId id of the module
+     * @return the resources to fill
+     * @throws Fabric8ServiceException if the manifests of the former handoff could not be written
+     */
+    public ModuleResources open(Object session, String projectId) throws Fabric8ServiceException {
+        ModuleResources previous;
+        ModuleResources resources = new ModuleResources();
+        synchronized (this) {
+            previous = handoffs.computeIfAbsent(session, k -> new HashMap<>()).put(projectId, resources);
+        }
+        if (previous != null) {
+            previous.awaitWritten();
+        }
+        return resources;
+    }
+
+    /**
+     * Remove and return the resources handed over for a module
+     *
+     * @param session the session to which the module belongs
+     * @param projectId id of the module
+     * @return the handed over resources or null if there are none
+     */
+    public synchronized ModuleResources take(Object session, String projectId) {
+        Map<String, ModuleResources> resources = handoffs.get(session);
+        if (resources == null) {
+            return null;
+        }
+        ModuleResources ret = resources.remove(projectId);
+        if (resources.isEmpty()) {
+            handoffs.remove(session);
+        }
+        return ret;
+    }
+
+    /**
+     * Remove and return all resources of a session which have not been taken, e.g. because the apply
+     * goal has been skipped or failed before taking them. Their manifests must still be awaited.
+     *
+     * @param session the session
+     * @return the remaining resources by module id
+     */
+    public synchronized Map<String, ModuleResources> takeAll(Object session) {
+        Map<String, ModuleResources> resources = handoffs.remove(session);
+        return resources != null ? resources : Collections.emptyMap();
+    }
+
+    /**
+     * Generated resources of a single module together with the writing of their manifests
+     */
+    public static class ModuleResources {
+
+        private final Map<ResourceClassifier, KubernetesList> resources = new HashMap<>();
+        private final Map<ResourceClassifier, File> manifests = new HashMap<>();
+        private final List<Future<Void>> writes = new ArrayList<>();
+
+        /**
+         * Add the resources of a classifier and start writing their manifest in the background
+         *
+         * @param classifier classifier of the resources
+         * @param manifest manifest file to which the resources are written
+         * @param list resources to hand over, null if they can only be taken from the manifest
+         * @param writer writes the manifest
+         */
+        public synchronized void add(ResourceClassifier classifier, File manifest, KubernetesList list, Callable<Void> writer) {
+            if (list != null) {
+                resources.put(classifier, list);
+                manifests.put(classifier, manifest.getAbsoluteFile());
+            }
+            FutureTask<Void> write = new FutureTask<>(writer);
+            writes.add(write);
+            new Thread(write, "fabric8-write-" + classifier.getValue()).start();
+        }
+
+        /**
+         * Get the resources which would be read from the given manifest
+         *
+         * @param classifier classifier of the resources
+         * @param manifest manifest from which the resources would be read
+         * @return the resources or null if they have not been handed over for this manifest
+         */
+        public synchronized KubernetesList getResources(ResourceClassifier classifier, File manifest) {
+            File handedOver = manifests.get(classifier);
+            return handedOver != null && handedOver.equals(manifest.getAbsoluteFile()) ? resources.get(classifier) : null;
+        }
+
+        /**
+         * Wait until all manifests are written
+         *
+         * @throws Fabric8ServiceException if a manifest could not be written
+         */
+        public void awaitWritten() throws Fabric8ServiceException {
+            List<Future<Void>> pending;
+            synchronized (this) {
+                pending = new ArrayList<>(writes);
+            }
+            Fabric8ServiceException failure = null;
+            for (Future<Void> write : pending) {
+                try {
+                    write.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new Fabric8ServiceException("Interrupted while writing the manifests", e);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new Fabric8ServiceException(e.getCause().getMessage(), e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
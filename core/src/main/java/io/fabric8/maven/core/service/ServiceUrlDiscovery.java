@@ -0,0 +1,260 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceList;
+import io.fabric8.kubernetes.api.model.ServicePort;
+import io.fabric8.kubernetes.api.model.extensions.Ingress;
+import io.fabric8.kubernetes.api.model.extensions.IngressList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.maven.core.util.kubernetes.Fabric8Annotations;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
+import io.fabric8.maven.core.util.kubernetes.ServiceUrlUtil;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.api.model.Route;
+import io.fabric8.openshift.api.model.RouteList;
+import io.fabric8.openshift.api.model.RouteSpec;
+import io.fabric8.openshift.client.OpenShiftClient;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Discovers the URLs under which a set of services is exposed.
+ *
+ * A URL is taken from the <code>fabric8.io/exposeUrl</code> annotation of a service (as set by the
+ * exposecontroller), from a route pointing to the service or from an ingress with the service as backend.
+ * Services, routes and ingresses are looked up once for all services. For services labeled with
+ * <code>expose=true</code> which have no URL yet, the namespace is watched until all URLs are known
+ * or the timeout is reached.
+ */
+public class ServiceUrlDiscovery {
+
+    private final KubernetesClient kubernetes;
+    private final String namespace;
+    private final Logger log;
+
+    public ServiceUrlDiscovery(KubernetesClient kubernetes, String namespace, Logger log) {
+        this.kubernetes = Objects.requireNonNull(kubernetes, "kubernetes");
+        this.namespace = StringUtils.isNotBlank(namespace) ? namespace : kubernetes.getNamespace();
+        this.log = Objects.requireNonNull(log, "log");
+    }
+
+    /**
+     * Discover the URLs of the given services
+     *
+     * @param services services for which the URLs should be discovered
+     * @param waitTimeSeconds how long to wait in total for the URLs of exposed services
+     * @return the discovered URLs by service name, in the order of the given services
+     */
+    public Map<String, String> discoverServiceUrls(Collection<Service> services, long waitTimeSeconds) throws InterruptedException {
+        Map<String, Service> servicesByName = new LinkedHashMap<>();
+        for (Service service : services) {
+            servicesByName.put(KubernetesHelper.getName(service), service);
+        }
+        Map<String, String> urls = new ConcurrentHashMap<>();
+        if (servicesByName.isEmpty()) {
+            return urls;
+        }
+
+        boolean openShift = OpenshiftHelper.isOpenShift(kubernetes);
+        lookupCurrentUrls(servicesByName, urls, openShift);
+
+        Set<String> pending = ConcurrentHashMap.newKeySet();
+        for (Service service : servicesByName.values()) {
+            String name = KubernetesHelper.getName(service);
+            if (!urls.containsKey(name) && isExposeService(service)) {
+                pending.add(name);
+            }
+        }
+        if (!pending.isEmpty() && waitTimeSeconds > 0) {
+            waitForUrls(servicesByName, pending, urls, openShift, waitTimeSeconds);
+        }
+        return sortByServices(servicesByName, urls);
+    }
+
+    /**
+     * Check whether a service is exposed by the exposecontroller
+     *
+     * @param service service to check
+     * @return true if the service is labeled with <code>expose=true</code>
+     */
+    public static boolean isExposeService(Service service) {
+        String expose = KubernetesHelper.getLabels(service).get("expose");
+        return expose != null && expose.toLowerCase().equals("true");
+    }
+
+    private void lookupCurrentUrls(Map<String, Service> servicesByName, Map<String, String> urls, boolean openShift) {
+        ServiceList serviceList = kubernetes.services().inNamespace(namespace).list();
+        if (serviceList != null && serviceList.getItems() != null) {
+            for (Service service : serviceList.getItems()) {
+                updateFromService(servicesByName, urls, service);
+            }
+        }
+        if (openShift) {
+            RouteList routeList = kubernetes.adapt(OpenShiftClient.class).routes().inNamespace(namespace).list();
+            if (routeList != null && routeList.getItems() != null) {
+                for (Route route : routeList.getItems()) {
+                    updateFromRoute(servicesByName, urls, route);
+                }
+            }
+        }
+        try {
+            IngressList ingressList = kubernetes.extensions().ingresses().inNamespace(namespace).list();
+            if (ingressList != null && ingressList.getItems() != null) {
+                for (Ingress ingress : ingressList.getItems()) {
+                    updateFromIngress(servicesByName, urls, ingress);
+                }
+            }
+        } catch (KubernetesClientException exp) {
+            log.debug("Cannot look up ingresses in namespace %s: %s", namespace, exp.getMessage());
+        }
+    }
+
+    private void waitForUrls(final Map<String, Service> servicesByName, final Set<String> pending, final Map<String, String> urls,
+                             boolean openShift, long waitTimeSeconds) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        List<Watch> watches = new ArrayList<>();
+        try {
+            watches.add(kubernetes.services().inNamespace(namespace).watch(
+                new UrlWatcher<Service>(latch, pending, urls, service -> updateFromService(servicesByName, urls, service))));
+            if (openShift) {
+                watches.add(kubernetes.adapt(OpenShiftClient.class).routes().inNamespace(namespace).watch(
+                    new UrlWatcher<Route>(latch, pending, urls, route -> updateFromRoute(servicesByName, urls, route))));
+            }
+            // Ingresses are optional as in lookupCurrentUrls(), e.g. they may not be allowed to be watched
+            try {
+                watches.add(kubernetes.extensions().ingresses().inNamespace(namespace).watch(
+                    new UrlWatcher<Ingress>(latch, pending, urls, ingress -> updateFromIngress(servicesByName, urls, ingress))));
+            } catch (KubernetesClientException exp) {
+                log.debug("Cannot watch ingresses in namespace %s: %s", namespace, exp.getMessage());
+            }
+
+            // URLs might have been created before the watches have been established
+            lookupCurrentUrls(servicesByName, urls, openShift);
+            pending.removeAll(urls.keySet());
+            if (!pending.isEmpty()) {
+                log.verbose(Logger.LogVerboseCategory.API, "Waiting up to %d seconds for URLs of services %s", waitTimeSeconds, pending);
+                latch.await(waitTimeSeconds, TimeUnit.SECONDS);
+            }
+        } catch (KubernetesClientException exp) {
+            log.warn("Cannot watch for service URLs in namespace %s: %s", namespace, exp.getMessage());
+        } finally {
+            for (Watch watch : watches) {
+                watch.close();
+            }
+        }
+    }
+
+    private void updateFromService(Map<String, Service> servicesByName, Map<String, String> urls, Service service) {
+        String name = KubernetesHelper.getName(service);
+        if (servicesByName.containsKey(name)) {
+            String url = KubernetesHelper.getOrCreateAnnotations(service).get(Fabric8Annotations.SERVICE_EXPOSE_URL.value());
+            if (StringUtils.isNotBlank(url)) {
+                urls.put(name, url);
+            }
+        }
+    }
+
+    private void updateFromRoute(Map<String, Service> servicesByName, Map<String, String> urls, Route route) {
+        RouteSpec spec = route.getSpec();
+        if (spec == null || StringUtils.isBlank(spec.getHost())) {
+            return;
+        }
+        String name = spec.getTo() != null && StringUtils.isNotBlank(spec.getTo().getName()) ?
+            spec.getTo().getName() : KubernetesHelper.getName(route);
+        if (servicesByName.containsKey(name)) {
+            String scheme = spec.getTls() != null ? "https" : "http";
+            urls.putIfAbsent(name, (scheme + "://" + spec.getHost()).toLowerCase());
+        }
+    }
+
+    private void updateFromIngress(Map<String, Service> servicesByName, Map<String, String> urls, Ingress ingress) {
+        for (Service service : servicesByName.values()) {
+            if (service.getSpec() == null || service.getSpec().getPorts() == null) {
+                continue;
+            }
+            String name = KubernetesHelper.getName(service);
+            for (ServicePort port : service.getSpec().getPorts()) {
+                String url = ServiceUrlUtil.getIngressURL(ingress, name, port);
+                if (url != null) {
+                    urls.putIfAbsent(name, url);
+                    break;
+                }
+            }
+        }
+    }
+
+    private Map<String, String> sortByServices(Map<String, Service> servicesByName, Map<String, String> urls) {
+        Map<String, String> ret = new LinkedHashMap<>();
+        for (String name : servicesByName.keySet()) {
+            if (urls.containsKey(name)) {
+                ret.put(name, urls.get(name));
+            }
+        }
+        return ret;
+    }
+
+    // Updates the URLs on each event and signals when no URL is pending anymore
+    private class UrlWatcher<T> implements Watcher<T> {
+
+        private final CountDownLatch latch;
+        private final Set<String> pending;
+        private final Map<String, String> urls;
+        private final Consumer<T> updater;
+
+        UrlWatcher(CountDownLatch latch, Set<String> pending, Map<String, String> urls, Consumer<T> updater) {
+            this.latch = latch;
+            this.pending = pending;
+            this.urls = urls;
+            this.updater = updater;
+        }
+
+        @Override
+        public void eventReceived(Action action, T resource) {
+            if (action == Action.DELETED || action == Action.ERROR) {
+                return;
+            }
+            updater.accept(resource);
+            pending.removeAll(urls.keySet());
+            if (pending.isEmpty()) {
+                latch.countDown();
+            }
+        }
+
+        @Override
+        public void onClose(KubernetesClientException cause) {
+            if (cause != null) {
+                log.debug("Watch for service URLs closed: %s", cause.getMessage());
+            }
+        }
+    }
+}
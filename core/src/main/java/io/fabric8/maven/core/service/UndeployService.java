@@ -0,0 +1,301 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.DeleteOptions;
+import io.fabric8.kubernetes.api.model.DeletionPropagation;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.client.HttpClientAware;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
+import io.fabric8.maven.docker.util.ImageName;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.api.model.BuildConfigBuilder;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Deletes the resources of a project.
+ *
+ * Resources are grouped by kind and the kinds are deleted concurrently with background propagation,
+ * so that dependents (e.g. pods) are garbage collected by the cluster. When all resources of a namespaced kind
+ * carry common labels and no other resource matches these labels, the whole group is removed with a single
+ * collection delete.
+ */
+public class UndeployService {
+
+    // Namespaced kinds which can be deleted by label selector
+    private static final Set<String> COLLECTION_KINDS = new HashSet<>(Arrays.asList(
+        "BuildConfig", "ConfigMap", "CronJob", "DaemonSet", "Deployment", "DeploymentConfig", "HorizontalPodAutoscaler",
+        "ImageStream", "Ingress", "Job", "NetworkPolicy", "PersistentVolumeClaim", "PodDisruptionBudget", "ReplicaSet",
+        "ReplicationController", "Role", "RoleBinding", "Route", "Secret", "Service", "ServiceAccount", "StatefulSet"));
+
+    private static final int MAX_THREADS = 8;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final KubernetesClient kubernetes;
+
+    private final Logger log;
+
+    public UndeployService(KubernetesClient kubernetes, Logger log) {
+        this.kubernetes = Objects.requireNonNull(kubernetes, "kubernetes");
+        this.log = Objects.requireNonNull(log, "log");
+    }
+
+    /**
+     * Delete the given entities
+     *
+     * @param namespace namespace of the entities
+     * @param entities entities to delete
+     * @param s2iBuildNameSuffix suffix of the S2I BuildConfigs which are deleted along with ImageStreams on OpenShift
+     * @param waitSeconds if positive, wait at most this number of seconds until the pods of the deleted entities are gone
+     * @throws Fabric8ServiceException if an entity could not be deleted
+     */
+    public void undeploy(String namespace, Set<HasMetadata> entities, String s2iBuildNameSuffix, long waitSeconds) throws Fabric8ServiceException {
+        List<HasMetadata> list = new ArrayList<>(entities);
+        // For OpenShift cluster, also delete s2i buildconfig
+        if (OpenshiftHelper.asOpenShiftClient(kubernetes) != null) {
+            for (HasMetadata entity : entities) {
+                if ("ImageStream".equals(KubernetesHelper.getKind(entity))) {
+                    ImageName imageName = new ImageName(entity.getMetadata().getName());
+                    list.add(new BuildConfigBuilder()
+                                 .withApiVersion("build.openshift.io/v1")
+                                 .withNewMetadata().withName(imageName.getSimpleName() + s2iBuildNameSuffix).endMetadata()
+                                 .build());
+                }
+            }
+        }
+
+        Map<String, List<HasMetadata>> entitiesByKind = new LinkedHashMap<>();
+        for (HasMetadata entity : list) {
+            entitiesByKind.computeIfAbsent(KubernetesHelper.getKind(entity) + " " + entity.getApiVersion(), k -> new ArrayList<>()).add(entity);
+        }
+        if (entitiesByKind.isEmpty()) {
+            return;
+        }
+
+        Map<String, String> podLabels = getCommonLabels(new ArrayList<>(entities));
+        Set<String> podNames = null;
+        if (waitSeconds > 0) {
+            if (podLabels.isEmpty()) {
+                log.warn("Cannot wait for the deletion of pods as the resources have no common labels");
+            } else {
+                podNames = getPodNames(namespace, podLabels);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(entitiesByKind.size(), MAX_THREADS));
+        try {
+            List<Future<?>> deletions = new ArrayList<>();
+            for (List<HasMetadata> kindEntities : entitiesByKind.values()) {
+                deletions.add(executor.submit(() -> {
+                    deleteKind(namespace, kindEntities);
+                    return null;
+                }));
+            }
+            Fabric8ServiceException failure = null;
+            for (Future<?> deletion : deletions) {
+                try {
+                    deletion.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new Fabric8ServiceException("Failed to undeploy: " + e.getCause().getMessage(), e.getCause());
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Fabric8ServiceException("Interrupted while undeploying", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (podNames != null) {
+            waitUntilPodsDeleted(namespace, podLabels, podNames, waitSeconds);
+        }
+    }
+
+    private void deleteKind(String namespace, List<HasMetadata> entities) throws IOException {
+        HasMetadata first = entities.get(0);
+        String kind = KubernetesHelper.getKind(first);
+        Map<String, String> labels = getCommonLabels(entities);
+        if (entities.size() > 1 && !labels.isEmpty() && COLLECTION_KINDS.contains(kind) &&
+            kubernetes instanceof HttpClientAware && first.getApiVersion() != null) {
+            Set<String> names = new HashSet<>();
+            for (HasMetadata entity : entities) {
+                names.add(KubernetesHelper.getName(entity));
+            }
+            HttpUrl collectionUrl = HttpUrl.get(KubernetesClientUtil.getCollectionUrl(kubernetes, namespace, first))
+                .newBuilder()
+                .addQueryParameter("labelSelector", toSelector(labels))
+                .build();
+            Set<String> matching = listNames(collectionUrl);
+            // Only delete the collection if the selector doesn't match foreign resources
+            if (names.containsAll(matching)) {
+                log.info("Deleting %d %s resources in %s with selector %s", matching.size(), kind, namespace, toSelector(labels));
+                if (!matching.isEmpty()) {
+                    deleteCollection(collectionUrl, kind);
+                }
+                return;
+            }
+            log.debug("Selector %s matches other %s resources than the ones of the project, deleting one by one", toSelector(labels), kind);
+        }
+
+        for (HasMetadata entity : entities) {
+            log.info("Deleting resource " + kind + " " + namespace + "/" + KubernetesHelper.getName(entity));
+            kubernetes.resource(entity).inNamespace(namespace).withPropagationPolicy(DeletionPropagation.BACKGROUND).delete();
+        }
+    }
+
+    private Set<String> listNames(HttpUrl url) throws IOException {
+        Request request = new Request.Builder().url(url).get().build();
+        try (Response response = ((HttpClientAware) kubernetes).getHttpClient().newCall(request).execute()) {
+            if (response.code() == 404) {
+                return new HashSet<>();
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Failed to list " + url + ": " + response.code() + " " + response.message());
+            }
+            Set<String> names = new HashSet<>();
+            for (JsonNode item : OBJECT_MAPPER.readTree(response.body().byteStream()).path("items")) {
+                names.add(item.path("metadata").path("name").asText());
+            }
+            return names;
+        }
+    }
+
+    private void deleteCollection(HttpUrl url, String kind) throws IOException {
+        DeleteOptions deleteOptions = new DeleteOptions();
+        deleteOptions.setPropagationPolicy(DeletionPropagation.BACKGROUND.toString());
+        Request request = new Request.Builder()
+            .url(url)
+            .delete(RequestBody.create(MediaType.parse("application/json"), OBJECT_MAPPER.writeValueAsString(deleteOptions)))
+            .build();
+        try (Response response = ((HttpClientAware) kubernetes).getHttpClient().newCall(request).execute()) {
+            if (!response.isSuccessful() && response.code() != 404) {
+                throw new IOException("Failed to delete " + kind + " resources: " + response.code() + " " +
+                                      (response.body() != null ? response.body().string() : response.message()));
+            }
+        }
+    }
+
+    private Set<String> getPodNames(String namespace, Map<String, String> labels) {
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        PodList pods = kubernetes.pods().inNamespace(namespace).withLabels(labels).list();
+        if (pods != null) {
+            for (Pod pod : pods.getItems()) {
+                names.add(KubernetesHelper.getName(pod));
+            }
+        }
+        return names;
+    }
+
+    private void waitUntilPodsDeleted(String namespace, Map<String, String> labels, Set<String> remaining, long waitSeconds) throws Fabric8ServiceException {
+        if (remaining.isEmpty()) {
+            return;
+        }
+        log.info("Waiting for %d pods to be deleted", remaining.size());
+        CountDownLatch deleted = new CountDownLatch(1);
+        try (Watch watch = kubernetes.pods().inNamespace(namespace).withLabels(labels).watch(new Watcher<Pod>() {
+            @Override
+            public void eventReceived(Action action, Pod pod) {
+                if (action == Action.DELETED) {
+                    remaining.remove(KubernetesHelper.getName(pod));
+                    if (remaining.isEmpty()) {
+                        deleted.countDown();
+                    }
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException e) {
+                // don't care
+            }
+        })) {
+            // Pods might have gone while the watch was established
+            remaining.retainAll(getPodNames(namespace, labels));
+            if (!remaining.isEmpty() && !deleted.await(waitSeconds, TimeUnit.SECONDS)) {
+                throw new Fabric8ServiceException("Timeout after " + waitSeconds + " seconds while waiting for the deletion of pods " + remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Fabric8ServiceException("Interrupted while waiting for the deletion of pods", e);
+        }
+    }
+
+    private Map<String, String> getCommonLabels(List<HasMetadata> entities) {
+        Map<String, String> common = null;
+        for (HasMetadata entity : entities) {
+            Map<String, String> labels = entity.getMetadata() != null ? entity.getMetadata().getLabels() : null;
+            if (labels == null) {
+                return new TreeMap<>();
+            }
+            if (common == null) {
+                common = new TreeMap<>(labels);
+            } else {
+                common.entrySet().retainAll(labels.entrySet());
+            }
+        }
+        return common != null ? common : new TreeMap<>();
+    }
+
+    private String toSelector(Map<String, String> labels) {
+        StringBuilder selector = new StringBuilder();
+        for (Map.Entry<String, String> label : labels.entrySet()) {
+            if (selector.length() > 0) {
+                selector.append(",");
+            }
+            selector.append(label.getKey()).append("=").append(label.getValue());
+        }
+        return selector.toString();
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.cloud.tools.jib.api.FilePermissions;
+import org.codehaus.plexus.archiver.AbstractArchiver;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.Archiver;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.FileSet;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.components.io.attributes.PlexusIoResourceAttributes;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResource;
+import org.codehaus.plexus.components.io.resources.PlexusIoFileResourceCollection;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+/**
+ * An archiver which doesn't create an archive but collects the files of an assembly
+ * so that they can be added to the layers of a JIB image directly.
+ *
+ * Files are referenced at their original location. Only content which doesn't exist as a file
+ * on its own, like filtered resources or entries of unpacked archives, is written to a
+ * staging directory. The permissions of the assembly are kept with each entry.
+ */
+@Component(role = Archiver.class, hint = "jib", instantiationStrategy = "per-lookup")
+public class JibArchiver extends AbstractArchiver {
+
+    // The assembly plugin looks up an archiver of its own for each assembly, so the files are collected
+    // by the destination file of the archive, which is unique for each assembly being resolved
+    private static final Map<File, AssemblyFiles> ASSEMBLY_FILES = new ConcurrentHashMap<>();
+
+    /**
+     * Prepare for collecting the files of an assembly
+     *
+     * @param destFile destination file of the archive which the assembly plugin creates for the assembly
+     * @param stagingDirectory directory for content which can't be referenced at its original location
+     * @return the files which will be collected, to be closed when the assembly has been resolved
+     */
+    static AssemblyFiles collect(File destFile, File stagingDirectory) {
+        if (!stagingDirectory.isDirectory() && !stagingDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create directory " + stagingDirectory);
+        }
+        AssemblyFiles files = new AssemblyFiles(destFile.getAbsoluteFile(), stagingDirectory);
+        if (ASSEMBLY_FILES.putIfAbsent(files.destFile, files) != null) {
+            throw new IllegalStateException("Files of " + destFile + " are already being collected");
+        }
+        return files;
+    }
+
+    @Override
+    public void addFileSet(FileSet fileSet) throws ArchiverException {
+        if (fileSet.getStreamTransformer() == null) {
+            super.addFileSet(fileSet);
+            return;
+        }
+        // Filtered content differs from the source files, so it has to be stored separately
+        PlexusIoFileResourceCollection collection = new PlexusIoFileResourceCollection();
+        collection.setFollowingSymLinks(false);
+        collection.setIncludes(fileSet.getIncludes());
+        collection.setExcludes(fileSet.getExcludes());
+        collection.setBaseDir(fileSet.getDirectory());
+        collection.setFileSelectors(fileSet.getFileSelectors());
+        collection.setIncludingEmptyDirectories(fileSet.isIncludingEmptyDirectories());
+        collection.setPrefix(fileSet.getPrefix());
+        collection.setCaseSensitive(fileSet.isCaseSensitive());
+        collection.setUsingDefaultExcludes(fileSet.isUsingDefaultExcludes());
+        collection.setStreamTransformer(fileSet.getStreamTransformer());
+        try {
+            for (Iterator<PlexusIoResource> it = collection.getResources(); it.hasNext(); ) {
+                PlexusIoResource resource = it.next();
+                int mode = getMode(resource, resource.isDirectory() ? getOverrideDirectoryMode() : getOverrideFileMode());
+                if (resource.isDirectory()) {
+                    super.addResource(resource, resource.getName(), mode);
+                } else {
+                    super.addFile(stage(resource, resource.getName()), resource.getName(), mode);
+                }
+            }
+        } catch (IOException e) {
+            throw new ArchiverException("Cannot add file set " + fileSet.getDirectory() + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void addResource(PlexusIoResource resource, String destFileName, int permissions) throws ArchiverException {
+        if (resource.isDirectory()) {
+            super.addResource(resource, destFileName, permissions);
+            return;
+        }
+        // Resources might be transformed (e.g. filtered file items), so always store their content
+        try {
+            super.addFile(stage(resource, destFileName), destFileName, permissions);
+        } catch (IOException e) {
+            throw new ArchiverException("Cannot add " + destFileName + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void execute() throws ArchiverException, IOException {
+        AssemblyFiles files = getAssemblyFiles();
+        ResourceIterator iter = getResources();
+        while (iter.hasNext()) {
+            ArchiveEntry entry = iter.next();
+            String path = normalize(entry.getName());
+            if (path.isEmpty()) {
+                continue;
+            }
+            PlexusIoResource resource = entry.getResource();
+            File source;
+            if (resource instanceof PlexusIoFileResource) {
+                source = ((PlexusIoFileResource) resource).getFile();
+            } else if (entry.getType() == ArchiveEntry.FILE) {
+                // e.g. an entry of an unpacked dependency
+                source = stage(resource, path);
+            } else if (entry.getType() == ArchiveEntry.DIRECTORY) {
+                source = files.stagingDirectory;
+            } else {
+                getLogger().warn("Symbolic link " + path + " is not supported by JIB builds and is skipped");
+                continue;
+            }
+            files.entries.add(new JibLayerStrategy.FileEntry(source.toPath(), path, getPermissions(entry.getMode()),
+                                                       entry.getType() == ArchiveEntry.DIRECTORY));
+        }
+    }
+
+    private AssemblyFiles getAssemblyFiles() {
+        AssemblyFiles files = getDestFile() != null ? ASSEMBLY_FILES.get(getDestFile().getAbsoluteFile()) : null;
+        if (files == null) {
+            throw new ArchiverException("No files of " + getDestFile() + " are being collected");
+        }
+        return files;
+    }
+
+    private File stage(PlexusIoResource resource, String path) throws IOException {
+        File target = new File(getAssemblyFiles().stagingDirectory, normalize(path));
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        try (InputStream in = resource.getContents()) {
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    private static int getMode(PlexusIoResource resource, int overrideMode) {
+        if (overrideMode > -1) {
+            return overrideMode;
+        }
+        if (resource instanceof PlexusIoFileResource) {
+            PlexusIoResourceAttributes attrs = ((PlexusIoFileResource) resource).getAttributes();
+            return attrs.getOctalMode();
+        }
+        return PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE;
+    }
+
+    private static FilePermissions getPermissions(int mode) {
+        if (mode == PlexusIoResourceAttributes.UNKNOWN_OCTAL_MODE) {
+            return null;
+        }
+        return FilePermissions.fromOctalString(String.format("%03o", mode & 0777));
+    }
+
+    // Strip the base directory prefix "./" and leading slashes
+    private static String normalize(String name) {
+        String ret = name.replace('\\', '/');
+        while (ret.startsWith("./") || ret.startsWith("/")) {
+            ret = ret.substring(ret.startsWith("./") ? 2 : 1);
+        }
+        if (ret.equals(".")) {
+            return "";
+        }
+        return ret.endsWith("/") ? ret.substring(0, ret.length() - 1) : ret;
+    }
+
+    @Override
+    protected String getArchiveType() {
+        return "jib";
+    }
+
+    @Override
+    protected void close() {
+    }
+
+    /**
+     * Files of an assembly collected by the archiver
+     */
+    static class AssemblyFiles implements AutoCloseable {
+
+        private final File destFile;
+        private final File stagingDirectory;
+        private final List<JibLayerStrategy.FileEntry> entries = new ArrayList<>();
+
+        private AssemblyFiles(File destFile, File stagingDirectory) {
+            this.destFile = destFile;
+            this.stagingDirectory = stagingDirectory;
+        }
+
+        /**
+         * Get the collected files
+         *
+         * @return the collected files with their path relative to the assembly directory
+         */
+        List<JibLayerStrategy.FileEntry> getEntries() {
+            return entries;
+        }
+
+        @Override
+        public void close() {
+            ASSEMBLY_FILES.remove(destFile, this);
+        }
+    }
+}
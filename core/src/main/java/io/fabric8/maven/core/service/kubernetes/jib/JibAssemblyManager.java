@@ -15,11 +15,10 @@
  */
 package io.fabric8.maven.core.service.kubernetes.jib;
 
-import com.google.cloud.tools.jib.api.AbsoluteUnixPath;
+import com.google.cloud.tools.jib.api.FilePermissions;
 import com.google.cloud.tools.jib.api.JibContainerBuilder;
 import com.google.cloud.tools.jib.api.LayerConfiguration;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
-import io.fabric8.maven.docker.config.AssemblyMode;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.MojoParameters;
@@ -35,14 +34,8 @@ import org.apache.maven.plugins.assembly.io.AssemblyReadException;
 import org.apache.maven.plugins.assembly.io.AssemblyReader;
 import org.apache.maven.plugins.assembly.model.Assembly;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.archiver.AbstractUnArchiver;
-import org.codehaus.plexus.archiver.tar.TarGZipUnArchiver;
-import org.codehaus.plexus.archiver.tar.TarUnArchiver;
-import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
 import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
-import org.apache.commons.io.FileUtils;
-import org.codehaus.plexus.logging.AbstractLogger;
 
 import java.io.File;
 import java.io.IOException;
@@ -50,13 +43,15 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component(role = JibAssemblyManager.class, instantiationStrategy = "per-lookup")
 public class JibAssemblyManager {
 
+    private static final FilePermissions EXECUTABLE_FILE_PERMISSIONS = FilePermissions.fromOctalString("755");
+
     @Requirement
     private AssemblyReader assemblyReader;
 
@@ -91,18 +86,31 @@ public class JibAssemblyManager {
         }
     }
 
-    public void createAssemblyArchive(AssemblyConfiguration assemblyConfiguration, JibAssemblyConfigurationSource source, MojoParameters params) throws MojoExecutionException {
+    /**
+     * Resolve the files of an assembly without creating an archive
+     *
+     * @param assemblyConfiguration assembly to resolve
+     * @param source configuration source
+     * @param params mojo parameters
+     * @param stagingDirectory directory for content which doesn't exist as a file of its own, like filtered files
+     * @return the files of the assembly with their path relative to the assembly directory
+     */
+    List<JibLayerStrategy.FileEntry> collectAssemblyFiles(AssemblyConfiguration assemblyConfiguration, JibAssemblyConfigurationSource source,
+                                                          MojoParameters params, File stagingDirectory) throws MojoExecutionException {
         Assembly assembly = getAssemblyConfig(assemblyConfiguration, source);
 
-        AssemblyMode buildMode = assemblyConfiguration.getMode();
         File originalArtifactFile = null;
         try {
             originalArtifactFile = ensureThatArtifactFileIsSet(params.getProject());
             assembly.setId("jib");
-            assemblyArchiver.createArchive(assembly, assemblyConfiguration.getName(), buildMode.getExtension(), source, false, null);
+            // The assembly plugin creates the archive as <name>.jib in the output directory
+            File destFile = new File(source.getOutputDirectory(), assemblyConfiguration.getName() + ".jib");
+            try (JibArchiver.AssemblyFiles files = JibArchiver.collect(destFile, stagingDirectory)) {
+                assemblyArchiver.createArchive(assembly, assemblyConfiguration.getName(), "jib", source, false, null);
+                return files.getEntries();
+            }
         } catch (ArchiveCreationException | AssemblyFormattingException e) {
-            String error = "Failed to create assembly archive for jib container image " +
-                    " (with mode '" + buildMode + "'): " + e.getMessage() + ".";
+            String error = "Failed to resolve assembly files for jib container image: " + e.getMessage() + ".";
             if (params.getProject().getArtifact().getFile() == null) {
                 error += " If you include the build artifact please ensure that you have " +
                         "built the artifact before with 'mvn package' (should be available in the target/ dir). " +
@@ -160,69 +168,55 @@ public class JibAssemblyManager {
     }
 
 
-    private static org.codehaus.plexus.logging.Logger getLogger(Logger log) {
-        return new AbstractLogger(1, "fmp-logger") {
-            @Override
-            public void debug(String message, Throwable throwable) {
-                log.debug(message, throwable);
-            }
-
-            @Override
-            public void info(String message, Throwable throwable) {
-                log.info(message, throwable);
-            }
-
-            @Override
-            public void warn(String message, Throwable throwable) {
-                log.warn(message, throwable);
-            }
-
-            @Override
-            public void error(String message, Throwable throwable) {
-                log.error(message, throwable);
-            }
-
-            @Override
-            public void fatalError(String message, Throwable throwable) {
-                log.error(message, throwable);
-            }
-
-            @Override
-            public org.codehaus.plexus.logging.Logger getChildLogger(String name) {
-                return null;
-            }
-        };
-    }
-
-    void addAssemblyFiles(JibContainerBuilder jibContainerBuilder, AssemblyConfiguration assemblyConfiguration,
-                                 MojoParameters mojoParameters, String imageName, Logger log) throws MojoExecutionException, IOException {
+    /**
+     * Add the files of an assembly as layers to an image
+     *
+     * @return the layers which have been added, empty if there is no assembly
+     */
+    List<LayerConfiguration> addAssemblyFiles(JibContainerBuilder jibContainerBuilder, AssemblyConfiguration assemblyConfiguration,
+                                 MojoParameters mojoParameters, String imageName, List<String> layers, Logger log) throws MojoExecutionException, IOException {
 
+        List<LayerConfiguration> ret = new ArrayList<>();
         if (hasAssemblyConfiguration(assemblyConfiguration)) {
             JibAssemblyManager.BuildDirs buildDirs = createBuildDirs(imageName, mojoParameters);
             JibAssemblyConfigurationSource source =
                     new JibAssemblyConfigurationSource(mojoParameters, buildDirs, assemblyConfiguration);
-            createAssemblyArchive(assemblyConfiguration, source, mojoParameters);
-
-            String ext = assemblyConfiguration.getMode().getExtension().equals("dir") ?
-                    "" : ".".concat(assemblyConfiguration.getMode().getExtension());
 
-            File assemblyArchive = new File(source.getOutputDirectory().getPath(), assemblyConfiguration.getName().concat(ext));
-
-            tempDirectory = extractOrCopy(assemblyConfiguration.getMode(),
-                    assemblyArchive, source.getWorkingDirectory(), assemblyConfiguration.getName(), log);
-
-            if (!assemblyConfiguration.getMode().isArchive()) {
-                tempDirectory = new File(tempDirectory, assemblyConfiguration.getName());
+            tempDirectory = new File(source.getWorkingDirectory(), assemblyConfiguration.getName());
+            cleanUpDir();
+            if (!tempDirectory.mkdirs()) {
+                throw new IOException("Cannot create directory " + tempDirectory);
             }
+            List<JibLayerStrategy.FileEntry> entries =
+                    collectAssemblyFiles(assemblyConfiguration, source, mojoParameters, tempDirectory);
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Adding %d assembly files to the image", entries.size());
 
             AssemblyConfiguration.PermissionMode mode = assemblyConfiguration.getPermissions();
             if (mode == AssemblyConfiguration.PermissionMode.exec ||
                     mode == AssemblyConfiguration.PermissionMode.auto && EnvUtil.isWindows()) {
-                makeAllFilesExecutable(tempDirectory);
+                entries = withPermissions(entries, EXECUTABLE_FILE_PERMISSIONS);
+            } else if (mode == AssemblyConfiguration.PermissionMode.ignore) {
+                entries = withPermissions(entries, null);
+            }
+
+            MavenProject project = mojoParameters.getProject();
+            JibLayerStrategy layerStrategy = new JibLayerStrategy(layers, project.getArtifacts(), project.getArtifact());
+            for (LayerConfiguration layer : layerStrategy.createLayers(entries, assemblyConfiguration.getTargetDir())) {
+                jibContainerBuilder.addLayer(layer);
+                ret.add(layer);
             }
+        }
+        return ret;
+    }
 
-            copyToContainer(jibContainerBuilder, tempDirectory, assemblyConfiguration.getTargetDir());
+    // Override the permissions of all files
+    private static List<JibLayerStrategy.FileEntry> withPermissions(List<JibLayerStrategy.FileEntry> entries, FilePermissions filePermissions) {
+        List<JibLayerStrategy.FileEntry> ret = new ArrayList<>();
+        for (JibLayerStrategy.FileEntry entry : entries) {
+            ret.add(entry.isDirectory() ? entry :
+                    new JibLayerStrategy.FileEntry(entry.getSource(), entry.getPath(), filePermissions, false));
         }
+        return ret;
     }
 
     private static JibAssemblyManager.BuildDirs createBuildDirs(String imageName, MojoParameters params) {
@@ -239,119 +233,14 @@ public class JibAssemblyManager {
                         assemblyConfig.getDescriptorRef() != null);
     }
 
-    public File extractOrCopy(AssemblyMode mode, File source, File workingDirectory, String assemblyName, Logger log) throws IOException {
-
-        if (source.isDirectory() && mode.getExtension().equals("dir")) {
-            FileUtils.copyDirectoryToDirectory(source, workingDirectory);
-            return workingDirectory;
-
-        } else {
-
-            File destDirectory = new File(workingDirectory, assemblyName);
-
-            if (!destDirectory.exists()) {
-                destDirectory.mkdir();
-            }
-
-            AbstractUnArchiver unArchiver = null;
-
-            switch (mode.getExtension()) {
-                case "zip" :
-                    unArchiver = new ZipUnArchiver();
-                    break;
-                case "tar" :
-                    unArchiver = new TarUnArchiver();
-                    break;
-                case "tgz" :
-                    unArchiver = new TarGZipUnArchiver();
-            }
-
-            if (unArchiver != null) {
-                unArchiver.setSourceFile(source);
-                unArchiver.setDestDirectory(destDirectory);
-                unArchiver.enableLogging(getLogger(log));
-                unArchiver.extract();
-
-                return destDirectory;
-            }
-
-            return null;
-        }
-    }
-
-    public void makeAllFilesExecutable(File directory) throws IOException {
-        Files.walkFileTree(directory.toPath(), new FileVisitor<Path>() {
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
-                file.toFile().setExecutable(true, false);
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-                if (exc != null) {
-                    throw new IOException(exc);
-                }
-                return FileVisitResult.TERMINATE;
-            }
-
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                if (exc != null) {
-                    throw new IOException(exc);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-
-    }
-
     public void copyToContainer(JibContainerBuilder containerBuilder, File directory, String targetDir) throws IOException {
-        Files.walkFileTree(directory.toPath(), new FileVisitor<Path>() {
-            boolean notParentDir = false;
-            @Override
-            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-
-                if (!notParentDir) {
-                    notParentDir = true;
-                    return FileVisitResult.CONTINUE;
-                }
-
-                containerBuilder.addLayer(LayerConfiguration.builder()
-                        .addEntryRecursive(dir, AbsoluteUnixPath.fromPath(Paths.get(targetDir, dir.getFileName().toString())))
-                        .build());
-                return FileVisitResult.SKIP_SUBTREE;
-            }
-
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                containerBuilder.addLayer(LayerConfiguration.builder()
-                        .addEntry(file, AbsoluteUnixPath.fromPath(Paths.get(targetDir, file.getFileName().toString())))
-                        .build());
-                return FileVisitResult.CONTINUE;
-            }
-
-            @Override
-            public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-                if (exc != null) {
-                    throw new IOException(exc);
-                }
-                return FileVisitResult.TERMINATE;
-            }
+        copyToContainer(containerBuilder, directory, targetDir, new JibLayerStrategy(null, null, null));
+    }
 
-            @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
-                if (exc != null) {
-                    throw new IOException(exc);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
+    void copyToContainer(JibContainerBuilder containerBuilder, File directory, String targetDir, JibLayerStrategy layerStrategy) throws IOException {
+        for (LayerConfiguration layer : layerStrategy.createLayers(directory, targetDir)) {
+            containerBuilder.addLayer(layer);
+        }
     }
 
     public void cleanUpDir() throws IOException {
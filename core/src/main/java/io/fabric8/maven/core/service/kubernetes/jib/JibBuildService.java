@@ -15,24 +15,34 @@
  */
 package io.fabric8.maven.core.service.kubernetes.jib;
 
+import com.google.cloud.tools.jib.api.DockerDaemonImage;
 import com.google.cloud.tools.jib.api.ImageReference;
-import com.google.cloud.tools.jib.api.InvalidImageReferenceException;
 import com.google.cloud.tools.jib.api.JibContainerBuilder;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
 import com.google.cloud.tools.jib.api.TarImage;
+import io.fabric8.maven.core.config.JibBuildTarget;
 import io.fabric8.maven.core.service.BuildService;
 import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.core.util.ReproducibleBuildUtil;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.Logger;
 import org.apache.maven.plugin.MojoExecutionException;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
+import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.additionalTagsFromImageConfiguration;
 import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.buildContainer;
 import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.containerFromImageConfiguration;
 import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.imageNameFromImageConfiguration;
+import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.registryImageFromImageConfiguration;
+import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.tagExistingImage;
 
 public class JibBuildService implements BuildService {
 
@@ -42,13 +52,20 @@ public class JibBuildService implements BuildService {
 
     private BuildServiceConfig config;
 
+    private JibCacheManager jibCacheManager;
+
     private Logger log;
 
     public JibBuildService(BuildServiceConfig config, JibAssemblyManager jibAssemblyManager, Logger log) {
+        this(config, jibAssemblyManager, null, log);
+    }
+
+    public JibBuildService(BuildServiceConfig config, JibAssemblyManager jibAssemblyManager, JibCacheManager jibCacheManager, Logger log) {
         Objects.requireNonNull(config, "config");
         this.config = config;
         this.log = log;
         this.jibAssemblyManager = jibAssemblyManager;
+        this.jibCacheManager = jibCacheManager;
     }
 
     @Override
@@ -56,13 +73,22 @@ public class JibBuildService implements BuildService {
        try {
            log.info("JIB image build started");
            final JibContainerBuilder containerBuilder = containerFromImageConfiguration(imageConfiguration);
+           final Instant creationTime = getCreationTime();
+           containerBuilder.setCreationTime(creationTime);
            log.info("Preparing assembly files");
            final String targetImage = imageNameFromImageConfiguration(imageConfiguration);
-           final String outputDir = EnvUtil.prepareAbsoluteOutputDirPath(config.getDockerMojoParameters(), "", "").getAbsolutePath();
-           final TarImage tarImage = prepareAssembly(imageConfiguration, containerBuilder, outputDir, targetImage);
-           buildContainer(containerBuilder, tarImage, log);
-           log.info(" %s successfully built",
-                   Paths.get(outputDir, ImageReference.parse(targetImage).toString().concat(TAR_SUFFIX)).toString());
+           final List<LayerConfiguration> layers = prepareAssembly(imageConfiguration, containerBuilder, targetImage);
+           final String inputDigest = getInputDigest(imageConfiguration, layers, creationTime);
+           final JibCacheManager.Usage cacheUsage = jibCacheManager != null ?
+               jibCacheManager.start(JibServiceUtil.getBaseImage(imageConfiguration), layers, log) : null;
+
+           try {
+               buildImage(imageConfiguration, containerBuilder, targetImage, inputDigest);
+           } finally {
+               if (cacheUsage != null) {
+                   jibCacheManager.finish(cacheUsage, log);
+               }
+           }
 
            cleanUp();
        } catch (Exception ex) {
@@ -70,16 +96,97 @@ public class JibBuildService implements BuildService {
        }
     }
 
-    private TarImage prepareAssembly(ImageConfiguration imageConfiguration, JibContainerBuilder containerBuilder, String outputDir, String targetImage)
-      throws InvalidImageReferenceException, MojoExecutionException, IOException {
+    private void buildImage(ImageConfiguration imageConfiguration, JibContainerBuilder containerBuilder, String targetImage, String inputDigest)
+        throws Exception {
+        switch (config.getJibBuildTarget()) {
+            case registry:
+                if (inputDigest != null &&
+                    tagExistingImage(imageConfiguration, config.getPushRegistryConfig(), JibImageIndex.getInputTag(inputDigest), log)) {
+                    log.info("Build input of %s has not changed, tagged the existing image in the registry", targetImage);
+                    break;
+                }
+                log.info("Building and pushing image %s ...", targetImage);
+                Set<String> tags = additionalTagsFromImageConfiguration(imageConfiguration);
+                if (inputDigest != null) {
+                    tags.add(JibImageIndex.getInputTag(inputDigest));
+                }
+                buildContainer(containerBuilder,
+                               registryImageFromImageConfiguration(imageConfiguration, config.getPushRegistryConfig()),
+                               tags, jibCacheManager, log);
+                log.info(" %s successfully built and pushed", targetImage);
+                break;
+            case docker:
+                log.info("Building image %s into the Docker daemon ...", targetImage);
+                buildContainer(containerBuilder, DockerDaemonImage.named(targetImage),
+                               additionalTagsFromImageConfiguration(imageConfiguration), jibCacheManager, log);
+                log.info(" %s successfully built", targetImage);
+                break;
+            default:
+                final String outputDir = EnvUtil.prepareAbsoluteOutputDirPath(config.getDockerMojoParameters(), "", "").getAbsolutePath();
+                final String imageTarName = ImageReference.parse(targetImage).toString().concat(TAR_SUFFIX);
+                final File imageTar = Paths.get(outputDir, imageTarName).toFile();
+                final JibImageIndex imageIndex = new JibImageIndex(getImageIndexDirectory(), log);
+                final File indexedImageTar = inputDigest != null ? imageIndex.lookup(inputDigest) : null;
+                if (indexedImageTar != null) {
+                    log.info("Build input of %s has not changed, reusing image tarball %s", targetImage, indexedImageTar);
+                    JibImageIndex.retagTarball(indexedImageTar, imageTar, targetImage);
+                } else {
+                    log.info("Building Image Tarball at %s ...", imageTarName);
+                    buildContainer(containerBuilder, TarImage.at(imageTar.toPath()).named(targetImage), jibCacheManager, log);
+                    if (inputDigest != null) {
+                        imageIndex.store(inputDigest, imageTar);
+                    }
+                }
+                log.info(" %s successfully built", imageTar);
+        }
+    }
+
+    private List<LayerConfiguration> prepareAssembly(ImageConfiguration imageConfiguration, JibContainerBuilder containerBuilder, String targetImage)
+      throws MojoExecutionException, IOException {
 
-        jibAssemblyManager.addAssemblyFiles(containerBuilder,
+        return jibAssemblyManager.addAssemblyFiles(containerBuilder,
           imageConfiguration.getBuildConfiguration().getAssemblyConfiguration(),
-          config.getDockerMojoParameters(), targetImage, log);
+          config.getDockerMojoParameters(), targetImage, config.getJibLayers(), log);
+    }
+
+    /**
+     * Calculate the digest over the build input if unchanged builds should be skipped. The creation
+     * time is only part of the input for reproducible builds, otherwise it changes with each build.
+     */
+    private String getInputDigest(ImageConfiguration imageConfiguration, List<LayerConfiguration> layers, Instant creationTime) throws IOException {
+        if (!config.isSkipUnchangedBuild()) {
+            return null;
+        }
+        if (config.getJibBuildTarget() == JibBuildTarget.docker) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Not checking for unchanged build input when building into the Docker daemon");
+            return null;
+        }
+        String baseImageDigest = JibServiceUtil.getBaseImageDigest(imageConfiguration, log);
+        if (baseImageDigest == null) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Not checking for unchanged build input as the base image of %s is unknown",
+                        imageConfiguration.getName());
+            return null;
+        }
+        String inputDigest = JibImageIndex.getInputDigest(imageConfiguration, baseImageDigest, layers,
+                                                          config.isReproducibleBuild() ? creationTime : null);
+        log.verbose(Logger.LogVerboseCategory.BUILD, "Build input digest of %s is %s", imageConfiguration.getName(), inputDigest);
+        return inputDigest;
+    }
+
+    private File getImageIndexDirectory() {
+        if (config.getJibImageIndexDirectory() != null) {
+            return config.getJibImageIndexDirectory();
+        }
+        return jibCacheManager != null ? jibCacheManager.getImageIndexDirectory() : null;
+    }
 
-        final String imageTarName = ImageReference.parse(targetImage).toString().concat(TAR_SUFFIX);
-        log.info("Building Image Tarball at %s ...", imageTarName);
-        return TarImage.at(Paths.get(outputDir, imageTarName)).named(targetImage);
+    private Instant getCreationTime() {
+        if (config.isReproducibleBuild()) {
+            Instant creationTime = ReproducibleBuildUtil.getReproducibleTimestamp(config.getDockerMojoParameters().getProject(), log);
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Using %s as creation time of reproducible image", creationTime);
+            return creationTime;
+        }
+        return Instant.now();
     }
 
     private void cleanUp() throws IOException {
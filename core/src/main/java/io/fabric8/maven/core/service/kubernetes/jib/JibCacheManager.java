@@ -0,0 +1,455 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.google.cloud.tools.jib.api.Containerizer;
+import com.google.cloud.tools.jib.api.DescriptorDigest;
+import com.google.cloud.tools.jib.api.ImageReference;
+import com.google.cloud.tools.jib.api.InvalidImageReferenceException;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import com.google.cloud.tools.jib.cache.Cache;
+import com.google.cloud.tools.jib.cache.CacheCorruptedException;
+import com.google.cloud.tools.jib.cache.CachedLayer;
+import com.google.cloud.tools.jib.image.json.BuildableManifestTemplate;
+import com.google.cloud.tools.jib.image.json.ManifestAndConfig;
+import io.fabric8.maven.docker.util.Logger;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Caches shared by all JIB builds of a Maven session.
+ *
+ * The layers of base images and of the application are cached in a directory managed by the plugin,
+ * together with the tarballs of the {@link JibImageIndex}. Each build marks the layers it uses, and when
+ * the cache grows beyond its maximum size the least recently used layers and tarballs are removed.
+ * The number of builds running at the same time is limited, each build uses its own executor because
+ * the steps of a JIB build block on other steps queued in the same executor.
+ */
+@Component(role = JibCacheManager.class, instantiationStrategy = "singleton")
+public class JibCacheManager {
+
+    static final String BASE_IMAGE_LAYERS_CACHE = "base-image-layers";
+    static final String APPLICATION_LAYERS_CACHE = "application-layers";
+    static final String IMAGE_INDEX = "image-index";
+
+    private static final String LAYERS_DIRECTORY = "layers";
+    private static final String SELECTORS_DIRECTORY = "selectors";
+
+    // File systems may store modification times in seconds only
+    private static final long MODIFICATION_TIME_RESOLUTION = TimeUnit.SECONDS.toMillis(1);
+
+    private Object session;
+    private File cacheDirectory;
+    private long maxSize;
+    private Semaphore buildPermits;
+    // Builds which hold or wait for a permit, the permits are never replaced while there are any
+    private int buildsUsingPermits;
+
+    // Layers of builds which are currently running with the number of builds using them, these are never evicted
+    private final Map<String, Integer> layersInUse = new HashMap<>();
+
+    // Start times of the builds which are currently running, entries written since the earliest are never evicted
+    private final Map<Long, Integer> runningBuilds = new HashMap<>();
+
+    private final AtomicInteger baseImageLayerHits = new AtomicInteger();
+    private final AtomicInteger baseImageLayerMisses = new AtomicInteger();
+    private final AtomicInteger applicationLayerHits = new AtomicInteger();
+    private final AtomicInteger applicationLayerMisses = new AtomicInteger();
+    private final AtomicInteger evictedEntries = new AtomicInteger();
+    private final AtomicLong evictedBytes = new AtomicLong();
+
+    /**
+     * Configure the cache for a session. Only the configuration of the first module of a session is used,
+     * later calls for the same session are ignored. The statistics are reset for a new session.
+     * The limit of concurrent builds of a former session is kept as long as any of its builds is running.
+     *
+     * @param session the session to which the builds belong, this must be the request of the session
+     *                which is shared by all modules, also when they are built in parallel
+     * @param cacheDirectory directory holding the caches, if null the default caches of JIB are used
+     * @param maxSize maximum size of the cache in bytes, 0 for no limit
+     * @param maxBuilds number of JIB builds running at the same time, 0 for the number of available processors
+     */
+    public synchronized void configure(Object session, File cacheDirectory, long maxSize, int maxBuilds) {
+        if (this.session == session) {
+            return;
+        }
+        this.session = session;
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+        if (buildsUsingPermits == 0) {
+            this.buildPermits = new Semaphore(maxBuilds > 0 ? maxBuilds : Runtime.getRuntime().availableProcessors(), true);
+        }
+        baseImageLayerHits.set(0);
+        baseImageLayerMisses.set(0);
+        applicationLayerHits.set(0);
+        applicationLayerMisses.set(0);
+        evictedEntries.set(0);
+        evictedBytes.set(0);
+    }
+
+    /**
+     * Get the directory of the image index in the cache
+     *
+     * @return the directory or null if no cache directory is configured
+     */
+    public synchronized File getImageIndexDirectory() {
+        return cacheDirectory != null ? new File(cacheDirectory, IMAGE_INDEX) : null;
+    }
+
+    /**
+     * Let a build use the shared caches
+     *
+     * @param containerizer containerizer of the build
+     * @return the containerizer
+     */
+    synchronized Containerizer configure(Containerizer containerizer) {
+        if (cacheDirectory != null) {
+            containerizer.setBaseImageLayersCache(getCachePath(BASE_IMAGE_LAYERS_CACHE))
+                         .setApplicationLayersCache(getCachePath(APPLICATION_LAYERS_CACHE));
+        }
+        return containerizer;
+    }
+
+    /**
+     * Wait until the build may run, a build which got a permit must return it
+     * with {@link #releaseBuildPermit()} when it is finished
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquireBuildPermit() throws InterruptedException {
+        Semaphore permits;
+        synchronized (this) {
+            permits = buildPermits;
+            if (permits == null) {
+                return;
+            }
+            buildsUsingPermits++;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                buildsUsingPermits--;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Return the permit of a finished build
+     */
+    synchronized void releaseBuildPermit() {
+        if (buildPermits != null) {
+            buildPermits.release();
+            buildsUsingPermits--;
+        }
+    }
+
+    /**
+     * Look up the layers of a build in the cache before the build is started. Layers found are counted
+     * as hits and are protected from eviction until the build is finished, as is everything written
+     * to the cache while the build runs.
+     *
+     * @param baseImage name of the base image
+     * @param layers application layers of the image
+     * @param log Logger
+     * @return the usage to hand to {@link #finish(Usage, Logger)} after the build
+     */
+    Usage start(String baseImage, List<LayerConfiguration> layers, Logger log) {
+        Usage usage = new Usage(baseImage, layers);
+        if (cacheDirectory == null) {
+            return usage;
+        }
+        synchronized (layersInUse) {
+            runningBuilds.merge(usage.started, 1, Integer::sum);
+        }
+        try {
+            usage.cachedBaseImageLayers.addAll(getBaseImageLayers(baseImage, true));
+            Cache applicationCache = Cache.withDirectory(getCachePath(APPLICATION_LAYERS_CACHE));
+            for (LayerConfiguration layer : layers) {
+                Optional<CachedLayer> cachedLayer = applicationCache.retrieve(layer.getLayerEntries());
+                if (cachedLayer.isPresent()) {
+                    usage.cachedApplicationLayers.add(cachedLayer.get().getDigest().getHash());
+                }
+            }
+        } catch (IOException | CacheCorruptedException | InvalidImageReferenceException e) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Cannot look up layers in JIB cache: %s", e.getMessage());
+        }
+        synchronized (layersInUse) {
+            usage.getCachedLayers().forEach(layer -> layersInUse.merge(layer, 1, Integer::sum));
+        }
+        return usage;
+    }
+
+    /**
+     * Record the layers used by a finished build and evict the least recently used layers
+     * if the cache exceeds its maximum size
+     *
+     * @param usage usage as returned by {@link #start(String, List, Logger)}
+     * @param log Logger
+     */
+    void finish(Usage usage, Logger log) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        try {
+            Set<String> baseImageLayers = getBaseImageLayers(usage.baseImage, false);
+            for (String layer : baseImageLayers) {
+                (usage.cachedBaseImageLayers.contains(layer) ? baseImageLayerHits : baseImageLayerMisses).incrementAndGet();
+                touch(new File(getCachePath(BASE_IMAGE_LAYERS_CACHE).toFile(), LAYERS_DIRECTORY + File.separator + layer));
+            }
+            Cache applicationCache = Cache.withDirectory(getCachePath(APPLICATION_LAYERS_CACHE));
+            for (LayerConfiguration layer : usage.layers) {
+                Optional<CachedLayer> cachedLayer = applicationCache.retrieve(layer.getLayerEntries());
+                String hash = cachedLayer.map(l -> l.getDigest().getHash()).orElse(null);
+                (hash != null && usage.cachedApplicationLayers.contains(hash) ? applicationLayerHits : applicationLayerMisses).incrementAndGet();
+                if (hash != null) {
+                    touch(new File(getCachePath(APPLICATION_LAYERS_CACHE).toFile(), LAYERS_DIRECTORY + File.separator + hash));
+                }
+            }
+        } catch (IOException | CacheCorruptedException | InvalidImageReferenceException e) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Cannot record usage of JIB cache: %s", e.getMessage());
+        } finally {
+            synchronized (layersInUse) {
+                usage.getCachedLayers().forEach(layer -> layersInUse.computeIfPresent(layer, (k, count) -> count > 1 ? count - 1 : null));
+                runningBuilds.computeIfPresent(usage.started, (k, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        evict(log);
+    }
+
+    /**
+     * Remove the least recently used entries until the cache is not larger than its maximum size
+     *
+     * @param log Logger
+     */
+    synchronized void evict(Logger log) {
+        if (cacheDirectory == null || maxSize <= 0) {
+            return;
+        }
+        List<File> entries = new ArrayList<>();
+        addChildren(entries, new File(getCachePath(BASE_IMAGE_LAYERS_CACHE).toFile(), LAYERS_DIRECTORY));
+        addChildren(entries, new File(getCachePath(APPLICATION_LAYERS_CACHE).toFile(), LAYERS_DIRECTORY));
+        addChildren(entries, new File(cacheDirectory, IMAGE_INDEX));
+
+        long size = 0;
+        List<CacheEntry> cacheEntries = new ArrayList<>();
+        for (File entry : entries) {
+            CacheEntry cacheEntry = new CacheEntry(entry, getSize(entry.toPath()));
+            cacheEntries.add(cacheEntry);
+            size += cacheEntry.size;
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        cacheEntries.sort(Comparator.comparingLong(e -> e.lastUsed));
+        Set<String> evictedApplicationLayers = new HashSet<>();
+        for (CacheEntry entry : cacheEntries) {
+            if (size <= maxSize) {
+                break;
+            }
+            synchronized (layersInUse) {
+                if (layersInUse.containsKey(entry.file.getName()) || isWrittenByRunningBuild(entry)) {
+                    continue;
+                }
+            }
+            try {
+                deleteRecursively(entry.file.toPath());
+                size -= entry.size;
+                evictedEntries.incrementAndGet();
+                evictedBytes.addAndGet(entry.size);
+                if (entry.file.getParentFile().getParentFile().getName().equals(APPLICATION_LAYERS_CACHE)) {
+                    evictedApplicationLayers.add(entry.file.getName());
+                }
+                log.verbose(Logger.LogVerboseCategory.BUILD, "Evicted %s from JIB cache", entry.file);
+            } catch (IOException e) {
+                log.warn("Cannot remove %s from JIB cache: %s", entry.file, e.getMessage());
+            }
+        }
+        removeSelectors(evictedApplicationLayers, log);
+    }
+
+    /**
+     * Print the cache statistics of all builds
+     *
+     * @param log Logger
+     */
+    public void logStatistics(Logger log) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        log.info("JIB cache %s: base image layers %d hits / %d misses, application layers %d hits / %d misses, %d entries (%d KB) evicted",
+                 cacheDirectory, baseImageLayerHits.get(), baseImageLayerMisses.get(),
+                 applicationLayerHits.get(), applicationLayerMisses.get(), evictedEntries.get(), evictedBytes.get() / 1024);
+    }
+
+    int getBaseImageLayerHits() {
+        return baseImageLayerHits.get();
+    }
+
+    int getBaseImageLayerMisses() {
+        return baseImageLayerMisses.get();
+    }
+
+    int getApplicationLayerHits() {
+        return applicationLayerHits.get();
+    }
+
+    int getApplicationLayerMisses() {
+        return applicationLayerMisses.get();
+    }
+
+    // Must be called with the lock of layersInUse held
+    private boolean isWrittenByRunningBuild(CacheEntry entry) {
+        return runningBuilds.keySet().stream().anyMatch(started -> entry.lastUsed >= started - MODIFICATION_TIME_RESOLUTION);
+    }
+
+    // Get the layers of a base image from its cached manifest
+    private Set<String> getBaseImageLayers(String baseImage, boolean onlyCached)
+        throws IOException, CacheCorruptedException, InvalidImageReferenceException {
+        Set<String> ret = new HashSet<>();
+        Cache baseImageCache = Cache.withDirectory(getCachePath(BASE_IMAGE_LAYERS_CACHE));
+        Optional<ManifestAndConfig> metadata = baseImageCache.retrieveMetadata(ImageReference.parse(baseImage));
+        if (metadata.isPresent() && metadata.get().getManifest() instanceof BuildableManifestTemplate) {
+            for (BuildableManifestTemplate.ContentDescriptorTemplate layer :
+                ((BuildableManifestTemplate) metadata.get().getManifest()).getLayers()) {
+                DescriptorDigest digest = layer.getDigest();
+                if (digest != null && (!onlyCached || baseImageCache.retrieve(digest).isPresent())) {
+                    ret.add(digest.getHash());
+                }
+            }
+        }
+        return ret;
+    }
+
+    // Selectors map the content of application layers to layers, drop the ones pointing to evicted layers
+    private void removeSelectors(Set<String> evictedLayers, Logger log) {
+        File[] selectors = new File(getCachePath(APPLICATION_LAYERS_CACHE).toFile(), SELECTORS_DIRECTORY).listFiles();
+        if (evictedLayers.isEmpty() || selectors == null) {
+            return;
+        }
+        for (File selector : selectors) {
+            try {
+                String layer = new String(Files.readAllBytes(selector.toPath()), StandardCharsets.UTF_8).trim();
+                if (evictedLayers.contains(layer)) {
+                    Files.deleteIfExists(selector.toPath());
+                }
+            } catch (IOException e) {
+                log.verbose(Logger.LogVerboseCategory.BUILD, "Cannot remove selector %s: %s", selector, e.getMessage());
+            }
+        }
+    }
+
+    private Path getCachePath(String name) {
+        return new File(cacheDirectory, name).toPath();
+    }
+
+    private static void addChildren(List<File> entries, File directory) {
+        File[] children = directory.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                entries.add(child);
+            }
+        }
+    }
+
+    private static void touch(File file) throws IOException {
+        if (file.exists()) {
+            Files.setLastModifiedTime(file.toPath(), FileTime.from(Instant.now()));
+        }
+    }
+
+    private static long getSize(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Layers used by a single build
+     */
+    static class Usage {
+        private final String baseImage;
+        private final List<LayerConfiguration> layers;
+        private final Set<String> cachedBaseImageLayers = new HashSet<>();
+        private final Set<String> cachedApplicationLayers = new HashSet<>();
+        private final long started = System.currentTimeMillis();
+
+        private Usage(String baseImage, List<LayerConfiguration> layers) {
+            this.baseImage = baseImage;
+            this.layers = layers;
+        }
+
+        private Set<String> getCachedLayers() {
+            Set<String> ret = new HashSet<>(cachedBaseImageLayers);
+            ret.addAll(cachedApplicationLayers);
+            return ret;
+        }
+    }
+
+    private static class CacheEntry {
+        private final File file;
+        private final long size;
+        private final long lastUsed;
+
+        private CacheEntry(File file, long size) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = file.lastModified();
+        }
+    }
+}
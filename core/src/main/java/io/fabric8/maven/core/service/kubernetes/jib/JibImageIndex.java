@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.cloud.tools.jib.api.ImageReference;
+import com.google.cloud.tools.jib.api.InvalidImageReferenceException;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import com.google.cloud.tools.jib.api.LayerEntry;
+import io.fabric8.maven.core.util.BuildLabelAnnotations;
+import io.fabric8.maven.core.util.DigestUtil;
+import io.fabric8.maven.docker.config.Arguments;
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.util.Logger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Index of JIB images by a digest over their build input, so that an image is only built once
+ * for the same input and is then reused under a new name.
+ *
+ * Images pushed to a registry are found by an additional tag derived from the input digest,
+ * image tarballs are kept in a local directory.
+ */
+class JibImageIndex {
+
+    static final String INPUT_TAG_PREFIX = "build-input-";
+
+    private static final String MANIFEST_JSON = "manifest.json";
+    private static final String TAR_SUFFIX = ".tar";
+
+    private final File directory;
+    private final Logger log;
+
+    /**
+     * @param directory directory holding the image tarballs, if null no tarballs are indexed
+     * @param log logger
+     */
+    JibImageIndex(File directory, Logger log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Calculate a digest over everything which makes up an image: the base image and the digest of its manifest,
+     * the image configuration and the name, permissions, modification time and content of all layer entries.
+     * The name of the image itself and the build date label are not part of the input.
+     *
+     * @param imageConfiguration image configuration
+     * @param baseImageDigest manifest digest of the base image, so that a moved tag of the base image changes the input
+     * @param layers layers added to the image
+     * @param creationTime creation time of the image or null if it should not be taken into account
+     * @return hex encoded digest, prefixed with "sha256:"
+     * @throws IOException if the content of a layer entry cannot be read
+     */
+    static String getInputDigest(ImageConfiguration imageConfiguration, String baseImageDigest, List<LayerConfiguration> layers,
+                                 Instant creationTime) throws IOException {
+        List<String> parts = new ArrayList<>();
+        parts.add(JibServiceUtil.getBaseImage(imageConfiguration));
+        parts.add(baseImageDigest);
+        BuildImageConfiguration buildConfig = imageConfiguration.getBuildConfiguration();
+        if (buildConfig != null) {
+            addMap(parts, buildConfig.getEnv());
+            Map<String, String> labels = buildConfig.getLabels() != null ? new TreeMap<>(buildConfig.getLabels()) : new TreeMap<>();
+            labels.remove(BuildLabelAnnotations.BUILD_DATE.value());
+            addMap(parts, labels);
+            addList(parts, getArguments(buildConfig.getEntryPoint()));
+            addList(parts, getArguments(buildConfig.getCmd()));
+            addList(parts, buildConfig.getPorts());
+            addList(parts, buildConfig.getVolumes());
+            parts.add(buildConfig.getUser());
+            parts.add(buildConfig.getWorkdir());
+        }
+        parts.add(creationTime != null ? creationTime.toString() : null);
+        for (LayerConfiguration layer : layers) {
+            parts.add(layer.getName());
+            parts.add(Integer.toString(layer.getLayerEntries().size()));
+            for (LayerEntry entry : layer.getLayerEntries()) {
+                parts.add(entry.getExtractionPath().toString());
+                parts.add(entry.getPermissions().toOctalString());
+                parts.add(entry.getModificationTime().toString());
+                parts.add(getContentDigest(entry.getSourceFile().toFile()));
+            }
+        }
+        return DigestUtil.sha256(parts.toArray(new String[0]));
+    }
+
+    /**
+     * Get the tag with which an image is marked in a registry as built from the given input
+     *
+     * @param inputDigest input digest as calculated by {@link #getInputDigest(ImageConfiguration, String, List, Instant)}
+     * @return the tag
+     */
+    static String getInputTag(String inputDigest) {
+        return INPUT_TAG_PREFIX + getHash(inputDigest);
+    }
+
+    /**
+     * Look up the tarball of an image built from the given input
+     *
+     * @param inputDigest input digest
+     * @return the tarball or null if no image is known for the input
+     */
+    File lookup(String inputDigest) {
+        if (directory == null) {
+            return null;
+        }
+        File tarball = new File(directory, getHash(inputDigest) + TAR_SUFFIX);
+        return tarball.isFile() ? tarball : null;
+    }
+
+    /**
+     * Remember the tarball of an image built from the given input
+     *
+     * @param inputDigest input digest
+     * @param imageTarball tarball of the image, which is copied into the index
+     */
+    void store(String inputDigest, File imageTarball) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        File target = new File(directory, getHash(inputDigest) + TAR_SUFFIX);
+        File tmp = File.createTempFile(getHash(inputDigest), ".tmp", directory);
+        try {
+            Files.copy(imageTarball.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+        log.verbose(Logger.LogVerboseCategory.BUILD, "Stored image %s in image index %s", imageTarball, target);
+    }
+
+    /**
+     * Copy an image tarball and change the name of the image. Configuration and layers stay the same,
+     * only the tags in the manifest of the tarball are replaced.
+     *
+     * @param source tarball of the image
+     * @param target tarball to create
+     * @param imageName new name of the image, including the tag
+     */
+    static void retagTarball(File source, File target, String imageName) throws IOException {
+        String repoTag;
+        try {
+            repoTag = ImageReference.parse(imageName).toStringWithTag();
+        } catch (InvalidImageReferenceException e) {
+            throw new IOException("Invalid image name " + imageName, e);
+        }
+        try (TarArchiveInputStream in = new TarArchiveInputStream(new BufferedInputStream(new FileInputStream(source)));
+             TarArchiveOutputStream out = new TarArchiveOutputStream(new BufferedOutputStream(new FileOutputStream(target)))) {
+            out.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            out.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                if (MANIFEST_JSON.equals(entry.getName())) {
+                    byte[] manifest = retagManifest(IOUtils.toByteArray(in), repoTag);
+                    entry.setSize(manifest.length);
+                    out.putArchiveEntry(entry);
+                    out.write(manifest);
+                } else {
+                    out.putArchiveEntry(entry);
+                    IOUtils.copy(in, out);
+                }
+                out.closeArchiveEntry();
+            }
+        }
+    }
+
+    private static byte[] retagManifest(byte[] manifest, String repoTag) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree(manifest);
+        if (!root.isArray()) {
+            throw new IOException("Unexpected format of " + MANIFEST_JSON + " in image tarball");
+        }
+        for (JsonNode image : root) {
+            ArrayNode repoTags = ((ObjectNode) image).putArray("RepoTags");
+            repoTags.add(repoTag);
+        }
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private static String getContentDigest(File file) throws IOException {
+        if (file.isDirectory()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return DigestUtils.sha256Hex(in);
+        }
+    }
+
+    private static List<String> getArguments(Arguments arguments) {
+        return arguments != null ? arguments.asStrings() : Collections.emptyList();
+    }
+
+    private static void addMap(List<String> parts, Map<String, String> map) {
+        Map<String, String> sorted = map != null ? new TreeMap<>(map) : Collections.emptyMap();
+        parts.add(Integer.toString(sorted.size()));
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            parts.add(entry.getKey());
+            parts.add(entry.getValue());
+        }
+    }
+
+    private static void addList(List<String> parts, Collection<String> values) {
+        parts.add(Integer.toString(values != null ? values.size() : 0));
+        if (values != null) {
+            parts.addAll(values);
+        }
+    }
+
+    private static String getHash(String inputDigest) {
+        return inputDigest.startsWith(DigestUtil.SHA256_PREFIX) ?
+            inputDigest.substring(DigestUtil.SHA256_PREFIX.length()) : inputDigest;
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.cloud.tools.jib.api.AbsoluteUnixPath;
+import com.google.cloud.tools.jib.api.FilePermissions;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Splits the files of an extracted assembly into layers, ordered from the least to the most
+ * frequently changing content: release dependencies, snapshot dependencies, resources and classes.
+ *
+ * Dependencies are recognized by the file names of the project's resolved artifacts. As the
+ * entries of each layer are added in a fixed order, a layer whose files didn't change gets the
+ * same digest in every build and doesn't need to be pushed again.
+ */
+class JibLayerStrategy {
+
+    /**
+     * Default order of the layers
+     */
+    static final List<Category> DEFAULT_LAYERS = Collections.unmodifiableList(
+        Arrays.asList(Category.DEPENDENCIES, Category.SNAPSHOT_DEPENDENCIES, Category.RESOURCES, Category.CLASSES));
+
+    /**
+     * Kinds of content, each of which can go into its own layer
+     */
+    enum Category {
+        DEPENDENCIES("dependencies"),
+        SNAPSHOT_DEPENDENCIES("snapshot-dependencies"),
+        RESOURCES("resources"),
+        CLASSES("classes");
+
+        private final String layerName;
+
+        Category(String layerName) {
+            this.layerName = layerName;
+        }
+
+        String getLayerName() {
+            return layerName;
+        }
+
+        static Category fromLayerName(String name) {
+            for (Category category : values()) {
+                if (category.layerName.equalsIgnoreCase(name.trim())) {
+                    return category;
+                }
+            }
+            throw new IllegalArgumentException(String.format("Unknown Jib layer '%s'. Must be one of %s", name,
+                Stream.of(values()).map(Category::getLayerName).collect(Collectors.toList())));
+        }
+    }
+
+    private final List<Category> layers;
+    private final Map<String, Category> dependencyFileNames;
+    private final String projectArtifactFileName;
+
+    /**
+     * Create the strategy
+     *
+     * @param layerNames names of the layers in the order in which they are added to the image. Content of a
+     *                   kind which is not listed goes into the last layer. If empty, {@link #DEFAULT_LAYERS} are used.
+     * @param dependencies resolved dependencies of the project
+     * @param projectArtifact artifact of the project itself, might be null
+     */
+    JibLayerStrategy(List<String> layerNames, Collection<Artifact> dependencies, Artifact projectArtifact) {
+        this.layers = parseLayers(layerNames);
+        this.dependencyFileNames = new HashMap<>();
+        if (dependencies != null) {
+            for (Artifact artifact : dependencies) {
+                Category category = artifact.isSnapshot() ? Category.SNAPSHOT_DEPENDENCIES : Category.DEPENDENCIES;
+                for (String fileName : getPossibleFileNames(artifact)) {
+                    dependencyFileNames.put(fileName, category);
+                }
+            }
+        }
+        this.projectArtifactFileName = projectArtifact != null && projectArtifact.getFile() != null ?
+            projectArtifact.getFile().getName() : null;
+    }
+
+    /**
+     * Create the layers for all files below the given directory
+     *
+     * @param directory directory holding the extracted assembly
+     * @param targetDir directory in the container to which the files are copied
+     * @return non-empty layers in the configured order
+     */
+    List<LayerConfiguration> createLayers(File directory, String targetDir) throws IOException {
+        Path root = directory.toPath();
+        try (Stream<Path> walk = Files.walk(root)) {
+            return createLayers(walk.filter(p -> !p.equals(root))
+                                    .map(p -> new FileEntry(p, root.relativize(p).toString(), null, Files.isDirectory(p)))
+                                    .collect(Collectors.toList()),
+                                targetDir);
+        }
+    }
+
+    /**
+     * Create the layers for the given files
+     *
+     * @param entries files with their path relative to the target directory
+     * @param targetDir directory in the container to which the files are copied
+     * @return non-empty layers in the configured order
+     */
+    List<LayerConfiguration> createLayers(Collection<FileEntry> entries, String targetDir) {
+        // Sorted so that entries are always added in the same order
+        List<FileEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(FileEntry::getPath));
+        Set<String> parentDirs = new HashSet<>();
+        for (FileEntry entry : sorted) {
+            for (Path parent = Paths.get(entry.getPath()).getParent(); parent != null; parent = parent.getParent()) {
+                parentDirs.add(parent.toString());
+            }
+        }
+
+        Map<Category, LayerConfiguration.Builder> builders = new EnumMap<>(Category.class);
+        for (FileEntry entry : sorted) {
+            if (entry.isDirectory() && parentDirs.contains(entry.getPath())) {
+                // Parent directories are created implicitly
+                continue;
+            }
+            Path path = Paths.get(entry.getPath());
+            Category layer = getLayer(categorize(path, entry.isDirectory()));
+            LayerConfiguration.Builder builder =
+                builders.computeIfAbsent(layer, c -> LayerConfiguration.builder().setName(c.getLayerName()));
+            AbsoluteUnixPath target = AbsoluteUnixPath.fromPath(Paths.get(targetDir).resolve(path));
+            if (entry.getPermissions() != null) {
+                builder.addEntry(entry.getSource(), target, entry.getPermissions());
+            } else {
+                builder.addEntry(entry.getSource(), target);
+            }
+        }
+
+        List<LayerConfiguration> ret = new ArrayList<>();
+        for (Category category : layers) {
+            if (builders.containsKey(category)) {
+                ret.add(builders.get(category).build());
+            }
+        }
+        return ret;
+    }
+
+    Category categorize(Path relativePath, boolean isDirectory) {
+        String fileName = relativePath.getFileName().toString();
+        if (isDirectory) {
+            return Category.RESOURCES;
+        }
+        if (fileName.equals(projectArtifactFileName) || fileName.endsWith(".class") || isBelowClassesDir(relativePath)) {
+            return Category.CLASSES;
+        }
+        Category dependency = dependencyFileNames.get(fileName);
+        if (dependency != null) {
+            return dependency;
+        }
+        // Archives within a subdirectory (like lib/) which are not known as resolved dependency
+        if (relativePath.getNameCount() > 1 && isArchive(fileName)) {
+            return fileName.contains(Artifact.SNAPSHOT_VERSION) ? Category.SNAPSHOT_DEPENDENCIES : Category.DEPENDENCIES;
+        }
+        return Category.RESOURCES;
+    }
+
+    // Map a category to the configured layer which holds it
+    private Category getLayer(Category category) {
+        return layers.contains(category) ? category : layers.get(layers.size() - 1);
+    }
+
+    private static List<Category> parseLayers(List<String> layerNames) {
+        if (layerNames == null || layerNames.stream().allMatch(StringUtils::isBlank)) {
+            return DEFAULT_LAYERS;
+        }
+        Set<Category> ret = new LinkedHashSet<>();
+        for (String name : layerNames) {
+            if (StringUtils.isNotBlank(name)) {
+                ret.add(Category.fromLayerName(name));
+            }
+        }
+        return new ArrayList<>(ret);
+    }
+
+    private static Set<String> getPossibleFileNames(Artifact artifact) {
+        Set<String> ret = new LinkedHashSet<>();
+        if (artifact.getFile() != null) {
+            ret.add(artifact.getFile().getName());
+        }
+        String classifier = StringUtils.isNotBlank(artifact.getClassifier()) ? "-" + artifact.getClassifier() : "";
+        String extension = artifact.getArtifactHandler() != null && artifact.getArtifactHandler().getExtension() != null ?
+            artifact.getArtifactHandler().getExtension() : artifact.getType();
+        for (String version : new String[] { artifact.getVersion(), artifact.getBaseVersion() }) {
+            if (version != null) {
+                ret.add(artifact.getArtifactId() + "-" + version + classifier + "." + extension);
+                ret.add(artifact.getGroupId() + "." + artifact.getArtifactId() + "-" + version + classifier + "." + extension);
+            }
+        }
+        return ret;
+    }
+
+    private static boolean isBelowClassesDir(Path relativePath) {
+        for (int i = 0; i < relativePath.getNameCount() - 1; i++) {
+            if ("classes".equals(relativePath.getName(i).toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isArchive(String fileName) {
+        return fileName.endsWith(".jar") || fileName.endsWith(".war") || fileName.endsWith(".zip");
+    }
+
+    /**
+     * A file or directory to add to the image
+     */
+    static class FileEntry {
+
+        private final Path source;
+        private final String path;
+        private final FilePermissions permissions;
+        private final boolean directory;
+
+        /**
+         * @param source file to add
+         * @param path path relative to the target directory
+         * @param permissions permissions in the image or null for Jib's defaults
+         * @param directory whether the entry is a directory
+         */
+        FileEntry(Path source, String path, FilePermissions permissions, boolean directory) {
+            this.source = source;
+            this.path = path;
+            this.permissions = permissions;
+            this.directory = directory;
+        }
+
+        Path getSource() {
+            return source;
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        FilePermissions getPermissions() {
+            return permissions;
+        }
+
+        boolean isDirectory() {
+            return directory;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.google.cloud.tools.jib.api.AbsoluteUnixPath;
 import com.google.cloud.tools.jib.api.CacheDirectoryCreationException;
 import com.google.cloud.tools.jib.api.Containerizer;
 import com.google.cloud.tools.jib.api.Credential;
+import com.google.cloud.tools.jib.api.DockerDaemonImage;
 import com.google.cloud.tools.jib.api.ImageFormat;
 import com.google.cloud.tools.jib.api.ImageReference;
 import com.google.cloud.tools.jib.api.InvalidImageReferenceException;
@@ -28,12 +29,19 @@ import com.google.cloud.tools.jib.api.LogEvent;
 import com.google.cloud.tools.jib.api.Port;
 import com.google.cloud.tools.jib.api.RegistryException;
 import com.google.cloud.tools.jib.api.RegistryImage;
+import com.google.cloud.tools.jib.api.RegistryUnauthorizedException;
 import com.google.cloud.tools.jib.api.TarImage;
+import com.google.cloud.tools.jib.event.EventHandlers;
 import com.google.cloud.tools.jib.event.events.ProgressEvent;
 import com.google.cloud.tools.jib.event.events.TimerEvent;
 import com.google.cloud.tools.jib.event.progress.ProgressEventHandler;
+import com.google.cloud.tools.jib.http.Authorization;
+import com.google.cloud.tools.jib.image.json.BuildableManifestTemplate;
+import com.google.cloud.tools.jib.image.json.ManifestTemplate;
 import com.google.cloud.tools.jib.plugins.common.TimerEventHandler;
 import com.google.cloud.tools.jib.plugins.common.logging.ProgressDisplayGenerator;
+import com.google.cloud.tools.jib.registry.RegistryAuthenticator;
+import com.google.cloud.tools.jib.registry.RegistryClient;
 import io.fabric8.maven.docker.access.AuthConfig;
 import io.fabric8.maven.docker.config.Arguments;
 import io.fabric8.maven.docker.config.BuildImageConfiguration;
@@ -48,14 +56,17 @@ import org.codehaus.plexus.util.StringUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Instant;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -79,25 +90,80 @@ public class JibServiceUtil {
     private static String EMPTY_STRING = "";
     private static String TAR_POSTFIX = ".tar";
 
-    static void buildContainer(JibContainerBuilder jibContainerBuilder, TarImage image, Logger logger)
+    static void buildContainer(JibContainerBuilder jibContainerBuilder, TarImage image, JibCacheManager cacheManager, Logger logger)
         throws InterruptedException {
+        containerize(jibContainerBuilder, Containerizer.to(image), cacheManager, "Unable to build the image tarball: ", logger);
+    }
+
+    /**
+     * Build the image and push it directly to a registry. Only layers which don't exist in the registry
+     * yet are uploaded.
+     *
+     * @param jibContainerBuilder builder holding the image configuration and layers
+     * @param image registry image to push to
+     * @param additionalTags further tags to push the image with
+     * @param cacheManager shared caches limiting the number of concurrent builds, null if the build should use its own caches
+     * @param logger Logger
+     */
+    static void buildContainer(JibContainerBuilder jibContainerBuilder, RegistryImage image, Collection<String> additionalTags,
+                               JibCacheManager cacheManager, Logger logger)
+        throws InterruptedException {
+        containerize(jibContainerBuilder, withAdditionalTags(Containerizer.to(image), additionalTags), cacheManager,
+                     "Unable to build and push the image: ", logger);
+    }
+
+    /**
+     * Build the image and load it into the local Docker daemon.
+     *
+     * @param jibContainerBuilder builder holding the image configuration and layers
+     * @param image Docker daemon image to create
+     * @param additionalTags further tags to add to the image
+     * @param cacheManager shared caches limiting the number of concurrent builds, null if the build should use its own caches
+     * @param logger Logger
+     */
+    static void buildContainer(JibContainerBuilder jibContainerBuilder, DockerDaemonImage image, Collection<String> additionalTags,
+                               JibCacheManager cacheManager, Logger logger)
+        throws InterruptedException {
+        containerize(jibContainerBuilder, withAdditionalTags(Containerizer.to(image), additionalTags), cacheManager,
+                     "Unable to build the image into the Docker daemon: ", logger);
+    }
 
+    private static Containerizer withAdditionalTags(Containerizer containerizer, Collection<String> additionalTags) {
+        for (String tag : additionalTags) {
+            containerizer.withAdditionalTag(tag);
+        }
+        return containerizer;
+    }
+
+    private static void containerize(JibContainerBuilder jibContainerBuilder, Containerizer containerizer, JibCacheManager cacheManager,
+                                     String errorMessage, Logger logger)
+        throws InterruptedException {
+
+        // The steps of a build wait for other steps queued in the same executor, so it must not be bounded or shared
         final ExecutorService jibBuildExecutor = Executors.newCachedThreadPool();
+        boolean permitted = false;
         try {
-            jibContainerBuilder.setCreationTime(Instant.now());
-            jibContainerBuilder.containerize(Containerizer.to(image)
-              .setExecutorService(jibBuildExecutor)
+            if (cacheManager != null) {
+                cacheManager.configure(containerizer);
+                cacheManager.acquireBuildPermit();
+                permitted = true;
+            }
+            containerizer.setExecutorService(jibBuildExecutor);
+            jibContainerBuilder.containerize(containerizer
               .addEventHandler(LogEvent.class, log(logger))
               .addEventHandler(TimerEvent.class, new TimerEventHandler(logger::debug))
               .addEventHandler(ProgressEvent.class, new ProgressEventHandler(logUpdate())));
             logUpdateFinished();
         } catch (CacheDirectoryCreationException | IOException | ExecutionException | RegistryException ex) {
-            logger.error("Unable to build the image tarball: ", ex);
+            logger.error(errorMessage, ex);
             throw new IllegalStateException(ex);
         } catch (InterruptedException ex) {
             logger.error("Thread interrupted", ex);
             throw ex;
         } finally {
+            if (permitted) {
+                cacheManager.releaseBuildPermit();
+            }
             jibBuildExecutor.shutdown();
             jibBuildExecutor.awaitTermination(JIB_EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
         }
@@ -113,13 +179,16 @@ public class JibServiceUtil {
         bic.map(BuildImageConfiguration::getEntryPoint)
           .map(Arguments::asStrings)
           .ifPresent(containerBuilder::setEntrypoint);
+        // Sorted, so that the image configuration doesn't depend on the order of the maps
         bic.map(BuildImageConfiguration::getEnv)
+          .map(TreeMap::new)
           .ifPresent(containerBuilder::setEnvironment);
         bic.map(BuildImageConfiguration::getPorts).map(List::stream)
           .map(s -> s.map(Integer::parseInt).map(Port::tcp))
           .map(s -> s.collect(Collectors.toSet()))
           .ifPresent(containerBuilder::setExposedPorts);
         bic.map(BuildImageConfiguration::getLabels)
+          .map(TreeMap::new)
           .map(Map::entrySet)
           .ifPresent(labels -> labels.forEach(l -> containerBuilder.addLabel(l.getKey(), l.getValue())));
         bic.map(BuildImageConfiguration::getCmd)
@@ -153,6 +222,21 @@ public class JibServiceUtil {
      */
     public static void jibPush(ImageConfiguration imageConfiguration, MavenProject project, RegistryService.RegistryConfig registryConfig,
                                  String outputDirectory, Logger log) throws MojoExecutionException {
+        jibPush(imageConfiguration, project, registryConfig, outputDirectory, null, log);
+    }
+
+    /**
+     *
+     * @param imageConfiguration ImageConfiguration
+     * @param project MavenProject
+     * @param registryConfig  RegistryService.RegistryConfig
+     * @param outputDirectory Target Output Directory
+     * @param cacheManager shared caches limiting the number of concurrent builds, null if the push should use its own caches
+     * @param log Logger
+     * @throws MojoExecutionException
+     */
+    public static void jibPush(ImageConfiguration imageConfiguration, MavenProject project, RegistryService.RegistryConfig registryConfig,
+                               String outputDirectory, JibCacheManager cacheManager, Logger log) throws MojoExecutionException {
 
         BuildImageConfiguration buildImageConfiguration = imageConfiguration.getBuildConfiguration();
 
@@ -161,16 +245,20 @@ public class JibServiceUtil {
         String imageName = imageNameFromImageConfiguration(imageConfiguration);
         try {
             String imageTarName = ImageReference.parse(imageName).toString().concat(TAR_POSTFIX);
-            TarImage baseImage = TarImage.at(Paths.get(outputDir, imageTarName));
-
-            String configuredRegistry = EnvUtil.firstRegistryOf((new ImageName(imageConfiguration.getName())).getRegistry(), imageConfiguration.getRegistry(), registryConfig.getRegistry());
+            Path imageTar = Paths.get(outputDir, imageTarName);
+            if (!Files.isRegularFile(imageTar)) {
+                log.warn("No image tarball %s found, skipping push of %s. Images built directly into a registry or the Docker daemon are not pushed again.",
+                         imageTar, imageConfiguration.getName());
+                return;
+            }
+            TarImage baseImage = TarImage.at(imageTar);
 
-            Credential pushCredential = getRegistryCredentials(configuredRegistry, registryConfig);
+            Credential pushCredential = getRegistryCredentials(getConfiguredRegistry(imageConfiguration, registryConfig), registryConfig);
             final List<String> tags = buildImageConfiguration.getTags();
 
             for (String tag : appendOriginalImageNameTagIfApplicable(tags, imageName)) {
                 final String targetImage = new ImageName(imageConfiguration.getName(), tag).getFullName();
-                pushImage(baseImage, targetImage, pushCredential, log);
+                pushImage(baseImage, targetImage, pushCredential, cacheManager, log);
             }
         } catch (InvalidImageReferenceException | IllegalStateException e) {
             log.error("Exception occurred while pushing the image: %s", imageConfiguration.getName());
@@ -181,6 +269,146 @@ public class JibServiceUtil {
         }
     }
 
+    /**
+     * Create the registry image to which an image is pushed directly by the build
+     *
+     * @param imageConfiguration ImageConfiguration
+     * @param registryConfig registry configuration providing the credentials
+     * @return registry image named after the image configuration
+     */
+    static RegistryImage registryImageFromImageConfiguration(ImageConfiguration imageConfiguration, RegistryService.RegistryConfig registryConfig)
+        throws InvalidImageReferenceException, MojoExecutionException {
+
+        RegistryImage registryImage = RegistryImage.named(imageNameFromImageConfiguration(imageConfiguration));
+        if (registryConfig != null) {
+            addCredential(registryImage, getRegistryCredentials(getConfiguredRegistry(imageConfiguration, registryConfig), registryConfig));
+        }
+        return registryImage;
+    }
+
+    /**
+     * Get the tags of an image besides the tag of its name
+     *
+     * @param imageConfiguration ImageConfiguration
+     * @return additional tags, which might be empty
+     */
+    static Set<String> additionalTagsFromImageConfiguration(ImageConfiguration imageConfiguration) {
+        String imageName = imageNameFromImageConfiguration(imageConfiguration);
+        Set<String> tags = new HashSet<>();
+        Optional.ofNullable(imageConfiguration.getBuildConfiguration())
+          .map(BuildImageConfiguration::getTags)
+          .ifPresent(tags::addAll);
+        tags.remove(null);
+        tags.remove(new ImageName(imageName).getTag());
+        return tags;
+    }
+
+    /**
+     * Tag an image which already exists in the registry with the tags of an image configuration.
+     * Only the manifest of the existing image is pushed again, no layers are transferred.
+     *
+     * @param imageConfiguration ImageConfiguration
+     * @param registryConfig registry configuration providing the credentials
+     * @param sourceTag tag of the existing image
+     * @param log Logger
+     * @return true if the image has been tagged, false if no image with the source tag exists or the
+     *         registry cannot be accessed
+     */
+    static boolean tagExistingImage(ImageConfiguration imageConfiguration, RegistryService.RegistryConfig registryConfig,
+                                    String sourceTag, Logger log) throws MojoExecutionException {
+        String imageName = imageNameFromImageConfiguration(imageConfiguration);
+        try {
+            ImageReference imageReference = ImageReference.parse(imageName);
+            Credential credential = registryConfig != null ?
+                getRegistryCredentials(getConfiguredRegistry(imageConfiguration, registryConfig), registryConfig) : null;
+            Set<String> tags = additionalTagsFromImageConfiguration(imageConfiguration);
+            tags.add(imageReference.getTag());
+            return tagExistingImage(imageReference, credential, false, sourceTag, tags, log);
+        } catch (InvalidImageReferenceException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (IOException | RegistryException e) {
+            log.warn("Cannot look up existing image %s:%s in registry: %s", imageName, sourceTag, e.getMessage());
+            return false;
+        }
+    }
+
+    static boolean tagExistingImage(ImageReference imageReference, Credential credential, boolean allowInsecureRegistries,
+                                    String sourceTag, Collection<String> tags, Logger log) throws IOException, RegistryException {
+        RegistryClient.Factory factory =
+            RegistryClient.factory(EventHandlers.NONE, imageReference.getRegistry(), imageReference.getRepository())
+                .setAllowInsecureRegistries(allowInsecureRegistries);
+        Optional<RegistryAuthenticator> authenticator = factory.newRegistryClient().getRegistryAuthenticator();
+        if (authenticator.isPresent()) {
+            factory.setAuthorization(authenticator.get().authenticatePush(credential));
+        } else if (credential != null && !credential.getUsername().isEmpty() && !credential.getPassword().isEmpty()) {
+            factory.setAuthorization(Authorization.fromBasicCredentials(credential.getUsername(), credential.getPassword()));
+        }
+        RegistryClient registryClient = factory.newRegistryClient();
+
+        ManifestTemplate manifest;
+        try {
+            manifest = registryClient.pullManifest(sourceTag).getManifest();
+        } catch (RegistryUnauthorizedException e) {
+            throw e;
+        } catch (RegistryException e) {
+            // e.g. "manifest unknown"
+            log.verbose(Logger.LogVerboseCategory.BUILD, "No image %s:%s found: %s", imageReference, sourceTag, e.getMessage());
+            return false;
+        }
+        if (!(manifest instanceof BuildableManifestTemplate)) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Image %s:%s has a manifest of an unsupported schema", imageReference, sourceTag);
+            return false;
+        }
+        for (String tag : tags) {
+            registryClient.pushManifest((BuildableManifestTemplate) manifest, tag);
+        }
+        return true;
+    }
+
+    /**
+     * Look up the digest of the manifest of the base image, so that a base image whose tag has been moved
+     * to another image is recognized. Base images are pulled without credentials, so they are looked up
+     * without credentials, too.
+     *
+     * @param imageConfiguration ImageConfiguration
+     * @param log Logger
+     * @return the manifest digest or null if the registry cannot be accessed
+     */
+    static String getBaseImageDigest(ImageConfiguration imageConfiguration, Logger log) {
+        String baseImage = getBaseImage(imageConfiguration);
+        try {
+            return getManifestDigest(ImageReference.parse(baseImage), false);
+        } catch (InvalidImageReferenceException | IOException | RegistryException e) {
+            log.warn("Cannot look up the digest of base image %s in registry: %s", baseImage, e.getMessage());
+            return null;
+        }
+    }
+
+    static String getManifestDigest(ImageReference imageReference, boolean allowInsecureRegistries) throws IOException, RegistryException {
+        if (imageReference.isTagDigest()) {
+            // Already pinned to a manifest
+            return imageReference.getTag();
+        }
+        RegistryClient.Factory factory =
+            RegistryClient.factory(EventHandlers.NONE, imageReference.getRegistry(), imageReference.getRepository())
+                .setAllowInsecureRegistries(allowInsecureRegistries);
+        Optional<RegistryAuthenticator> authenticator = factory.newRegistryClient().getRegistryAuthenticator();
+        if (authenticator.isPresent()) {
+            factory.setAuthorization(authenticator.get().authenticatePull(null));
+        }
+        return factory.newRegistryClient().pullManifest(imageReference.getTag()).getDigest().toString();
+    }
+
+    private static String getConfiguredRegistry(ImageConfiguration imageConfiguration, RegistryService.RegistryConfig registryConfig) {
+        return EnvUtil.firstRegistryOf((new ImageName(imageConfiguration.getName())).getRegistry(), imageConfiguration.getRegistry(), registryConfig.getRegistry());
+    }
+
+    private static void addCredential(RegistryImage registryImage, Credential credential) {
+        if (credential != null && !credential.getUsername().isEmpty() && !credential.getPassword().isEmpty()) {
+            registryImage.addCredential(credential.getUsername(), credential.getPassword());
+        }
+    }
+
     private static Set<String> appendOriginalImageNameTagIfApplicable(List<String> tags, String imageName) {
         ImageName tempImage = new ImageName(imageName);
         Set<String> tagSet = tags.stream().filter(Objects::nonNull).collect(Collectors.toSet());
@@ -197,32 +425,13 @@ public class JibServiceUtil {
      * @param credential
      * @param logger
      */
-    private static void pushImage(TarImage baseImage, String targetImageName, Credential credential, Logger logger)
-        throws InterruptedException {
+    private static void pushImage(TarImage baseImage, String targetImageName, Credential credential, JibCacheManager cacheManager, Logger logger)
+        throws InterruptedException, InvalidImageReferenceException {
 
-        final ExecutorService jibBuildExecutor = Executors.newCachedThreadPool();
-        try {
-            RegistryImage targetImage = RegistryImage.named(targetImageName);
-            if (credential!= null && !credential.getUsername().isEmpty() && !credential.getPassword().isEmpty()) {
-                targetImage.addCredential(credential.getUsername(), credential.getPassword());
-            }
-
-            Jib.from(baseImage).containerize(Containerizer.to(targetImage)
-              .setExecutorService(jibBuildExecutor)
-              .addEventHandler(LogEvent.class, log(logger))
-              .addEventHandler(TimerEvent.class, new TimerEventHandler(logger::debug))
-              .addEventHandler(ProgressEvent.class, new ProgressEventHandler(logUpdate())));
-            logUpdateFinished();
-        } catch (RegistryException | CacheDirectoryCreationException | InvalidImageReferenceException | IOException | ExecutionException e) {
-            logger.error("Exception occurred while pushing the image: %s", targetImageName);
-            throw new IllegalStateException(e.getMessage(), e);
-        } catch (InterruptedException ex) {
-            logger.error("Thread interrupted", ex);
-            throw ex;
-        } finally {
-            jibBuildExecutor.shutdown();
-            jibBuildExecutor.awaitTermination(JIB_EXECUTOR_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-        }
+        RegistryImage targetImage = RegistryImage.named(targetImageName);
+        addCredential(targetImage, credential);
+        containerize(Jib.from(baseImage), Containerizer.to(targetImage), cacheManager,
+                     "Exception occurred while pushing the image: " + targetImageName, logger);
     }
 
     private static Credential getRegistryCredentials(String registry, RegistryService.RegistryConfig registryConfig) throws MojoExecutionException {
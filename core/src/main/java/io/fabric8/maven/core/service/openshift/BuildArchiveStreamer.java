@@ -0,0 +1,204 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.openshift;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.docker.assembly.ArchiverCustomizer;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.archiver.tar.TarLongFileMode;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+/**
+ * Streams a Docker build archive into a consumer (e.g. an OpenShift binary build upload)
+ * while it is being created, so that no temporary tarball has to be written to and read
+ * back from disk.
+ *
+ * The archive is still assembled by the docker-maven-plugin archive service, but the final
+ * {@link TarArchiver} is replaced by one which writes the tar entries into a pipe instead
+ * of the destination file.
+ */
+class BuildArchiveStreamer {
+
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveCompression compression;
+
+    BuildArchiveStreamer(ArchiveCompression compression) {
+        this.compression = compression != null ? compression : ArchiveCompression.none;
+    }
+
+    /**
+     * Creates the archive in a background thread and hands over the stream with its content
+     * to the given consumer, which is called in the current thread.
+     *
+     * @param creator creates the archive by using the provided customizer as last customizer
+     *                (see {@link #chain(ArchiverCustomizer, ArchiverCustomizer)})
+     * @param consumer reads the archive stream, e.g. by uploading it
+     * @param <T> type of the consumer's result
+     * @return the result of the consumer
+     * @throws Fabric8ServiceException if the archive could not be created
+     */
+    <T> T stream(ArchiveCreator creator, Function<InputStream, T> consumer) throws Fabric8ServiceException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        try (PipedInputStream pipeIn = new PipedInputStream(PIPE_BUFFER_SIZE);
+             InputStream in = new ProducerAwareInputStream(pipeIn, failure)) {
+            PipedOutputStream out = new PipedOutputStream(pipeIn);
+            Future<?> producer = executor.submit(() -> {
+                try {
+                    creator.create(tarArchiver -> new StreamingTarArchiver(tarArchiver, CloseShieldOutputStream.wrap(out), compression));
+                    return null;
+                } catch (Exception exp) {
+                    failure.set(exp);
+                    throw exp;
+                } finally {
+                    // The pipe is closed only here, after a possible failure has been recorded
+                    out.close();
+                }
+            });
+
+            T result;
+            try {
+                result = consumer.apply(in);
+            } catch (RuntimeException exp) {
+                // Unblock the producer and report a failure while creating the archive first
+                pipeIn.close();
+                waitForProducer(producer);
+                throw exp;
+            }
+            // A producer still writing at this point means that the archive was not fully consumed
+            pipeIn.close();
+            waitForProducer(producer);
+            return result;
+        } catch (IOException exp) {
+            throw new Fabric8ServiceException("Unable to stream the build archive", exp);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Chain the given customizer with the streaming customizer used for the final archive
+     *
+     * @param customizer customizer to apply first, might be null
+     * @param streamingCustomizer customizer to apply as last one
+     * @return combined customizer
+     */
+    static ArchiverCustomizer chain(ArchiverCustomizer customizer, ArchiverCustomizer streamingCustomizer) {
+        if (customizer == null) {
+            return streamingCustomizer;
+        }
+        return tarArchiver -> streamingCustomizer.customize(customizer.customize(tarArchiver));
+    }
+
+    private void waitForProducer(Future<?> producer) throws Fabric8ServiceException {
+        try {
+            producer.get();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            throw new Fabric8ServiceException("Interrupted while creating the build archive", exp);
+        } catch (ExecutionException exp) {
+            throw new Fabric8ServiceException("Unable to create the build archive", exp.getCause());
+        }
+    }
+
+    /**
+     * Callback for creating the archive with the given final customizer
+     */
+    @FunctionalInterface
+    interface ArchiveCreator {
+        void create(ArchiverCustomizer finalCustomizer) throws Exception;
+    }
+
+    // Signals a failed archive creation to the consumer instead of a premature end of stream
+    private static class ProducerAwareInputStream extends FilterInputStream {
+
+        private final AtomicReference<Exception> failure;
+
+        ProducerAwareInputStream(InputStream in, AtomicReference<Exception> failure) {
+            super(in);
+            this.failure = failure;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checkFailure(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checkFailure(super.read(b, off, len));
+        }
+
+        private int checkFailure(int read) throws IOException {
+            if (read == -1 && failure.get() != null) {
+                throw new IOException("Creation of build archive failed: " + failure.get().getMessage(), failure.get());
+            }
+            return read;
+        }
+    }
+
+    // Archiver which writes all entries collected by the original archiver into a stream
+    // instead of a file
+    static class StreamingTarArchiver extends TarArchiver {
+
+        private final TarArchiver source;
+        private final OutputStream out;
+        private final ArchiveCompression compression;
+
+        StreamingTarArchiver(TarArchiver source, OutputStream out, ArchiveCompression compression) {
+            this.source = source;
+            this.out = out;
+            this.compression = compression;
+            setLongfile(TarLongFileMode.posix);
+            enableLogging(new ConsoleLogger(ConsoleLogger.LEVEL_WARN, "tar"));
+        }
+
+        @Override
+        protected void execute() throws ArchiverException, IOException {
+            ResourceIterator iter = source.getResources();
+            try (TarArchiveOutputStream tOut = new TarArchiveOutputStream(compression.wrapOutputStream(out), "UTF8")) {
+                tOut.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+                tOut.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+                while (iter.hasNext()) {
+                    ArchiveEntry entry = iter.next();
+                    tarFile(entry, tOut, entry.getName().replace(File.separatorChar, '/'));
+                }
+                tOut.finish();
+            }
+        }
+    }
+}
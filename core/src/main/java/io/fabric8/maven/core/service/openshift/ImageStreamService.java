@@ -19,18 +19,28 @@ import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.kubernetes.api.model.ObjectReference;
 import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.maven.core.util.ResourceFileType;
 import io.fabric8.maven.core.util.ResourceUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
@@ -39,7 +49,6 @@ import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.openshift.api.model.ImageStream;
 import io.fabric8.openshift.api.model.ImageStreamBuilder;
 import io.fabric8.openshift.api.model.ImageStreamSpec;
-import io.fabric8.openshift.api.model.ImageStreamStatus;
 import io.fabric8.openshift.api.model.NamedTagEventList;
 import io.fabric8.openshift.api.model.TagEvent;
 import io.fabric8.openshift.api.model.TagReference;
@@ -61,10 +70,9 @@ public class ImageStreamService {
     private final Logger log;
 
     /**
-     * Retry parameter
+     * Maximum time to wait for a tag to appear on an ImageStream
      */
-    private final int IMAGE_STREAM_TAG_RETRIES = 15;
-    private final long IMAGE_STREAM_TAG_RETRY_TIMEOUT_IN_MILLIS = 1000;
+    private final long IMAGE_STREAM_TAG_TIMEOUT_IN_MILLIS = 15000;
 
 
     public ImageStreamService(OpenShiftClient client, Logger log) {
@@ -78,40 +86,91 @@ public class ImageStreamService {
      * @param target file to store the image stream
      */
     public void appendImageStreamResource(ImageName imageName, File target) throws MojoExecutionException {
-        String tag = StringUtils.isBlank(imageName.getTag()) ? "latest" : imageName.getTag();
+        appendImageStreamResources(Collections.singletonList(imageName), target);
+    }
+
+    /**
+     * Save the image streams of multiple images to a file at once. The file is replaced
+     * atomically, so that it never contains only some of the image streams.
+     *
+     * @param imageNames names of the images for which the streams should be extracted
+     * @param target file to store the image streams
+     */
+    public void appendImageStreamResources(Collection<ImageName> imageNames, File target) throws MojoExecutionException {
+        List<ImageStream> imageStreams = new ArrayList<>();
+        for (ImageName imageName : imageNames) {
+            imageStreams.add(createImageStreamResource(imageName));
+        }
+        writeImageStreamResources(imageStreams, target);
+    }
+
+    /**
+     * Create the image stream for an image, pointing to the image which has been built last
+     *
+     * @param imageName name of the image for which the stream should be extracted
+     * @return image stream referencing the current image
+     */
+    public ImageStream createImageStreamResource(ImageName imageName) throws MojoExecutionException {
         try {
-            ImageStream is = new ImageStreamBuilder()
-                    .withNewMetadata()
-                    .withName(imageName.getSimpleName())
-                    .endMetadata()
-
-                    .withNewSpec()
-                    .addNewTag()
-                      .withName(tag)
-                      .withNewFrom().withKind("ImageStreamImage").endFrom()
-                    .endTag()
-                    .endSpec()
-
-                    .build();
-            createOrUpdateImageStreamTag(client, imageName, is);
-            appendImageStreamToFile(is, target);
-            log.info("ImageStream %s written to %s", imageName.getSimpleName(), target);
+            return createImageStream(imageName);
         } catch (KubernetesClientException e) {
             KubernetesResourceUtil.handleKubernetesClientException(e, this.log);
+            return null;
+        }
+    }
+
+    /**
+     * Add the given image streams to a file, replacing existing image streams with the same name.
+     * The file is replaced atomically, so that it never contains only some of the image streams.
+     *
+     * @param imageStreams image streams to add
+     * @param target file to store the image streams
+     */
+    public void writeImageStreamResources(Collection<ImageStream> imageStreams, File target) throws MojoExecutionException {
+        try {
+            appendImageStreamsToFile(imageStreams, target);
         } catch (IOException e) {
-            throw new MojoExecutionException(String.format("Cannot write ImageStream descriptor for %s to %s : %s",
-                                                           imageName.getFullName(), target.getAbsoluteFile(), e.getMessage()),e);
+            throw new MojoExecutionException(String.format("Cannot write ImageStream descriptor to %s : %s",
+                                                           target.getAbsoluteFile(), e.getMessage()),e);
+        }
+        for (ImageStream is : imageStreams) {
+            log.info("ImageStream %s written to %s", is.getMetadata().getName(), target);
         }
     }
 
-    private void appendImageStreamToFile(ImageStream is, File target) throws MojoExecutionException, IOException {
+    private ImageStream createImageStream(ImageName imageName) throws MojoExecutionException {
+        String tag = StringUtils.isBlank(imageName.getTag()) ? "latest" : imageName.getTag();
+        ImageStream is = new ImageStreamBuilder()
+                .withNewMetadata()
+                .withName(imageName.getSimpleName())
+                .endMetadata()
+
+                .withNewSpec()
+                .addNewTag()
+                  .withName(tag)
+                  .withNewFrom().withKind("ImageStreamImage").endFrom()
+                .endTag()
+                .endSpec()
+
+                .build();
+        createOrUpdateImageStreamTag(client, imageName, is);
+        return is;
+    }
+
+    private void appendImageStreamsToFile(Collection<ImageStream> imageStreamsToAdd, File target) throws IOException {
 
         Map<String, ImageStream> imageStreams = readAlreadyExtractedImageStreams(target);
-        // Override with given image stream
-        imageStreams.put(is.getMetadata().getName(),is);
+        // Override with given image streams
+        for (ImageStream is : imageStreamsToAdd) {
+            imageStreams.put(is.getMetadata().getName(), is);
+        }
         KubernetesList isList =
             new KubernetesListBuilder().withItems(new ArrayList<HasMetadata>(imageStreams.values())).build();
-        ResourceUtil.save(target, isList);
+
+        // Write to a temporary file first and move it in place afterwards
+        File tmpFile = new File(target.getAbsoluteFile().getParentFile(), "." + target.getName() + ".tmp");
+        ResourceUtil.save(tmpFile, isList, ResourceFileType.fromFile(target));
+        Files.move(tmpFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 
     private Map<String, ImageStream> readAlreadyExtractedImageStreams(File target) throws IOException {
@@ -181,58 +240,84 @@ public class ImageStreamService {
     }
 
     private String findTagSha(OpenShiftClient client, String imageStreamName, String namespace) throws MojoExecutionException {
-        ImageStream currentImageStream = null;
-
-        for (int i = 0; i < IMAGE_STREAM_TAG_RETRIES; i++) {
-            if (i > 0) {
-                log.info("Retrying to find tag on ImageStream %s", imageStreamName);
-                try {
-                    Thread.sleep(IMAGE_STREAM_TAG_RETRY_TIMEOUT_IN_MILLIS);
-                } catch (InterruptedException e) {
-                    log.debug("interrupted", e);
-                }
-            }
-            currentImageStream = client.imageStreams().withName(imageStreamName).get();
-            if (currentImageStream == null) {
-                continue;
-            }
-            ImageStreamStatus status = currentImageStream.getStatus();
-            if (status == null) {
-                continue;
-            }
-            List<NamedTagEventList> tags = status.getTags();
-            if (tags == null || tags.isEmpty()) {
-                continue;
-            }
+        ImageStream currentImageStream = client.imageStreams().withName(imageStreamName).get();
+        String tagSha = extractLatestTagSha(currentImageStream);
+        if (tagSha == null) {
+            tagSha = waitForTagSha(client, imageStreamName);
+        }
+        if (tagSha != null) {
+            log.info("Found tag on ImageStream " + imageStreamName + " tag: " + tagSha);
+            return tagSha;
+        }
 
-            // Iterate all imagestream tags and get the latest one by 'created' attribute
-            TagEvent latestTag = null;
+        // No image found, even after waiting for it:
+        if (client.imageStreams().withName(imageStreamName).get() == null) {
+            throw new MojoExecutionException("Could not find a current ImageStream with name " + imageStreamName + " in namespace " + namespace);
+        } else {
+            throw new MojoExecutionException("Could not find a tag in the ImageStream " + imageStreamName);
+        }
+    }
 
-            TAG_EVENT_LIST:
-            for (NamedTagEventList list : tags) {
-                List<TagEvent> items = list.getItems();
-                if (items == null || items.isEmpty()) {
-                    continue TAG_EVENT_LIST;
+    // Watch the image stream until a tag shows up or the timeout is reached
+    private String waitForTagSha(OpenShiftClient client, String imageStreamName) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<String> tagShaHolder = new AtomicReference<>();
+
+        log.info("Waiting for tag on ImageStream %s", imageStreamName);
+        try (Watch watch = client.imageStreams().withName(imageStreamName).watch(new Watcher<ImageStream>() {
+            @Override
+            public void eventReceived(Action action, ImageStream imageStream) {
+                String tagSha = extractLatestTagSha(imageStream);
+                if (tagSha != null) {
+                    tagShaHolder.compareAndSet(null, tagSha);
+                    latch.countDown();
                 }
+            }
 
-                for (TagEvent tag : items) {
-                    latestTag = latestTag == null ? tag : newerTag(tag, latestTag);
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    log.warn("Watch on ImageStream %s closed: %s", imageStreamName, cause.getMessage());
                 }
+                latch.countDown();
             }
-
-            if (latestTag != null && StringUtils.isNotBlank(latestTag.getImage())) {
-                String image = latestTag.getImage();
-                log.info("Found tag on ImageStream " + imageStreamName + " tag: " + image);
-                return image;
+        })) {
+            // The tag might have been added before the watch has been established
+            String tagSha = extractLatestTagSha(client.imageStreams().withName(imageStreamName).get());
+            if (tagSha != null) {
+                return tagSha;
             }
+            latch.await(IMAGE_STREAM_TAG_TIMEOUT_IN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            log.debug("interrupted", e);
+            Thread.currentThread().interrupt();
+        } catch (KubernetesClientException e) {
+            log.warn("Cannot watch ImageStream %s: %s", imageStreamName, e.getMessage());
         }
+        return tagShaHolder.get();
+    }
 
-        // No image found, even after several retries:
-        if (currentImageStream == null) {
-            throw new MojoExecutionException("Could not find a current ImageStream with name " + imageStreamName + " in namespace " + namespace);
-        } else {
-            throw new MojoExecutionException("Could not find a tag in the ImageStream " + imageStreamName);
+    // Get the image of the latest tag by 'created' attribute or null if there is no tag yet
+    private String extractLatestTagSha(ImageStream imageStream) {
+        if (imageStream == null || imageStream.getStatus() == null) {
+            return null;
+        }
+        List<NamedTagEventList> tags = imageStream.getStatus().getTags();
+        if (tags == null || tags.isEmpty()) {
+            return null;
+        }
+
+        TagEvent latestTag = null;
+        for (NamedTagEventList list : tags) {
+            List<TagEvent> items = list.getItems();
+            if (items == null) {
+                continue;
+            }
+            for (TagEvent tag : items) {
+                latestTag = latestTag == null ? tag : newerTag(tag, latestTag);
+            }
         }
+        return latestTag != null && StringUtils.isNotBlank(latestTag.getImage()) ? latestTag.getImage() : null;
     }
 
     public TagEvent newerTag(TagEvent tag1, TagEvent tag2) {
@@ -0,0 +1,241 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.openshift;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.fabric8.kubernetes.api.model.Status;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.dsl.LogWatch;
+import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.core.util.PrefixedLogger;
+import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
+import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.util.ImageName;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.api.model.Build;
+import io.fabric8.openshift.client.OpenShiftClient;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Runs the OpenShift builds of multiple images concurrently.
+ *
+ * All builds are started first and then watched with a single build watch on the namespace.
+ * The logs of the build pods are tailed in parallel, prefixed with the name of the build.
+ * The image streams of all images are looked up after all builds have finished.
+ */
+class OpenshiftBuildOrchestrator {
+
+    private final OpenshiftBuildService buildService;
+    private final OpenShiftClient client;
+    private final Logger log;
+
+    OpenshiftBuildOrchestrator(OpenshiftBuildService buildService, OpenShiftClient client, Logger log) {
+        this.buildService = buildService;
+        this.client = client;
+        this.log = log;
+    }
+
+    void build(List<ImageConfiguration> imageConfigs) throws Fabric8ServiceException {
+        List<ImageName> imageNames = new ArrayList<>();
+        // Running builds by the name of the OpenShift build
+        Map<String, OpenshiftBuildService.PendingBuild> runningBuilds = new LinkedHashMap<>();
+        for (ImageConfiguration imageConfig : imageConfigs) {
+            OpenshiftBuildService.PendingBuild pendingBuild = startBuild(imageConfig);
+            imageNames.add(pendingBuild.getImageName());
+            if (pendingBuild.isStarted()) {
+                runningBuilds.put(KubernetesHelper.getName(pendingBuild.getBuild()), pendingBuild);
+            }
+        }
+
+        try {
+            if (!runningBuilds.isEmpty()) {
+                Map<String, Build> finishedBuilds = waitForBuildsToComplete(runningBuilds.keySet());
+                checkBuildResults(finishedBuilds);
+                for (OpenshiftBuildService.PendingBuild pendingBuild : runningBuilds.values()) {
+                    buildService.completeBuild(pendingBuild);
+                }
+            }
+
+            for (ImageName imageName : imageNames) {
+                buildService.addImageStream(imageName);
+            }
+        } catch (MojoExecutionException e) {
+            throw new Fabric8ServiceException("Unable to build the images using the OpenShift build service", e);
+        }
+    }
+
+    private OpenshiftBuildService.PendingBuild startBuild(ImageConfiguration imageConfig) throws Fabric8ServiceException {
+        try {
+            return buildService.prepareAndStartBuild(imageConfig);
+        } catch (Fabric8ServiceException e) {
+            throw e;
+        } catch (Exception ex) {
+            String buildName = buildService.getS2IBuildName(imageConfig);
+            buildService.handleBuildException(ex, buildName);
+            // The image is missing even if the failure was only logged, so the other builds must not succeed without it
+            throw new Fabric8ServiceException("Unable to start the OpenShift build " + buildName, ex);
+        }
+    }
+
+    private Map<String, Build> waitForBuildsToComplete(Collection<String> buildNames) throws Fabric8ServiceException {
+        final Map<String, Build> finishedBuilds = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(buildNames.size());
+        final CountDownLatch logTerminateLatch = new CountDownLatch(1);
+        final List<LogWatch> logWatches = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService logExecutor = Executors.newFixedThreadPool(buildNames.size());
+
+        log.info("Waiting for builds %s to complete...", String.join(", ", buildNames));
+        try (Watch watch = client.builds().watch(getBuildsWatcher(buildNames, finishedBuilds, latch))) {
+            // Check if some builds are already finished to avoid waiting indefinitely
+            for (String buildName : buildNames) {
+                Build build = client.builds().withName(buildName).get();
+                if (OpenshiftHelper.isFinished(KubernetesResourceUtil.getBuildStatusPhase(build))) {
+                    log.debug("Build %s is already finished", buildName);
+                    markFinished(finishedBuilds, latch, buildName, build);
+                }
+            }
+
+            for (String buildName : buildNames) {
+                logExecutor.submit(() -> tailBuildLog(buildName, logWatches, logTerminateLatch));
+            }
+
+            while (latch.getCount() > 0L) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        } finally {
+            logTerminateLatch.countDown();
+            logExecutor.shutdownNow();
+            synchronized (logWatches) {
+                logWatches.forEach(LogWatch::close);
+            }
+        }
+
+        // The watch might have been closed prematurely, so look up the builds not seen as finished
+        for (String buildName : buildNames) {
+            if (!finishedBuilds.containsKey(buildName)) {
+                log.debug("Build watcher on %s was closed prematurely", buildName);
+                Build build = client.builds().withName(buildName).get();
+                if (build != null) {
+                    finishedBuilds.put(buildName, build);
+                }
+            }
+        }
+        return finishedBuilds;
+    }
+
+    private void tailBuildLog(String buildName, List<LogWatch> logWatches, CountDownLatch logTerminateLatch) {
+        String podName = buildName + "-build";
+        try {
+            // Don't query for logs directly, Watch over the build pod:
+            buildService.waitUntilPodIsReady(podName, 120, log);
+            if (logTerminateLatch.getCount() <= 0L) {
+                return;
+            }
+            LogWatch logWatch = client.pods().withName(podName).watchLog();
+            logWatches.add(logWatch);
+            KubernetesClientUtil.printLogsAsync(logWatch, "Failed to tail build log", logTerminateLatch,
+                                                new PrefixedLogger(buildName, log));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (KubernetesClientException e) {
+            log.warn("Cannot tail log of build %s: %s", buildName, e.getMessage());
+        }
+    }
+
+    private void checkBuildResults(Map<String, Build> finishedBuilds) throws Fabric8ServiceException {
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Build> entry : finishedBuilds.entrySet()) {
+            String buildName = entry.getKey();
+            Build build = entry.getValue();
+            String status = KubernetesResourceUtil.getBuildStatusPhase(build);
+            if (OpenshiftHelper.isFailed(status) || OpenshiftHelper.isCancelled(status)) {
+                failures.add(buildName + ": " + KubernetesResourceUtil.getBuildStatusReason(build));
+            } else if (!OpenshiftHelper.isFinished(status)) {
+                log.warn("Could not wait for the completion of build %s. It may be still running (status=%s)", buildName, status);
+            } else {
+                log.info("Build %s in status %s", buildName, status);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new Fabric8ServiceException("OpenShift Builds failed: " + String.join(", ", failures));
+        }
+    }
+
+    private Watcher<Build> getBuildsWatcher(final Collection<String> buildNames, final Map<String, Build> finishedBuilds, final CountDownLatch latch) {
+        return new Watcher<Build>() {
+
+            private final Map<String, String> lastStatus = new ConcurrentHashMap<>();
+
+            @Override
+            public void eventReceived(Action action, Build build) {
+                String buildName = KubernetesHelper.getName(build);
+                if (!buildNames.contains(buildName)) {
+                    // Build of another BuildConfig in the same namespace
+                    return;
+                }
+                String status = KubernetesResourceUtil.getBuildStatusPhase(build);
+                log.verbose(Logger.LogVerboseCategory.BUILD, "BuildWatch: Received event %s , build status: %s", action, build.getStatus());
+                if (status != null && !status.equals(lastStatus.put(buildName, status))) {
+                    log.verbose(Logger.LogVerboseCategory.BUILD, "Build %s status: %s", buildName, status);
+                }
+                if (OpenshiftHelper.isFinished(status)) {
+                    markFinished(finishedBuilds, latch, buildName, build);
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    log.error("Error while watching for builds to finish: %s [%d]",
+                              cause.getMessage(), cause.getCode());
+                    Status status = cause.getStatus();
+                    if (status != null) {
+                        log.error("%s [%s]", status.getReason(), status.getStatus());
+                    }
+                }
+                // Release the waiting thread, unfinished builds are looked up afterwards
+                while (latch.getCount() > 0L) {
+                    latch.countDown();
+                }
+            }
+        };
+    }
+
+    private void markFinished(Map<String, Build> finishedBuilds, CountDownLatch latch, String buildName, Build build) {
+        if (finishedBuilds.putIfAbsent(buildName, build) == null) {
+            latch.countDown();
+        }
+    }
+}
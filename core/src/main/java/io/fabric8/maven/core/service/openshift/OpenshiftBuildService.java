@@ -22,12 +22,14 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
@@ -43,11 +45,14 @@ import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.LogWatch;
+import io.fabric8.kubernetes.client.utils.Serialization;
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.service.BuildService;
 import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.core.util.DigestUtil;
 import io.fabric8.maven.core.util.IoUtil;
 import io.fabric8.maven.core.util.ResourceFileType;
+import io.fabric8.maven.core.util.kubernetes.Fabric8Annotations;
 import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
@@ -77,8 +82,10 @@ import io.fabric8.openshift.api.model.BuildSource;
 import io.fabric8.openshift.api.model.BuildStrategy;
 import io.fabric8.openshift.api.model.BuildStrategyBuilder;
 import io.fabric8.openshift.api.model.DoneableBuildConfig;
+import io.fabric8.openshift.api.model.ImageStream;
 import io.fabric8.openshift.api.model.ImageStreamBuilder;
 import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.dsl.InputStreamable;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -99,6 +106,9 @@ public class OpenshiftBuildService implements BuildService {
     private RegistryService.RegistryConfig registryConfig;
     private AuthConfigFactory authConfigFactory;
 
+    // Image streams of the built images, written to the image stream file in postProcess()
+    private final Map<String, ImageStream> imageStreams = new LinkedHashMap<>();
+
 
     public OpenshiftBuildService(OpenShiftClient client, Logger log, ServiceHub dockerServiceHub, BuildServiceConfig config) {
         Objects.requireNonNull(client, "client");
@@ -117,41 +127,98 @@ public class OpenshiftBuildService implements BuildService {
         String buildName = null;
         try {
             ImageName imageName = new ImageName(imageConfig.getName());
+            buildName = getS2IBuildName(config, imageName);
 
-            File dockerTar = createBuildArchive(imageConfig);
+            PendingBuild pendingBuild = prepareAndStartBuild(imageConfig);
+            if (pendingBuild.isStarted()) {
+                // Wait until the build finishes
+                waitForOpenShiftBuildToComplete(client, pendingBuild.getBuild());
+                completeBuild(pendingBuild);
+            }
 
-            KubernetesListBuilder builder = new KubernetesListBuilder();
+            // Remember the image stream for writing it to the image stream file
+            addImageStream(imageName);
+        } catch (Fabric8ServiceException e) {
+            throw e;
+        } catch (Exception ex) {
+            handleBuildException(ex, buildName);
+        }
+    }
 
-            // Check for buildconfig / imagestream / pullSecret and create them if necessary
-            String openshiftPullSecret = config.getOpenshiftPullSecret();
-            Boolean usePullSecret = checkOrCreatePullSecret(config, client, builder, openshiftPullSecret, imageConfig);
-            if (usePullSecret) {
-                buildName = updateOrCreateBuildConfig(config, client, builder, imageConfig, openshiftPullSecret);
-            } else {
-                buildName = updateOrCreateBuildConfig(config, client, builder, imageConfig, null);
-            }
+    /**
+     * Builds the given images with OpenShift builds running concurrently in the cluster.
+     * The builds are started one after another and then watched all together.
+     *
+     * @param imageConfigs the images to build
+     */
+    @Override
+    public void build(List<ImageConfiguration> imageConfigs) throws Fabric8ServiceException {
+        if (imageConfigs.size() == 1) {
+            build(imageConfigs.get(0));
+            return;
+        }
+        new OpenshiftBuildOrchestrator(this, client, log).build(imageConfigs);
+    }
 
-            checkOrCreateImageStream(config, client, builder, getImageStreamName(imageName));
-            applyResourceObjects(config, client, builder);
+    /**
+     * Create the build archive and all required resource objects and start the
+     * OpenShift build if the build input has changed.
+     *
+     * @param imageConfig image to build
+     * @return the started build
+     */
+    PendingBuild prepareAndStartBuild(ImageConfiguration imageConfig) throws Exception {
+        ImageName imageName = new ImageName(imageConfig.getName());
 
-            // Start the actual build
-            Build build = startBuild(client, dockerTar, buildName);
+        // When streaming, the archive is created while being uploaded
+        File dockerTar = config.isStreamBuildArchive() ? null : createBuildArchive(imageConfig);
 
-            // Wait until the build finishes
-            waitForOpenShiftBuildToComplete(client, build);
+        KubernetesListBuilder builder = new KubernetesListBuilder();
 
-            // Create a file with generated image streams
-            addImageStreamToFile(getImageStreamFile(config), imageName, client);
-        } catch (Fabric8ServiceException e) {
-            throw e;
-        } catch (Exception ex) {
-            // Log additional details in case of any IOException
-            if (ex != null && ex.getCause() instanceof IOException) {
-                log.error("Build for %s failed: %s", buildName, ex.getCause().getMessage());
-                logBuildFailure(client, buildName);
-            } else {
-                throw new Fabric8ServiceException("Unable to build the image using the OpenShift build service", ex);
-            }
+        // Check for buildconfig / imagestream / pullSecret and create them if necessary
+        String openshiftPullSecret = config.getOpenshiftPullSecret();
+        String buildName;
+        Boolean usePullSecret = checkOrCreatePullSecret(config, client, builder, openshiftPullSecret, imageConfig);
+        if (usePullSecret) {
+            buildName = updateOrCreateBuildConfig(config, client, builder, imageConfig, openshiftPullSecret);
+        } else {
+            buildName = updateOrCreateBuildConfig(config, client, builder, imageConfig, null);
+        }
+
+        checkOrCreateImageStream(config, client, builder, getImageStreamName(imageName));
+        applyResourceObjects(config, client, builder);
+
+        String inputDigest = getBuildInputDigest(client, dockerTar, buildName);
+        if (inputDigest != null && isUnchangedSinceLastBuild(client, buildName, imageName, inputDigest)) {
+            log.info("Build input for %s has not changed since the last build, reusing image %s", buildName, imageName.getFullName());
+            return new PendingBuild(imageName, buildName, null, null);
+        }
+
+        // Start the actual build
+        Build build = dockerTar != null ?
+            startBuild(client, dockerTar, buildName) :
+            startStreamingBuild(client, imageConfig, buildName);
+        return new PendingBuild(imageName, buildName, build, inputDigest);
+    }
+
+    /**
+     * Post processing of a successfully finished build
+     *
+     * @param pendingBuild build which has been finished
+     */
+    void completeBuild(PendingBuild pendingBuild) {
+        if (pendingBuild.getInputDigest() != null) {
+            recordBuildInputDigest(client, pendingBuild.getBuildName(), pendingBuild.getInputDigest());
+        }
+    }
+
+    void handleBuildException(Exception ex, String buildName) throws Fabric8ServiceException {
+        // Log additional details in case of any IOException
+        if (ex != null && ex.getCause() instanceof IOException) {
+            log.error("Build for %s failed: %s", buildName, ex.getCause().getMessage());
+            logBuildFailure(client, buildName);
+        } else {
+            throw new Fabric8ServiceException("Unable to build the image using the OpenShift build service", ex);
         }
     }
 
@@ -173,6 +240,15 @@ public class OpenshiftBuildService implements BuildService {
         }
     }
 
+    protected Build startStreamingBuild(OpenShiftClient client, ImageConfiguration imageConfig, String buildName) throws Fabric8ServiceException {
+        final ArchiverCustomizer customizer = getS2ICustomizer(imageConfig);
+        log.info("Streaming build archive for %s (compression: %s)", buildName, config.getBuildArchiveCompression());
+        return new BuildArchiveStreamer(config.getBuildArchiveCompression()).stream(
+            streamingCustomizer -> dockerServiceHub.getArchiveService().createDockerBuildArchive(
+                imageConfig, config.getDockerMojoParameters(), BuildArchiveStreamer.chain(customizer, streamingCustomizer)),
+            in -> startBuild(client, buildName, binaryBuild -> binaryBuild.fromInputStream(in)));
+    }
+
     private ArchiverCustomizer getS2ICustomizer(ImageConfiguration imageConfiguration) throws Fabric8ServiceException {
         try {
             if (imageConfiguration.getBuildConfiguration() != null && imageConfiguration.getBuildConfiguration().getEnv() != null) {
@@ -202,8 +278,33 @@ public class OpenshiftBuildService implements BuildService {
     }
 
     @Override
-    public void postProcess(BuildServiceConfig config) {
-        config.attachArtifact("is", getImageStreamFile(config));
+    public void postProcess(BuildServiceConfig config) throws Fabric8ServiceException {
+        File imageStreamFile = getImageStreamFile(config);
+        synchronized (imageStreams) {
+            if (!imageStreams.isEmpty()) {
+                // Create a file with the image streams of all built images at once
+                try {
+                    new ImageStreamService(client, log).writeImageStreamResources(imageStreams.values(), imageStreamFile);
+                } catch (MojoExecutionException e) {
+                    throw new Fabric8ServiceException("Unable to write the image stream file", e);
+                }
+                imageStreams.clear();
+            }
+        }
+        config.attachArtifact("is", imageStreamFile);
+    }
+
+    /**
+     * Look up the image stream of a built image and keep it for writing it to the
+     * image stream file
+     *
+     * @param imageName image which has been built
+     */
+    void addImageStream(ImageName imageName) throws MojoExecutionException {
+        ImageStream imageStream = new ImageStreamService(client, log).createImageStreamResource(imageName);
+        synchronized (imageStreams) {
+            imageStreams.put(imageStream.getMetadata().getName(), imageStream);
+        }
     }
 
     protected String updateOrCreateBuildConfig(BuildServiceConfig config, OpenShiftClient client, KubernetesListBuilder builder, ImageConfiguration imageConfig, String openshiftPullSecret) {
@@ -556,12 +657,67 @@ public class OpenshiftBuildService implements BuildService {
         }
     }
 
+    /**
+     * Calculate a digest over the build input, i.e. the content of the build archive and the
+     * spec of the BuildConfig which is used for the build
+     *
+     * @return the digest or null if unchanged builds should not be skipped
+     */
+    private String getBuildInputDigest(OpenShiftClient client, File dockerTar, String buildName) throws IOException {
+        if (!config.isSkipUnchangedBuild()) {
+            return null;
+        }
+        if (dockerTar == null || config.isForcePullEnabled()) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Not checking for unchanged build input of %s when streaming the build archive or force pulling", buildName);
+            return null;
+        }
+        BuildConfig buildConfig = client.buildConfigs().withName(buildName).get();
+        String spec = buildConfig != null && buildConfig.getSpec() != null ? Serialization.asJson(buildConfig.getSpec()) : null;
+        return DigestUtil.sha256(DigestUtil.tarContentDigest(dockerTar), spec);
+    }
+
+    private boolean isUnchangedSinceLastBuild(OpenShiftClient client, String buildName, ImageName imageName, String inputDigest) {
+        BuildConfig buildConfig = client.buildConfigs().withName(buildName).get();
+        if (buildConfig == null || buildConfig.getMetadata().getAnnotations() == null ||
+            !inputDigest.equals(buildConfig.getMetadata().getAnnotations().get(Fabric8Annotations.BUILD_INPUT_DIGEST.value()))) {
+            return false;
+        }
+
+        // The digest is recorded only for successful builds, but a later build could have been triggered otherwise
+        Long lastVersion = buildConfig.getStatus() != null ? buildConfig.getStatus().getLastVersion() : null;
+        if (lastVersion == null) {
+            return false;
+        }
+        Build lastBuild = client.builds().withName(buildName + "-" + lastVersion).get();
+        if (!OpenshiftHelper.isCompleted(KubernetesResourceUtil.getBuildStatusPhase(lastBuild))) {
+            return false;
+        }
+
+        // The image created by the last build must still be available
+        String imageStreamTag = getImageStreamName(imageName) + ":" + (imageName.getTag() != null ? imageName.getTag() : "latest");
+        return client.imageStreamTags().withName(imageStreamTag).get() != null;
+    }
+
+    private void recordBuildInputDigest(OpenShiftClient client, String buildName, String inputDigest) {
+        try {
+            client.buildConfigs().withName(buildName).edit()
+                .editMetadata()
+                .addToAnnotations(Fabric8Annotations.BUILD_INPUT_DIGEST.value(), inputDigest)
+                .endMetadata()
+                .done();
+        } catch (KubernetesClientException exp) {
+            log.warn("Cannot record build input digest on BuildConfig %s: %s", buildName, exp.getMessage());
+        }
+    }
+
     private Build startBuild(OpenShiftClient client, File dockerTar, String buildName) {
+        return startBuild(client, buildName, binaryBuild -> binaryBuild.fromFile(dockerTar));
+    }
+
+    private Build startBuild(OpenShiftClient client, String buildName, Function<InputStreamable<Build>, Build> upload) {
         log.info("Starting Build %s", buildName);
         try {
-            return client.buildConfigs().withName(buildName)
-                    .instantiateBinary()
-                    .fromFile(dockerTar);
+            return upload.apply(client.buildConfigs().withName(buildName).instantiateBinary());
         } catch (KubernetesClientException exp) {
             Status status = exp.getStatus();
             if (status != null) {
@@ -628,7 +784,7 @@ public class OpenshiftBuildService implements BuildService {
      * @param log Logger object
      * @throws InterruptedException
      */
-    private void waitUntilPodIsReady(String podName, int nAwaitTimeout, final Logger log) throws InterruptedException {
+    void waitUntilPodIsReady(String podName, int nAwaitTimeout, final Logger log) throws InterruptedException {
         final CountDownLatch readyLatch = new CountDownLatch(1);
         try (Watch watch = client.pods().withName(podName).watch(new Watcher<Pod>() {
             @Override
@@ -736,13 +892,12 @@ public class OpenshiftBuildService implements BuildService {
         }
     }
 
-    private void addImageStreamToFile(File imageStreamFile, ImageName imageName, OpenShiftClient client) throws MojoExecutionException {
-        ImageStreamService imageStreamHandler = new ImageStreamService(client, log);
-        imageStreamHandler.appendImageStreamResource(imageName, imageStreamFile);
-    }
-
     // == Utility methods ==========================
 
+    String getS2IBuildName(ImageConfiguration imageConfig) {
+        return getS2IBuildName(config, new ImageName(imageConfig.getName()));
+    }
+
     private String getS2IBuildName(BuildServiceConfig config, ImageName imageName) {
         final StringBuilder s2IBuildName = new StringBuilder(imageName.getSimpleName());
         if (!StringUtils.isEmpty(config.getS2iBuildNameSuffix())) {
@@ -784,4 +939,41 @@ public class OpenshiftBuildService implements BuildService {
         return keyToQuantityMap;
     }
 
+
+    /**
+     * A build which has been started, or skipped because its input has not changed
+     */
+    static class PendingBuild {
+        private final ImageName imageName;
+        private final String buildName;
+        private final Build build;
+        private final String inputDigest;
+
+        PendingBuild(ImageName imageName, String buildName, Build build, String inputDigest) {
+            this.imageName = imageName;
+            this.buildName = buildName;
+            this.build = build;
+            this.inputDigest = inputDigest;
+        }
+
+        ImageName getImageName() {
+            return imageName;
+        }
+
+        String getBuildName() {
+            return buildName;
+        }
+
+        Build getBuild() {
+            return build;
+        }
+
+        String getInputDigest() {
+            return inputDigest;
+        }
+
+        boolean isStarted() {
+            return build != null;
+        }
+    }
 }
@@ -44,13 +44,16 @@ public class BuildLabelUtil {
         return null;
     }
 
-    public static void addSchemaLabels (BuildImageConfiguration.Builder buildBuilder, MavenProject project, PrefixedLogger log) {
+    public static void addSchemaLabels (BuildImageConfiguration.Builder buildBuilder, MavenProject project, boolean reproducibleBuild, PrefixedLogger log) {
         String LABEL_SCHEMA_VERSION = "1.0";
         String GIT_REMOTE = "origin";
         String docURL = getDocumentationUrl(project);
         Map<String, String> labels = new HashMap<>();
 
-        labels.put(BuildLabelAnnotations.BUILD_DATE.value(), LocalDateTime.now().toString());
+        // A changing build date would result in a different image for each build
+        if (!reproducibleBuild) {
+            labels.put(BuildLabelAnnotations.BUILD_DATE.value(), LocalDateTime.now().toString());
+        }
         labels.put(BuildLabelAnnotations.NAME.value(), project.getName());
         labels.put(BuildLabelAnnotations.DESCRIPTION.value(), project.getDescription());
         if (docURL != null) {
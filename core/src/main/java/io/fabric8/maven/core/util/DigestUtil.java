@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+/**
+ * Utility methods for calculating content digests
+ */
+public class DigestUtil {
+
+    public static final String SHA256_PREFIX = "sha256:";
+
+    private DigestUtil() { }
+
+    /**
+     * Calculate a SHA-256 digest over the given strings. Each part is terminated by a
+     * zero byte so that e.g. "ab","c" and "a","bc" lead to different digests.
+     *
+     * @param parts parts to digest, null values are treated as empty strings
+     * @return hex encoded digest, prefixed with "sha256:"
+     */
+    public static String sha256(String... parts) {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (String part : parts) {
+            updateDigest(digest, part);
+        }
+        return SHA256_PREFIX + Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Calculate a SHA-256 digest over the content of a tar archive. In contrast to a digest
+     * over the archive file itself, only entry names, permissions and contents are taken
+     * into account, so that e.g. different modification times lead to the same digest.
+     *
+     * @param archive tar archive, optionally compressed with gzip or bzip2 as indicated by its suffix
+     * @return hex encoded digest, prefixed with "sha256:"
+     * @throws IOException if the archive cannot be read
+     */
+    public static String tarContentDigest(File archive) throws IOException {
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(
+            uncompress(ArchiveCompression.fromFileName(archive.getName()), new BufferedInputStream(new FileInputStream(archive))))) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                updateDigest(digest, entry.getName());
+                updateDigest(digest, Integer.toOctalString(entry.getMode()));
+                if (entry.isSymbolicLink()) {
+                    updateDigest(digest, entry.getLinkName());
+                } else if (!entry.isDirectory()) {
+                    updateDigest(digest, Long.toString(entry.getSize()));
+                    DigestUtils.updateDigest(digest, tarIn);
+                }
+            }
+        }
+        return SHA256_PREFIX + Hex.encodeHexString(digest.digest());
+    }
+
+    private static InputStream uncompress(ArchiveCompression compression, InputStream in) throws IOException {
+        switch (compression) {
+            case gzip:
+                return new GzipCompressorInputStream(in);
+            case bzip2:
+                return new BZip2CompressorInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, String part) {
+        if (part != null) {
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+}
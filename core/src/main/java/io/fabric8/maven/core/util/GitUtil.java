@@ -17,6 +17,7 @@ package io.fabric8.maven.core.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Instant;
 
 import org.apache.maven.project.MavenProject;
 import org.eclipse.jgit.api.Git;
@@ -76,4 +77,13 @@ public class GitUtil {
         }
         return null;
     }
+
+    public static Instant getGitCommitTime(Repository repository) throws GitAPIException {
+        if (repository != null) {
+            for (RevCommit rev : new Git(repository).log().setMaxCount(1).call()) {
+                return Instant.ofEpochSecond(rev.getCommitTime());
+            }
+        }
+        return null;
+    }
 }
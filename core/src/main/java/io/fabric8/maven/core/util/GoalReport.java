@@ -0,0 +1,87 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * JSON report in the build directory with one entry per goal, so that all goals run for a project
+ * end up in the same report
+ */
+public class GoalReport {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private GoalReport() { }
+
+    /**
+     * Set the entry of a goal in a report. The entry of a goal run before is replaced, the entries of other goals are kept.
+     *
+     * @param file the report
+     * @param goal goal which created the entry
+     * @param entry entry to write
+     * @throws IOException if the report cannot be read or written
+     */
+    public static synchronized void write(File file, String goal, JsonNode entry) throws IOException {
+        ObjectNode root = null;
+        if (file.isFile()) {
+            JsonNode existing = OBJECT_MAPPER.readTree(file);
+            if (existing instanceof ObjectNode) {
+                root = (ObjectNode) existing;
+            }
+        }
+        if (root == null) {
+            root = OBJECT_MAPPER.createObjectNode();
+        }
+        root.set(goal, entry);
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        OBJECT_MAPPER.writeValue(file, root);
+    }
+
+    /**
+     * Sort the items of a report, the item with the largest value first
+     *
+     * @param items items to sort
+     * @param value value to sort by, e.g. a duration
+     * @return sorted copy of the items
+     */
+    public static <T> List<T> sortedDescending(Collection<T> items, ToLongFunction<T> value) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort((a, b) -> Long.compare(value.applyAsLong(b), value.applyAsLong(a)));
+        return sorted;
+    }
+
+    /**
+     * Convert a duration measured with {@link System#nanoTime()} to the milliseconds used in reports
+     */
+    public static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs independent tasks on all cores while keeping the order of their inputs
+ */
+public class ParallelUtil {
+
+    private ParallelUtil() { }
+
+    /**
+     * Apply a function to all inputs concurrently. The threads inherit the context class loader of the caller.
+     *
+     * @param inputs inputs to process
+     * @param function function to apply, must be thread safe
+     * @return the results in the order of the inputs
+     * @throws E the exception thrown for the first input, in input order, which failed
+     */
+    public static <T, R, E extends Exception> List<R> map(List<T> inputs, Function<T, R, E> function) throws E {
+        int threads = Math.min(inputs.size(), Runtime.getRuntime().availableProcessors());
+        List<R> results = new ArrayList<>(inputs.size());
+        if (threads <= 1) {
+            for (T input : inputs) {
+                results.add(function.apply(input));
+            }
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<R>> futures = new ArrayList<>(inputs.size());
+            for (T input : inputs) {
+                futures.add(executor.submit(() -> function.apply(input)));
+            }
+            for (Future<R> future : futures) {
+                results.add(getResult(future));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R, E extends Exception> R getResult(Future<R> future) throws E {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tasks", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // Only the checked exceptions declared by the function can get here
+            throw (E) cause;
+        }
+    }
+
+    /**
+     * Function which may throw a checked exception
+     */
+    public interface Function<T, R, E extends Exception> {
+        R apply(T input) throws E;
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 /**
@@ -73,38 +74,35 @@ public final class PluginServiceFactory<C> {
      * @return a ordered list of created services or an empty list.
      */
     public <T> List<T> createServiceObjects(String... descriptorPaths) {
-        try {
-            ServiceEntry.initDefaultOrder();
-            TreeMap<ServiceEntry,T> serviceMap = new TreeMap<ServiceEntry,T>();
-            for (String descriptor : descriptorPaths) {
-                readServiceDefinitions(serviceMap, descriptor);
-            }
-            ArrayList<T> ret = new ArrayList<T>();
-            for (T service : serviceMap.values()) {
-                ret.add(service);
-            }
-            return ret;
-        } finally {
-            ServiceEntry.removeDefaultOrder();
+        // Start value for entries without an explicit order
+        AtomicInteger defaultOrder = new AtomicInteger(100);
+        TreeMap<ServiceEntry,T> serviceMap = new TreeMap<ServiceEntry,T>();
+        for (String descriptor : descriptorPaths) {
+            readServiceDefinitions(serviceMap, descriptor, defaultOrder);
+        }
+        ArrayList<T> ret = new ArrayList<T>();
+        for (T service : serviceMap.values()) {
+            ret.add(service);
         }
+        return ret;
     }
 
-    private <T> void readServiceDefinitions(Map<ServiceEntry, T> extractorMap, String defPath) {
+    private <T> void readServiceDefinitions(Map<ServiceEntry, T> extractorMap, String defPath, AtomicInteger defaultOrder) {
         try {
             for (String url : ClassUtil.getResources(defPath, additionalClassLoaders)) {
-                readServiceDefinitionFromUrl(extractorMap, url);
+                readServiceDefinitionFromUrl(extractorMap, url, defaultOrder);
             }
         } catch (IOException e) {
             throw new IllegalStateException("Cannot load service from " + defPath + ": " + e, e);
         }
     }
 
-    private <T> void readServiceDefinitionFromUrl(Map<ServiceEntry, T> extractorMap, String url) {
+    private <T> void readServiceDefinitionFromUrl(Map<ServiceEntry, T> extractorMap, String url, AtomicInteger defaultOrder) {
         String line = null;
         try (LineNumberReader reader = new LineNumberReader(new InputStreamReader(new URL(url).openStream(), "UTF8"))) {
             line = reader.readLine();
             while (line != null) {
-                createOrRemoveService(extractorMap, line);
+                createOrRemoveService(extractorMap, line, defaultOrder);
                 line = reader.readLine();
             }
         } catch (ReflectiveOperationException|IOException e) {
@@ -116,10 +114,10 @@ public final class PluginServiceFactory<C> {
     // Matches comment lines and empty lines. these are skipped
     private static Pattern COMMENT_LINE_PATTERN = Pattern.compile("^(\\s*#.*|\\s*)$");
 
-    private synchronized  <T> void createOrRemoveService(Map<ServiceEntry, T> serviceMap, String line)
+    private synchronized  <T> void createOrRemoveService(Map<ServiceEntry, T> serviceMap, String line, AtomicInteger defaultOrder)
         throws ReflectiveOperationException {
         if (line.length() > 0 && !COMMENT_LINE_PATTERN.matcher(line).matches()) {
-            ServiceEntry entry = new ServiceEntry(line);
+            ServiceEntry entry = new ServiceEntry(line, defaultOrder);
             if (entry.isRemove()) {
                 // Removing is a bit complex since we need to find out
                 // the proper key since the order is part of equals/hash
@@ -161,28 +159,16 @@ public final class PluginServiceFactory<C> {
         private boolean remove;
         private Integer order;
 
-        private static ThreadLocal<Integer> defaultOrderHolder = new ThreadLocal<Integer>() {
-
-            /**
-             * Initialise with start value for entries without an explicite order. 100 in this case.
-             *
-             * @return 100
-             */
-            @Override
-            protected Integer initialValue() {
-                return Integer.valueOf(100);
-            }
-        };
-
         /**
          * Parse an entry in the service definition. This should be the full qualified classname
          * of a service, optional prefixed with "<code>!</code>" in which case the service is removed
          * from the defaul list. An order value can be appened after the classname with a comma for give a
-         * indication for the ordering of services. If not given, 100 is taken for the first entry, counting up.
+         * indication for the ordering of services. If not given, the next value of the default order is taken.
          *
          * @param line line to parse
+         * @param defaultOrder order for entries without explicit order, counting up
          */
-        public ServiceEntry(String line) {
+        public ServiceEntry(String line, AtomicInteger defaultOrder) {
             String[] parts = line.split(",");
             if (parts[0].startsWith("!")) {
                 remove = true;
@@ -195,27 +181,13 @@ public final class PluginServiceFactory<C> {
                 try {
                     order = Integer.parseInt(parts[1]);
                 } catch (NumberFormatException exp) {
-                    order = nextDefaultOrder();
+                    order = defaultOrder.getAndIncrement();
                 }
             } else {
-                order = nextDefaultOrder();
+                order = defaultOrder.getAndIncrement();
             }
         }
 
-        private Integer nextDefaultOrder() {
-            Integer defaultOrder = defaultOrderHolder.get();
-            defaultOrderHolder.set(defaultOrder + 1);
-            return defaultOrder;
-        }
-
-        private static void initDefaultOrder() {
-            defaultOrderHolder.set(100);
-        }
-
-        private static void removeDefaultOrder() {
-            defaultOrderHolder.remove();
-        }
-
         private String getClassName() {
             return className;
         }
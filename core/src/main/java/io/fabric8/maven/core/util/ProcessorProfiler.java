@@ -0,0 +1,202 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.maven.docker.util.Logger;
+
+import static io.fabric8.maven.core.util.GoalReport.toMillis;
+
+/**
+ * Measures wall time, CPU time and allocated memory of processors like enrichers, generators and watchers.
+ *
+ * CPU time and allocations are measured for the thread calling the processor only, work a processor hands
+ * over to other threads is included in the wall time only. The measurements are aggregated per processor,
+ * phase and platform mode.
+ */
+public class ProcessorProfiler {
+
+    /**
+     * {@link GoalReport} in the build directory holding the measurements
+     */
+    public static final String REPORT_FILE = "fabric8/processor-profile.json";
+
+    /**
+     * Profiler which only runs the processors
+     */
+    public static final ProcessorProfiler DISABLED = new ProcessorProfiler(false);
+
+    private final boolean enabled;
+    private final ThreadMXBean threadMXBean;
+    private final boolean cpuTimeSupported;
+    private final boolean allocationSupported;
+
+    private final Map<String, Measurement> measurements = new LinkedHashMap<>();
+
+    public ProcessorProfiler(boolean enabled) {
+        this.enabled = enabled;
+        this.threadMXBean = ManagementFactory.getThreadMXBean();
+        this.cpuTimeSupported = enabled && threadMXBean.isCurrentThreadCpuTimeSupported();
+        this.allocationSupported = enabled && threadMXBean instanceof com.sun.management.ThreadMXBean &&
+                                   ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported();
+        if (cpuTimeSupported && !threadMXBean.isThreadCpuTimeEnabled()) {
+            threadMXBean.setThreadCpuTimeEnabled(true);
+        }
+        if (allocationSupported && !((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled()) {
+            ((com.sun.management.ThreadMXBean) threadMXBean).setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Run a processor and record its measurements
+     *
+     * @param type type of processor like enricher or generator
+     * @param name name of the processor
+     * @param phase phase in which the processor runs, e.g. create or enrich
+     * @param mode platform mode for which the processor runs, can be null
+     * @param action the call of the processor
+     * @return the result of the action
+     * @throws E if the action fails
+     */
+    public <T, E extends Exception> T profile(String type, String name, String phase, Object mode, Action<T, E> action) throws E {
+        if (!enabled) {
+            return action.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long cpuStart = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+        long allocatedStart = allocationSupported ? getAllocatedBytes(threadId) : 0;
+        long wallStart = System.nanoTime();
+        try {
+            return action.run();
+        } finally {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() - cpuStart : 0;
+            long allocated = allocationSupported ? getAllocatedBytes(threadId) - allocatedStart : 0;
+            record(type, name, phase, mode != null ? mode.toString() : "", wall, cpu, allocated);
+        }
+    }
+
+    /**
+     * Log the measurements as table sorted by wall time
+     */
+    public synchronized void logReport(Logger log) {
+        if (measurements.isEmpty()) {
+            return;
+        }
+        log.info("Processor profile (sorted by wall time):");
+        log.info("  %-9s %-36s %-9s %-10s %5s %9s %9s %12s", "Type", "Name", "Phase", "Mode", "Calls", "Wall ms", "CPU ms", "Alloc KB");
+        for (Measurement measurement : sortedByWallTime()) {
+            log.info("  %-9s %-36s %-9s %-10s %5d %9d %9d %12d",
+                     measurement.type, measurement.name, measurement.phase, measurement.mode, measurement.calls,
+                     toMillis(measurement.wallNanos), toMillis(measurement.cpuNanos), measurement.allocatedBytes / 1024);
+        }
+    }
+
+    /**
+     * Add the measurements of a goal to a report
+     *
+     * @param file the report
+     * @param goal goal which ran the processors
+     * @throws IOException if the report cannot be written
+     */
+    public synchronized void write(File file, String goal) throws IOException {
+        ArrayNode processors = JsonNodeFactory.instance.arrayNode();
+        for (Measurement measurement : sortedByWallTime()) {
+            ObjectNode json = processors.addObject();
+            json.put("type", measurement.type);
+            json.put("name", measurement.name);
+            json.put("phase", measurement.phase);
+            json.put("mode", measurement.mode);
+            json.put("calls", measurement.calls);
+            json.put("wallMillis", toMillis(measurement.wallNanos));
+            json.put("cpuMillis", toMillis(measurement.cpuNanos));
+            json.put("allocatedBytes", measurement.allocatedBytes);
+        }
+        GoalReport.write(file, goal, processors);
+    }
+
+    /**
+     * Log the measurements and write them to the report file in the given build directory, if enabled
+     */
+    public void report(File buildDirectory, String goal, Logger log) {
+        if (!enabled) {
+            return;
+        }
+        logReport(log);
+        File file = new File(buildDirectory, REPORT_FILE);
+        try {
+            write(file, goal);
+        } catch (IOException e) {
+            log.warn("Cannot write processor profile to %s: %s", file, e.getMessage());
+        }
+    }
+
+    private synchronized void record(String type, String name, String phase, String mode, long wall, long cpu, long allocated) {
+        Measurement measurement = measurements.computeIfAbsent(String.join("|", type, name, phase, mode),
+                                                               k -> new Measurement(type, name, phase, mode));
+        measurement.calls++;
+        measurement.wallNanos += wall;
+        measurement.cpuNanos += cpu;
+        measurement.allocatedBytes += allocated;
+    }
+
+    private long getAllocatedBytes(long threadId) {
+        return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(threadId);
+    }
+
+    private List<Measurement> sortedByWallTime() {
+        return GoalReport.sortedDescending(measurements.values(), m -> m.wallNanos);
+    }
+
+    /**
+     * Call of a processor
+     */
+    public interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private static class Measurement {
+        private final String type;
+        private final String name;
+        private final String phase;
+        private final String mode;
+        private int calls;
+        private long wallNanos;
+        private long cpuNanos;
+        private long allocatedBytes;
+
+        Measurement(String type, String name, String phase, String mode) {
+            this.type = type;
+            this.name = name;
+            this.phase = phase;
+            this.mode = mode;
+        }
+    }
+}
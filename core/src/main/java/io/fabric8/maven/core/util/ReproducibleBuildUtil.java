@@ -0,0 +1,92 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import io.fabric8.maven.docker.util.Logger;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Helper for builds which create the same image when the input didn't change
+ */
+public class ReproducibleBuildUtil {
+
+    /**
+     * Property to enable reproducible builds
+     */
+    public static final String REPRODUCIBLE_BUILD_PROPERTY = "fabric8.build.reproducible";
+
+    /**
+     * Maven property holding the timestamp of a reproducible build, either in ISO-8601 format or
+     * as seconds since the epoch
+     */
+    public static final String OUTPUT_TIMESTAMP_PROPERTY = "project.build.outputTimestamp";
+
+    private ReproducibleBuildUtil() { }
+
+    /**
+     * Check whether reproducible builds are enabled by a system or project property
+     *
+     * @param project the project to check
+     * @return true if reproducible builds are enabled
+     */
+    public static boolean isReproducibleBuild(MavenProject project) {
+        return Configs.asBoolean(Configs.getSystemPropertyWithMavenPropertyAsFallback(project.getProperties(), REPRODUCIBLE_BUILD_PROPERTY));
+    }
+
+    /**
+     * Get the timestamp to use for a reproducible build. This is the value of <code>project.build.outputTimestamp</code>
+     * if set, otherwise the time of the last git commit. If neither is available the epoch is used.
+     *
+     * @param project the project to build
+     * @param log logger
+     * @return the timestamp, never null
+     */
+    public static Instant getReproducibleTimestamp(MavenProject project, Logger log) {
+        String outputTimestamp = project.getProperties().getProperty(OUTPUT_TIMESTAMP_PROPERTY);
+        if (StringUtils.isNotBlank(outputTimestamp)) {
+            try {
+                return parseOutputTimestamp(outputTimestamp.trim());
+            } catch (DateTimeParseException | NumberFormatException e) {
+                log.warn("Cannot parse %s '%s': %s", OUTPUT_TIMESTAMP_PROPERTY, outputTimestamp, e.getMessage());
+            }
+        }
+        try (Repository repository = GitUtil.getGitRepository(project.getBasedir())) {
+            if (repository != null) {
+                Instant commitTime = GitUtil.getGitCommitTime(repository);
+                if (commitTime != null) {
+                    return commitTime;
+                }
+            }
+        } catch (IOException | GitAPIException e) {
+            log.verbose(Logger.LogVerboseCategory.BUILD, "Cannot get time of last git commit: %s", e.getMessage());
+        }
+        return Instant.EPOCH;
+    }
+
+    static Instant parseOutputTimestamp(String value) {
+        if (StringUtils.isNumeric(value)) {
+            return Instant.ofEpochSecond(Long.parseLong(value));
+        }
+        return Instant.parse(value);
+    }
+}
@@ -25,6 +25,7 @@ public enum Fabric8Annotations {
 
     BUILD_ID("build-id"),
     BUILD_URL("build-url"),
+    BUILD_INPUT_DIGEST("build-input-digest"),
 
     GIT_COMMIT("git-commit"),
     GIT_URL("git-url"),
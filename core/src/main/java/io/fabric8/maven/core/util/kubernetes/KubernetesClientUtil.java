@@ -24,7 +24,7 @@ import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +44,7 @@ import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.apiextensions.CustomResourceDefinition;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
 import io.fabric8.kubernetes.api.model.apps.ReplicaSet;
+import io.fabric8.kubernetes.client.HttpClientAware;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
@@ -53,10 +54,14 @@ import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.kubernetes.client.dsl.Scaleable;
 import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
-import io.fabric8.maven.docker.util.ImageName;
+import io.fabric8.kubernetes.client.utils.URLUtils;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.client.OpenShiftClient;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
@@ -95,36 +100,6 @@ public class KubernetesClientUtil {
 
 
 
-    public static void deleteEntities(KubernetesClient kubernetes, String namespace, Set<HasMetadata> entities, String s2iBuildNameSuffix, Logger log) {
-        List<HasMetadata> list = new ArrayList<>(entities);
-
-        // For OpenShift cluster, also delete s2i buildconfig
-        OpenShiftClient openshiftClient = OpenshiftHelper.asOpenShiftClient(kubernetes);
-        if (openshiftClient != null) {
-            for (HasMetadata entity : list) {
-                if ("ImageStream".equals(KubernetesHelper.getKind(entity))) {
-                    ImageName imageName = new ImageName(entity.getMetadata().getName());
-                    String buildName = getS2IBuildName(imageName, s2iBuildNameSuffix);
-                    log.info("Deleting resource BuildConfig " + namespace + "/" + buildName);
-                    openshiftClient.buildConfigs().inNamespace(namespace).withName(buildName).delete();
-                }
-            }
-        }
-
-        // lets delete in reverse order
-        Collections.reverse(list);
-
-        for (HasMetadata entity : list) {
-            log.info("Deleting resource " + KubernetesHelper.getKind(entity) + " " + namespace + "/" + KubernetesHelper.getName(entity));
-            kubernetes.resource(entity).inNamespace(namespace).cascading(true).delete();
-        }
-    }
-
-    private static String getS2IBuildName(ImageName imageName, String s2iBuildNameSuffix) {
-        return imageName.getSimpleName() + s2iBuildNameSuffix;
-    }
-
-
     public static FilterWatchListDeletable<Pod, PodList, Boolean, Watch, Watcher<Pod>> withSelector(NonNamespaceOperation<Pod, PodList, DoneablePod, PodResource<Pod, DoneablePod>> pods, LabelSelector selector, Logger log) {
         FilterWatchListDeletable<Pod, PodList, Boolean, Watch, Watcher<Pod>> answer = pods;
         Map<String, String> matchLabels = selector.getMatchLabels();
@@ -301,4 +276,80 @@ public class KubernetesClientUtil {
         }
         return crdContexts;
     }
+
+    /**
+     * Change the images of containers in the pod template of a controller with a single JSON patch
+     * which only touches the image fields, instead of fetching and replacing the whole resource.
+     *
+     * @param kubernetes client to use
+     * @param namespace namespace of the controller
+     * @param entity Deployment, ReplicaSet, ReplicationController or DeploymentConfig to patch
+     * @param images new images by the index of the container in the pod template
+     * @throws IOException if the patch is rejected
+     */
+    public static void patchContainerImages(KubernetesClient kubernetes, String namespace, HasMetadata entity, Map<Integer, String> images) throws IOException {
+        if (images.isEmpty()) {
+            return;
+        }
+        if (!(kubernetes instanceof HttpClientAware)) {
+            throw new IllegalArgumentException("Cannot send a patch with client " + kubernetes.getClass().getName());
+        }
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (Map.Entry<Integer, String> image : images.entrySet()) {
+            Map<String, Object> operation = new LinkedHashMap<>();
+            operation.put("op", "replace");
+            operation.put("path", "/spec/template/spec/containers/" + image.getKey() + "/image");
+            operation.put("value", image.getValue());
+            operations.add(operation);
+        }
+        String kind = KubernetesHelper.getKind(entity);
+        String name = KubernetesHelper.getName(entity);
+        String url = URLUtils.join(getCollectionUrl(kubernetes, namespace, entity), name);
+        Request request = new Request.Builder()
+            .url(url)
+            .patch(RequestBody.create(MediaType.parse("application/json-patch+json"), new ObjectMapper().writeValueAsString(operations)))
+            .build();
+        try (Response response = ((HttpClientAware) kubernetes).getHttpClient().newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to patch " + kind + " " + name + ": " + response.code() + " " +
+                                      (response.body() != null ? response.body().string() : response.message()));
+            }
+        }
+    }
+
+    /**
+     * Get the URL of the collection to which the given namespaced entity belongs
+     *
+     * @param kubernetes client whose master URL is used
+     * @param namespace namespace of the collection
+     * @param entity entity whose apiVersion and kind determine the collection
+     * @return URL of the collection, without query parameters
+     */
+    public static String getCollectionUrl(KubernetesClient kubernetes, String namespace, HasMetadata entity) {
+        return URLUtils.join(kubernetes.getMasterUrl().toString(), getApiPath(entity),
+                             "namespaces", namespace, getResourcePlural(KubernetesHelper.getKind(entity)));
+    }
+
+    private static String getResourcePlural(String kind) {
+        String name = kind.toLowerCase();
+        if (name.endsWith("s")) {
+            return "endpoints".equals(name) ? name : name + "es";
+        }
+        if (name.endsWith("y")) {
+            return name.substring(0, name.length() - 1) + "ies";
+        }
+        return name + "s";
+    }
+
+    private static String getApiPath(HasMetadata entity) {
+        String apiVersion = entity.getApiVersion();
+        if (entity instanceof DeploymentConfig && (apiVersion == null || !apiVersion.contains("/"))) {
+            // Legacy DeploymentConfigs without API group
+            return "apis/apps.openshift.io/v1";
+        }
+        if (StringUtils.isBlank(apiVersion)) {
+            throw new IllegalArgumentException("No apiVersion given for " + KubernetesHelper.getKind(entity) + " " + KubernetesHelper.getName(entity));
+        }
+        return apiVersion.contains("/") ? "apis/" + apiVersion : "api/" + apiVersion;
+    }
 }
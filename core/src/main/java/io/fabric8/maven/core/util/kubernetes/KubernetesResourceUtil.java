@@ -15,11 +15,12 @@
  */
 package io.fabric8.maven.core.util.kubernetes;
 
-import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
@@ -30,6 +31,7 @@ import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.EnvVar;
 import io.fabric8.kubernetes.api.model.EnvVarBuilder;
 import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.kubernetes.api.model.KubernetesResource;
 import io.fabric8.kubernetes.api.model.LabelSelector;
@@ -61,6 +63,7 @@ import io.fabric8.maven.core.util.FileUtil;
 import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.model.GroupArtifactVersion;
 import io.fabric8.maven.core.util.MapUtil;
+import io.fabric8.maven.core.util.ParallelUtil;
 import io.fabric8.maven.core.util.ResourceUtil;
 import io.fabric8.maven.core.util.ResourceVersioning;
 import io.fabric8.maven.docker.config.ImageConfiguration;
@@ -149,12 +152,30 @@ public class KubernetesResourceUtil {
     public static KubernetesListBuilder readResourceFragmentsFrom(PlatformMode platformMode, ResourceVersioning apiVersions,
                                                                   String defaultName,
                                                                   File[] resourceFiles) throws IOException {
+        return readResourceFragmentsFrom(platformMode, apiVersions, defaultName, resourceFiles, Collections.emptyMap());
+    }
+
+    /**
+     * Read all Kubernetes resource fragments like {@link #readResourceFragmentsFrom(PlatformMode, ResourceVersioning, String, File[])},
+     * but with additional mappings from filename types to kinds.
+     *
+     * @param kindFilenameMappings kinds with their filename types, which take precedence over the default mappings
+     */
+    public static KubernetesListBuilder readResourceFragmentsFrom(PlatformMode platformMode, ResourceVersioning apiVersions,
+                                                                  String defaultName, File[] resourceFiles,
+                                                                  Map<String, List<String>> kindFilenameMappings) throws IOException {
         KubernetesListBuilder builder = new KubernetesListBuilder();
         if (resourceFiles != null) {
+            List<File> fragments = new ArrayList<>();
             for (File file : resourceFiles) {
                 if(file.getName().endsWith("cr.yml") || file.getName().endsWith("cr.yaml")) // Don't process custom resources
                     continue;
-                HasMetadata resource = getResource(platformMode, apiVersions, file, defaultName);
+                fragments.add(file);
+            }
+            // Fragments are independent of each other, so they are parsed in parallel
+            List<HasMetadata> resources =
+                ParallelUtil.map(fragments, file -> getResource(platformMode, apiVersions, file, defaultName, kindFilenameMappings));
+            for (HasMetadata resource : resources) {
                 builder.addToItems(resource);
             }
         }
@@ -178,12 +199,19 @@ public class KubernetesResourceUtil {
      */
     public static HasMetadata getResource(PlatformMode platformMode, ResourceVersioning apiVersions,
                                           File file, String appName) throws IOException {
-        Map<String,Object> fragment = readAndEnrichFragment(platformMode, apiVersions, file, appName);
-        ObjectMapper mapper = new ObjectMapper();
+        return getResource(platformMode, apiVersions, file, appName, Collections.emptyMap());
+    }
+
+    private static HasMetadata getResource(PlatformMode platformMode, ResourceVersioning apiVersions,
+                                           File file, String appName, Map<String, List<String>> kindFilenameMappings) throws IOException {
+        ObjectNode fragment = readAndEnrichFragment(platformMode, apiVersions, file, appName, kindFilenameMappings);
         try {
-            return mapper.convertValue(fragment, HasMetadata.class);
+            // Deserialize directly from the tree, without converting it into another intermediate representation
+            return JSON_MAPPER.treeToValue(fragment, HasMetadata.class);
         } catch (ClassCastException exp) {
             throw new IllegalArgumentException(String.format("Resource fragment %s has an invalid syntax (%s)", file.getPath(), exp.getMessage()));
+        } catch (JsonProcessingException exp) {
+            throw new IllegalArgumentException(exp.getMessage(), exp);
         }
     }
 
@@ -200,9 +228,7 @@ public class KubernetesResourceUtil {
     }
 
     public static File[] listResourceFragments(File resourceDir) {
-        final Pattern filenamePattern = Pattern.compile(FILENAME_PATTERN);
-        final Pattern exludePattern = Pattern.compile(PROFILES_PATTERN);
-        return resourceDir.listFiles((File dir, String name) -> filenamePattern.matcher(name).matches() && !exludePattern.matcher(name).matches());
+        return resourceDir.listFiles((File dir, String name) -> FRAGMENT_FILENAME.matcher(name).matches() && !PROFILES_FILENAME.matcher(name).matches());
     }
 
     public static File[] listRemoteResourceFragments(List<String> remotes, Logger log) {
@@ -220,50 +246,60 @@ public class KubernetesResourceUtil {
 
     // ========================================================================================================
 
-    protected final static Map<String,String> FILENAME_TO_KIND_MAPPER = new HashMap<>();
-    protected final static Map<String,String> KIND_TO_FILENAME_MAPPER = new HashMap<>();
+    // Default mappings, they are never modified. Mappings configured for a project are passed explicitly.
+    protected final static Map<String,String> FILENAME_TO_KIND_MAPPER;
+    protected final static Map<String,String> KIND_TO_FILENAME_MAPPER;
 
     static {
-        initializeKindFilenameMapper();
-    }
-
-    protected final static void initializeKindFilenameMapper() {
-        final Map<String, List<String>> mappings = KindFilenameMapperUtil.loadMappings();
-        updateKindFilenameMapper(mappings);
-    }
-
-    protected final static void remove(String kind, String filename) {
-        FILENAME_TO_KIND_MAPPER.remove(filename);
-        KIND_TO_FILENAME_MAPPER.remove(kind);
-    }
-
-    public final static void updateKindFilenameMapper(final Map<String, List<String>> mappings) {
-
-        final Set<Map.Entry<String, List<String>>> entries = mappings.entrySet();
-
-        for (Map.Entry<String, List<String>> entry : entries) {
-
+        final Map<String, String> filenameToKind = new HashMap<>();
+        final Map<String, String> kindToFilename = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : KindFilenameMapperUtil.loadMappings().entrySet()) {
             final List<String> filenameTypes = entry.getValue();
             final String kind = entry.getKey();
             for (String filenameType : filenameTypes) {
-                FILENAME_TO_KIND_MAPPER.put(filenameType, kind);
+                filenameToKind.put(filenameType, kind);
             }
 
             // In previous version, last one wins, so we do the same.
-            KIND_TO_FILENAME_MAPPER.put(kind, filenameTypes.get(filenameTypes.size() - 1));
+            kindToFilename.put(kind, filenameTypes.get(filenameTypes.size() - 1));
+        }
+        FILENAME_TO_KIND_MAPPER = Collections.unmodifiableMap(filenameToKind);
+        KIND_TO_FILENAME_MAPPER = Collections.unmodifiableMap(kindToFilename);
+    }
 
+    private static String getKindForFilenameType(String filenameType, Map<String, List<String>> kindFilenameMappings) {
+        for (Map.Entry<String, List<String>> entry : kindFilenameMappings.entrySet()) {
+            if (entry.getValue().contains(filenameType)) {
+                return entry.getKey();
+            }
         }
+        return FILENAME_TO_KIND_MAPPER.get(filenameType);
+    }
 
+    private static String getFilenameTypeForKind(String kind, Map<String, List<String>> kindFilenameMappings) {
+        List<String> filenameTypes = kindFilenameMappings.get(kind);
+        if (filenameTypes != null && !filenameTypes.isEmpty()) {
+            return filenameTypes.get(filenameTypes.size() - 1);
+        }
+        return KIND_TO_FILENAME_MAPPER.get(kind);
     }
 
     private static final String FILENAME_PATTERN = "^(?<name>.*?)(-(?<type>[^-]+))?\\.(?<ext>yaml|yml|json)$";
     private static final String PROFILES_PATTERN = "^profiles?\\.ya?ml$";
 
+    // Compiled once, patterns are thread safe
+    private static final Pattern FRAGMENT_FILENAME = Pattern.compile(FILENAME_PATTERN);
+    private static final Pattern FRAGMENT_FILENAME_IGNORE_CASE = Pattern.compile(FILENAME_PATTERN, Pattern.CASE_INSENSITIVE);
+    private static final Pattern PROFILES_FILENAME = Pattern.compile(PROFILES_PATTERN);
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
     // Read fragment and add default values
-    private static Map<String, Object> readAndEnrichFragment(PlatformMode platformMode, ResourceVersioning apiVersions,
-                                                             File file, String appName) throws IOException {
-        Pattern pattern = Pattern.compile(FILENAME_PATTERN, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(file.getName());
+    private static ObjectNode readAndEnrichFragment(PlatformMode platformMode, ResourceVersioning apiVersions,
+                                                    File file, String appName,
+                                                    Map<String, List<String>> kindFilenameMappings) throws IOException {
+        Matcher matcher = FRAGMENT_FILENAME_IGNORE_CASE.matcher(file.getName());
         if (!matcher.matches()) {
             throw new IllegalArgumentException(
                 String.format("Resource file name '%s' does not match pattern <name>-<type>.(yaml|yml|json)", file.getName()));
@@ -273,13 +309,13 @@ public class KubernetesResourceUtil {
         String ext = matcher.group("ext").toLowerCase();
         String kind;
 
-        Map<String,Object> fragment = readFragment(file, ext);
+        ObjectNode fragment = readFragment(file, ext);
 
         if (type != null) {
-            kind = getAndValidateKindFromType(file, type);
+            kind = getAndValidateKindFromType(file, type, kindFilenameMappings);
         } else {
             // Try name as type
-            kind = FILENAME_TO_KIND_MAPPER.get(name.toLowerCase());
+            kind = getKindForFilenameType(name.toLowerCase(), kindFilenameMappings);
             if (kind != null) {
                 // Name is in fact the type, so lets erase the name.
                 name = null;
@@ -291,7 +327,7 @@ public class KubernetesResourceUtil {
         String apiVersion = apiVersions.getCoreVersion();
 
 
-        switch ((String)fragment.get("kind")) {
+        switch (fragment.get("kind").asText()) {
             case "Ingress" :
                 apiVersion = apiVersions.getExtensionsVersion();
                 break;
@@ -323,26 +359,30 @@ public class KubernetesResourceUtil {
 
         addIfNotExistent(fragment, "apiVersion", apiVersion);
 
-        Map<String, Object> metaMap = getMetadata(fragment);
+        ObjectNode metaMap = getMetadata(fragment);
         // No name means: generated app name should be taken as resource name
         addIfNotExistent(metaMap, "name", StringUtils.isNotBlank(name) ? name : appName);
 
         return fragment;
     }
 
-    private static String getAndValidateKindFromType(File file, String type) {
+    private static String getAndValidateKindFromType(File file, String type, Map<String, List<String>> kindFilenameMappings) {
         String kind;
-        kind = FILENAME_TO_KIND_MAPPER.get(type.toLowerCase());
+        kind = getKindForFilenameType(type.toLowerCase(), kindFilenameMappings);
         if (kind == null) {
+            Set<String> filenameTypes = new TreeSet<>(FILENAME_TO_KIND_MAPPER.keySet());
+            for (List<String> types : kindFilenameMappings.values()) {
+                filenameTypes.addAll(types);
+            }
             throw new IllegalArgumentException(
                 String.format("Unknown type '%s' for file %s. Must be one of : %s",
-                              type, file.getName(), StringUtils.join(FILENAME_TO_KIND_MAPPER.keySet().iterator(), ", ")));
+                              type, file.getName(), StringUtils.join(filenameTypes.iterator(), ", ")));
         }
         return kind;
     }
 
-    private static void addKind(Map<String, Object> fragment, String kind, String fileName) {
-        if (kind == null && !fragment.containsKey("kind")) {
+    private static void addKind(ObjectNode fragment, String kind, String fileName) {
+        if (kind == null && !fragment.has("kind")) {
             throw new IllegalArgumentException(
                 "No type given as part of the file name (e.g. 'app-rc.yml') " +
                 "and no 'Kind' defined in resource descriptor " + fileName);
@@ -362,39 +402,45 @@ public class KubernetesResourceUtil {
     }
     // ===============================================================================================
 
-    private static Map<String, Object> getMetadata(Map<String, Object> fragment) {
-        Object mo = fragment.get("metadata");
-        Map<String, Object> meta;
-        if (mo == null) {
-            meta = new HashMap<>();
-            fragment.put("metadata", meta);
-            return meta;
-        } else if (mo instanceof Map) {
-            return (Map<String, Object>) mo;
+    private static ObjectNode getMetadata(ObjectNode fragment) {
+        JsonNode mo = fragment.get("metadata");
+        if (mo == null || mo.isNull()) {
+            return fragment.putObject("metadata");
+        } else if (mo.isObject()) {
+            return (ObjectNode) mo;
         } else {
-            throw new IllegalArgumentException("Metadata is expected to be a Map, not a " + mo.getClass());
+            throw new IllegalArgumentException("Metadata is expected to be a Map, not a " + mo.getNodeType());
         }
     }
 
-    private static void addIfNotExistent(Map<String, Object> fragment, String key, String value) {
-        if (!fragment.containsKey(key)) {
+    private static void addIfNotExistent(ObjectNode fragment, String key, String value) {
+        if (!fragment.has(key)) {
             fragment.put(key, value);
         }
     }
 
-    private static Map<String,Object> readFragment(File file, String ext) throws IOException {
-        ObjectMapper mapper = new ObjectMapper("json".equals(ext) ? new JsonFactory() : new YAMLFactory());
-        TypeReference<HashMap<String,Object>> typeRef = new TypeReference<HashMap<String,Object>>() {};
+    private static ObjectNode readFragment(File file, String ext) throws IOException {
+        ObjectMapper mapper = "json".equals(ext) ? JSON_MAPPER : YAML_MAPPER;
         try {
-            Map<String, Object> ret = mapper.readValue(file, typeRef);
-            return ret != null ? ret : new HashMap<String, Object>();
+            JsonNode ret = mapper.readTree(file);
+            if (ret == null || ret.isMissingNode() || ret.isNull()) {
+                return mapper.createObjectNode();
+            }
+            if (!ret.isObject()) {
+                throw JsonMappingException.from((JsonParser) null, "Resource fragment must be an object, not " + ret.getNodeType());
+            }
+            return (ObjectNode) ret;
         } catch (JsonProcessingException e) {
             throw new JsonProcessingException(String.format("[%s] %s", file, e.getMessage()), e.getLocation(), e) {};
         }
     }
 
     public static String getNameWithSuffix(String name, String kind) {
-        String suffix =  KIND_TO_FILENAME_MAPPER.get(kind);
+        return getNameWithSuffix(name, kind, Collections.emptyMap());
+    }
+
+    public static String getNameWithSuffix(String name, String kind, Map<String, List<String>> kindFilenameMappings) {
+        String suffix = getFilenameTypeForKind(kind, kindFilenameMappings);
         return suffix != null ? name +  "-" + suffix : name;
     }
 
@@ -862,15 +908,32 @@ public class KubernetesResourceUtil {
             if (dto == null) {
                 throw new IllegalStateException("Cannot load kubernetes manifest " + manifest);
             }
-            if (dto instanceof Template) {
-                Template template = (Template) dto;
-                dto = OpenshiftHelper.processTemplatesLocally(template, false);
-            }
-            entities.addAll(KubernetesHelper.toItemList(dto));
+            addResources(entities, dto);
         }
         return entities;
     }
 
+    /**
+     * Get the resources of a generated list in the same way as they would be loaded from its manifest
+     *
+     * @param list generated resources
+     * @return the resources sorted for applying them
+     * @throws IOException if a template cannot be processed
+     */
+    public static Set<HasMetadata> loadResources(KubernetesList list) throws IOException {
+        final Set<HasMetadata> entities = new TreeSet<>(new HasMetadataComparator());
+        addResources(entities, list);
+        return entities;
+    }
+
+    private static void addResources(Set<HasMetadata> entities, KubernetesResource dto) throws IOException {
+        if (dto instanceof Template) {
+            Template template = (Template) dto;
+            dto = OpenshiftHelper.processTemplatesLocally(template, false);
+        }
+        entities.addAll(KubernetesHelper.toItemList(dto));
+    }
+
     public static LabelSelector getPodLabelSelector(Set<HasMetadata> entities) {
         LabelSelector chosenSelector = null;
         for (HasMetadata entity : entities) {
@@ -15,7 +15,10 @@
  */
 package io.fabric8.maven.core.util.kubernetes;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.base.Objects;
 import io.fabric8.kubernetes.api.model.IntOrString;
@@ -60,6 +63,18 @@ public class ServiceUrlUtil {
      * @throws IllegalArgumentException if the URL cannot be found for the serviceName and namespace
      */
     public static String getServiceURL(KubernetesClient client, String serviceName, String serviceNamespace, String serviceProtocol, boolean serviceExternal) {
+        return getServiceURL(client, serviceName, serviceNamespace, serviceProtocol, serviceExternal, new LookupCache());
+    }
+
+    /**
+     * Returns the URL to access the service like {@link #getServiceURL(KubernetesClient, String, String, String, boolean)},
+     * but reuses the ingresses and nodes already looked up for other services
+     *
+     * @param lookupCache cache for ingresses and nodes, which should be used for a single run only
+     * @throws IllegalArgumentException if the URL cannot be found for the serviceName and namespace
+     */
+    public static String getServiceURL(KubernetesClient client, String serviceName, String serviceNamespace, String serviceProtocol, boolean serviceExternal,
+                                       LookupCache lookupCache) {
         Service srv = null;
         String serviceHost = serviceToHostOrBlank(serviceName);
         String servicePort = serviceToPortOrBlank(serviceName);
@@ -112,54 +127,13 @@ public class ServiceUrlUtil {
 
         Integer portNumber = port.getPort();
         if (StringUtils.isBlank(clusterIP)) {
-            IngressList ingresses = client.extensions().ingresses().inNamespace(serviceNamespace).list();
-            if (ingresses != null) {
-                List<Ingress> items = ingresses.getItems();
-                if (items != null) {
-                    for (Ingress item : items) {
-                        String ns = KubernetesHelper.getNamespace(item);
-                        if (Objects.equal(serviceNamespace, ns)) {
-                            IngressSpec spec = item.getSpec();
-                            if (spec != null) {
-                                List<IngressRule> rules = spec.getRules();
-                                List<IngressTLS> tls = spec.getTls();
-                                if (rules != null) {
-                                    for (IngressRule rule : rules) {
-                                        HTTPIngressRuleValue http = rule.getHttp();
-                                        if (http != null) {
-                                            List<HTTPIngressPath> paths = http.getPaths();
-                                            if (paths != null) {
-                                                for (HTTPIngressPath path : paths) {
-                                                    IngressBackend backend = path.getBackend();
-                                                    if (backend != null) {
-                                                        String backendServiceName = backend.getServiceName();
-                                                        if (serviceName.equals(backendServiceName) && portsMatch(port, backend.getServicePort())) {
-                                                            String pathPostfix = path.getPath();
-                                                            if (tls != null) {
-                                                                for (IngressTLS tlsHost : tls) {
-                                                                    List<String> hosts = tlsHost.getHosts();
-                                                                    if (hosts != null) {
-                                                                        for (String host : hosts) {
-                                                                            if (StringUtils.isNotBlank(host)) {
-                                                                                return String.format("https://%s/%s", host, preparePath(pathPostfix));
-                                                                            }
-                                                                        }
-                                                                    }
-                                                                }
-                                                            }
-                                                            answer = rule.getHost();
-                                                            if (StringUtils.isNotBlank(answer)) {
-                                                                return String.format("http://%s/%s",answer, preparePath(pathPostfix));
-                                                            }
-                                                        }
-                                                    }
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
+            List<Ingress> ingresses = lookupCache.getIngresses(client, serviceNamespace);
+            for (Ingress item : ingresses) {
+                String ns = KubernetesHelper.getNamespace(item);
+                if (Objects.equal(serviceNamespace, ns)) {
+                    String ingressUrl = getIngressURL(item, serviceName, port);
+                    if (ingressUrl != null) {
+                        return ingressUrl;
                     }
                 }
             }
@@ -188,44 +162,83 @@ public class ServiceUrlUtil {
             boolean found = false;
             Integer nodePort = port.getNodePort();
             if (nodePort != null) {
-                NodeList nodeList = client.nodes().list();
-                if (nodeList != null) {
-                    List<Node> items = nodeList.getItems();
-                    if (items != null) {
-                        for (Node item : items) {
-                            NodeStatus status = item.getStatus();
-                            if (!found && status != null) {
-                                List<NodeAddress> addresses = status.getAddresses();
-                                if (addresses != null) {
-                                    for (NodeAddress address : addresses) {
-                                        String ip = address.getAddress();
-                                        if (StringUtils.isNotBlank(ip)) {
-                                            clusterIP = ip;
-                                            portNumber = nodePort;
-                                            found = true;
-                                            break;
-                                        }
+                for (Node item : lookupCache.getNodes(client)) {
+                    NodeStatus status = item.getStatus();
+                    if (!found && status != null) {
+                        List<NodeAddress> addresses = status.getAddresses();
+                        if (addresses != null) {
+                            for (NodeAddress address : addresses) {
+                                String ip = address.getAddress();
+                                if (StringUtils.isNotBlank(ip)) {
+                                    clusterIP = ip;
+                                    portNumber = nodePort;
+                                    found = true;
+                                    break;
+                                }
 
-                                    }
+                            }
 
-                                }
+                        }
+                    }
+                    if (!found) {
+                        NodeSpec spec = item.getSpec();
+                        if (spec != null) {
+                            clusterIP = spec.getExternalID();
+                            if (StringUtils.isNotBlank(clusterIP)) {
+                                portNumber = nodePort;
+                                break;
                             }
-                            if (!found) {
-                                NodeSpec spec = item.getSpec();
-                                if (spec != null) {
-                                    clusterIP = spec.getExternalID();
-                                    if (StringUtils.isNotBlank(clusterIP)) {
-                                        portNumber = nodePort;
-                                        break;
+                        }
+                    }
+                }
+            }
+        }
+        return (serviceProto + "://" + clusterIP + ":" + portNumber).toLowerCase();
+    }
+
+    /**
+     * Returns the URL under which an ingress exposes the given port of a service
+     *
+     * @param ingress ingress to check
+     * @param serviceName name of the service
+     * @param port port of the service
+     * @return the URL or null if the ingress doesn't expose this service port
+     */
+    public static String getIngressURL(Ingress ingress, String serviceName, ServicePort port) {
+        IngressSpec spec = ingress.getSpec();
+        if (spec == null || spec.getRules() == null) {
+            return null;
+        }
+        List<IngressTLS> tls = spec.getTls();
+        for (IngressRule rule : spec.getRules()) {
+            HTTPIngressRuleValue http = rule.getHttp();
+            if (http == null || http.getPaths() == null) {
+                continue;
+            }
+            for (HTTPIngressPath path : http.getPaths()) {
+                IngressBackend backend = path.getBackend();
+                if (backend != null && serviceName.equals(backend.getServiceName()) && portsMatch(port, backend.getServicePort())) {
+                    String pathPostfix = path.getPath();
+                    if (tls != null) {
+                        for (IngressTLS tlsHost : tls) {
+                            List<String> hosts = tlsHost.getHosts();
+                            if (hosts != null) {
+                                for (String host : hosts) {
+                                    if (StringUtils.isNotBlank(host)) {
+                                        return String.format("https://%s/%s", host, preparePath(pathPostfix));
                                     }
                                 }
                             }
                         }
                     }
+                    String host = rule.getHost();
+                    if (StringUtils.isNotBlank(host)) {
+                        return String.format("http://%s/%s", host, preparePath(pathPostfix));
+                    }
                 }
             }
         }
-        return (serviceProto + "://" + clusterIP + ":" + portNumber).toLowerCase();
+        return null;
     }
 
     /**
@@ -349,4 +362,28 @@ public class ServiceUrlUtil {
     private static String getEnvVarOrSystemProperty(String envVarName, String defaultValue) {
         return getEnvVarOrSystemProperty(envVarName,envVarName,defaultValue);
     }
+
+    /**
+     * Ingresses and nodes looked up once and reused for resolving the URLs of multiple services
+     */
+    public static class LookupCache {
+
+        private final Map<String, List<Ingress>> ingresses = new ConcurrentHashMap<>();
+        private volatile List<Node> nodes;
+
+        public List<Ingress> getIngresses(KubernetesClient client, String namespace) {
+            return ingresses.computeIfAbsent(String.valueOf(namespace), key -> {
+                IngressList ingressList = client.extensions().ingresses().inNamespace(namespace).list();
+                return ingressList != null && ingressList.getItems() != null ? ingressList.getItems() : Collections.<Ingress>emptyList();
+            });
+        }
+
+        public List<Node> getNodes(KubernetesClient client) {
+            if (nodes == null) {
+                NodeList nodeList = client.nodes().list();
+                nodes = nodeList != null && nodeList.getItems() != null ? nodeList.getItems() : Collections.<Node>emptyList();
+            }
+            return nodes;
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import okhttp3.HttpUrl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterMetricsTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    private KubernetesMockServer mockServer = new KubernetesMockServer(false);
+
+    @Test
+    public void callsOfClientsAreRecordedAndWritten() throws IOException {
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(200, new ServiceListBuilder().build()).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services/a")
+                  .andReturn(200, new ServiceBuilder().withNewMetadata().withName("a").endMetadata().build()).once();
+        mockServer.expect().delete().withPath("/api/v1/namespaces/test/services/b")
+                  .andReturn(500, "error").once();
+        String masterUrl = mockServer.createClient().getMasterUrl().toString();
+
+        ClusterAccess clusterAccess = new ClusterAccess(new ClusterConfiguration.Builder().masterUrl(masterUrl).namespace("test").build());
+        KubernetesClient client = clusterAccess.createKubernetesClient();
+        client.services().inNamespace("test").list();
+        client.services().inNamespace("test").withName("a").get();
+        client.services().inNamespace("test").withName("c").get();
+        try {
+            client.services().inNamespace("test").withName("b").delete();
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        File buildDirectory = temporaryFolder.getRoot();
+        clusterAccess.reportMetrics(buildDirectory, "apply", log);
+        new ClusterMetrics().write(new File(buildDirectory, ClusterMetrics.METRICS_FILE), "resource");
+
+        JsonNode metrics = new ObjectMapper().readTree(new File(buildDirectory, ClusterMetrics.METRICS_FILE));
+        assertTrue(metrics.has("resource"));
+        JsonNode apply = metrics.get("apply");
+        assertEquals(4, apply.get("calls").asInt());
+        assertEquals(1, apply.get("errors").asInt());
+        assertOperation(apply, "list", "services", 1);
+        assertOperation(apply, "get", "services", 2);
+        assertOperation(apply, "delete", "services", 1);
+    }
+
+    @Test
+    public void nothingReportedWithoutCalls() {
+        File buildDirectory = temporaryFolder.getRoot();
+        new ClusterAccess((ClusterConfiguration) null).reportMetrics(buildDirectory, "apply", log);
+        assertFalse(new File(buildDirectory, ClusterMetrics.METRICS_FILE).exists());
+    }
+
+    @Test
+    public void verbAndKindFromPath() {
+        assertVerbAndKind("GET", "/api/v1/namespaces", "list", "namespaces");
+        assertVerbAndKind("GET", "/api/v1/namespaces/test", "get", "namespaces");
+        assertVerbAndKind("GET", "/api/v1/namespaces/test/pods?watch=true", "watch", "pods");
+        assertVerbAndKind("GET", "/api/v1/namespaces/test/pods/app/log", "get", "pods/log");
+        assertVerbAndKind("PATCH", "/apis/apps/v1/namespaces/test/deployments/app", "patch", "deployments");
+        assertVerbAndKind("DELETE", "/apis/apps/v1/namespaces/test/deployments?labelSelector=app", "deletecollection", "deployments");
+        assertVerbAndKind("POST", "/oapi/v1/namespaces/test/buildconfigs/app/instantiatebinary", "create", "buildconfigs/instantiatebinary");
+        assertVerbAndKind("PUT", "/apis/apiextensions.k8s.io/v1beta1/customresourcedefinitions/foo", "update", "customresourcedefinitions");
+        assertVerbAndKind("GET", "/apis", "get", "discovery");
+    }
+
+    private void assertVerbAndKind(String method, String path, String verb, String kind) {
+        assertArrayEquals(new String[] { verb, kind },
+                          ClusterCallInterceptor.getVerbAndKind(method, HttpUrl.parse("https://cluster" + path)));
+    }
+
+    private void assertOperation(JsonNode goal, String verb, String kind, int count) {
+        for (JsonNode operation : goal.get("operations")) {
+            if (verb.equals(operation.get("verb").asText()) && kind.equals(operation.get("kind").asText())) {
+                assertEquals(count, operation.get("count").asInt());
+                return;
+            }
+        }
+        throw new AssertionError("No operation " + verb + " " + kind + " in " + goal);
+    }
+}
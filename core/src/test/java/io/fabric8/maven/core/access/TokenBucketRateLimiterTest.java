@@ -0,0 +1,58 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void burstIsAllowedThenCallsAreSpacedByRate() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2);
+        long now = System.nanoTime();
+
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(SECOND / 10, limiter.reserve(now));
+        assertEquals(2 * SECOND / 10, limiter.reserve(now));
+    }
+
+    @Test
+    public void bucketIsRefilledUpToBurst() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 2);
+        long now = System.nanoTime();
+        limiter.reserve(now);
+        limiter.reserve(now);
+
+        long later = now + 10 * SECOND;
+        assertEquals(0, limiter.reserve(later));
+        assertEquals(0, limiter.reserve(later));
+        assertEquals(SECOND / 10, limiter.reserve(later));
+    }
+
+    @Test
+    public void bucketIsSharedPerCluster() {
+        assertSame(TokenBucketRateLimiter.forCluster("https://cluster:8443", 5, 10),
+                   TokenBucketRateLimiter.forCluster("https://cluster:8443", 5, 10));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.api.model.extensions.IngressBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApplyAggregatorTest {
+
+    @Test
+    public void resourcesAreSortedIntoTiers() {
+        HasMetadata ingress = new IngressBuilder().withNewMetadata().withName("a").endMetadata().build();
+        HasMetadata deployment = new DeploymentBuilder().withNewMetadata().withName("a").endMetadata().build();
+        HasMetadata service = new ServiceBuilder().withNewMetadata().withName("a").endMetadata().build();
+        HasMetadata secret = new SecretBuilder().withNewMetadata().withName("b").endMetadata().build();
+        HasMetadata configMap = new ConfigMapBuilder().withNewMetadata().withName("a").endMetadata().build();
+
+        List<List<HasMetadata>> tiers = ApplyAggregator.getApplyTiers(Arrays.asList(ingress, deployment, service, secret, configMap));
+
+        assertEquals(Arrays.asList(Arrays.asList(secret, configMap),
+                                   Collections.singletonList(service),
+                                   Collections.singletonList(deployment),
+                                   Collections.singletonList(ingress)), tiers);
+    }
+
+    @Test
+    public void manifestsAreDrainedPerSession() {
+        ApplyAggregator aggregator = new ApplyAggregator();
+        Object session = new Object();
+        Object otherSession = new Object();
+        aggregator.register(session, createManifests("g:a:jar:1"));
+        aggregator.register(otherSession, createManifests("g:b:jar:1"));
+        aggregator.register(session, createManifests("g:c:jar:1"));
+        aggregator.register(session, createManifests("g:a:jar:1"));
+
+        List<ApplyAggregator.ModuleManifests> manifests = aggregator.drain(session);
+
+        assertEquals(2, manifests.size());
+        assertEquals("g:a:jar:1", manifests.get(0).getProjectId());
+        assertEquals("g:c:jar:1", manifests.get(1).getProjectId());
+        assertTrue(aggregator.drain(session).isEmpty());
+        assertEquals(1, aggregator.drain(otherSession).size());
+    }
+
+    private ApplyAggregator.ModuleManifests createManifests(String projectId) {
+        return new ApplyAggregator.ModuleManifests(projectId, new File("kubernetes.yml"), new File("openshift.yml"),
+                                                   null, Collections.emptyMap());
+    }
+}
@@ -15,7 +15,9 @@
  */
 package io.fabric8.maven.core.service;
 
-import java.io.Closeable;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
 import java.util.Collections;
 
 import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
@@ -24,51 +26,30 @@ import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.PodListBuilder;
 import io.fabric8.kubernetes.api.model.WatchEvent;
-import io.fabric8.maven.core.util.ProcessUtil;
-import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.openshift.client.OpenShiftClient;
 import io.fabric8.openshift.client.server.mock.OpenShiftMockServer;
-import mockit.Expectations;
 import mockit.Mocked;
-import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 public class PortForwardServiceTest {
 
     @Mocked
     private io.fabric8.maven.docker.util.Logger logger;
 
-    @Mocked
-    private Process process;
-
-    @Mocked
-    private ClientToolsService clientToolsService;
-
-    @Before
-    public void init() throws Exception {
-        new Expectations() {{
-            process.destroy();
-        }};
-    }
-
     @Test
     public void testSimpleScenario() throws Exception {
         // Cannot test more complex scenarios due to errors in mockwebserver
         OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
 
-        Pod pod1 = new PodBuilder()
-                .withNewMetadata()
-                .withName("mypod")
-                .addToLabels("mykey", "myvalue")
-                .withResourceVersion("1")
-                .endMetadata()
-                .withNewStatus()
-                .withPhase("run")
-                .endStatus()
-                .build();
+        Pod pod1 = createPod("mypod", "2017-03-28T10:00:00Z");
+        Pod pod2 = createPod("mypod-old", "2017-03-28T09:00:00Z");
 
         PodList pods1 = new PodListBuilder()
-                .withItems(pod1)
+                .withItems(pod2, pod1)
                 .withNewMetadata()
                 .withResourceVersion("1")
                 .endMetadata()
@@ -82,23 +63,60 @@ public class PortForwardServiceTest {
                 .andEmit(new WatchEvent(pod1, "MODIFIED"))
                 .done().always();
 
-        mockServer.expect().get().withPath("/api/v1/namespaces/test/pods?resourceVersion=1&watch=true")
+        OpenShiftClient client = mockServer.createOpenShiftClient();
+        PortForwardService service = new PortForwardService(client, logger);
+
+        try (PortForwardService.LocalForward forward =
+                 service.forwardPortAsync(logger, new LabelSelectorBuilder().withMatchLabels(Collections.singletonMap("mykey", "myvalue")).build(), 8080, 0)) {
+            assertEquals("mypod", forward.getPodName());
+            int localPort = forward.getLocalPort();
+            assertTrue(localPort > 0);
+            Thread.sleep(3000);
+            assertEquals(localPort, forward.getLocalPort());
+        }
+    }
+
+    @Test
+    public void testConnectionClosedWithoutPod() throws Exception {
+        OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
+
+        PodList emptyPods = new PodListBuilder()
+                .withNewMetadata()
+                .withResourceVersion("1")
+                .endMetadata()
+                .build();
+
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/pods?labelSelector=mykey%3Dmyvalue").andReturn(200, emptyPods).always();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/pods?labelSelector=mykey%3Dmyvalue&watch=true")
                 .andUpgradeToWebSocket().open()
-                .waitFor(1000)
-                .andEmit(new WatchEvent(pod1, "MODIFIED"))
                 .done().always();
 
         OpenShiftClient client = mockServer.createOpenShiftClient();
-        PortForwardService service = new PortForwardService(client, logger) {
-            @Override
-            public ProcessUtil.ProcessExecutionContext forwardPortAsync(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
-                return new ProcessUtil.ProcessExecutionContext(process, Collections.<Thread>emptyList(), logger);
-            }
-        };
-
-        try (Closeable c = service.forwardPortAsync(logger, new LabelSelectorBuilder().withMatchLabels(Collections.singletonMap("mykey", "myvalue")).build(), 8080, 9000)) {
-            Thread.sleep(3000);
+        PortForwardService service = new PortForwardService(client, logger);
+
+        try (PortForwardService.LocalForward forward =
+                 service.forwardPortAsync(logger, new LabelSelectorBuilder().withMatchLabels(Collections.singletonMap("mykey", "myvalue")).build(), 8080, 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), forward.getLocalPort())) {
+            assertNull(forward.getPodName());
+            socket.setSoTimeout(5000);
+            InputStream in = socket.getInputStream();
+            assertEquals(-1, in.read());
         }
     }
 
+    private Pod createPod(String name, String creationTimestamp) {
+        return new PodBuilder()
+                .withNewMetadata()
+                .withName(name)
+                .withCreationTimestamp(creationTimestamp)
+                .addToLabels("mykey", "myvalue")
+                .withResourceVersion("1")
+                .endMetadata()
+                .withNewStatus()
+                .withPhase("Running")
+                .addNewCondition().withType("Ready").withStatus("True").endCondition()
+                .endStatus()
+                .build();
+    }
+
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResourceCacheTest {
+
+    @Mocked
+    private Logger log;
+
+    private KubernetesMockServer mockServer = new KubernetesMockServer(false);
+
+    @Test
+    public void lookupsAreServedFromOneList() {
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(200, new ServiceListBuilder().withNewMetadata().withResourceVersion("1").endMetadata()
+                                                          .withItems(createService("a"), createService("b")).build()).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services?resourceVersion=1&watch=true")
+                  .andReturn(200, "").always();
+        KubernetesClient client = mockServer.createClient();
+
+        try (ResourceCache cache = new ResourceCache(log)) {
+            assertEquals("a", cache.get(Service.class, "test", "a", client.services().inNamespace("test")).getMetadata().getName());
+            assertEquals("b", cache.get(Service.class, "test", "b", client.services().inNamespace("test")).getMetadata().getName());
+            assertNull(cache.get(Service.class, "test", "c", client.services().inNamespace("test")));
+        }
+    }
+
+    @Test
+    public void createdResourceIsLookedUpAgain() {
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(200, new ServiceListBuilder().withNewMetadata().withResourceVersion("1").endMetadata().build()).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services?resourceVersion=1&watch=true")
+                  .andReturn(200, "").always();
+        mockServer.expect().post().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(201, createService("a")).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services/a")
+                  .andReturn(200, createService("a")).once();
+        KubernetesClient client = mockServer.createClient();
+
+        try (ResourceCache cache = new ResourceCache(log)) {
+            assertNull(cache.get(Service.class, "test", "a", client.services().inNamespace("test")));
+            client.services().inNamespace("test").create(createService("a"));
+            assertEquals("a", cache.get(Service.class, "test", "a", client.services().inNamespace("test")).getMetadata().getName());
+        }
+    }
+
+    @Test
+    public void deletedResourceIsLookedUpAgain() {
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(200, new ServiceListBuilder().withNewMetadata().withResourceVersion("1").endMetadata()
+                                                          .withItems(createService("a")).build()).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services?resourceVersion=1&watch=true")
+                  .andReturn(200, "").always();
+        mockServer.expect().delete().withPath("/api/v1/namespaces/test/services/a")
+                  .andReturn(200, createService("a")).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services/a")
+                  .andReturn(404, "not found").once();
+        KubernetesClient client = mockServer.createClient();
+
+        try (ResourceCache cache = new ResourceCache(log)) {
+            assertEquals("a", cache.get(Service.class, "test", "a", client.services().inNamespace("test")).getMetadata().getName());
+            client.services().inNamespace("test").withName("a").delete();
+            assertNull(cache.get(Service.class, "test", "a", client.services().inNamespace("test")));
+        }
+    }
+
+    @Test
+    public void lookupOneByOneIfKindCannotBeListed() {
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+                  .andReturn(403, "forbidden").once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services/a")
+                  .andReturn(200, createService("a")).once();
+        KubernetesClient client = mockServer.createClient();
+
+        try (ResourceCache cache = new ResourceCache(log)) {
+            assertEquals("a", cache.get(Service.class, "test", "a", client.services().inNamespace("test")).getMetadata().getName());
+            assertNull(cache.get(Service.class, "test", "b", client.services().inNamespace("test")));
+        }
+    }
+
+    private Service createService(String name) {
+        return new ServiceBuilder().withNewMetadata().withName(name).endMetadata().build();
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.maven.core.util.ResourceClassifier;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResourceHandoffTest {
+
+    private static final File MANIFEST = new File("target/classes/META-INF/fabric8/kubernetes.yml");
+
+    @Test
+    public void resourcesAreHandedOverWhileWritten() throws Exception {
+        ResourceHandoff handoff = new ResourceHandoff();
+        Object session = new Object();
+        KubernetesList list = new KubernetesListBuilder()
+            .addToItems(new ServiceBuilder().withNewMetadata().withName("a").endMetadata().build())
+            .build();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean written = new AtomicBoolean();
+
+        handoff.open(session, "g:a:jar:1").add(ResourceClassifier.KUBERNETES, MANIFEST, list, () -> {
+            release.await();
+            written.set(true);
+            return null;
+        });
+
+        assertNull(handoff.take(session, "g:b:jar:1"));
+        ResourceHandoff.ModuleResources resources = handoff.take(session, "g:a:jar:1");
+        assertSame(list, resources.getResources(ResourceClassifier.KUBERNETES, MANIFEST.getAbsoluteFile()));
+        assertNull(resources.getResources(ResourceClassifier.KUBERNETES, new File("kubernetes.yml")));
+        assertNull(resources.getResources(ResourceClassifier.OPENSHIFT, MANIFEST));
+        assertFalse(written.get());
+
+        release.countDown();
+        resources.awaitWritten();
+        assertTrue(written.get());
+        assertNull(handoff.take(session, "g:a:jar:1"));
+    }
+
+    @Test
+    public void failedWritesAreReported() throws Exception {
+        ResourceHandoff handoff = new ResourceHandoff();
+        Object session = new Object();
+        handoff.open(session, "g:a:jar:1").add(ResourceClassifier.OPENSHIFT, MANIFEST, null, () -> {
+            throw new IOException("disk full");
+        });
+
+        try {
+            handoff.open(session, "g:a:jar:1");
+            fail();
+        } catch (Fabric8ServiceException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertNull(handoff.take(session, "g:a:jar:1").getResources(ResourceClassifier.OPENSHIFT, MANIFEST));
+    }
+
+    @Test
+    public void remainingResourcesOfSessionAreTaken() throws Exception {
+        ResourceHandoff handoff = new ResourceHandoff();
+        Object session = new Object();
+        Object otherSession = new Object();
+        ResourceHandoff.ModuleResources a = handoff.open(session, "g:a:jar:1");
+        ResourceHandoff.ModuleResources b = handoff.open(session, "g:b:jar:1");
+        handoff.open(otherSession, "g:a:jar:1");
+        handoff.take(session, "g:a:jar:1");
+
+        Map<String, ResourceHandoff.ModuleResources> remaining = handoff.takeAll(session);
+
+        assertEquals(1, remaining.size());
+        assertSame(b, remaining.get("g:b:jar:1"));
+        assertNotSame(a, remaining.get("g:a:jar:1"));
+        assertTrue(handoff.takeAll(session).isEmpty());
+        assertEquals(1, handoff.takeAll(otherSession).size());
+    }
+}
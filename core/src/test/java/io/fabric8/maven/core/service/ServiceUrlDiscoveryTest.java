@@ -0,0 +1,118 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import io.fabric8.kubernetes.api.model.APIGroupListBuilder;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.api.model.extensions.IngressBuilder;
+import io.fabric8.kubernetes.api.model.extensions.IngressListBuilder;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.api.model.RouteListBuilder;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.server.mock.OpenShiftMockServer;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ServiceUrlDiscoveryTest {
+
+    @Mocked
+    private Logger logger;
+
+    @Test
+    public void discoverUrlsWithoutWaiting() throws Exception {
+        OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
+
+        Service annotated = createService("annotated", true);
+        annotated.getMetadata().getAnnotations().put("fabric8.io/exposeUrl", "http://annotated.example.com");
+        Service routed = createService("routed", false);
+        Service ingressed = createService("ingressed", false);
+        Service plain = createService("plain", false);
+
+        mockServer.expect().get().withPath("/apis").andReturn(200, new APIGroupListBuilder()
+            .addNewGroup().withName("route.openshift.io").withApiVersion("v1").endGroup().build()).always();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+            .andReturn(200, new ServiceListBuilder().withItems(annotated, routed, ingressed, plain).build()).always();
+        mockServer.expect().get().withPath("/apis/route.openshift.io/v1/namespaces/test/routes")
+            .andReturn(200, new RouteListBuilder().addNewItem()
+                .withNewMetadata().withName("routed-route").endMetadata()
+                .withNewSpec().withHost("Routed.Example.com").withNewTo().withKind("Service").withName("routed").endTo().endSpec()
+                .endItem().build()).always();
+        mockServer.expect().get().withPath("/apis/extensions/v1beta1/namespaces/test/ingresses")
+            .andReturn(200, new IngressListBuilder().withItems(new IngressBuilder()
+                .withNewMetadata().withName("ingressed").endMetadata()
+                .withNewSpec().addNewRule().withHost("ingressed.example.com")
+                .withNewHttp().addNewPath().withPath("/app").withNewBackend().withServiceName("ingressed").withNewServicePort(8080).endBackend().endPath().endHttp()
+                .endRule().endSpec().build()).build()).always();
+
+        OpenShiftClient client = mockServer.createOpenShiftClient();
+        Map<String, String> urls = new ServiceUrlDiscovery(client, "test", logger)
+            .discoverServiceUrls(Arrays.asList(annotated, routed, ingressed, plain), 10);
+
+        assertEquals("http://annotated.example.com", urls.get("annotated"));
+        assertEquals("http://routed.example.com", urls.get("routed"));
+        assertEquals("http://ingressed.example.com/app", urls.get("ingressed"));
+        assertFalse(urls.containsKey("plain"));
+        assertEquals(Arrays.asList("annotated", "routed", "ingressed"), Arrays.asList(urls.keySet().toArray()));
+    }
+
+    @Test
+    public void waitForServiceUrlIfIngressesCannotBeWatched() throws Exception {
+        OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
+
+        Service exposed = createService("exposed", true);
+        Service annotated = new ServiceBuilder(exposed).editMetadata()
+            .addToAnnotations("fabric8.io/exposeUrl", "http://exposed.example.com").endMetadata().build();
+
+        mockServer.expect().get().withPath("/apis").andReturn(200, new APIGroupListBuilder().build()).always();
+        // The URL shows up after the first lookup, and is found by the lookup after the watches are established
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+            .andReturn(200, new ServiceListBuilder().withItems(exposed).build()).once();
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services")
+            .andReturn(200, new ServiceListBuilder().withItems(annotated).build()).always();
+        mockServer.expect().withPath("/api/v1/namespaces/test/services?watch=true")
+            .andUpgradeToWebSocket().open().done().always();
+        mockServer.expect().get().withPath("/apis/extensions/v1beta1/namespaces/test/ingresses").andReturn(403, "").always();
+        mockServer.expect().get().withPath("/apis/extensions/v1beta1/namespaces/test/ingresses?watch=true").andReturn(403, "").always();
+
+        OpenShiftClient client = mockServer.createOpenShiftClient();
+        Map<String, String> urls = new ServiceUrlDiscovery(client, "test", logger)
+            .discoverServiceUrls(Collections.singletonList(exposed), 10);
+
+        assertEquals("http://exposed.example.com", urls.get("exposed"));
+    }
+
+    private Service createService(String name, boolean expose) {
+        return new ServiceBuilder()
+            .withNewMetadata()
+              .withName(name)
+              .addToLabels("expose", Boolean.toString(expose))
+              .addToAnnotations("dummy", "true")
+            .endMetadata()
+            .withNewSpec()
+              .addNewPort().withPort(8080).endPort()
+            .endSpec()
+            .build();
+    }
+}
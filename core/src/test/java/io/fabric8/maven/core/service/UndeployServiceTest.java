@@ -0,0 +1,103 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.core.util.WebServerEventCollector;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class UndeployServiceTest {
+
+    private static final String SELECTOR_QUERY = "labelSelector=app%3Dfoo%2Cprovider%3Dfabric8";
+
+    @Mocked
+    private Logger log;
+
+    private KubernetesMockServer mockServer = new KubernetesMockServer(false);
+
+    @Test
+    public void deleteKindWithSelectorAndOthersByName() throws Exception {
+        Service service1 = createService("foo");
+        Service service2 = createService("foo-metrics");
+        Deployment deployment = new DeploymentBuilder()
+            .withApiVersion("apps/v1")
+            .withNewMetadata().withName("foo").addToLabels("app", "foo").addToLabels("provider", "fabric8").endMetadata()
+            .build();
+
+        WebServerEventCollector<KubernetesMockServer> collector = new WebServerEventCollector<>(mockServer);
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services?" + SELECTOR_QUERY)
+                  .andReturn(200, new ServiceListBuilder().withItems(service1, service2).build()).once();
+        mockServer.expect().delete().withPath("/api/v1/namespaces/test/services?" + SELECTOR_QUERY)
+                  .andReply(collector.record("delete-services").andReturn(200, "{}")).once();
+        mockServer.expect().delete().withPath("/apis/apps/v1/namespaces/test/deployments/foo")
+                  .andReply(collector.record("delete-deployment").andReturn(200, deployment)).once();
+        KubernetesClient client = mockServer.createClient();
+
+        Set<HasMetadata> entities = new LinkedHashSet<>();
+        entities.add(deployment);
+        entities.add(service1);
+        entities.add(service2);
+        new UndeployService(client, log).undeploy("test", entities, "-s2i", 0);
+
+        collector.assertEventsRecorded("delete-services", "delete-deployment");
+        for (String body : collector.getBodies()) {
+            assertTrue(body, body.contains("\"propagationPolicy\":\"Background\""));
+        }
+    }
+
+    @Test
+    public void deleteByNameWhenSelectorMatchesForeignResources() throws Exception {
+        Service service1 = createService("foo");
+        Service service2 = createService("foo-metrics");
+
+        WebServerEventCollector<KubernetesMockServer> collector = new WebServerEventCollector<>(mockServer);
+        mockServer.expect().get().withPath("/api/v1/namespaces/test/services?" + SELECTOR_QUERY)
+                  .andReturn(200, new ServiceListBuilder().withItems(service1, service2, createService("bar")).build()).once();
+        mockServer.expect().delete().withPath("/api/v1/namespaces/test/services/foo")
+                  .andReply(collector.record("delete-foo").andReturn(200, service1)).once();
+        mockServer.expect().delete().withPath("/api/v1/namespaces/test/services/foo-metrics")
+                  .andReply(collector.record("delete-foo-metrics").andReturn(200, service2)).once();
+        KubernetesClient client = mockServer.createClient();
+
+        Set<HasMetadata> entities = new LinkedHashSet<>();
+        entities.add(service1);
+        entities.add(service2);
+        new UndeployService(client, log).undeploy("test", entities, "-s2i", 0);
+
+        collector.assertEventsRecorded("delete-foo", "delete-foo-metrics");
+    }
+
+    private Service createService(String name) {
+        return new ServiceBuilder()
+            .withApiVersion("v1")
+            .withNewMetadata().withName(name).addToLabels("app", "foo").addToLabels("provider", "fabric8").endMetadata()
+            .build();
+    }
+}
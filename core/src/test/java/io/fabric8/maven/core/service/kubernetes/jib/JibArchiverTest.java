@@ -0,0 +1,139 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.util.DefaultFileSet;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class JibArchiverTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File sourceDir;
+    private File stagingDir;
+    private JibArchiver archiver;
+    private JibArchiver.AssemblyFiles files;
+
+    @Before
+    public void setUp() throws IOException {
+        sourceDir = temporaryFolder.newFolder("src");
+        stagingDir = new File(temporaryFolder.getRoot(), "staging");
+        write("app.jar", "jar");
+        write("config/application.properties", "name=${name}");
+
+        File destFile = new File(temporaryFolder.getRoot(), "maven.jib");
+        files = JibArchiver.collect(destFile, stagingDir);
+        archiver = createArchiver(destFile);
+    }
+
+    @After
+    public void tearDown() {
+        files.close();
+    }
+
+    @Test
+    public void filesAreReferencedAtTheirOriginalLocation() throws IOException {
+        archiver.addFile(new File(sourceDir, "app.jar"), "./app.jar", 0755);
+        archiver.addFileSet(DefaultFileSet.fileSet(new File(sourceDir, "config")).prefixed("./config/"));
+        archiver.createArchive();
+
+        Map<String, JibLayerStrategy.FileEntry> entries = getEntries();
+        assertEquals(new File(sourceDir, "app.jar").toPath(), entries.get("app.jar").getSource());
+        assertEquals("755", entries.get("app.jar").getPermissions().toOctalString());
+        assertEquals(new File(sourceDir, "config/application.properties").toPath(),
+                     entries.get("config/application.properties").getSource());
+        assertEquals(0, stagingDir.list().length);
+    }
+
+    @Test
+    public void transformedFilesAreStaged() throws IOException {
+        DefaultFileSet fileSet = DefaultFileSet.fileSet(new File(sourceDir, "config")).prefixed("config/");
+        fileSet.setStreamTransformer((resource, inputStream) ->
+            new ByteArrayInputStream("name=test".getBytes(StandardCharsets.UTF_8)));
+        archiver.addFileSet(fileSet);
+        archiver.createArchive();
+
+        JibLayerStrategy.FileEntry entry = getEntries().get("config/application.properties");
+        assertEquals(new File(stagingDir, "config/application.properties").toPath(), entry.getSource());
+        assertEquals("name=test", new String(Files.readAllBytes(entry.getSource()), StandardCharsets.UTF_8));
+        assertEquals("name=${name}",
+                     new String(Files.readAllBytes(new File(sourceDir, "config/application.properties").toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void assembliesAreCollectedSeparately() throws IOException {
+        File otherDestFile = new File(temporaryFolder.getRoot(), "other.jib");
+        File otherStagingDir = new File(temporaryFolder.getRoot(), "other-staging");
+        try (JibArchiver.AssemblyFiles otherFiles = JibArchiver.collect(otherDestFile, otherStagingDir)) {
+            JibArchiver otherArchiver = createArchiver(otherDestFile);
+            archiver.addFile(new File(sourceDir, "app.jar"), "app.jar");
+            otherArchiver.addFile(new File(sourceDir, "config/application.properties"), "application.properties");
+            otherArchiver.createArchive();
+            archiver.createArchive();
+
+            assertEquals(Collections.singleton("app.jar"), getEntries().keySet());
+            assertEquals(1, otherFiles.getEntries().size());
+            assertEquals("application.properties", otherFiles.getEntries().get(0).getPath());
+        }
+    }
+
+    @Test(expected = ArchiverException.class)
+    public void archiveWithoutCollectionFails() throws IOException {
+        JibArchiver other = createArchiver(new File(temporaryFolder.getRoot(), "unknown.jib"));
+        other.addFile(new File(sourceDir, "app.jar"), "app.jar");
+        other.createArchive();
+    }
+
+    private JibArchiver createArchiver(File destFile) {
+        JibArchiver ret = new JibArchiver();
+        ret.enableLogging(new ConsoleLogger(Logger.LEVEL_WARN, "test"));
+        ret.setDestFile(destFile);
+        return ret;
+    }
+
+    private Map<String, JibLayerStrategy.FileEntry> getEntries() {
+        Map<String, JibLayerStrategy.FileEntry> ret = new HashMap<>();
+        for (JibLayerStrategy.FileEntry entry : files.getEntries()) {
+            ret.put(entry.getPath(), entry);
+        }
+        return ret;
+    }
+
+    private void write(String path, String content) throws IOException {
+        File file = new File(sourceDir, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -15,13 +15,44 @@
  */
 package io.fabric8.maven.core.service.kubernetes.jib;
 
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+
+import com.google.cloud.tools.jib.api.ImageReference;
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.util.Logger;
 import mockit.Expectations;
 import mockit.Mocked;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.Test;
 
+import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.additionalTagsFromImageConfiguration;
 import static io.fabric8.maven.core.service.kubernetes.jib.JibServiceUtil.getBaseImage;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class JibBuildServiceTest {
 
@@ -58,4 +89,123 @@ public class JibBuildServiceTest {
         // Then
         assertEquals(result, "repository/image");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void additionalTagsShouldNotContainTagOfImageName() {
+        // Given
+        ImageConfiguration configuration = new ImageConfiguration.Builder()
+            .name("repository/image:1.0")
+            .buildConfig(new BuildImageConfiguration.Builder()
+                             .tags(Arrays.asList("1.0", "latest", null))
+                             .build())
+            .build();
+        // When
+        final Set<String> result = additionalTagsFromImageConfiguration(configuration);
+        // Then
+        assertEquals(Collections.singleton("latest"), result);
+    }
+
+    @Test
+    public void tagExistingImageInRegistry(@Mocked Logger log) throws Exception {
+        // Given
+        final String manifest = "{\"schemaVersion\":2,\"mediaType\":\"application/vnd.oci.image.manifest.v1+json\"," +
+                                "\"config\":{\"mediaType\":\"application/vnd.oci.image.config.v1+json\",\"size\":2," +
+                                "\"digest\":\"sha256:44136fa355b3678a1146ad16f7e8649e94fb4fc21fe77e8310c060f61caaff8a\"},\"layers\":[]}";
+        final List<String> pushedManifests = Collections.synchronizedList(new ArrayList<>());
+        MockWebServer registry = new MockWebServer();
+        registry.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String path = request.getPath();
+                if ("/v2/".equals(path)) {
+                    return new MockResponse().setResponseCode(200);
+                }
+                if ("GET".equals(request.getMethod()) && "/v2/app/manifests/build-input-1234".equals(path)) {
+                    return new MockResponse().setResponseCode(200)
+                        .setHeader("Content-Type", "application/vnd.oci.image.manifest.v1+json")
+                        .setBody(manifest);
+                }
+                if ("PUT".equals(request.getMethod()) && path.startsWith("/v2/app/manifests/")) {
+                    pushedManifests.add(path.substring("/v2/app/manifests/".length()));
+                    return new MockResponse().setResponseCode(201);
+                }
+                return new MockResponse().setResponseCode(404)
+                    .setBody("{\"errors\":[{\"code\":\"MANIFEST_UNKNOWN\",\"message\":\"manifest unknown\"}]}");
+            }
+        });
+        // A registry with a self signed certificate is only accessed when insecure registries are allowed
+        registry.useHttps(createSelfSignedSslContext().getSocketFactory(), false);
+        registry.start();
+        try {
+            ImageReference image = ImageReference.parse("localhost:" + registry.getPort() + "/app:1.0");
+            // When
+            boolean tagged = JibServiceUtil.tagExistingImage(image, null, true, "build-input-1234", Arrays.asList("1.0", "latest"), log);
+            boolean missing = JibServiceUtil.tagExistingImage(image, null, true, "build-input-5678", Collections.singletonList("1.0"), log);
+            // Then
+            assertTrue(tagged);
+            assertFalse(missing);
+            assertEquals(Arrays.asList("1.0", "latest"), pushedManifests);
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    public void manifestDigestChangesWhenTagIsMoved() throws Exception {
+        // Given
+        final String[] configDigest = { "44136fa355b3678a1146ad16f7e8649e94fb4fc21fe77e8310c060f61caaff8a" };
+        MockWebServer registry = new MockWebServer();
+        registry.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if ("/v2/".equals(request.getPath())) {
+                    return new MockResponse().setResponseCode(200);
+                }
+                if ("/v2/base/manifests/1.0".equals(request.getPath())) {
+                    return new MockResponse().setResponseCode(200)
+                        .setHeader("Content-Type", "application/vnd.oci.image.manifest.v1+json")
+                        .setBody("{\"schemaVersion\":2,\"mediaType\":\"application/vnd.oci.image.manifest.v1+json\"," +
+                                 "\"config\":{\"mediaType\":\"application/vnd.oci.image.config.v1+json\",\"size\":2," +
+                                 "\"digest\":\"sha256:" + configDigest[0] + "\"},\"layers\":[]}");
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        registry.useHttps(createSelfSignedSslContext().getSocketFactory(), false);
+        registry.start();
+        try {
+            ImageReference image = ImageReference.parse("localhost:" + registry.getPort() + "/base:1.0");
+            // When
+            String digest = JibServiceUtil.getManifestDigest(image, true);
+            configDigest[0] = "8a5edab282632443219e051e4ade2d1d5bbc671c781051bf1437897cbdfea0f1";
+            String movedDigest = JibServiceUtil.getManifestDigest(image, true);
+            // Then
+            assertTrue(digest.matches("sha256:[0-9a-f]{64}"));
+            assertNotEquals(digest, movedDigest);
+            assertEquals(digest, JibServiceUtil.getManifestDigest(ImageReference.parse("base@" + digest), true));
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    private SSLContext createSelfSignedSslContext() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+        X500Name name = new X500Name("CN=localhost");
+        long now = System.currentTimeMillis();
+        X509CertificateHolder holder = new JcaX509v3CertificateBuilder(
+            name, BigInteger.ONE, new Date(now - 60000), new Date(now + 3600000), name, keyPair.getPublic())
+            .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()));
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(holder);
+
+        KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        keyStore.setKeyEntry("registry", keyPair.getPrivate(), new char[0], new Certificate[] { certificate });
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, new char[0]);
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagerFactory.getKeyManagers(), null, null);
+        return sslContext;
+    }
+}
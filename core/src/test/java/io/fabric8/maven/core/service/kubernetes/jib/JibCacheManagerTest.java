@@ -0,0 +1,201 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import com.google.cloud.tools.jib.api.AbsoluteUnixPath;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import com.google.cloud.tools.jib.blob.Blobs;
+import com.google.cloud.tools.jib.cache.Cache;
+import com.google.cloud.tools.jib.cache.CachedLayer;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JibCacheManagerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    private File cacheDirectory;
+
+    private JibCacheManager cacheManager;
+
+    private final Object session = new Object();
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDirectory = temporaryFolder.newFolder("jib-cache");
+        cacheManager = new JibCacheManager();
+    }
+
+    @Test
+    public void evictLeastRecentlyUsedEntries() throws IOException {
+        cacheManager.configure(session, cacheDirectory, 250, 1);
+        File oldest = createEntry(JibCacheManager.BASE_IMAGE_LAYERS_CACHE + "/layers/aaa", 100, 1000);
+        File older = createEntry(JibCacheManager.IMAGE_INDEX + "/bbb.tar", 100, 2000);
+        File newer = createEntry(JibCacheManager.APPLICATION_LAYERS_CACHE + "/layers/ccc", 100, 3000);
+
+        cacheManager.evict(log);
+
+        assertFalse(oldest.exists());
+        assertTrue(older.exists());
+        assertTrue(newer.exists());
+    }
+
+    @Test
+    public void noEvictionWithoutLimit() throws IOException {
+        cacheManager.configure(session, cacheDirectory, 0, 1);
+        File entry = createEntry(JibCacheManager.BASE_IMAGE_LAYERS_CACHE + "/layers/aaa", 100, 1000);
+
+        cacheManager.evict(log);
+
+        assertTrue(entry.exists());
+    }
+
+    @Test
+    public void layersOfRunningBuildAreNotEvicted() throws IOException {
+        cacheManager.configure(session, cacheDirectory, 1, 1);
+        List<LayerConfiguration> layers = createLayers();
+        CachedLayer cachedLayer = Cache.withDirectory(new File(cacheDirectory, JibCacheManager.APPLICATION_LAYERS_CACHE).toPath())
+            .writeUncompressedLayer(Blobs.from("layer content"), layers.get(0).getLayerEntries());
+        File layerDirectory = new File(cacheDirectory, JibCacheManager.APPLICATION_LAYERS_CACHE + "/layers/" + cachedLayer.getDigest().getHash());
+        File tarball = createEntry(JibCacheManager.IMAGE_INDEX + "/bbb.tar", 100, 1000);
+
+        JibCacheManager.Usage usage = cacheManager.start("busybox:latest", layers, log);
+        cacheManager.evict(log);
+
+        assertTrue(layerDirectory.exists());
+        assertFalse(tarball.exists());
+
+        cacheManager.finish(usage, log);
+
+        assertEquals(1, cacheManager.getApplicationLayerHits());
+        assertEquals(0, cacheManager.getApplicationLayerMisses());
+        assertFalse(layerDirectory.exists());
+        assertFalse(new File(cacheDirectory, JibCacheManager.APPLICATION_LAYERS_CACHE + "/selectors").list().length > 0);
+    }
+
+    @Test
+    public void entriesWrittenDuringRunningBuildAreNotEvicted() throws IOException {
+        cacheManager.configure(session, cacheDirectory, 1, 1);
+        JibCacheManager.Usage usage = cacheManager.start("busybox:latest", createLayers(), log);
+        File written = createEntry(JibCacheManager.BASE_IMAGE_LAYERS_CACHE + "/layers/aaa", 100, System.currentTimeMillis());
+
+        cacheManager.evict(log);
+        assertTrue(written.exists());
+
+        Files.setLastModifiedTime(written.toPath(), FileTime.from(Instant.ofEpochMilli(1000)));
+        cacheManager.finish(usage, log);
+        assertFalse(written.exists());
+    }
+
+    @Test
+    public void configuredOncePerSession() {
+        cacheManager.configure(session, cacheDirectory, 0, 1);
+        cacheManager.configure(session, new File(cacheDirectory, "other"), 0, 1);
+        assertEquals(new File(cacheDirectory, JibCacheManager.IMAGE_INDEX), cacheManager.getImageIndexDirectory());
+
+        cacheManager.configure(new Object(), new File(cacheDirectory, "other"), 0, 1);
+        assertEquals(new File(cacheDirectory, "other/" + JibCacheManager.IMAGE_INDEX), cacheManager.getImageIndexDirectory());
+    }
+
+    @Test
+    public void buildPermitsLimitConcurrentBuilds() throws InterruptedException {
+        cacheManager.configure(session, cacheDirectory, 0, 1);
+        cacheManager.acquireBuildPermit();
+        Thread other = new Thread(() -> {
+            try {
+                cacheManager.acquireBuildPermit();
+                cacheManager.releaseBuildPermit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        other.start();
+        other.join(200);
+        assertTrue(other.isAlive());
+
+        cacheManager.releaseBuildPermit();
+        other.join(10000);
+        assertFalse(other.isAlive());
+    }
+
+    @Test
+    public void buildPermitsAreKeptWhileBuildsRun() throws InterruptedException {
+        cacheManager.configure(session, cacheDirectory, 0, 1);
+        cacheManager.acquireBuildPermit();
+        cacheManager.configure(new Object(), cacheDirectory, 0, 1);
+        Thread other = new Thread(() -> {
+            try {
+                cacheManager.acquireBuildPermit();
+                cacheManager.releaseBuildPermit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        other.start();
+        other.join(200);
+        assertTrue(other.isAlive());
+
+        cacheManager.releaseBuildPermit();
+        other.join(10000);
+        assertFalse(other.isAlive());
+    }
+
+    @Test
+    public void imageIndexIsPartOfCache() {
+        assertEquals(null, cacheManager.getImageIndexDirectory());
+        cacheManager.configure(session, cacheDirectory, 0, 1);
+        assertEquals(new File(cacheDirectory, JibCacheManager.IMAGE_INDEX), cacheManager.getImageIndexDirectory());
+    }
+
+    private File createEntry(String path, int size, long lastModified) throws IOException {
+        File entry = new File(cacheDirectory, path);
+        File file = path.endsWith(".tar") ? entry : new File(entry, "layer.tar.gz");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), new byte[size]);
+        Files.setLastModifiedTime(entry.toPath(), FileTime.from(Instant.ofEpochMilli(lastModified)));
+        return entry;
+    }
+
+    private List<LayerConfiguration> createLayers() throws IOException {
+        File appJar = temporaryFolder.newFile("app.jar");
+        Files.write(appJar.toPath(), "app".getBytes(StandardCharsets.UTF_8));
+        return Collections.singletonList(LayerConfiguration.builder()
+                                             .setName("classes")
+                                             .addEntry(appJar.toPath(), AbsoluteUnixPath.get("/deployments/app.jar"))
+                                             .build());
+    }
+}
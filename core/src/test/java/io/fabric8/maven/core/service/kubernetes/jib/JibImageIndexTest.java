@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.cloud.tools.jib.api.AbsoluteUnixPath;
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import io.fabric8.maven.core.util.BuildLabelAnnotations;
+import io.fabric8.maven.docker.config.BuildImageConfiguration;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JibImageIndexTest {
+
+    private static final String BASE_DIGEST = "sha256:1234";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    private File appJar;
+
+    @Before
+    public void setUp() throws IOException {
+        appJar = temporaryFolder.newFile("app.jar");
+        Files.write(appJar.toPath(), "version 1".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void inputDigestDoesNotDependOnImageNameAndBuildDate() throws IOException {
+        String digest = JibImageIndex.getInputDigest(createImageConfiguration("app:1.0", "2019-10-01"), BASE_DIGEST, createLayers(), null);
+
+        assertEquals(digest, JibImageIndex.getInputDigest(createImageConfiguration("app:1.1", "2019-10-02"), BASE_DIGEST, createLayers(), null));
+        assertTrue(JibImageIndex.getInputTag(digest).matches("build-input-[0-9a-f]{64}"));
+    }
+
+    @Test
+    public void inputDigestChangesWithInput() throws IOException {
+        String digest = JibImageIndex.getInputDigest(createImageConfiguration("app:1.0", null), BASE_DIGEST, createLayers(), null);
+
+        assertNotEquals(digest, JibImageIndex.getInputDigest(createImageConfiguration("app:1.0", null), BASE_DIGEST, createLayers(), Instant.EPOCH));
+        assertNotEquals(digest, JibImageIndex.getInputDigest(createImageConfiguration("app:1.0", null), "sha256:5678", createLayers(), null));
+        Files.write(appJar.toPath(), "version 2".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(digest, JibImageIndex.getInputDigest(createImageConfiguration("app:1.0", null), BASE_DIGEST, createLayers(), null));
+    }
+
+    @Test
+    public void storeAndLookup() throws IOException {
+        JibImageIndex index = new JibImageIndex(new File(temporaryFolder.getRoot(), "index"), log);
+        File tarball = createImageTarball("app:1.0");
+
+        assertNull(index.lookup("sha256:1234"));
+        index.store("sha256:1234", tarball);
+        assertEquals(new File(temporaryFolder.getRoot(), "index/1234.tar"), index.lookup("sha256:1234"));
+        assertNull(new JibImageIndex(null, log).lookup("sha256:1234"));
+    }
+
+    @Test
+    public void retagTarball() throws IOException {
+        File source = createImageTarball("app:1.0");
+        File target = new File(temporaryFolder.getRoot(), "target.tar");
+
+        JibImageIndex.retagTarball(source, target, "registry.example.com/app:1.1");
+
+        Map<String, String> entries = readTarball(target);
+        assertEquals("[{\"Config\":\"config.json\",\"RepoTags\":[\"registry.example.com/app:1.1\"],\"Layers\":[\"layer.tar.gz\"]}]",
+                     entries.get("manifest.json"));
+        assertEquals("layer", entries.get("layer.tar.gz"));
+        assertEquals("{}", entries.get("config.json"));
+    }
+
+    private ImageConfiguration createImageConfiguration(String name, String buildDate) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "test");
+        if (buildDate != null) {
+            labels.put(BuildLabelAnnotations.BUILD_DATE.value(), buildDate);
+        }
+        return new ImageConfiguration.Builder()
+            .name(name)
+            .buildConfig(new BuildImageConfiguration.Builder()
+                             .from("openjdk:11")
+                             .labels(labels)
+                             .env(Collections.singletonMap("JAVA_APP_DIR", "/deployments"))
+                             .build())
+            .build();
+    }
+
+    private List<LayerConfiguration> createLayers() {
+        return Collections.singletonList(LayerConfiguration.builder()
+                                             .setName("classes")
+                                             .addEntry(appJar.toPath(), AbsoluteUnixPath.get("/deployments/app.jar"))
+                                             .build());
+    }
+
+    private File createImageTarball(String imageName) throws IOException {
+        File tarball = temporaryFolder.newFile();
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(new BufferedOutputStream(new FileOutputStream(tarball)))) {
+            addEntry(out, "layer.tar.gz", "layer");
+            addEntry(out, "config.json", "{}");
+            addEntry(out, "manifest.json",
+                     "[{\"Config\":\"config.json\",\"RepoTags\":[\"" + imageName + "\"],\"Layers\":[\"layer.tar.gz\"]}]");
+        }
+        return tarball;
+    }
+
+    private void addEntry(TarArchiveOutputStream out, String name, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(bytes.length);
+        out.putArchiveEntry(entry);
+        out.write(bytes);
+        out.closeArchiveEntry();
+    }
+
+    private Map<String, String> readTarball(File tarball) throws IOException {
+        Map<String, String> ret = new HashMap<>();
+        try (TarArchiveInputStream in = new TarArchiveInputStream(new FileInputStream(tarball))) {
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                ret.put(entry.getName(), new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8));
+            }
+        }
+        return ret;
+    }
+}
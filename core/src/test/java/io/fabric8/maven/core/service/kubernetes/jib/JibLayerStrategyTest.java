@@ -0,0 +1,111 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.kubernetes.jib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.google.cloud.tools.jib.api.LayerConfiguration;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class JibLayerStrategyTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File assemblyDir;
+
+    @Before
+    public void setUp() throws IOException {
+        assemblyDir = temporaryFolder.newFolder("maven");
+        touch("lib/commons-lang3-3.9.jar");
+        touch("lib/other-1.0-SNAPSHOT.jar");
+        touch("lib/unknown-2.0.jar");
+        touch("app-1.0.jar");
+        touch("config/application.properties");
+        touch("classes/io/fabric8/Main.class");
+        new File(assemblyDir, "data").mkdirs();
+    }
+
+    @Test
+    public void defaultLayers() throws IOException {
+        List<LayerConfiguration> layers = createStrategy(null).createLayers(assemblyDir, "/deployments");
+
+        assertEquals(Arrays.asList("dependencies", "snapshot-dependencies", "resources", "classes"), getNames(layers));
+        assertEquals(Arrays.asList("/deployments/lib/commons-lang3-3.9.jar", "/deployments/lib/unknown-2.0.jar"),
+                     getPaths(layers.get(0)));
+        assertEquals(Collections.singletonList("/deployments/lib/other-1.0-SNAPSHOT.jar"), getPaths(layers.get(1)));
+        assertEquals(Arrays.asList("/deployments/config/application.properties", "/deployments/data"),
+                     getPaths(layers.get(2)));
+        assertEquals(Arrays.asList("/deployments/app-1.0.jar", "/deployments/classes/io/fabric8/Main.class"),
+                     getPaths(layers.get(3)));
+    }
+
+    @Test
+    public void unlistedContentGoesIntoLastLayer() throws IOException {
+        List<LayerConfiguration> layers = createStrategy(Arrays.asList("dependencies", "classes"))
+            .createLayers(assemblyDir, "/deployments");
+
+        assertEquals(Arrays.asList("dependencies", "classes"), getNames(layers));
+        assertEquals(2, layers.get(0).getLayerEntries().size());
+        assertEquals(5, layers.get(1).getLayerEntries().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownLayer() {
+        createStrategy(Collections.singletonList("sources"));
+    }
+
+    private JibLayerStrategy createStrategy(List<String> layerNames) {
+        return new JibLayerStrategy(layerNames,
+                                    Arrays.asList(createArtifact("org.apache.commons", "commons-lang3", "3.9"),
+                                                  createArtifact("io.fabric8", "other", "1.0-SNAPSHOT")),
+                                    createArtifact("io.fabric8", "app", "1.0"));
+    }
+
+    private Artifact createArtifact(String groupId, String artifactId, String version) {
+        Artifact artifact = new DefaultArtifact(groupId, artifactId, version, "compile", "jar", null,
+                                                new DefaultArtifactHandler("jar"));
+        artifact.setFile(new File("/repo", artifactId + "-" + version + ".jar"));
+        return artifact;
+    }
+
+    private void touch(String path) throws IOException {
+        File file = new File(assemblyDir, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    private List<String> getNames(List<LayerConfiguration> layers) {
+        return layers.stream().map(LayerConfiguration::getName).collect(Collectors.toList());
+    }
+
+    private List<String> getPaths(LayerConfiguration layer) {
+        return layer.getLayerEntries().stream().map(e -> e.getExtractionPath().toString()).collect(Collectors.toList());
+    }
+}
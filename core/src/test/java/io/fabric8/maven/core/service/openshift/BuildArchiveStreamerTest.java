@@ -0,0 +1,133 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service.openshift;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.docker.config.ArchiveCompression;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.archiver.tar.TarArchiver;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BuildArchiveStreamerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamUncompressed() throws Exception {
+        File destFile = new File(folder.getRoot(), "docker-build.tar");
+        Map<String, String> entries = new BuildArchiveStreamer(ArchiveCompression.none).stream(
+            customizer -> createArchive(customizer.customize(createArchiver(destFile))),
+            in -> readTar(in, false));
+
+        assertEquals("FROM busybox", entries.get("Dockerfile"));
+        assertEquals("hello", entries.get("maven/hello.txt"));
+        assertFalse(destFile.exists());
+    }
+
+    @Test
+    public void streamGzipped() throws Exception {
+        Map<String, String> entries = new BuildArchiveStreamer(ArchiveCompression.gzip).stream(
+            customizer -> createArchive(customizer.customize(createArchiver(new File(folder.getRoot(), "docker-build.tar")))),
+            in -> readTar(in, true));
+
+        assertEquals(2, entries.size());
+        assertEquals("hello", entries.get("maven/hello.txt"));
+    }
+
+    @Test
+    public void chainAppliesCustomizerFirst() throws Exception {
+        File envFile = folder.newFile("s2i-env");
+        Files.write(envFile.toPath(), "A=B".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> entries = new BuildArchiveStreamer(ArchiveCompression.none).stream(
+            customizer -> createArchive(BuildArchiveStreamer.chain(tarArchiver -> {
+                tarArchiver.addFile(envFile, ".s2i/environment");
+                return tarArchiver;
+            }, customizer).customize(createArchiver(new File(folder.getRoot(), "docker-build.tar")))),
+            in -> readTar(in, false));
+
+        assertEquals("A=B", entries.get(".s2i/environment"));
+    }
+
+    @Test
+    public void failureWhileCreatingArchive() {
+        try {
+            new BuildArchiveStreamer(ArchiveCompression.none).stream(
+                customizer -> {
+                    throw new IOException("assembly failed");
+                },
+                in -> readTar(in, false));
+            fail("Exception expected");
+        } catch (Fabric8ServiceException exp) {
+            assertTrue(exp.getCause().getMessage().contains("assembly failed"));
+        }
+    }
+
+    private TarArchiver createArchiver(File destFile) throws IOException {
+        File buildDir = folder.newFolder("build");
+        Files.write(new File(buildDir, "Dockerfile").toPath(), "FROM busybox".getBytes(StandardCharsets.UTF_8));
+        File mavenDir = new File(buildDir, "maven");
+        assertTrue(mavenDir.mkdir());
+        Files.write(new File(mavenDir, "hello.txt").toPath(), "hello".getBytes(StandardCharsets.UTF_8));
+
+        TarArchiver archiver = new TarArchiver();
+        archiver.enableLogging(new ConsoleLogger(ConsoleLogger.LEVEL_WARN, "test"));
+        archiver.addFile(new File(buildDir, "Dockerfile"), "Dockerfile");
+        archiver.addFile(new File(mavenDir, "hello.txt"), "maven/hello.txt");
+        archiver.setDestFile(destFile);
+        return archiver;
+    }
+
+    private void createArchive(TarArchiver archiver) throws IOException {
+        archiver.createArchive();
+    }
+
+    private Map<String, String> readTar(InputStream in, boolean gzipped) {
+        Map<String, String> ret = new HashMap<>();
+        try (TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipped ? new GzipCompressorInputStream(in) : in)) {
+            TarArchiveEntry entry;
+            while ((entry = tarIn.getNextTarEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    ret.put(entry.getName(), IOUtils.toString(tarIn, StandardCharsets.UTF_8));
+                }
+            }
+            return ret;
+        } catch (IOException exp) {
+            throw new UncheckedIOException(exp);
+        }
+    }
+}
@@ -27,6 +27,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.dsl.base.BaseOperation;
 import io.fabric8.maven.docker.util.ImageName;
@@ -36,6 +38,7 @@ import io.fabric8.openshift.api.model.ImageStreamBuilder;
 import io.fabric8.openshift.api.model.NamedTagEventList;
 import io.fabric8.openshift.api.model.TagEvent;
 import io.fabric8.openshift.client.OpenShiftClient;
+import mockit.Delegate;
 import mockit.Expectations;
 import mockit.Mocked;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -114,6 +117,36 @@ public class ImageStreamServiceTest {
         assertTrue(names.isEmpty());
     }
 
+    @Test
+    public void waitForTag() throws IOException, MojoExecutionException {
+        ImageStreamService service = new ImageStreamService(client, log);
+
+        final ImageStream isWithoutTag = new ImageStreamBuilder().withNewStatus().endStatus().build();
+        final ImageStream lookedUpIs = lookupImageStream("ef34ab");
+        new Expectations() {{
+            client.imageStreams(); result = imageStreamsOp;
+            imageStreamsOp.withName("test"); result = resource;
+            resource.get(); result = isWithoutTag;
+            resource.watch((Watcher) any); result = new Delegate<Watch>() {
+                Watch watch(Watcher<ImageStream> watcher) {
+                    // Tag arrives while watching
+                    watcher.eventReceived(Watcher.Action.MODIFIED, lookedUpIs);
+                    return null;
+                }
+            };
+
+            client.getNamespace(); result = "default";
+        }};
+
+        File target = File.createTempFile("ImageStreamServiceTest",".yml");
+        service.appendImageStreamResource(new ImageName("test:1.0"), target);
+
+        List<Map> items = getItemsList(readImageStreamDescriptor(target));
+        assertEquals(1, items.size());
+        Map tag = (Map) ((List) ((Map) items.get(0).get("spec")).get("tags")).get(0);
+        assertEquals("test@ef34ab", ((Map) tag.get("from")).get("name"));
+    }
+
     private List<Map> getItemsList(Map result) {
         List items = (List) result.get("items");
         assertNotNull(items);
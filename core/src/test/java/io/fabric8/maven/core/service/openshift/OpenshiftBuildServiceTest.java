@@ -18,6 +18,7 @@ package io.fabric8.maven.core.service.openshift;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -71,6 +72,7 @@ import org.slf4j.LoggerFactory;
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 
 public class OpenshiftBuildServiceTest {
@@ -495,6 +497,103 @@ public class OpenshiftBuildServiceTest {
 
     }
 
+    @Test
+    public void testConcurrentBuilds() throws Exception {
+        new Expectations() {{
+            project.getArtifactId();
+            result = "multi";
+            minTimes = 0;
+        }};
+        File isFile = new File(baseDir, "multi-is.yml");
+        isFile.delete();
+
+        retryInMockServer(() -> {
+            BuildService.BuildServiceConfig config = defaultConfig.build();
+            OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
+            WebServerEventCollector<OpenShiftMockServer> collector = new WebServerEventCollector<>(mockServer);
+            expectConcurrentBuild(mockServer, collector, projectName);
+            expectConcurrentBuild(mockServer, collector, "otherapp");
+            mockServer.expect().withPath("/apis/build.openshift.io/v1/namespaces/test/builds?watch=true")
+                    .andUpgradeToWebSocket().open()
+                    .done().always();
+
+            OpenShiftClient client = mockServer.createOpenShiftClient();
+            OpenshiftBuildService service = new OpenshiftBuildService(client, logger, dockerServiceHub, config);
+            ImageConfiguration otherImage = new ImageConfiguration.Builder(image).name("otherapp").build();
+            service.build(Arrays.asList(image, otherImage));
+            service.postProcess(config);
+
+            // Both builds are started before waiting for any of them
+            collector.assertEventsRecordedInOrder("pushed-" + projectName, "pushed-otherapp", "watched-" + projectName);
+            String isContent;
+            try (FileReader reader = new FileReader(isFile)) {
+                isContent = IOUtils.toString(reader);
+            }
+            assertTrue(isContent.contains("name: " + projectName));
+            assertTrue(isContent.contains("name: otherapp"));
+        });
+    }
+
+    @Test
+    public void testConcurrentBuildsFailIfBuildCannotBeStarted() throws Exception {
+        BuildService.BuildServiceConfig config = defaultConfig.build();
+        OpenShiftMockServer mockServer = new OpenShiftMockServer(false);
+        WebServerEventCollector<OpenShiftMockServer> collector = new WebServerEventCollector<>(mockServer);
+        expectConcurrentBuild(mockServer, collector, projectName);
+        mockServer.expect().get().withPath("/apis/build.openshift.io/v1/namespaces/test/buildconfigs/otherapp-s2i-suffix2")
+                .andReturn(500, "").always();
+
+        OpenShiftClient client = mockServer.createOpenShiftClient();
+        OpenshiftBuildService service = new OpenshiftBuildService(client, logger, dockerServiceHub, config);
+        ImageConfiguration otherImage = new ImageConfiguration.Builder(image).name("otherapp").build();
+        try {
+            service.build(Arrays.asList(image, otherImage));
+            fail();
+        } catch (Fabric8ServiceException e) {
+            // The started build of the other image is not waited for
+            collector.assertEventsNotRecorded("watched-" + projectName);
+        }
+    }
+
+    private void expectConcurrentBuild(OpenShiftMockServer mockServer, WebServerEventCollector<OpenShiftMockServer> collector, String name) {
+        String bcName = name + "-s2i-suffix2";
+        BuildConfig bc = new BuildConfigBuilder()
+                .withNewMetadata().withName(bcName).endMetadata()
+                .withNewSpec().endSpec()
+                .build();
+        ImageStream imageStream = new ImageStreamBuilder()
+                .withNewMetadata().withName(name).endMetadata()
+                .withStatus(new ImageStreamStatusBuilder()
+                        .addNewTagLike(new NamedTagEventListBuilder()
+                                .addNewItem()
+                                .withImage("abcdef0123456789")
+                                .endItem()
+                                .build())
+                        .endTag()
+                        .build())
+                .build();
+        Build startedBuild = new BuildBuilder()
+                .withNewMetadata().withName(bcName + "-1").endMetadata()
+                .withNewStatus().withPhase("New").endStatus()
+                .build();
+        Build finishedBuild = new BuildBuilder(startedBuild)
+                .editStatus().withPhase("Complete").endStatus()
+                .build();
+
+        mockServer.expect().get().withPath("/apis/build.openshift.io/v1/namespaces/test/buildconfigs/" + bcName).andReturn(404, "").once();
+        mockServer.expect().get().withPath("/apis/build.openshift.io/v1/namespaces/test/buildconfigs/" + bcName).andReturn(200, bc).always();
+        mockServer.expect().post().withPath("/apis/build.openshift.io/v1/namespaces/test/buildconfigs").andReturn(201, bc).once();
+        mockServer.expect().get().withPath("/apis/image.openshift.io/v1/namespaces/test/imagestreams/" + name).andReturn(404, "").once();
+        mockServer.expect().get().withPath("/apis/image.openshift.io/v1/namespaces/test/imagestreams/" + name).andReturn(200, imageStream).always();
+        mockServer.expect().post().withPath("/apis/image.openshift.io/v1/namespaces/test/imagestreams").andReturn(201, imageStream).once();
+        mockServer.expect().post().withPath("/apis/build.openshift.io/v1/namespaces/test/buildconfigs/" + bcName + "/instantiatebinary?commit=")
+                .andReply(collector.record("pushed-" + name).andReturn(201, startedBuild))
+                .once();
+        mockServer.expect().get().withPath("/apis/build.openshift.io/v1/namespaces/test/builds/" + bcName + "-1")
+                .andReply(collector.record("watched-" + name).andReturn(200, finishedBuild))
+                .always();
+    }
+
     @FunctionalInterface
     private interface MockServerRetryable {
         void run() throws Fabric8ServiceException, MojoExecutionException, IOException;
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DigestUtilTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sha256() {
+        assertTrue(DigestUtil.sha256("a").startsWith("sha256:"));
+        assertEquals(DigestUtil.sha256("a", "b"), DigestUtil.sha256("a", "b"));
+        assertNotEquals(DigestUtil.sha256("ab", "c"), DigestUtil.sha256("a", "bc"));
+        assertEquals(DigestUtil.sha256("a", null), DigestUtil.sha256("a", ""));
+    }
+
+    @Test
+    public void tarContentDigestIgnoresModificationTime() throws IOException {
+        File first = createTar("first.tar", "hello", 1000L, false);
+        File second = createTar("second.tar", "hello", 2000L, false);
+        File compressed = createTar("third.tar.gz", "hello", 3000L, true);
+
+        assertEquals(DigestUtil.tarContentDigest(first), DigestUtil.tarContentDigest(second));
+        assertEquals(DigestUtil.tarContentDigest(first), DigestUtil.tarContentDigest(compressed));
+    }
+
+    @Test
+    public void tarContentDigestChangesWithContent() throws IOException {
+        File first = createTar("first.tar", "hello", 1000L, false);
+        File second = createTar("second.tar", "world", 1000L, false);
+
+        assertNotEquals(DigestUtil.tarContentDigest(first), DigestUtil.tarContentDigest(second));
+    }
+
+    private File createTar(String name, String content, long modTime, boolean gzip) throws IOException {
+        File tar = new File(folder.getRoot(), name);
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+        try (OutputStream fileOut = new FileOutputStream(tar);
+             TarArchiveOutputStream out = new TarArchiveOutputStream(gzip ? new GzipCompressorOutputStream(fileOut) : fileOut)) {
+            TarArchiveEntry entry = new TarArchiveEntry("maven/hello.txt");
+            entry.setSize(data.length);
+            entry.setModTime(modTime);
+            out.putArchiveEntry(entry);
+            out.write(data);
+            out.closeArchiveEntry();
+        }
+        return tar;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+public class GoalReportTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void entriesOfOtherGoalsAreKept() throws IOException {
+        File file = new File(temporaryFolder.getRoot(), "fabric8/report.json");
+
+        GoalReport.write(file, "resource", JsonNodeFactory.instance.numberNode(1));
+        GoalReport.write(file, "apply", JsonNodeFactory.instance.numberNode(2));
+        GoalReport.write(file, "resource", JsonNodeFactory.instance.numberNode(3));
+
+        JsonNode report = new ObjectMapper().readTree(file);
+        assertEquals(2, report.size());
+        assertEquals(3, report.get("resource").asInt());
+        assertEquals(2, report.get("apply").asInt());
+    }
+
+    @Test
+    public void largestValueFirst() {
+        assertEquals(Arrays.asList(30L, 20L, 10L), GoalReport.sortedDescending(Arrays.asList(20L, 10L, 30L), Long::longValue));
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelUtilTest {
+
+    @Test
+    public void resultsKeepTheOrderOfTheInputs() throws Exception {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inputs.add(i);
+        }
+
+        List<String> results = ParallelUtil.map(inputs, i -> {
+            Thread.sleep((100 - i) % 7);
+            return "item-" + i;
+        });
+
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("item-" + i, results.get(i));
+        }
+        assertTrue(ParallelUtil.map(Collections.<Integer>emptyList(), i -> i).isEmpty());
+    }
+
+    @Test
+    public void firstFailureInInputOrderIsThrown() throws Exception {
+        List<Integer> inputs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            inputs.add(i);
+        }
+        try {
+            ParallelUtil.map(inputs, i -> {
+                if (i >= 5) {
+                    // Later inputs fail first
+                    Thread.sleep(i == 5 ? 50 : 0);
+                    throw new IOException("failed " + i);
+                }
+                return i;
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed 5", e.getMessage());
+        }
+    }
+}
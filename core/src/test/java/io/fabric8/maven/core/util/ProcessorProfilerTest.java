@@ -0,0 +1,93 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.maven.core.config.PlatformMode;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProcessorProfilerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void measurementsAreAggregatedPerProcessorPhaseAndMode() throws IOException {
+        ProcessorProfiler profiler = new ProcessorProfiler(true);
+        for (PlatformMode mode : PlatformMode.values()) {
+            profiler.profile("enricher", "fmp-name", "create", mode, this::allocate);
+            profiler.profile("enricher", "fmp-name", "enrich", mode, this::allocate);
+            profiler.profile("enricher", "fmp-name", "enrich", mode, this::allocate);
+        }
+        try {
+            profiler.profile("generator", "java-exec", "customize", null, () -> {
+                throw new IOException("failed");
+            });
+            fail();
+        } catch (IOException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        File buildDirectory = temporaryFolder.getRoot();
+        profiler.report(buildDirectory, "resource", log);
+
+        JsonNode report = new ObjectMapper().readTree(new File(buildDirectory, ProcessorProfiler.REPORT_FILE)).get("resource");
+        assertEquals(2 * PlatformMode.values().length + 1, report.size());
+        for (JsonNode measurement : report) {
+            if ("enrich".equals(measurement.get("phase").asText())) {
+                assertEquals(2, measurement.get("calls").asInt());
+                assertTrue(measurement.get("allocatedBytes").asLong() >= 0);
+            }
+            if ("generator".equals(measurement.get("type").asText())) {
+                assertEquals("", measurement.get("mode").asText());
+            }
+        }
+    }
+
+    @Test
+    public void disabledProfilerOnlyRuns() {
+        File buildDirectory = temporaryFolder.getRoot();
+        assertEquals(42, ProcessorProfiler.DISABLED.profile("watcher", "spring-boot", "watch", PlatformMode.kubernetes, () -> 42).intValue());
+        ProcessorProfiler.DISABLED.report(buildDirectory, "watch", log);
+        assertFalse(new File(buildDirectory, ProcessorProfiler.REPORT_FILE).exists());
+    }
+
+    private Void allocate() {
+        List<byte[]> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(new byte[1024]);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReproducibleBuildUtilTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void reproducibleBuildFromProperty() {
+        MavenProject project = new MavenProject();
+        assertFalse(ReproducibleBuildUtil.isReproducibleBuild(project));
+        project.getProperties().setProperty(ReproducibleBuildUtil.REPRODUCIBLE_BUILD_PROPERTY, "true");
+        assertTrue(ReproducibleBuildUtil.isReproducibleBuild(project));
+    }
+
+    @Test
+    public void timestampFromOutputTimestamp() throws IOException {
+        MavenProject project = createProject();
+        project.getProperties().setProperty(ReproducibleBuildUtil.OUTPUT_TIMESTAMP_PROPERTY, "2019-10-02T08:04:00Z");
+        assertEquals(Instant.parse("2019-10-02T08:04:00Z"), ReproducibleBuildUtil.getReproducibleTimestamp(project, log));
+
+        project.getProperties().setProperty(ReproducibleBuildUtil.OUTPUT_TIMESTAMP_PROPERTY, "1570003440");
+        assertEquals(Instant.parse("2019-10-02T08:04:00Z"), ReproducibleBuildUtil.getReproducibleTimestamp(project, log));
+    }
+
+    @Test
+    public void epochWithoutTimestampOrGitRepository() throws IOException {
+        MavenProject project = createProject();
+        project.getProperties().setProperty(ReproducibleBuildUtil.OUTPUT_TIMESTAMP_PROPERTY, "yesterday");
+        assertEquals(Instant.EPOCH, ReproducibleBuildUtil.getReproducibleTimestamp(project, log));
+    }
+
+    private MavenProject createProject() throws IOException {
+        MavenProject project = new MavenProject();
+        project.setFile(temporaryFolder.newFile("pom.xml"));
+        return project;
+    }
+}
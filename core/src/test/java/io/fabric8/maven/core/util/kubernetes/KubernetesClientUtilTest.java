@@ -0,0 +1,69 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util.kubernetes;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import io.fabric8.kubernetes.api.model.ReplicationControllerBuilder;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.core.util.WebServerEventCollector;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class KubernetesClientUtilTest {
+
+    private KubernetesMockServer mockServer = new KubernetesMockServer(false);
+
+    @Test
+    public void patchContainerImagesOnlyChangesImageFields() throws IOException {
+        Deployment deployment = new DeploymentBuilder()
+            .withApiVersion("apps/v1")
+            .withNewMetadata().withName("app").endMetadata()
+            .build();
+        WebServerEventCollector<KubernetesMockServer> collector = new WebServerEventCollector<>(mockServer);
+        mockServer.expect().patch().withPath("/apis/apps/v1/namespaces/test/deployments/app")
+                  .andReply(collector.record("patch-deployment").andReturn(200, deployment)).once();
+        KubernetesClient client = mockServer.createClient();
+
+        Map<Integer, String> images = new TreeMap<>();
+        images.put(0, "app:2");
+        images.put(2, "sidecar:2");
+        KubernetesClientUtil.patchContainerImages(client, "test", deployment, images);
+
+        collector.assertEventsRecorded("patch-deployment");
+        assertEquals("[{\"op\":\"replace\",\"path\":\"/spec/template/spec/containers/0/image\",\"value\":\"app:2\"}," +
+                     "{\"op\":\"replace\",\"path\":\"/spec/template/spec/containers/2/image\",\"value\":\"sidecar:2\"}]",
+                     collector.getBodies().get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void patchContainerImagesFailsForRejectedPatch() throws IOException {
+        mockServer.expect().patch().withPath("/api/v1/namespaces/test/replicationcontrollers/app")
+                  .andReturn(422, "invalid").once();
+        KubernetesClient client = mockServer.createClient();
+
+        KubernetesClientUtil.patchContainerImages(client, "test",
+            new ReplicationControllerBuilder().withApiVersion("v1").withNewMetadata().withName("app").endMetadata().build(),
+            Collections.singletonMap(0, "app:2"));
+    }
+}
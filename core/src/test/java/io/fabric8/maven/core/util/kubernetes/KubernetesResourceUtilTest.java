@@ -19,7 +19,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.junit.After;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -49,37 +48,31 @@ public class KubernetesResourceUtilTest {
     }
 
     @Test
-    public void should_update_kind_filename_mapper_in_bimap_fashion() {
+    public void should_use_custom_kind_filename_mappings_without_changing_defaults() {
 
         // Given
 
-        final Map<String, List<String>> updated = new HashMap<>();
-        updated.put("Var", Arrays.asList("foo"));
+        final Map<String, List<String>> custom = new HashMap<>();
+        custom.put("Var", Arrays.asList("foo", "bar"));
+        custom.put("ConfigMap", Arrays.asList("config"));
 
         // When
 
-        KubernetesResourceUtil.updateKindFilenameMapper(updated);
-
-        final Map<String, String> filenameToKindMapper = KubernetesResourceUtil.FILENAME_TO_KIND_MAPPER;
-        final Map<String, String> kindToFilenameMapper = KubernetesResourceUtil.KIND_TO_FILENAME_MAPPER;
+        final String varName = KubernetesResourceUtil.getNameWithSuffix("app", "Var", custom);
+        final String configMapName = KubernetesResourceUtil.getNameWithSuffix("app", "ConfigMap", custom);
+        final String secretName = KubernetesResourceUtil.getNameWithSuffix("app", "Secret", custom);
 
         // Then
-        assertThat(filenameToKindMapper)
-            .containsEntry("cm", "ConfigMap")
-            .containsEntry("configmap", "ConfigMap")
-            .containsEntry("secret", "Secret")
-            .containsEntry("foo", "Var");
+        assertThat(varName).isEqualTo("app-bar");
+        assertThat(configMapName).isEqualTo("app-config");
+        assertThat(secretName).isEqualTo("app-secret");
 
-        assertThat(kindToFilenameMapper)
-            .containsEntry("ConfigMap", "configmap")
-            .containsEntry("Secret", "secret")
-            .containsEntry("Var", "foo");
-
-    }
+        assertThat(KubernetesResourceUtil.getNameWithSuffix("app", "Var")).isEqualTo("app");
+        assertThat(KubernetesResourceUtil.FILENAME_TO_KIND_MAPPER).doesNotContainKey("foo");
+        assertThat(KubernetesResourceUtil.KIND_TO_FILENAME_MAPPER)
+            .doesNotContainKey("Var")
+            .containsEntry("ConfigMap", "configmap");
 
-    @After
-    public void cleanCustomAdditions() {
-        KubernetesResourceUtil.remove("Var", "foo");
     }
 
 }
@@ -27,6 +27,18 @@ import io.fabric8.maven.core.config.PlatformMode;
  */
 public interface Enricher extends Named {
 
+    /**
+     * Read-only analysis of the project which is needed for creating and enriching the resources, like
+     * reading configuration files or the SCM. It's called once per platform mode before any enricher's
+     * {@link #create(PlatformMode, KubernetesListBuilder)}, and for all enrichers concurrently.
+     * It therefore must not change any state shared with other enrichers. The results should be kept
+     * in the enricher itself, and create and enrich must still work if this method hasn't been called.
+     *
+     * @param platformMode the platform mode for which the resources are created
+     */
+    default void prepare(PlatformMode platformMode) {
+    }
+
     /**
      * Add default resources when they are missing. Each enricher should be responsible
      * for a certain kind of resource and should detect whether a default resource
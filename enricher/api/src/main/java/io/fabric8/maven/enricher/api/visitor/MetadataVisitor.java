@@ -28,7 +28,6 @@ import io.fabric8.kubernetes.api.model.apps.StatefulSetBuilder;
 import io.fabric8.kubernetes.api.model.batch.JobBuilder;
 import io.fabric8.kubernetes.api.model.extensions.IngressBuilder;
 import io.fabric8.maven.core.config.MetaDataConfig;
-import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.ResourceConfig;
 import io.fabric8.maven.enricher.api.Kind;
 import io.fabric8.openshift.api.model.BuildBuilder;
@@ -50,7 +49,6 @@ import java.util.function.Supplier;
  */
 public abstract class MetadataVisitor<T> extends TypedVisitor<T> {
 
-    private static ThreadLocal<ProcessorConfig> configHolder = new ThreadLocal<>();
     private final Map<String, String> labelsFromConfig;
     private final Map<String, String> annotationFromConfig;
 
@@ -64,24 +62,7 @@ public abstract class MetadataVisitor<T> extends TypedVisitor<T> {
         }
     }
 
-    public static void setProcessorConfig(ProcessorConfig config) {
-        configHolder.set(config);
-    }
-
-    public static void clearProcessorConfig() {
-        configHolder.set(null);
-    }
-
-    private ProcessorConfig getProcessorConfig() {
-        ProcessorConfig config = configHolder.get();
-        if (config == null) {
-            throw new IllegalArgumentException("No ProcessorConfig set");
-        }
-        return config;
-    }
-
     public void visit(T item) {
-        ProcessorConfig config = getProcessorConfig();
         ObjectMeta metadata = getOrCreateMetadata(item);
         updateLabels(metadata);
         updateAnnotations(metadata);
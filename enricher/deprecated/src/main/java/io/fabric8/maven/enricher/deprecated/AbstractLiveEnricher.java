@@ -33,6 +33,9 @@ public abstract class AbstractLiveEnricher extends BaseEnricher {
 
     private KubernetesClient kubernetesClient;
 
+    // Ingresses and nodes are looked up only once for all services
+    private final ServiceUrlUtil.LookupCache lookupCache = new ServiceUrlUtil.LookupCache();
+
     private enum Config implements Configs.Key {
         online,
         namespace;
@@ -86,7 +89,7 @@ public abstract class AbstractLiveEnricher extends BaseEnricher {
                 }
                 Service service = kubernetes.services().inNamespace(ns).withName(serviceName).get();
                 return service != null ?
-                    ServiceUrlUtil.getServiceURL(kubernetes, serviceName, ns, protocol, true) :
+                    ServiceUrlUtil.getServiceURL(kubernetes, serviceName, ns, protocol, true, lookupCache) :
                     null;
             } catch (Throwable e) {
                 Throwable cause = e;
@@ -17,6 +17,7 @@ package io.fabric8.maven.enricher.fabric8;
 
 import io.fabric8.kubernetes.api.model.Probe;
 import io.fabric8.kubernetes.api.model.ProbeBuilder;
+import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.util.SpringBootConfigurationHelper;
 import io.fabric8.maven.core.util.SpringBootUtil;
@@ -53,10 +54,19 @@ public class SpringBootHealthCheckEnricher extends AbstractHealthCheckEnricher {
         public String def() { return d; } protected String d;
     }
 
+    // Application properties, read in prepare() or on first use, null if the actuator is not used
+    private Properties springBootProperties;
+    private boolean prepared;
+
     public SpringBootHealthCheckEnricher(MavenEnricherContext buildContext) {
         super(buildContext, ENRICHER_NAME);
     }
 
+    @Override
+    public void prepare(PlatformMode platformMode) {
+        getSpringBootProperties();
+    }
+
     @Override
     protected Probe getReadinessProbe() {
         Integer initialDelay = Configs.asInteger(getConfig(Config.readinessProbeInitialDelaySeconds));
@@ -78,9 +88,9 @@ public class SpringBootHealthCheckEnricher extends AbstractHealthCheckEnricher {
     }
 
     protected Probe discoverSpringBootHealthCheck(Integer initialDelay, Integer period, Integer timeout, Integer failureTh, Integer successTh) {
+        Properties properties = getSpringBootProperties();
         try {
-            if (getContext().getProjectClassLoaders().isClassInCompileClasspath(true, REQUIRED_CLASSES)) {
-                Properties properties = SpringBootUtil.getSpringBootApplicationProperties(getContext().getProjectClassLoaders().getCompileClassLoader());
+            if (properties != null) {
                 return buildProbe(properties, initialDelay, period, timeout, failureTh, successTh);
             }
         } catch (Exception ex) {
@@ -89,6 +99,25 @@ public class SpringBootHealthCheckEnricher extends AbstractHealthCheckEnricher {
         return null;
     }
 
+    private Properties getSpringBootProperties() {
+        if (!prepared) {
+            springBootProperties = readSpringBootProperties();
+            prepared = true;
+        }
+        return springBootProperties;
+    }
+
+    private Properties readSpringBootProperties() {
+        try {
+            if (getContext().getProjectClassLoaders().isClassInCompileClasspath(true, REQUIRED_CLASSES)) {
+                return SpringBootUtil.getSpringBootApplicationProperties(getContext().getProjectClassLoaders().getCompileClassLoader());
+            }
+        } catch (Exception ex) {
+            log.error("Error while reading the spring-boot configuration", ex);
+        }
+        return null;
+    }
+
     protected Probe buildProbe(Properties springBootProperties, Integer initialDelay, Integer period, Integer timeout, Integer failureTh, Integer successTh) {
         SpringBootConfigurationHelper propertyHelper = new SpringBootConfigurationHelper(getContext().getDependencyVersion(SpringBootConfigurationHelper.SPRING_BOOT_GROUP_ID, SpringBootConfigurationHelper.SPRING_BOOT_ARTIFACT_ID));
         Integer managementPort = propertyHelper.getManagementPort(springBootProperties);
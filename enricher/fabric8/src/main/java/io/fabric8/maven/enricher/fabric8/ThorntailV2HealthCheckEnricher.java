@@ -17,6 +17,7 @@ package io.fabric8.maven.enricher.fabric8;
 
 import io.fabric8.kubernetes.api.model.Probe;
 import io.fabric8.kubernetes.api.model.ProbeBuilder;
+import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.util.ThorntailUtil;
 import io.fabric8.maven.enricher.api.MavenEnricherContext;
@@ -29,10 +30,29 @@ public class ThorntailV2HealthCheckEnricher extends AbstractHealthCheckEnricher
 
     public static final String IO_THORNTAIL = "io.thorntail";
 
+    // Thorntail properties, read in prepare() or on first use
+    private Properties thorntailProperties;
+    private boolean prepared;
+
     public ThorntailV2HealthCheckEnricher(MavenEnricherContext buildContext) {
         super(buildContext, "f8-healthcheck-thorntail-v2");
     }
 
+    @Override
+    public void prepare(PlatformMode platformMode) {
+        if (isThorntailV2WithHealth()) {
+            getThorntailProperties();
+        }
+    }
+
+    private Properties getThorntailProperties() {
+        if (!prepared) {
+            thorntailProperties = ThorntailUtil.getThorntailProperties(getContext().getProjectClassLoaders().getCompileClassLoader());
+            prepared = true;
+        }
+        return thorntailProperties;
+    }
+
     // Available configuration keys
     private enum Config implements Configs.Key {
 
@@ -66,13 +86,7 @@ public class ThorntailV2HealthCheckEnricher extends AbstractHealthCheckEnricher
     }
 
     private Probe discoverThorntailHealthCheck(int initialDelay) {
-        if (getContext().hasDependency(IO_THORNTAIL, "thorntail-kernel")) {
-            // if there's thorntail-kernel, it's Thorntail v4
-            return null;
-        }
-
-        if (getContext().hasDependency(IO_THORNTAIL, "monitor")
-                || getContext().hasDependency(IO_THORNTAIL, "microprofile-health")) {
+        if (isThorntailV2WithHealth()) {
             Integer port = getPort();
             // scheme must be in upper case in k8s
             String scheme = getScheme().toUpperCase();
@@ -87,6 +101,13 @@ public class ThorntailV2HealthCheckEnricher extends AbstractHealthCheckEnricher
         return null;
     }
 
+    private boolean isThorntailV2WithHealth() {
+        // if there's thorntail-kernel, it's Thorntail v4
+        return !getContext().hasDependency(IO_THORNTAIL, "thorntail-kernel") &&
+               (getContext().hasDependency(IO_THORNTAIL, "monitor") ||
+                getContext().hasDependency(IO_THORNTAIL, "microprofile-health"));
+    }
+
     protected int getFailureThreshold() { return Configs.asInteger(getConfig(Config.failureThreshold)); }
 
     protected int getSuccessThreshold() { return Configs.asInteger(getConfig(Config.successThreshold)); }
@@ -96,7 +117,8 @@ public class ThorntailV2HealthCheckEnricher extends AbstractHealthCheckEnricher
     }
 
     protected int getPort() {
-        final Properties properties = ThorntailUtil.getThorntailProperties(getContext().getProjectClassLoaders().getCompileClassLoader());
+        final Properties properties = new Properties();
+        properties.putAll(getThorntailProperties());
         properties.putAll(System.getProperties());
         if (properties.containsKey("thorntail.http.port")) {
             return Integer.parseInt((String) properties.get("thorntail.http.port"));
@@ -78,13 +78,8 @@ public class DefaultMetadataEnricher extends BaseEnricher {
     }
 
     private void visit(ProcessorConfig config, KubernetesListBuilder builder, MetadataVisitor<?>[] visitors) {
-        MetadataVisitor.setProcessorConfig(config);
-        try {
-            for (MetadataVisitor<?> visitor : visitors) {
-                builder.accept(visitor);
-            }
-        } finally {
-            MetadataVisitor.clearProcessorConfig();
+        for (MetadataVisitor<?> visitor : visitors) {
+            builder.accept(visitor);
         }
     }
 
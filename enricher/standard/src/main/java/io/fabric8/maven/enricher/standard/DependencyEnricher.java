@@ -15,26 +15,20 @@
  */
 package io.fabric8.maven.enricher.standard;
 
-import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Function;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.fabric8.kubernetes.api.model.HasMetadata;
-import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.model.Dependency;
@@ -44,6 +38,7 @@ import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
 import io.fabric8.maven.enricher.api.BaseEnricher;
 import io.fabric8.maven.enricher.api.MavenEnricherContext;
+import io.fabric8.maven.enricher.standard.DependencyManifestIndex.DependencyManifest;
 import io.fabric8.openshift.api.model.Template;
 
 /**
@@ -57,9 +52,13 @@ public class DependencyEnricher extends BaseEnricher {
     private static String DEPENDENCY_KUBERNETES_TEMPLATE_YAML = "META-INF/fabric8/k8s-template.yml";
     private static String DEPENDENCY_OPENSHIFT_YAML = "META-INF/fabric8/openshift.yml";
 
-    private Set<URL> kubernetesDependencyArtifacts = new HashSet<>();
-    private Set<URL> kubernetesTemplateDependencyArtifacts = new HashSet<>();
-    private Set<URL> openshiftDependencyArtifacts = new HashSet<>();
+    private static final List<String> DEPENDENCY_YAMLS = Arrays.asList(
+        DEPENDENCY_KUBERNETES_YAML, DEPENDENCY_KUBERNETES_TEMPLATE_YAML, DEPENDENCY_OPENSHIFT_YAML);
+
+    // Parsed manifests of the dependencies per path within the jar, each keyed by its source URL,
+    // read in prepare() or on first use
+    private final Map<String, Map<String, DependencyManifest>> dependencyManifests = new HashMap<>();
+    private boolean prepared;
 
     // Available configuration keys
     private enum Config implements Configs.Key {
@@ -81,43 +80,62 @@ public class DependencyEnricher extends BaseEnricher {
     public DependencyEnricher(MavenEnricherContext buildContext) {
         super(buildContext, "fmp-dependency");
 
-        addArtifactsWithYaml(kubernetesDependencyArtifacts, DEPENDENCY_KUBERNETES_YAML);
-        addArtifactsWithYaml(kubernetesTemplateDependencyArtifacts, DEPENDENCY_KUBERNETES_TEMPLATE_YAML);
-        addArtifactsWithYaml(openshiftDependencyArtifacts, DEPENDENCY_OPENSHIFT_YAML);
+        for (String dependencyYaml : DEPENDENCY_YAMLS) {
+            dependencyManifests.put(dependencyYaml, new LinkedHashMap<>());
+        }
+    }
 
+    @Override
+    public void prepare(PlatformMode platformMode) {
+        // The manifests are the same for all platform modes
+        getDependencyManifests();
     }
 
-    private void addArtifactsWithYaml(Set<URL> artifactSet, String dependencyYaml) {
+    private Map<String, Map<String, DependencyManifest>> getDependencyManifests() {
+        if (!prepared) {
+            addDependencyManifests();
+            prepared = true;
+        }
+        return dependencyManifests;
+    }
+
+    private void addDependencyManifests() {
         final List<Dependency> artifacts = getContext().getDependencies(isIncludeTransitive());
 
+        // Every jar is opened only once for all manifests
         for (Dependency artifact : artifacts) {
-            if ("compile".equals(artifact.getScope()) && "jar".equals(artifact.getType())) {
-                File file = artifact.getLocation();
-                try {
-                    URL url = new URL("jar:" + file.toURI().toURL() + "!/" + dependencyYaml);
-                    artifactSet.add(url);
-                } catch (MalformedURLException e) {
-                    getLog().debug("Failed to create URL for %s: %s", file, e);
-                }
+            if ("compile".equals(artifact.getScope()) && "jar".equals(artifact.getType()) && artifact.getLocation() != null) {
+                DependencyManifestIndex.getManifests(artifact.getLocation(), DEPENDENCY_YAMLS, getLog())
+                    .forEach((dependencyYaml, manifest) -> addDependencyManifest(dependencyYaml, manifest));
             }
         }
         // lets look on the current plugin classpath too
         if (isIncludePlugin()) {
-            Enumeration<URL> resources = null;
-            try {
-                resources = getClass().getClassLoader().getResources(dependencyYaml);
-            } catch (IOException e) {
-                getLog().error("Could not find %s on the classpath: %s", dependencyYaml, e);
-            }
-            if (resources != null) {
-                while (resources.hasMoreElements()) {
-                    URL url = resources.nextElement();
-                    artifactSet.add(url);
+            for (String dependencyYaml : DEPENDENCY_YAMLS) {
+                Enumeration<URL> resources = null;
+                try {
+                    resources = getClass().getClassLoader().getResources(dependencyYaml);
+                } catch (IOException e) {
+                    getLog().error("Could not find %s on the classpath: %s", dependencyYaml, e);
+                }
+                if (resources != null) {
+                    while (resources.hasMoreElements()) {
+                        URL url = resources.nextElement();
+                        if (!dependencyManifests.get(dependencyYaml).containsKey(url.toString())) {
+                            addDependencyManifest(dependencyYaml, DependencyManifestIndex.load(url, getLog()));
+                        }
+                    }
                 }
             }
         }
     }
 
+    private void addDependencyManifest(String dependencyYaml, DependencyManifest manifest) {
+        if (manifest != null) {
+            dependencyManifests.get(dependencyYaml).putIfAbsent(manifest.getSource(), manifest);
+        }
+    }
+
     @Override
     public void enrich(PlatformMode platformMode, final KubernetesListBuilder builder) {
         switch (platformMode) {
@@ -132,11 +150,11 @@ public class DependencyEnricher extends BaseEnricher {
 
     private void enrichKubernetes(final KubernetesListBuilder builder) {
         final List<HasMetadata> kubernetesItems = new ArrayList<>();
-        processArtifactSetResources(this.kubernetesDependencyArtifacts, items -> {
+        processArtifactSetResources(DEPENDENCY_KUBERNETES_YAML, items -> {
             kubernetesItems.addAll(Arrays.asList(items.toArray(new HasMetadata[items.size()])));
             return null;
         });
-        processArtifactSetResources(this.kubernetesTemplateDependencyArtifacts, items -> {
+        processArtifactSetResources(DEPENDENCY_KUBERNETES_TEMPLATE_YAML, items -> {
             List<HasMetadata> templates = Arrays.asList(items.toArray(new HasMetadata[items.size()]));
 
             // lets remove all the plain resources (without any ${PARAM} expressions) which match objects
@@ -159,7 +177,7 @@ public class DependencyEnricher extends BaseEnricher {
 
     private void enrichOpenShift(final KubernetesListBuilder builder) {
         final List<HasMetadata> openshiftItems = new ArrayList<>();
-        processArtifactSetResources(this.openshiftDependencyArtifacts, items -> {
+        processArtifactSetResources(DEPENDENCY_OPENSHIFT_YAML, items -> {
             openshiftItems.addAll(Arrays.asList(items.toArray(new HasMetadata[0])));
             return null;
         });
@@ -205,31 +223,10 @@ public class DependencyEnricher extends BaseEnricher {
         }
     }
 
-    private void processArtifactSetResources(Set<URL> artifactSet, Function<List<HasMetadata>, Void> function) {
-        for (URL url : artifactSet) {
-            try {
-                InputStream is = url.openStream();
-                if (is != null) {
-                    log.debug("Processing Kubernetes YAML in at: %s", url);
-
-                    KubernetesList resources = new ObjectMapper(new YAMLFactory()).readValue(is, KubernetesList.class);
-                    List<HasMetadata> items = resources.getItems();
-                    if (items.size() == 0 && Objects.equals("Template", resources.getKind())) {
-                        is = url.openStream();
-                        Template template = new ObjectMapper(new YAMLFactory()).readValue(is, Template.class);
-                        if (template != null) {
-                            items.add(template);
-                        }
-                    }
-                    for (HasMetadata item : items) {
-                        KubernetesResourceUtil.setSourceUrlAnnotationIfNotSet(item, url.toString());
-                        log.debug("  found %s  %s", KubernetesHelper.getKind(item), KubernetesHelper.getName(item));
-                    }
-                    function.apply(items);
-                }
-            } catch (IOException e) {
-                getLog().debug("Skipping %s: %s", url, e);
-            }
+    private void processArtifactSetResources(String dependencyYaml, Function<List<HasMetadata>, Void> function) {
+        Collection<DependencyManifest> manifests = getDependencyManifests().get(dependencyYaml).values();
+        for (DependencyManifest manifest : manifests) {
+            function.apply(manifest.getItems());
         }
     }
 
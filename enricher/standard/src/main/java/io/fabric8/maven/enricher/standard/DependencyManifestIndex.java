@@ -0,0 +1,196 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.enricher.standard;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.api.model.Template;
+
+/**
+ * Index of the fabric8 manifests contained in dependency jars.
+ *
+ * Each jar is opened once to look up all manifests in its central directory, and the manifests found
+ * are parsed once. The result is kept for the whole build as long as the size and modification time
+ * of the jar don't change, so that all platform modes and all modules of a reactor share it.
+ */
+class DependencyManifestIndex {
+
+    private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    private static final Map<String, IndexedJar> INDEXED_JARS = new ConcurrentHashMap<>();
+
+    private DependencyManifestIndex() { }
+
+    /**
+     * Get the manifests of a jar
+     *
+     * @param jar the jar to look into
+     * @param entries paths of the manifests within the jar
+     * @param log logger
+     * @return manifests found per path
+     */
+    static Map<String, DependencyManifest> getManifests(File jar, Collection<String> entries, Logger log) {
+        String path = jar.getAbsolutePath();
+        long length = jar.length();
+        long lastModified = jar.lastModified();
+        IndexedJar indexed = INDEXED_JARS.get(path);
+        if (indexed == null || !indexed.isCurrent(length, lastModified) || !indexed.entries.containsAll(entries)) {
+            indexed = new IndexedJar(length, lastModified, entries, scan(jar, entries, log));
+            INDEXED_JARS.put(path, indexed);
+        }
+        Map<String, DependencyManifest> ret = new LinkedHashMap<>();
+        for (String entry : entries) {
+            DependencyManifest manifest = indexed.manifests.get(entry);
+            if (manifest != null) {
+                ret.put(entry, manifest);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Load a manifest from an URL, e.g. found on the plugin classpath
+     *
+     * @param url URL of the manifest
+     * @param log logger
+     * @return the manifest or null if it could not be read
+     */
+    static DependencyManifest load(URL url, Logger log) {
+        try (InputStream is = url.openStream()) {
+            return parse(url.toString(), readFully(is), log);
+        } catch (IOException e) {
+            log.debug("Skipping %s: %s", url, e);
+            return null;
+        }
+    }
+
+    private static Map<String, DependencyManifest> scan(File jar, Collection<String> entries, Logger log) {
+        Map<String, DependencyManifest> manifests = new LinkedHashMap<>();
+        if (!jar.isFile()) {
+            return manifests;
+        }
+        try (ZipFile zip = new ZipFile(jar)) {
+            for (String entry : entries) {
+                ZipEntry zipEntry = zip.getEntry(entry);
+                if (zipEntry == null) {
+                    continue;
+                }
+                String source = "jar:" + jar.toURI().toURL() + "!/" + entry;
+                try (InputStream is = zip.getInputStream(zipEntry)) {
+                    manifests.put(entry, parse(source, readFully(is), log));
+                } catch (IOException e) {
+                    log.debug("Skipping %s: %s", source, e);
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Skipping %s: %s", jar, e);
+        }
+        return manifests;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static DependencyManifest parse(String source, byte[] yaml, Logger log) throws IOException {
+        log.debug("Processing Kubernetes YAML in at: %s", source);
+        KubernetesList resources = YAML_MAPPER.readValue(yaml, KubernetesList.class);
+        List<HasMetadata> items = resources.getItems();
+        if (items.size() == 0 && Objects.equals("Template", resources.getKind())) {
+            Template template = YAML_MAPPER.readValue(yaml, Template.class);
+            if (template != null) {
+                items.add(template);
+            }
+        }
+        for (HasMetadata item : items) {
+            KubernetesResourceUtil.setSourceUrlAnnotationIfNotSet(item, source);
+            log.debug("  found %s  %s", KubernetesHelper.getKind(item), KubernetesHelper.getName(item));
+        }
+        return new DependencyManifest(source, items);
+    }
+
+    /**
+     * Parsed manifest of a dependency
+     */
+    static class DependencyManifest {
+
+        private final String source;
+        private final List<HasMetadata> items;
+
+        DependencyManifest(String source, List<HasMetadata> items) {
+            this.source = source;
+            this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        }
+
+        String getSource() {
+            return source;
+        }
+
+        /**
+         * Get a copy of the resources, which the caller may change
+         */
+        List<HasMetadata> getItems() {
+            return new KubernetesListBuilder().withItems(items).build().getItems();
+        }
+    }
+
+    private static class IndexedJar {
+
+        private final long length;
+        private final long lastModified;
+        private final Collection<String> entries;
+        private final Map<String, DependencyManifest> manifests;
+
+        IndexedJar(long length, long lastModified, Collection<String> entries, Map<String, DependencyManifest> manifests) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.entries = new ArrayList<>(entries);
+            this.manifests = manifests;
+        }
+
+        boolean isCurrent(long length, long lastModified) {
+            return this.length == length && this.lastModified == lastModified;
+        }
+    }
+}
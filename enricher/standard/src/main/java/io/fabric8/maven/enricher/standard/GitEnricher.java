@@ -51,11 +51,15 @@ public class GitEnricher extends BaseEnricher {
 
     private String GIT_REMOTE = "fabric8.remoteName";
 
+    // Annotations read from the repository, in prepare() or on first use
+    private Map<String, String> gitAnnotations;
+    private boolean prepared;
+
     public GitEnricher(MavenEnricherContext buildContext) {
         super(buildContext, "fmp-git");
     }
 
-    private Map<String, String> getAnnotations() {
+    private Map<String, String> readGitAnnotations() {
         final Map<String, String> annotations = new HashMap<>();
         if (GitUtil.findGitFolder(getContext().getProjectDirectory()) != null) {
             Repository repository = null;
@@ -99,61 +103,75 @@ public class GitEnricher extends BaseEnricher {
         return annotations;
     }
 
+    private Map<String, String> getGitAnnotations() {
+        if (!prepared) {
+            gitAnnotations = readGitAnnotations();
+            prepared = true;
+        }
+        return gitAnnotations;
+    }
+
+    @Override
+    public void prepare(PlatformMode platformMode) {
+        getGitAnnotations();
+    }
+
     @Override
     public void create(PlatformMode platformMode, KubernetesListBuilder builder) {
+        Map<String, String> gitAnnotations = getGitAnnotations();
         builder.accept(new TypedVisitor<ServiceBuilder>() {
             @Override
             public void visit(ServiceBuilder serviceBuilder) {
-                serviceBuilder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                serviceBuilder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<DeploymentBuilder>() {
             @Override
             public void visit(DeploymentBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<DeploymentConfigBuilder>() {
             @Override
             public void visit(DeploymentConfigBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<ReplicaSetBuilder>() {
             @Override
             public void visit(ReplicaSetBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<ReplicationControllerBuilder>() {
             @Override
             public void visit(ReplicationControllerBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<DaemonSetBuilder>() {
             @Override
             public void visit(DaemonSetBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<StatefulSetBuilder>() {
             @Override
             public void visit(StatefulSetBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
 
         builder.accept(new TypedVisitor<JobBuilder>() {
             @Override
             public void visit(JobBuilder builder) {
-                builder.editMetadata().addToAnnotations(getAnnotations()).endMetadata();
+                builder.editMetadata().addToAnnotations(gitAnnotations).endMetadata();
             }
         });
     }
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.enricher.standard;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.maven.enricher.standard.DependencyManifestIndex.DependencyManifest;
+import mockit.Mocked;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DependencyManifestIndexTest {
+
+    private static final List<String> ENTRIES = Arrays.asList(
+        "META-INF/fabric8/kubernetes.yml", "META-INF/fabric8/k8s-template.yml", "META-INF/fabric8/openshift.yml", "META-INF/fabric8/missing.yml");
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void manifestsAreScannedOncePerJar() {
+        File jar = new File(getClass().getResource("/jenkins-4.0.41.jar").getFile());
+
+        Map<String, DependencyManifest> manifests = DependencyManifestIndex.getManifests(jar, ENTRIES, log);
+
+        assertEquals(ENTRIES.subList(0, 3), Arrays.asList(manifests.keySet().toArray()));
+        DependencyManifest kubernetes = manifests.get("META-INF/fabric8/kubernetes.yml");
+        assertEquals("jar:" + jar.toURI() + "!/META-INF/fabric8/kubernetes.yml", kubernetes.getSource());
+        assertSame(kubernetes, DependencyManifestIndex.getManifests(jar, ENTRIES.subList(0, 1), log).get("META-INF/fabric8/kubernetes.yml"));
+
+        List<HasMetadata> items = kubernetes.getItems();
+        assertTrue(items.size() > 0);
+        assertEquals(kubernetes.getSource(), KubernetesResourceUtil.getSourceUrlAnnotation(items.get(0)));
+        assertNotSame(items.get(0), kubernetes.getItems().get(0));
+        assertEquals(items.get(0), kubernetes.getItems().get(0));
+    }
+
+    @Test
+    public void missingJarsHaveNoManifests() {
+        assertTrue(DependencyManifestIndex.getManifests(new File("target/does-not-exist.jar"), ENTRIES, log).isEmpty());
+    }
+}
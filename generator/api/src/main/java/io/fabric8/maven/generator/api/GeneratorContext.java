@@ -35,6 +35,7 @@ public class GeneratorContext {
 
     private boolean useProjectClasspath;
     private boolean prePackagePhase;
+    private boolean reproducibleBuild;
     private ArtifactResolverService artifactResolver;
 
     private GeneratorMode generatorMode = GeneratorMode.BUILD;
@@ -79,6 +80,10 @@ public class GeneratorContext {
         return prePackagePhase;
     }
 
+    public boolean isReproducibleBuild() {
+        return reproducibleBuild;
+    }
+
     // ========================================================================
 
     public static class Builder {
@@ -125,6 +130,11 @@ public class GeneratorContext {
             return this;
         }
 
+        public Builder reproducibleBuild(boolean reproducibleBuild) {
+            ctx.reproducibleBuild = reproducibleBuild;
+            return this;
+        }
+
         public Builder artifactResolver(ArtifactResolverService artifactResolver) {
             ctx.artifactResolver = artifactResolver;
             return this;
@@ -119,7 +119,7 @@ public class JavaExecGenerator extends BaseGenerator {
         buildBuilder = new BuildImageConfiguration.Builder()
             .ports(extractPorts());
 
-        addSchemaLabels(buildBuilder, getContext().getProject(), log);
+        addSchemaLabels(buildBuilder, getContext().getProject(), getContext().isReproducibleBuild(), log);
         addFrom(buildBuilder);
         if (!prePackagePhase) {
             // Only add assembly if not in a pre-package phase where the referenced files
@@ -24,6 +24,7 @@ import java.util.jar.Attributes;
 
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.config.ProcessorConfig;
+import io.fabric8.maven.core.util.BuildLabelAnnotations;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.docker.config.AssemblyConfiguration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
@@ -269,5 +270,31 @@ public class JavaExecGeneratorMainClassDeterminationTest {
 
     }
 
+    /**
+     * A reproducible build gets no build date label, which would change the image on each build
+     * @throws MojoExecutionException
+     */
+    @Test
+    public void testNoBuildDateLabelForReproducibleBuild() throws MojoExecutionException {
+
+        new MockBuild();
+        new MockProcessorConfig("the.main.ClassName");
+        new MockMavenProject();
+
+        for (boolean reproducibleBuild : new boolean[] { false, true }) {
+            final GeneratorContext generatorContext = new GeneratorContext.Builder()
+                    .project(new MavenProject())
+                    .config(new ProcessorConfig())
+                    .strategy(OpenShiftBuildStrategy.docker)
+                    .reproducibleBuild(reproducibleBuild)
+                    .logger(log)
+                    .build();
 
+            List<ImageConfiguration> customized =
+                new JavaExecGenerator(generatorContext).customize(new ArrayList<ImageConfiguration>(), false);
+
+            assertEquals("Build date label", !reproducibleBuild,
+                    customized.get(0).getBuildConfiguration().getLabels().containsKey(BuildLabelAnnotations.BUILD_DATE.value()));
+        }
+    }
 }
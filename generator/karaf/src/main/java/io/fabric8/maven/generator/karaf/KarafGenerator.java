@@ -55,7 +55,7 @@ public class KarafGenerator extends BaseGenerator {
         BuildImageConfiguration.Builder buildBuilder = new BuildImageConfiguration.Builder()
             .ports(extractPorts())
             .cmd(new Arguments(getConfig(Config.cmd)));
-        addSchemaLabels(buildBuilder, getContext().getProject(), log);
+        addSchemaLabels(buildBuilder, getContext().getProject(), getContext().isReproducibleBuild(), log);
         addFrom(buildBuilder);
         if (!prePackagePhase) {
             buildBuilder.assembly(createAssembly());
@@ -81,7 +81,7 @@ public class QuarkusGenerator extends BaseGenerator {
             new BuildImageConfiguration.Builder()
                 // TODO: Check application.properties for a port
                 .ports(Collections.singletonList(getConfig(Config.webPort)));
-        addSchemaLabels(buildBuilder, getContext().getProject(), log);
+        addSchemaLabels(buildBuilder, getContext().getProject(), getContext().isReproducibleBuild(), log);
 
         boolean isNative = Boolean.parseBoolean(getConfig(Config.nativeImage, "false"));
 
@@ -98,7 +98,7 @@ public class WebAppGenerator extends BaseGenerator {
             .cmd(new Arguments(getDockerRunCommand(handler)))
             .env(getEnv(handler));
 
-        addSchemaLabels(buildBuilder, getContext().getProject(), log);
+        addSchemaLabels(buildBuilder, getContext().getProject(), getContext().isReproducibleBuild(), log);
         if (!prePackagePhase) {
             buildBuilder.assembly(createAssembly(handler));
         }
@@ -0,0 +1,40 @@
+import io.fabric8.maven.it.Verify
+
+import static org.junit.Assert.assertEquals
+import static org.junit.Assert.assertFalse
+import static org.junit.Assert.assertTrue
+
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+// Each module must only see its own kind/filename mappings and its own labels
+(1..8).each {
+  File module = new File(basedir, "module-" + it)
+  File resourceDir = new File(module, "target/classes/META-INF/fabric8/kubernetes")
+  String ownType = it % 2 == 1 ? "settings" : "configmap"
+  String otherType = it % 2 == 1 ? "configmap" : "settings"
+
+  assertTrue(new File(resourceDir, "app-" + ownType + ".yml").exists())
+  assertFalse(new File(resourceDir, "app-" + otherType + ".yml").exists())
+
+  File kubernetesYml = new File(module, "target/classes/META-INF/fabric8/kubernetes.yml")
+  assertEquals(["fabric8-maven-sample-parallel-reactor-" + it],
+               Verify.readWithPath(kubernetesYml, "\$.items[?(@.kind == 'ConfigMap')].metadata.labels.app"))
+  assertEquals([String.valueOf(it)],
+               Verify.readWithPath(kubernetesYml, "\$.items[?(@.kind == 'ConfigMap')].data.module"))
+}
+
+true
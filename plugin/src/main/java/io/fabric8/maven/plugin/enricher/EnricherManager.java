@@ -15,8 +15,14 @@
  */
 package io.fabric8.maven.plugin.enricher;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import com.google.common.base.Function;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
@@ -24,7 +30,9 @@ import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.ResourceConfig;
 import io.fabric8.maven.core.util.ClassUtil;
+import io.fabric8.maven.core.util.ParallelUtil;
 import io.fabric8.maven.core.util.PluginServiceFactory;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.enricher.api.Enricher;
 import io.fabric8.maven.enricher.api.EnricherContext;
@@ -45,7 +53,18 @@ public class EnricherManager {
 
     private Logger log;
 
+    private final ProcessorProfiler profiler;
+
+    // Enrichers already prepared per platform mode
+    private final Map<PlatformMode, Set<Enricher>> prepared = new EnumMap<>(PlatformMode.class);
+
     public EnricherManager(ResourceConfig resourceConfig, EnricherContext enricherContext, Optional<List<String>> extraClasspathElements) {
+        this(resourceConfig, enricherContext, extraClasspathElements, ProcessorProfiler.DISABLED);
+    }
+
+    public EnricherManager(ResourceConfig resourceConfig, EnricherContext enricherContext, Optional<List<String>> extraClasspathElements,
+                           ProcessorProfiler profiler) {
+        this.profiler = profiler;
         PluginServiceFactory<EnricherContext> pluginFactory = new PluginServiceFactory<>(enricherContext);
 
         extraClasspathElements.ifPresent(
@@ -68,7 +87,7 @@ public class EnricherManager {
 
     public void createDefaultResources(PlatformMode platformMode, ProcessorConfig enricherConfig, final KubernetesListBuilder builder) {
         // Add default resources
-        loop(enricherConfig, enricher -> {
+        loop(enricherConfig, "create", platformMode, enricher -> {
             enricher.create(platformMode, builder);
             return null;
         });
@@ -85,7 +104,7 @@ public class EnricherManager {
      * @param builder builder to customize
      */
     public void enrich(PlatformMode platformMode, final ProcessorConfig enricherConfig, final KubernetesListBuilder builder) {
-        loop(enricherConfig, enricher -> {
+        loop(enricherConfig, "enrich", platformMode, enricher -> {
                 enricher.enrich(platformMode, builder);
                 return null;
             });
@@ -99,9 +118,27 @@ public class EnricherManager {
         }
     }
 
-    private void loop(ProcessorConfig config, Function<Enricher, Void> function) {
-        for (Enricher enricher : filterEnrichers(config, enrichers)) {
-            function.apply(enricher);
+    private void loop(ProcessorConfig config, String phase, PlatformMode platformMode, Function<Enricher, Void> function) {
+        List<Enricher> filteredEnrichers = filterEnrichers(config, enrichers);
+        prepare(platformMode, filteredEnrichers);
+        for (Enricher enricher : filteredEnrichers) {
+            profiler.profile("enricher", enricher.getName(), phase, platformMode, () -> function.apply(enricher));
         }
     }
+
+    // Run the read-only preparation of all enrichers not prepared yet concurrently, before any of them changes resources
+    private void prepare(PlatformMode platformMode, List<Enricher> filteredEnrichers) {
+        Set<Enricher> preparedEnrichers =
+            prepared.computeIfAbsent(platformMode, k -> Collections.newSetFromMap(new IdentityHashMap<>()));
+        List<Enricher> toPrepare = new ArrayList<>();
+        for (Enricher enricher : filteredEnrichers) {
+            if (preparedEnrichers.add(enricher)) {
+                toPrepare.add(enricher);
+            }
+        }
+        ParallelUtil.map(toPrepare, enricher -> profiler.profile("enricher", enricher.getName(), "prepare", platformMode, () -> {
+            enricher.prepare(platformMode);
+            return null;
+        }));
+    }
 }
\ No newline at end of file
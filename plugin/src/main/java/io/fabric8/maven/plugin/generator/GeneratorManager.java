@@ -20,6 +20,7 @@ import java.util.List;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.core.util.PluginServiceFactory;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.generator.api.Generator;
@@ -37,6 +38,13 @@ public class GeneratorManager {
     public static List<ImageConfiguration> generate(List<ImageConfiguration> imageConfigs,
                                                     GeneratorContext genCtx,
                                                     boolean prePackagePhase) throws MojoExecutionException {
+        return generate(imageConfigs, genCtx, prePackagePhase, ProcessorProfiler.DISABLED);
+    }
+
+    public static List<ImageConfiguration> generate(List<ImageConfiguration> imageConfigs,
+                                                    GeneratorContext genCtx,
+                                                    boolean prePackagePhase,
+                                                    ProcessorProfiler profiler) throws MojoExecutionException {
 
         List<ImageConfiguration> ret = imageConfigs;
 
@@ -60,9 +68,11 @@ public class GeneratorManager {
         log.verbose(Logger.LogVerboseCategory.BUILD, "Generators:");
         for (Generator generator : usableGenerators) {
             log.verbose(Logger.LogVerboseCategory.BUILD, " - %s",generator.getName());
-            if (generator.isApplicable(ret)) {
+            List<ImageConfiguration> current = ret;
+            if (profiler.profile("generator", generator.getName(), "applicable", genCtx.getRuntimeMode(), () -> generator.isApplicable(current))) {
                 log.info("Running generator %s", generator.getName());
-                ret = generator.customize(ret, prePackagePhase);
+                ret = profiler.profile("generator", generator.getName(), "customize", genCtx.getRuntimeMode(),
+                                       () -> generator.customize(current, prePackagePhase));
             }
         }
         return ret;
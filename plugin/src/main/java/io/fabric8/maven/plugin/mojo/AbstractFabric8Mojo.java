@@ -15,12 +15,16 @@
  */
 package io.fabric8.maven.plugin.mojo;
 
+import java.io.File;
+
+import io.fabric8.maven.core.access.ClusterAccess;
 import io.fabric8.maven.core.access.ClusterConfiguration;
 import io.fabric8.maven.docker.util.AnsiLogger;
 import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.Logger;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -39,6 +43,9 @@ public abstract class AbstractFabric8Mojo extends AbstractMojo {
     @Parameter(defaultValue = "${session}", readonly = true)
     protected MavenSession session;
 
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution execution;
+
     // Whether to use color
     @Parameter(property = "fabric8.useColor", defaultValue = "true")
     protected boolean useColor;
@@ -102,6 +109,15 @@ public abstract class AbstractFabric8Mojo extends AbstractMojo {
     }
 
 
+    /**
+     * Log and write the metrics of the calls made to the cluster by the given cluster access during this goal
+     */
+    protected void reportClusterMetrics(ClusterAccess clusterAccess) {
+        if (clusterAccess != null) {
+            clusterAccess.reportMetrics(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
+        }
+    }
+
     protected ClusterConfiguration getClusterConfiguration() {
         final ClusterConfiguration.Builder clusterConfigurationBuilder = new ClusterConfiguration.Builder(access);
 
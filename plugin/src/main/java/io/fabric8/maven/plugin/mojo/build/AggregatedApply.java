@@ -0,0 +1,195 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.plugin.mojo.build;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import io.fabric8.maven.core.service.ApplyAggregator;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Decides which module of a session applies the manifests registered for an aggregated apply,
+ * and fails the build if registered manifests have never been applied.
+ *
+ * The applying module is the last module of the session which takes part in the aggregated apply,
+ * i.e. which runs one of the apply goals, either from the command line or bound to a phase, with
+ * aggregation enabled and apply not skipped.
+ */
+class AggregatedApply {
+
+    // Goals which register their manifests when aggregation is enabled
+    static final List<String> GOALS = Arrays.asList("apply", "resource-apply", "deploy");
+
+    static final String AGGREGATE_PROPERTY = "fabric8.apply.aggregate";
+    static final String SKIP_PROPERTY = "fabric8.skip.apply";
+
+    private AggregatedApply() { }
+
+    /**
+     * Get the module which applies the manifests of the given module
+     *
+     * @param session the session
+     * @param project module which registered its manifests
+     * @param plugin this plugin
+     * @return the last module of the session taking part in the aggregated apply, the given module if no later one does
+     */
+    static MavenProject getApplier(MavenSession session, MavenProject project, PluginDescriptor plugin) {
+        List<MavenProject> projects = session.getProjects();
+        if (projects == null) {
+            return project;
+        }
+        MavenProject applier = project;
+        for (int i = projects.indexOf(project) + 1; i < projects.size(); i++) {
+            if (isRegistering(session, projects.get(i), plugin)) {
+                applier = projects.get(i);
+            }
+        }
+        return applier;
+    }
+
+    /**
+     * Get the modules of the session taking part in the aggregated apply
+     */
+    static List<MavenProject> getRegisteringProjects(MavenSession session, PluginDescriptor plugin) {
+        List<MavenProject> ret = new ArrayList<>();
+        if (session.getProjects() != null) {
+            for (MavenProject project : session.getProjects()) {
+                if (isRegistering(session, project, plugin)) {
+                    ret.add(project);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Check whether a module registers its manifests for an aggregated apply
+     */
+    static boolean isRegistering(MavenSession session, MavenProject project, PluginDescriptor plugin) {
+        Plugin buildPlugin = project.getPlugin(plugin.getPluginLookupKey());
+        return runsGoal(session, buildPlugin, plugin) &&
+               isEnabled(session, project, buildPlugin, AGGREGATE_PROPERTY, "aggregate") &&
+               !isEnabled(session, project, buildPlugin, SKIP_PROPERTY, "skipApply");
+    }
+
+    /**
+     * Fail the build at the end of the session if manifests have been registered but never applied.
+     * Installed once per session by chaining the execution listener of the session.
+     *
+     * @param session the session
+     * @param aggregator aggregator holding the registrations
+     */
+    static void checkAppliedAtSessionEnd(MavenSession session, ApplyAggregator aggregator) {
+        SessionEndListener.install(session, SessionEndCheck.class, listener -> new SessionEndCheck(listener, aggregator));
+    }
+
+    // Goals given on the command line run in every module, otherwise the goal must be bound to a phase
+    private static boolean runsGoal(MavenSession session, Plugin buildPlugin, PluginDescriptor plugin) {
+        for (String goal : session.getGoals()) {
+            if (isApplyGoal(goal, plugin)) {
+                return true;
+            }
+        }
+        if (buildPlugin != null) {
+            for (PluginExecution execution : buildPlugin.getExecutions()) {
+                for (String goal : execution.getGoals()) {
+                    if (GOALS.contains(goal)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isApplyGoal(String task, PluginDescriptor plugin) {
+        String[] parts = task.split(":");
+        if (parts.length == 2) {
+            return Objects.equals(parts[0], plugin.getGoalPrefix()) && GOALS.contains(parts[1]);
+        }
+        if (parts.length == 3 || parts.length == 4) {
+            return Objects.equals(parts[0], plugin.getGroupId()) && Objects.equals(parts[1], plugin.getArtifactId()) &&
+                   GOALS.contains(parts[parts.length - 1]);
+        }
+        return false;
+    }
+
+    // A property wins over the plugin configuration, as for the mojo parameters
+    private static boolean isEnabled(MavenSession session, MavenProject project, Plugin buildPlugin, String property, String parameter) {
+        String value = session.getUserProperties().getProperty(property);
+        if (value == null) {
+            value = System.getProperty(property);
+        }
+        if (value == null) {
+            value = project.getProperties().getProperty(property);
+        }
+        if (value == null && buildPlugin != null) {
+            value = getConfiguration(buildPlugin.getConfiguration(), parameter);
+            for (PluginExecution execution : buildPlugin.getExecutions()) {
+                if (value == null) {
+                    value = getConfiguration(execution.getConfiguration(), parameter);
+                }
+            }
+        }
+        return Boolean.parseBoolean(value != null ? value.trim() : null);
+    }
+
+    private static String getConfiguration(Object configuration, String parameter) {
+        if (configuration instanceof Xpp3Dom) {
+            Xpp3Dom child = ((Xpp3Dom) configuration).getChild(parameter);
+            return child != null ? child.getValue() : null;
+        }
+        return null;
+    }
+
+    /**
+     * Listener checking at the end of the session that all registered manifests have been applied
+     */
+    static class SessionEndCheck extends SessionEndListener {
+
+        private final ApplyAggregator aggregator;
+
+        SessionEndCheck(ExecutionListener delegate, ApplyAggregator aggregator) {
+            super(delegate);
+            this.aggregator = aggregator;
+        }
+
+        @Override
+        protected void onSessionEnd(MavenSession session) {
+            List<ApplyAggregator.ModuleManifests> notApplied = aggregator.drain(session.getRequest());
+            // Failed builds don't apply anything, so only a successful build is failed here
+            if (!notApplied.isEmpty() && !session.getResult().hasExceptions()) {
+                List<String> projectIds = new ArrayList<>();
+                for (ApplyAggregator.ModuleManifests manifests : notApplied) {
+                    projectIds.add(manifests.getProjectId());
+                }
+                session.getResult().addException(new MojoExecutionException(
+                    "The manifests of " + String.join(", ", projectIds) + " were registered for an aggregated apply, " +
+                    "but no later module applied them. Run the apply goal in the last module or disable " + AGGREGATE_PROPERTY));
+            }
+        }
+    }
+}
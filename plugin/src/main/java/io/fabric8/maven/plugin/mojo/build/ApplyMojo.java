@@ -17,8 +17,8 @@ package io.fabric8.maven.plugin.mojo.build;
 
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import io.fabric8.kubernetes.api.model.DoneableService;
 import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
 import io.fabric8.kubernetes.api.model.Pod;
@@ -37,14 +37,18 @@ import io.fabric8.kubernetes.api.model.extensions.IngressRule;
 import io.fabric8.kubernetes.api.model.extensions.IngressSpec;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
-import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.kubernetes.client.dsl.base.CustomResourceDefinitionContext;
 import io.fabric8.maven.core.access.ClusterAccess;
 import io.fabric8.maven.core.config.ResourceConfig;
+import io.fabric8.maven.core.service.ApplyAggregator;
 import io.fabric8.maven.core.service.ApplyService;
+import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.core.service.ResourceHandoff;
+import io.fabric8.maven.core.service.ResourceCache;
+import io.fabric8.maven.core.service.ServiceUrlDiscovery;
 import io.fabric8.maven.core.util.FileUtil;
+import io.fabric8.maven.core.util.ResourceClassifier;
 import io.fabric8.maven.core.util.ResourceUtil;
-import io.fabric8.maven.core.util.kubernetes.Fabric8Annotations;
 import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
@@ -59,10 +63,11 @@ import io.fabric8.openshift.api.model.RouteSpec;
 import io.fabric8.openshift.api.model.RouteTargetReference;
 import io.fabric8.openshift.api.model.RouteTargetReferenceBuilder;
 import io.fabric8.openshift.client.OpenShiftClient;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -71,15 +76,22 @@ import org.apache.maven.project.MavenProject;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for goals which deploy the generated artifacts into the Kubernetes cluster
@@ -205,94 +217,187 @@ public class ApplyMojo extends AbstractFabric8Mojo {
     @Parameter(property = "fabric8.skip.apply", defaultValue = "false")
     protected boolean skipApply;
 
+    /**
+     * Apply the resources of all modules of a multi-module build at once. Each module only registers its
+     * manifests, and the last module of the build running an apply goal applies all of them with a single
+     * connection to the cluster, ordered by kind across all modules.
+     */
+    @Parameter(property = "fabric8.apply.aggregate", defaultValue = "false")
+    private boolean aggregate;
+
+    /**
+     * Time in seconds the module applying an aggregated apply waits for the other modules of a parallel build
+     */
+    @Parameter(property = "fabric8.apply.aggregateTimeout", defaultValue = "1800")
+    private long aggregateTimeout;
+
+    /**
+     * Look up the existing resources of a kind with a single list which is kept current with a watch,
+     * instead of getting every resource from the cluster before applying it
+     */
+    @Parameter(property = "fabric8.apply.cache", defaultValue = "false")
+    private boolean cacheResources;
+
+    @Component
+    protected ApplyAggregator applyAggregator;
+
+    @Component
+    protected ResourceHandoff resourceHandoff;
+
+    private static final int MAX_APPLY_THREADS = 8;
+
+    private static final long AGGREGATE_POLL_MILLIS = 500;
+
     private ClusterAccess clusterAccess;
 
     protected ApplyService applyService;
 
+    private ResourceCache resourceCache;
+
     public void executeInternal() throws MojoExecutionException {
-        if (skipApply) {
-            return;
+        // Resources handed over by the resource goal, whose manifests are written in the background
+        ResourceHandoff.ModuleResources handedOver = resourceHandoff.take(session.getRequest(), project.getId());
+        try {
+            if (skipApply) {
+                return;
+            }
+            if (aggregate && isAggregateSupported()) {
+                awaitManifests(handedOver);
+                executeAggregated();
+                return;
+            }
+            apply(handedOver);
+        } finally {
+            awaitManifests(handedOver);
         }
+    }
 
+    private void apply(ResourceHandoff.ModuleResources handedOver) throws MojoExecutionException {
         clusterAccess = new ClusterAccess(getClusterConfiguration());
 
         try {
             KubernetesClient kubernetes = clusterAccess.createDefaultClient(log);
-            applyService = new ApplyService(kubernetes, log);
-            initServices(kubernetes, log);
-
-            URL masterUrl = kubernetes.getMasterUrl();
-            File manifest;
-            if (OpenshiftHelper.isOpenShift(kubernetes)) {
-                manifest = openshiftManifest;
-            } else {
-                manifest = kubernetesManifest;
-            }
-            if (!manifest.exists() || !manifest.isFile()) {
-                if (failOnNoKubernetesJson) {
-                    throw new MojoFailureException("No such generated manifest file: " + manifest);
-                } else {
-                    log.warn("No such generated manifest file %s for this project so ignoring", manifest);
-                    return;
+            boolean openShift = OpenshiftHelper.isOpenShift(kubernetes);
+            File manifest = openShift ? openshiftManifest : kubernetesManifest;
+            KubernetesList generated = handedOver != null ?
+                handedOver.getResources(openShift ? ResourceClassifier.OPENSHIFT : ResourceClassifier.KUBERNETES, manifest) : null;
+            if (generated == null) {
+                awaitManifests(handedOver);
+                if (!manifest.exists() || !manifest.isFile()) {
+                    if (failOnNoKubernetesJson) {
+                        throw new MojoFailureException("No such generated manifest file: " + manifest);
+                    } else {
+                        log.warn("No such generated manifest file %s for this project so ignoring", manifest);
+                        return;
+                    }
                 }
             }
+            log.info("Using %s at %s in namespace %s with %s %s ", openShift ? "OpenShift" : "Kubernetes",
+                     kubernetes.getMasterUrl(), clusterAccess.getNamespace(),
+                     generated != null ? "the generated resources of manifest" : "manifest", manifest);
+            initApplyService(kubernetes, openShift);
 
-            String clusterKind = "Kubernetes";
-            if (OpenshiftHelper.isOpenShift(kubernetes)) {
-                clusterKind = "OpenShift";
-            }
-            KubernetesResourceUtil.validateKubernetesMasterUrl(masterUrl);
-            log.info("Using %s at %s in namespace %s with manifest %s ", clusterKind, masterUrl, clusterAccess.getNamespace(), manifest);
-
-            applyService.setAllowCreate(createNewResources);
-            applyService.setServicesOnlyMode(servicesOnly);
-            applyService.setIgnoreServiceMode(ignoreServices);
-            applyService.setLogJsonDir(jsonLogDir);
-            applyService.setBasedir(getRootProjectFolder());
-            applyService.setIgnoreRunningOAuthClients(ignoreRunningOAuthClients);
-            applyService.setProcessTemplatesLocally(processTemplatesLocally);
-            applyService.setDeletePodsOnReplicationControllerUpdate(deletePodsOnReplicationControllerUpdate);
-            applyService.setRollingUpgrade(rollingUpgrades);
-            applyService.setRollingUpgradePreserveScale(isRollingUpgradePreserveScale());
+            Set<HasMetadata> entities = generated != null ?
+                KubernetesResourceUtil.loadResources(generated) : KubernetesResourceUtil.loadResources(manifest);
+            String namespace = applyNamespace(extractNamespaceEntity(entities));
 
-            boolean openShift = OpenshiftHelper.isOpenShift(kubernetes);
-            if (openShift) {
-                getLog().info("OpenShift platform detected");
-            } else {
-                disableOpenShiftFeatures(applyService);
+            applyEntities(kubernetes, namespace, manifest.getName(), entities);
+            log.info("[[B]]HINT:[[B]] Use the command `%s get pods -w` to watch your pods start up", clusterAccess.isOpenShiftImageStream(log) ? "oc" : "kubectl");
+
+        } catch (KubernetesClientException e) {
+            KubernetesResourceUtil.handleKubernetesClientException(e, this.log);
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            closeResourceCache();
+            reportClusterMetrics(clusterAccess);
+        }
+    }
+
+    private void awaitManifests(ResourceHandoff.ModuleResources handedOver) throws MojoExecutionException {
+        if (handedOver != null) {
+            try {
+                handedOver.awaitWritten();
+            } catch (Fabric8ServiceException e) {
+                throw new MojoExecutionException("Failed to write the generated manifests: " + e.getMessage(), e);
             }
+        }
+    }
 
-            Set<HasMetadata> entities = KubernetesResourceUtil.loadResources(manifest);
+    /**
+     * Whether this goal can take part in an aggregated apply. Goals which do more than applying the
+     * resources of a module return false here.
+     */
+    protected boolean isAggregateSupported() {
+        return true;
+    }
 
-            String namespace = clusterAccess.getNamespace();
-            boolean namespaceEntityExist = false;
+    private void executeAggregated() throws MojoExecutionException {
+        try {
+            List<String> customResourceDefinitions = resources != null ? resources.getCrdContexts() : null;
+            // Modules of a parallel build have their own copy of the session, but share the request
+            applyAggregator.register(session.getRequest(), new ApplyAggregator.ModuleManifests(
+                project.getId(), kubernetesManifest, openshiftManifest, customResourceDefinitions,
+                customResourceDefinitions != null ? getCustomResourcesFileToNamemap() : Collections.emptyMap()));
+            AggregatedApply.checkAppliedAtSessionEnd(session, applyAggregator);
+            PluginDescriptor plugin = execution.getMojoDescriptor().getPluginDescriptor();
+            MavenProject applier = AggregatedApply.getApplier(session, project, plugin);
+            if (!Objects.equals(applier, project)) {
+                log.info("Registered manifests of %s, they are applied together with %s", project.getArtifactId(), applier.getArtifactId());
+                return;
+            }
+            waitForOtherProjectsOfSession(AggregatedApply.getRegisteringProjects(session, plugin));
+            List<ApplyAggregator.ModuleManifests> modules = applyAggregator.drain(session.getRequest());
 
-            for (HasMetadata entity: entities) {
-                if (entity instanceof Namespace) {
-                    Namespace ns = (Namespace)entity;
-                    namespace = ns.getMetadata().getName();
-                    applyService.applyNamespace((ns));
-                    namespaceEntityExist = true;
-                    entities.remove(entity);
-                    break;
+            clusterAccess = new ClusterAccess(getClusterConfiguration());
+            KubernetesClient kubernetes = clusterAccess.createDefaultClient(log);
+            boolean openShift = OpenshiftHelper.isOpenShift(kubernetes);
+            log.info("Using %s at %s in namespace %s to apply the manifests of %d modules", openShift ? "OpenShift" : "Kubernetes",
+                     kubernetes.getMasterUrl(), clusterAccess.getNamespace(), modules.size());
+            initApplyService(kubernetes, openShift);
+
+            // Resources of all modules, the first module defining a resource wins
+            Map<String, HasMetadata> entities = new LinkedHashMap<>();
+            Map<HasMetadata, String> sourceNames = new IdentityHashMap<>();
+            HasMetadata namespaceEntity = null;
+            for (ApplyAggregator.ModuleManifests module : modules) {
+                File manifest = module.getManifest(openShift);
+                if (!manifest.exists() || !manifest.isFile()) {
+                    if (failOnNoKubernetesJson) {
+                        throw new MojoFailureException("No such generated manifest file: " + manifest);
+                    }
+                    log.warn("No such generated manifest file %s for %s so ignoring", manifest, module.getProjectId());
+                    continue;
                 }
-                if (entity instanceof Project) {
-                    Project project = (Project)entity;
-                    namespace = project.getMetadata().getName();
-                    applyService.applyProject(project);
-                    namespaceEntityExist = true;
-                    entities.remove(entity);
-                    break;
+                Set<HasMetadata> moduleEntities = KubernetesResourceUtil.loadResources(manifest);
+                HasMetadata moduleNamespace = extractNamespaceEntity(moduleEntities);
+                if (moduleNamespace != null) {
+                    if (namespaceEntity != null && !KubernetesHelper.getName(namespaceEntity).equals(KubernetesHelper.getName(moduleNamespace))) {
+                        throw new MojoExecutionException("Modules cannot be applied together as they use different namespaces " +
+                                                         KubernetesHelper.getName(namespaceEntity) + " and " + KubernetesHelper.getName(moduleNamespace));
+                    }
+                    namespaceEntity = moduleNamespace;
+                }
+                for (HasMetadata entity : moduleEntities) {
+                    String key = entity.getKind() + "/" + KubernetesHelper.getName(entity);
+                    if (entities.putIfAbsent(key, entity) == null) {
+                        sourceNames.put(entity, manifest.getName());
+                    } else {
+                        log.warn("%s is defined by more than one module, ignoring the definition of %s", key, module.getProjectId());
+                    }
                 }
             }
+            String namespace = applyNamespace(namespaceEntity);
 
-            if (!namespaceEntityExist) {
-                applyService.applyNamespace(namespace);
+            for (List<HasMetadata> tier : ApplyAggregator.getApplyTiers(entities.values())) {
+                applyConcurrently(tier, sourceNames);
+            }
+            logServiceUrls(kubernetes, namespace, entities.values());
+            for (ApplyAggregator.ModuleManifests module : modules) {
+                processCustomEntities(kubernetes, namespace, module.getCustomResourceDefinitions(), module.getCustomResourceFiles(), false);
             }
-
-            applyService.setNamespace(namespace);
-
-            applyEntities(kubernetes, namespace, manifest.getName(), entities);
             log.info("[[B]]HINT:[[B]] Use the command `%s get pods -w` to watch your pods start up", clusterAccess.isOpenShiftImageStream(log) ? "oc" : "kubectl");
 
         } catch (KubernetesClientException e) {
@@ -301,73 +406,171 @@ public class ApplyMojo extends AbstractFabric8Mojo {
             throw e;
         } catch (Exception e) {
             throw new MojoExecutionException(e.getMessage(), e);
+        } finally {
+            closeResourceCache();
+            reportClusterMetrics(clusterAccess);
         }
     }
 
-    protected void initServices(KubernetesClient kubernetes, Logger log) {
+    private void initApplyService(KubernetesClient kubernetes, boolean openShift) throws MojoExecutionException {
+        KubernetesResourceUtil.validateKubernetesMasterUrl(kubernetes.getMasterUrl());
+        applyService = new ApplyService(kubernetes, log);
+        initServices(kubernetes, log);
+
+        applyService.setAllowCreate(createNewResources);
+        applyService.setServicesOnlyMode(servicesOnly);
+        applyService.setIgnoreServiceMode(ignoreServices);
+        applyService.setLogJsonDir(jsonLogDir);
+        applyService.setBasedir(getRootProjectFolder());
+        applyService.setIgnoreRunningOAuthClients(ignoreRunningOAuthClients);
+        applyService.setProcessTemplatesLocally(processTemplatesLocally);
+        applyService.setDeletePodsOnReplicationControllerUpdate(deletePodsOnReplicationControllerUpdate);
+        applyService.setRollingUpgrade(rollingUpgrades);
+        applyService.setRollingUpgradePreserveScale(isRollingUpgradePreserveScale());
+        if (cacheResources) {
+            resourceCache = new ResourceCache(log);
+            applyService.setResourceCache(resourceCache);
+        }
 
+        if (openShift) {
+            getLog().info("OpenShift platform detected");
+        } else {
+            disableOpenShiftFeatures(applyService);
+        }
     }
 
+    private void closeResourceCache() {
+        if (resourceCache != null) {
+            resourceCache.close();
+            resourceCache = null;
+        }
+    }
 
-    protected void applyEntities(KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
-        // Apply all items
+    // Remove the first Namespace or Project from the given entities and return it
+    private HasMetadata extractNamespaceEntity(Set<HasMetadata> entities) {
         for (HasMetadata entity : entities) {
-            if (entity instanceof Pod) {
-                Pod pod = (Pod) entity;
-                applyService.applyPod(pod, fileName);
-            } else if (entity instanceof Service) {
-                Service service = (Service) entity;
-                applyService.applyService(service, fileName);
-            } else if (entity instanceof ReplicationController) {
-                ReplicationController replicationController = (ReplicationController) entity;
-                applyService.applyReplicationController(replicationController, fileName);
-            } else if (entity != null) {
-                applyService.apply(entity, fileName);
+            if (entity instanceof Namespace || entity instanceof Project) {
+                entities.remove(entity);
+                return entity;
             }
         }
+        return null;
+    }
 
-        Logger serviceLogger = createExternalProcessLogger("[[G]][SVC][[G]] ");
-        long serviceUrlWaitTimeSeconds = this.serviceUrlWaitTimeSeconds;
-        for (HasMetadata entity : entities) {
-            if (entity instanceof Service) {
-                Service service = (Service) entity;
-                String name = KubernetesHelper.getName(service);
-                Resource<Service, DoneableService> serviceResource = kubernetes.services().inNamespace(namespace).withName(name);
-                String url = null;
-                // lets wait a little while until there is a service URL in case the exposecontroller is running slow
-                for (int i = 0; i < serviceUrlWaitTimeSeconds; i++) {
-                    if (i > 0) {
-                        Thread.sleep(1000);
-                    }
-                    Service s = serviceResource.get();
-                    if (s != null) {
-                        url = getExternalServiceURL(s);
-                        if (StringUtils.isNotBlank(url)) {
-                            break;
-                        }
-                    }
-                    if (!isExposeService(service)) {
-                        break;
+    private String applyNamespace(HasMetadata namespaceEntity) {
+        String namespace = clusterAccess.getNamespace();
+        if (namespaceEntity instanceof Namespace) {
+            namespace = namespaceEntity.getMetadata().getName();
+            applyService.applyNamespace((Namespace) namespaceEntity);
+        } else if (namespaceEntity instanceof Project) {
+            namespace = namespaceEntity.getMetadata().getName();
+            applyService.applyProject((Project) namespaceEntity);
+        } else {
+            applyService.applyNamespace(namespace);
+        }
+        applyService.setNamespace(namespace);
+        return namespace;
+    }
+
+    private void applyConcurrently(List<HasMetadata> entities, Map<HasMetadata, String> sourceNames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(entities.size(), MAX_APPLY_THREADS));
+        try {
+            List<Future<?>> applies = new ArrayList<>();
+            for (HasMetadata entity : entities) {
+                applies.add(executor.submit(() -> {
+                    applyEntity(entity, sourceNames.get(entity));
+                    return null;
+                }));
+            }
+            Exception failure = null;
+            for (Future<?> apply : applies) {
+                try {
+                    apply.get();
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
                     }
                 }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                // lets not wait for other services
-                serviceUrlWaitTimeSeconds = 1;
-                if (StringUtils.isNotBlank(url) && url.startsWith("http")) {
-                    serviceLogger.info("" + name + ": " + url);
+    // Other modules of a parallel build may still be running, wait until they are done and have registered their manifests
+    private void waitForOtherProjectsOfSession(List<MavenProject> registering) throws MojoExecutionException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(aggregateTimeout);
+        for (MavenProject other : registering) {
+            while (!Objects.equals(other, project) && session.getResult().getBuildSummary(other) == null) {
+                if (session.getResult().hasExceptions()) {
+                    break;
                 }
+                if (System.currentTimeMillis() > deadline) {
+                    applyAggregator.drain(session.getRequest());
+                    throw new MojoExecutionException("Timeout after " + aggregateTimeout + " seconds while waiting for " +
+                                                     other.getArtifactId() + " to register its manifests");
+                }
+                Thread.sleep(AGGREGATE_POLL_MILLIS);
             }
         }
+        if (session.getResult().hasExceptions()) {
+            applyAggregator.drain(session.getRequest());
+            throw new MojoExecutionException("Not applying the manifests of the build as other modules have failed");
+        }
+    }
+
+    protected void initServices(KubernetesClient kubernetes, Logger log) {
+
+    }
+
+
+    protected void applyEntities(KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
+        // Apply all items
+        for (HasMetadata entity : entities) {
+            applyEntity(entity, fileName);
+        }
+        logServiceUrls(kubernetes, namespace, entities);
         processCustomEntities(kubernetes, namespace, resources != null ? resources.getCrdContexts() : null, false);
     }
 
-    protected String getExternalServiceURL(Service service) {
-        return KubernetesHelper.getOrCreateAnnotations(service).get(Fabric8Annotations.SERVICE_EXPOSE_URL.value());
+    private void applyEntity(HasMetadata entity, String fileName) throws Exception {
+        if (entity instanceof Pod) {
+            Pod pod = (Pod) entity;
+            applyService.applyPod(pod, fileName);
+        } else if (entity instanceof Service) {
+            Service service = (Service) entity;
+            applyService.applyService(service, fileName);
+        } else if (entity instanceof ReplicationController) {
+            ReplicationController replicationController = (ReplicationController) entity;
+            applyService.applyReplicationController(replicationController, fileName);
+        } else if (entity != null) {
+            applyService.apply(entity, fileName);
+        }
     }
 
-    protected boolean isExposeService(Service service) {
-        String expose = KubernetesHelper.getLabels(service).get("expose");
-        return expose != null && expose.toLowerCase().equals("true");
+    private void logServiceUrls(KubernetesClient kubernetes, String namespace, Collection<HasMetadata> entities) throws InterruptedException {
+        Logger serviceLogger = createExternalProcessLogger("[[G]][SVC][[G]] ");
+        List<Service> services = new ArrayList<>();
+        for (HasMetadata entity : entities) {
+            if (entity instanceof Service) {
+                services.add((Service) entity);
+            }
+        }
+        // lets wait a little while until there are service URLs in case the exposecontroller is running slow
+        Map<String, String> serviceUrls =
+            new ServiceUrlDiscovery(kubernetes, namespace, log).discoverServiceUrls(services, serviceUrlWaitTimeSeconds);
+        for (Map.Entry<String, String> entry : serviceUrls.entrySet()) {
+            String url = entry.getValue();
+            if (url.startsWith("http")) {
+                serviceLogger.info("" + entry.getKey() + ": " + url);
+            }
+        }
     }
 
     public boolean isRollingUpgrades() {
@@ -399,8 +602,14 @@ public class ApplyMojo extends AbstractFabric8Mojo {
         if(customResourceDefinitions == null)
             return;
 
+        processCustomEntities(client, namespace, customResourceDefinitions, getCustomResourcesFileToNamemap(), isDelete);
+    }
+
+    private void processCustomEntities(KubernetesClient client, String namespace, List<String> customResourceDefinitions, Map<File, String> fileToCrdMap, boolean isDelete) throws Exception {
+        if(customResourceDefinitions == null)
+            return;
+
         List<CustomResourceDefinitionContext> crdContexts = KubernetesClientUtil.getCustomResourceDefinitionContext(client ,customResourceDefinitions);
-        Map<File, String> fileToCrdMap = getCustomResourcesFileToNamemap();
 
         for(CustomResourceDefinitionContext customResourceDefinitionContext : crdContexts) {
             for(Map.Entry<File, String> entry : fileToCrdMap.entrySet()) {
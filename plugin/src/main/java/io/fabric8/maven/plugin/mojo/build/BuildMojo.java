@@ -19,20 +19,27 @@ import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.maven.core.access.ClusterAccess;
 import io.fabric8.maven.core.access.ClusterConfiguration;
 import io.fabric8.maven.core.config.BuildRecreateMode;
+import io.fabric8.maven.core.config.JibBuildTarget;
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.ResourceConfig;
 import io.fabric8.maven.core.config.RuntimeMode;
 import io.fabric8.maven.core.service.BuildService;
+import io.fabric8.maven.core.service.Fabric8ServiceException;
 import io.fabric8.maven.core.service.Fabric8ServiceHub;
 import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.service.kubernetes.jib.JibAssemblyManager;
+import io.fabric8.maven.core.service.kubernetes.jib.JibCacheManager;
 import io.fabric8.maven.core.util.MavenUtil;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.core.util.ProfileUtil;
+import io.fabric8.maven.core.util.ReproducibleBuildUtil;
+import io.fabric8.maven.docker.config.ArchiveCompression;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.service.ServiceHub;
 import io.fabric8.maven.docker.util.EnvUtil;
+import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.docker.util.Task;
 import io.fabric8.maven.enricher.api.EnricherContext;
 import io.fabric8.maven.enricher.api.MavenEnricherContext;
@@ -40,6 +47,8 @@ import io.fabric8.maven.generator.api.GeneratorContext;
 import io.fabric8.maven.plugin.enricher.EnricherManager;
 import io.fabric8.maven.plugin.generator.GeneratorManager;
 import io.fabric8.maven.plugin.mojo.ResourceDirCreator;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -52,6 +61,7 @@ import org.apache.maven.repository.RepositorySystem;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
@@ -77,6 +87,35 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
     @Parameter(property = "fabric8.build.jib", defaultValue = "false")
     private boolean isJib;
 
+    /**
+     * Layers of a JIB image in the order in which they are added. Possible layers are
+     * "dependencies", "snapshot-dependencies", "resources" and "classes". Content of a kind which
+     * is not listed is added to the last layer.
+     */
+    @Parameter(property = "fabric8.build.jib.layers")
+    private List<String> jibLayers;
+
+    /**
+     * Where a JIB build puts the image: "tar" writes a tarball to be pushed by fabric8:push,
+     * "registry" pushes the image directly to the registry and "docker" loads it into the
+     * local Docker daemon.
+     */
+    @Parameter(property = "fabric8.build.jib.target", defaultValue = "tar")
+    private JibBuildTarget jibBuildTarget = JibBuildTarget.tar;
+
+    /**
+     * Registry to push to when the JIB build target is "registry"
+     */
+    @Parameter(property = "docker.push.registry")
+    private String pushRegistry;
+
+    /**
+     * Create the same JIB image for unchanged input. The image creation time is taken from
+     * <code>project.build.outputTimestamp</code> or the last git commit and no build date label is added.
+     */
+    @Parameter(property = "fabric8.build.reproducible", defaultValue = "false")
+    private boolean reproducibleBuild;
+
     @Parameter
     private ProcessorConfig enricher;
 
@@ -101,6 +140,15 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
     @Parameter(property = "fabric8.profile")
     private String profile;
 
+    /**
+     * Measure wall time, CPU time and allocations of each enricher and generator, log them and write them
+     * to <code>target/fabric8/processor-profile.json</code>
+     */
+    @Parameter(property = "fabric8.profiler", defaultValue = "false")
+    private boolean profileProcessors;
+
+    private ProcessorProfiler processorProfiler = ProcessorProfiler.DISABLED;
+
     /**
      * Folder where to find project specific files, e.g a custom profile
      */
@@ -162,6 +210,64 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
     @Parameter(property = "fabric8.build.forcePull", defaultValue = "false")
     private boolean forcePull = false;
 
+    /**
+     * Stream the build archive directly into the OpenShift binary build instead of
+     * creating a temporary tarball in the build directory first.
+     */
+    @Parameter(property = "fabric8.build.streamArchive", defaultValue = "false")
+    private boolean streamBuildArchive = false;
+
+    /**
+     * Compression used for the archive uploaded to an OpenShift binary build.
+     * Can be "none", "gzip" or "bzip2". Only used when the build archive is streamed.
+     */
+    @Parameter(property = "fabric8.build.archiveCompression", defaultValue = "none")
+    private ArchiveCompression buildArchiveCompression = ArchiveCompression.none;
+
+    /**
+     * Skip an OpenShift build when the content of the build archive and the BuildConfig are
+     * the same as for the last successful build and reuse the image created by this build.
+     * For JIB builds an existing image built from the same input is tagged instead of building it again.
+     * The input of a JIB build includes the manifest digest of the base image, which is looked up in its
+     * registry, so that a moved tag of the base image causes a rebuild. The image is always built
+     * when this lookup fails.
+     */
+    @Parameter(property = "fabric8.build.skipUnchanged", defaultValue = "false")
+    private boolean skipUnchangedBuild = false;
+
+    /**
+     * Directory in which the image tarballs of JIB builds are indexed by their build input,
+     * when unchanged builds are skipped. Defaults to the directory <code>image-index</code> in the JIB cache.
+     */
+    @Parameter(property = "fabric8.build.jib.imageIndex")
+    private File jibImageIndexDirectory;
+
+    /**
+     * Directory holding the layers of base images and applications which are shared by all JIB builds
+     */
+    @Parameter(property = "fabric8.build.jib.cacheDirectory", defaultValue = "${user.home}/.fabric8/jib-cache")
+    private File jibCacheDirectory;
+
+    /**
+     * Maximum size of the JIB cache in MB. When the cache grows larger the least recently used
+     * layers are removed. 0 for no limit.
+     */
+    @Parameter(property = "fabric8.build.jib.cacheMaxSize", defaultValue = "5120")
+    private long jibCacheMaxSize;
+
+    /**
+     * Maximum number of JIB builds running at the same time in a session, 0 for the number of available processors
+     */
+    @Parameter(property = "fabric8.build.jib.threads", defaultValue = "0")
+    private int jibThreads;
+
+    /**
+     * Run the OpenShift builds of all images of this project concurrently instead of
+     * one after another. Only used in OpenShift mode.
+     */
+    @Parameter(property = "fabric8.build.concurrent", defaultValue = "false")
+    private boolean concurrentBuild = false;
+
     /**
      * Should we use the project's compile-time classpath to scan for additional enrichers/generators?
      */
@@ -203,6 +309,9 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
     @Component
     protected JibAssemblyManager jibAssemblyManager;
 
+    @Component
+    protected JibCacheManager jibCacheManager;
+
     @Parameter
     protected ClusterConfiguration access;
 
@@ -215,14 +324,23 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
     // Mode which is resolved, also when 'auto' is set
     private RuntimeMode runtimeMode;
 
+    // Images collected for building them all at once when building concurrently
+    private List<ImageConfiguration> imagesToBuild;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         if (skip || skipBuild) {
             return;
         }
         clusterAccess = new ClusterAccess(getClusterConfiguration());
+        processorProfiler = new ProcessorProfiler(profileProcessors);
         // Platform mode is already used in executeInternal()
-        super.execute();
+        try {
+            super.execute();
+        } finally {
+            clusterAccess.reportMetrics(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
+            processorProfiler.report(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
+        }
 
     }
 
@@ -256,6 +374,12 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
 
             List<ImageConfiguration> resolvedImages = getResolvedImages();
 
+            if (isJib) {
+                jibCacheManager.configure(session.getRequest(), jibCacheDirectory, jibCacheMaxSize * 1024 * 1024, jibThreads);
+                SessionEndListener.install(session, CacheStatisticsLogger.class,
+                                           listener -> new CacheStatisticsLogger(listener, jibCacheManager, log));
+            }
+
             // Build the fabric8 service hub
             fabric8ServiceHub = new Fabric8ServiceHub.Builder()
                         .log(log)
@@ -267,12 +391,17 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
                         .repositorySystem(repositorySystem)
                         .mavenProject(project)
                         .assemblyManager(jibAssemblyManager)
+                        .jibCacheManager(jibCacheManager)
                         .build();
 
             if (isJib) {
                 for (ImageConfiguration imageConfig : resolvedImages) {
                     buildAndTag(null, imageConfig);
                 }
+            } else if (isConcurrentBuild()) {
+                imagesToBuild = new ArrayList<>();
+                super.executeInternal(hub);
+                buildImages(imagesToBuild);
             } else {
                 super.executeInternal(hub);
             }
@@ -280,6 +409,8 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
             logFabric8MavenPluginDeprecation(log, logDeprecationWarning);
         } catch(IOException e) {
             throw new MojoExecutionException(e.getMessage());
+        } catch (Fabric8ServiceException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
         }
     }
 
@@ -311,17 +442,41 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
             // TODO need to refactor d-m-p to avoid this call
             EnvUtil.storeTimestamp(this.getBuildTimestampFile(), this.getBuildTimestamp());
 
+            if (imagesToBuild != null) {
+                // Built later together with all other images
+                imagesToBuild.add(imageConfig);
+                return;
+            }
             fabric8ServiceHub.getBuildService().build(imageConfig);
 
         } catch (Exception ex) {
-            if (ex.getCause() != null) {
-                throw new MojoExecutionException("Failed to execute the build: " + ex.getCause());
-            } else {
-                throw new MojoExecutionException("Failed to execute the build: " + ex);
-            }
+            throw buildFailure(ex);
+        }
+    }
+
+    private void buildImages(List<ImageConfiguration> imageConfigs) throws MojoExecutionException {
+        if (imageConfigs.isEmpty()) {
+            return;
+        }
+        try {
+            fabric8ServiceHub.getBuildService().build(imageConfigs);
+        } catch (Exception ex) {
+            throw buildFailure(ex);
+        }
+    }
+
+    private MojoExecutionException buildFailure(Exception ex) {
+        if (ex.getCause() != null) {
+            return new MojoExecutionException("Failed to execute the build: " + ex.getCause());
+        } else {
+            return new MojoExecutionException("Failed to execute the build: " + ex);
         }
     }
 
+    private boolean isConcurrentBuild() {
+        return concurrentBuild && runtimeMode == RuntimeMode.openshift;
+    }
+
     protected BuildService.BuildServiceConfig getBuildServiceConfig() throws MojoExecutionException {
         return new io.fabric8.maven.core.service.BuildService.BuildServiceConfig.Builder()
                 .dockerBuildContext(getBuildContext())
@@ -332,6 +487,14 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
                 .s2iBuildNameSuffix(s2iBuildNameSuffix)
                 .s2iImageStreamLookupPolicyLocal(s2iImageStreamLookupPolicyLocal)
                 .forcePullEnabled(forcePull)
+                .streamBuildArchive(streamBuildArchive)
+                .buildArchiveCompression(buildArchiveCompression)
+                .skipUnchangedBuild(skipUnchangedBuild)
+                .jibLayers(jibLayers)
+                .jibBuildTarget(jibBuildTarget)
+                .pushRegistryConfig(getRegistryConfig(pushRegistry))
+                .reproducibleBuild(isReproducibleBuild())
+                .jibImageIndexDirectory(jibImageIndexDirectory)
                 .imagePullManager(getImagePullManager(imagePullPolicy, autoPull))
                 .buildDirectory(project.getBuild().getDirectory())
                 .resourceDir(ResourceDirCreator.getFinalResourceDir(resourceDir, environment))
@@ -344,7 +507,7 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
                 .enricherTask(new Task<KubernetesListBuilder>() {
                     @Override
                     public void execute(KubernetesListBuilder builder) throws Exception {
-                        EnricherManager enricherManager = new EnricherManager(resources, getEnricherContext(), MavenUtil.getCompileClasspathElementsIfRequested(project, useProjectClasspath));
+                        EnricherManager enricherManager = new EnricherManager(resources, getEnricherContext(), MavenUtil.getCompileClasspathElementsIfRequested(project, useProjectClasspath), processorProfiler);
                         enricherManager.enrich(PlatformMode.kubernetes, builder);
                         enricherManager.enrich(PlatformMode.openshift, builder);
                     }
@@ -379,7 +542,7 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
         }
 
         try {
-            return GeneratorManager.generate(configs, getGeneratorContext(), false);
+            return GeneratorManager.generate(configs, getGeneratorContext(), false, processorProfiler);
         } catch (MojoExecutionException e) {
             throw new IllegalArgumentException("Cannot extract generator config: " + e, e);
         }
@@ -413,10 +576,15 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
                 .runtimeMode(runtimeMode)
                 .strategy(buildStrategy)
                 .useProjectClasspath(useProjectClasspath)
+                .reproducibleBuild(isReproducibleBuild())
                 .artifactResolver(getFabric8ServiceHub().getArtifactResolverService())
                 .build();
     }
 
+    private boolean isReproducibleBuild() {
+        return reproducibleBuild || ReproducibleBuildUtil.isReproducibleBuild(project);
+    }
+
     // Get enricher context
     public EnricherContext getEnricherContext() {
         return new MavenEnricherContext.Builder()
@@ -456,4 +624,24 @@ public class BuildMojo extends io.fabric8.maven.docker.BuildMojo {
             throw new IllegalArgumentException("Cannot extract generator config: " + e,e);
         }
     }
+
+    /**
+     * Prints the JIB cache statistics once all modules of the session have been built
+     */
+    static class CacheStatisticsLogger extends SessionEndListener {
+
+        private final JibCacheManager jibCacheManager;
+        private final Logger log;
+
+        CacheStatisticsLogger(ExecutionListener delegate, JibCacheManager jibCacheManager, Logger log) {
+            super(delegate);
+            this.jibCacheManager = jibCacheManager;
+            this.log = log;
+        }
+
+        @Override
+        protected void onSessionEnd(MavenSession session) {
+            jibCacheManager.logStatistics(log);
+        }
+    }
 }
@@ -19,6 +19,7 @@ package io.fabric8.maven.plugin.mojo.build;
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.RuntimeMode;
+import io.fabric8.maven.core.service.kubernetes.jib.JibCacheManager;
 import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.util.ProfileUtil;
 import io.fabric8.maven.docker.AbstractDockerMojo;
@@ -30,6 +31,7 @@ import io.fabric8.maven.plugin.generator.GeneratorManager;
 import io.fabric8.maven.plugin.mojo.ResourceDirCreator;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -126,6 +128,9 @@ public class PushMojo extends AbstractDockerMojo {
     @Parameter(property = "fabric8.logDeprecationWarning", defaultValue = "true")
     protected boolean logDeprecationWarning;
 
+    @Component
+    protected JibCacheManager jibCacheManager;
+
     @Override
     protected String getLogPrefix() {
         return "F8> ";
@@ -170,7 +175,7 @@ public class PushMojo extends AbstractDockerMojo {
 
         if (isJibMode()) {
             for (ImageConfiguration imageConfiguration : getResolvedImages()) {
-                jibPush(imageConfiguration, project, getRegistryConfig(fabric8PushRegistry), fabric8OutputDirectory, log);
+                jibPush(imageConfiguration, project, getRegistryConfig(fabric8PushRegistry), fabric8OutputDirectory, jibCacheManager, log);
             }
         } else {
             hub.getRegistryService().pushImages(getResolvedImages(), retries, getRegistryConfig(fabric8PushRegistry), skipTag);
@@ -23,7 +23,8 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 /**
  * This goal forks the compile goal then applies the generated kubernetes resources to the current cluster.
  *
- * Note that the fabric8:resource goal must be bound to the proper execution phases.
+ * Note that the fabric8:resource goal must be bound to the proper execution phases. The resources it generates
+ * are handed over in memory, while their manifests are written in the background.
  *
  * @author roland
  * @since 09/06/16
@@ -27,7 +27,11 @@ import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.Profile;
 import io.fabric8.maven.core.config.ResourceConfig;
 import io.fabric8.maven.core.config.RuntimeMode;
+import io.fabric8.maven.core.service.Fabric8ServiceException;
+import io.fabric8.maven.core.service.ResourceHandoff;
 import io.fabric8.maven.core.util.MavenUtil;
+import io.fabric8.maven.core.util.ParallelUtil;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.core.util.ProfileUtil;
 import io.fabric8.maven.core.util.ResourceClassifier;
 import io.fabric8.maven.core.util.ResourceFileType;
@@ -50,6 +54,8 @@ import io.fabric8.maven.plugin.mojo.ResourceDirCreator;
 import io.fabric8.openshift.api.model.Template;
 import javax.validation.ConstraintViolationException;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -66,11 +72,14 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import static io.fabric8.maven.core.util.ResourceFileType.yaml;
 import static io.fabric8.maven.plugin.mojo.build.ApplyMojo.DEFAULT_OPENSHIFT_MANIFEST;
@@ -93,6 +102,11 @@ public class ResourceMojo extends AbstractFabric8Mojo {
     // THe key how we got the the docker maven plugin
     private static final String DOCKER_MAVEN_PLUGIN_KEY = "io.fabric8:docker-maven-plugin";
     private static final String DOCKER_IMAGE_USER = "docker.image.user";
+
+    // Phases which may run before resource-apply without reading the manifests
+    private static final Set<String> PHASES_BEFORE_RESOURCE_APPLY = new HashSet<>(Arrays.asList(
+        "pre-clean", "clean", "post-clean", "validate", "initialize", "generate-sources", "process-sources",
+        "generate-resources", "process-resources", "compile"));
     /**
      * The generated kubernetes and openshift manifests
      */
@@ -182,6 +196,15 @@ public class ResourceMojo extends AbstractFabric8Mojo {
     @Parameter(property = "fabric8.profile")
     private String profile;
 
+    /**
+     * Measure wall time, CPU time and allocations of each enricher and generator, log them and write them
+     * to <code>target/fabric8/processor-profile.json</code>
+     */
+    @Parameter(property = "fabric8.profiler", defaultValue = "false")
+    private boolean profileProcessors;
+
+    private ProcessorProfiler processorProfiler = ProcessorProfiler.DISABLED;
+
     /**
      * The generated openshift YAML file
      */
@@ -292,17 +315,39 @@ public class ResourceMojo extends AbstractFabric8Mojo {
     @Parameter(property = "fabric8.mergeWithDekorate", defaultValue = "false")
     private Boolean mergeWithDekorate;
 
+    /**
+     * Hand the generated resources directly to fabric8:resource-apply and write the manifests in the
+     * background while the resources are applied
+     */
+    @Parameter(property = "fabric8.apply.inMemory", defaultValue = "true")
+    private boolean applyInMemory;
+
+    // Skipped applies never take the resources, so these are only handed over if the apply is not skipped
+    @Parameter(property = "fabric8.skip.apply", defaultValue = "false")
+    private boolean skipApply;
+
     @Component
     private MavenProjectHelper projectHelper;
 
+    @Component
+    private ResourceHandoff resourceHandoff;
+
     // resourceDir when environment has been applied
     private File realResourceDir;
 
     // resourceDirOpenShiftOverride when environment has been applied
     private File realResourceDirOpenShiftOverride;
 
+    // Kind to filename type mappings configured for this execution
+    private Map<String, List<String>> kindFilenameMappings = Collections.emptyMap();
+
     public static File writeResourcesIndividualAndComposite(KubernetesList resources, File resourceFileBase,
         ResourceFileType resourceFileType, Logger log) throws MojoExecutionException {
+        return writeResourcesIndividualAndComposite(resources, resourceFileBase, resourceFileType, Collections.emptyMap(), log);
+    }
+
+    public static File writeResourcesIndividualAndComposite(KubernetesList resources, File resourceFileBase,
+        ResourceFileType resourceFileType, Map<String, List<String>> kindFilenameMappings, Logger log) throws MojoExecutionException {
 
         //Creating a new items list. This will be used to generate openshift.yml
         List<HasMetadata> newItemList = new ArrayList<>();
@@ -324,7 +369,7 @@ public class ResourceMojo extends AbstractFabric8Mojo {
 
         // write separate files, one for each resource item
         // resources passed to writeIndividualResources is also new one.
-        writeIndividualResources(resources, resourceFileBase, resourceFileType, log);
+        writeIndividualResources(resources, resourceFileBase, resourceFileType, kindFilenameMappings, log);
         return file;
     }
 
@@ -345,7 +390,8 @@ public class ResourceMojo extends AbstractFabric8Mojo {
 
         realResourceDir = ResourceDirCreator.getFinalResourceDir(resourceDir, environment);
         realResourceDirOpenShiftOverride = ResourceDirCreator.getFinalResourceDir(resourceDirOpenShiftOverride, environment);
-        updateKindFilenameMappings();
+        kindFilenameMappings = getKindFilenameMappings();
+        processorProfiler = new ProcessorProfiler(profileProcessors);
         try {
             lateInit();
             // Resolve the Docker image build configuration
@@ -353,24 +399,74 @@ public class ResourceMojo extends AbstractFabric8Mojo {
             if (!skip && (!isPomProject() || hasFabric8Dir())) {
                 // Extract and generate resources which can be a mix of Kubernetes and OpenShift resources
                 KubernetesList resources;
+                ResourceHandoff.ModuleResources handoff = null;
+                if (isFollowedByResourceApply()) {
+                    awaitWrittenAtSessionEnd();
+                    handoff = resourceHandoff.open(session.getRequest(), project.getId());
+                }
                 for(PlatformMode platformMode : new PlatformMode[] { PlatformMode.kubernetes, PlatformMode.openshift }) {
                     ResourceClassifier resourceClassifier = platformMode == PlatformMode.kubernetes ? ResourceClassifier.KUBERNETES
                             : ResourceClassifier.OPENSHIFT;
 
                     resources = generateResources(platformMode);
-                    writeResources(resources, resourceClassifier);
-                    File resourceDir = new File(this.targetDir, resourceClassifier.getValue());
-                    validateIfRequired(resourceDir, resourceClassifier);
+                    if (handoff != null) {
+                        handOver(handoff, resources, resourceClassifier);
+                    } else {
+                        writeResources(resources, resourceClassifier);
+                        File resourceDir = new File(this.targetDir, resourceClassifier.getValue());
+                        validateIfRequired(resourceDir, resourceClassifier);
+                    }
                 }
             }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to generate fabric8 descriptor", e);
+        } catch (Fabric8ServiceException e) {
+            throw new MojoExecutionException("Failed to write fabric8 descriptor", e);
+        } finally {
+            processorProfiler.report(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
+        }
+    }
+
+    // The manifests are only written in the background if nothing but resource-apply reads them before
+    // the write is awaited. Failing on validation errors needs the manifests to be written before applying them.
+    private boolean isFollowedByResourceApply() {
+        if (!applyInMemory || skipApply || (failOnValidationError && !skipResourceValidation)) {
+            return false;
+        }
+        for (String goal : session.getGoals()) {
+            if (goal.endsWith(":resource-apply")) {
+                return true;
+            }
+            if (!PHASES_BEFORE_RESOURCE_APPLY.contains(goal)) {
+                return false;
+            }
         }
+        return false;
+    }
+
+    // The resources are taken by resource-apply, unless it doesn't run or fails before taking them.
+    // The manifests of resources never taken are awaited at the end of the session so that write failures fail the build.
+    private void awaitWrittenAtSessionEnd() {
+        SessionEndListener.install(session, HandoffCheck.class, listener -> new HandoffCheck(listener, resourceHandoff));
     }
 
-    private void updateKindFilenameMappings() {
+    private void handOver(ResourceHandoff.ModuleResources handoff, KubernetesList resources, ResourceClassifier classifier) {
+        File resourceFileBase = new File(this.targetDir, classifier.getValue());
+        File manifest = this.resourceFileType.addExtensionIfMissing(resourceFileBase);
+        // Templates get processed when loaded from the manifest, so these are applied from the written manifest only.
+        // The resources are copied so that the apply goal can't change them while they are written.
+        KubernetesList handedOver = findTemplate(resources) == null ? new KubernetesListBuilder(resources).build() : null;
+        handoff.add(classifier, manifest, handedOver, () -> {
+            writeManifests(resources, classifier);
+            validateIfRequired(resourceFileBase, classifier);
+            return null;
+        });
+        projectHelper.attachArtifact(project, this.resourceFileType.getArtifactType(), classifier.getValue(), manifest);
+    }
+
+    private Map<String, List<String>> getKindFilenameMappings() {
+        final Map<String, List<String>> mappingKindFilename = new HashMap<>();
         if (mappings != null) {
-            final Map<String, List<String>> mappingKindFilename = new HashMap<>();
             for (MappingConfig mappingConfig : this.mappings) {
                 if (mappingConfig.isValid()) {
                     mappingKindFilename.put(mappingConfig.getKind(), Arrays.asList(mappingConfig.getFilenamesAsArray()));
@@ -379,8 +475,8 @@ public class ResourceMojo extends AbstractFabric8Mojo {
                         mappingConfig.getKind(), mappingConfig.getFilenameTypes()));
                 }
             }
-            KubernetesResourceUtil.updateKindFilenameMapper(mappingKindFilename);
         }
+        return mappingKindFilename;
     }
 
     private void validateIfRequired(File resourceDir, ResourceClassifier classifier)
@@ -408,7 +504,8 @@ public class ResourceMojo extends AbstractFabric8Mojo {
 
     private void lateInit() {
         ClusterAccess clusterAccess = new ClusterAccess(getClusterConfiguration());
-        runtimeMode = new ClusterAccess(getClusterConfiguration()).resolveRuntimeMode(runtimeMode, log);
+        runtimeMode = clusterAccess.resolveRuntimeMode(runtimeMode, log);
+        reportClusterMetrics(clusterAccess);
         if (runtimeMode.equals(RuntimeMode.openshift)) {
             Properties properties = project.getProperties();
             if (!properties.contains(DOCKER_IMAGE_USER)) {
@@ -446,7 +543,7 @@ public class ResourceMojo extends AbstractFabric8Mojo {
                 .log(log);
 
         EnricherManager enricherManager = new EnricherManager(resources, ctxBuilder.build(),
-            MavenUtil.getCompileClasspathElementsIfRequested(project, useProjectClasspath));
+            MavenUtil.getCompileClasspathElementsIfRequested(project, useProjectClasspath), processorProfiler);
 
         // Generate all resources from the main resource directory, configuration and create them accordingly
         KubernetesListBuilder builder = generateAppResources(platformMode, enricherManager);
@@ -524,7 +621,8 @@ public class ResourceMojo extends AbstractFabric8Mojo {
             platformMode,
             KubernetesResourceUtil.DEFAULT_RESOURCE_VERSIONING,
             defaultName,
-            mavenFilterFiles(resourceFiles, this.workDir));
+            mavenFilterFiles(resourceFiles, this.workDir),
+            kindFilenameMappings);
         return builder;
     }
 
@@ -556,7 +654,7 @@ public class ResourceMojo extends AbstractFabric8Mojo {
                                 .strategy(buildStrategy)
                                 .useProjectClasspath(useProjectClasspath)
                                 .build();
-                        return GeneratorManager.generate(configs, ctx, true);
+                        return GeneratorManager.generate(configs, ctx, true, processorProfiler);
                     } catch (Exception e) {
                         throw new IllegalArgumentException("Cannot extract generator: " + e, e);
                     }
@@ -594,20 +692,19 @@ public class ResourceMojo extends AbstractFabric8Mojo {
                 throw new MojoExecutionException("Cannot create working dir " + outDir);
             }
         }
-        File[] ret = new File[resourceFiles.length];
-        int i = 0;
-        for (File resource : resourceFiles) {
+        // Each file is filtered on its own, so they are filtered in parallel
+        List<File> ret = ParallelUtil.map(Arrays.asList(resourceFiles), resource -> {
             File targetFile = new File(outDir, resource.getName());
             try {
                 mavenFileFilter.copyFile(resource, targetFile, true,
                     project, null, false, "utf8", session);
-                ret[i++] = targetFile;
+                return targetFile;
             } catch (MavenFilteringException exp) {
                 throw new MojoExecutionException(
                     String.format("Cannot filter %s to %s", resource, targetFile), exp);
             }
-        }
-        return ret;
+        });
+        return ret.toArray(new File[0]);
     }
 
     private boolean hasFabric8Dir() {
@@ -620,18 +717,23 @@ public class ResourceMojo extends AbstractFabric8Mojo {
 
     protected void writeResources(KubernetesList resources, ResourceClassifier classifier)
         throws MojoExecutionException {
+        File file = writeManifests(resources, classifier);
+
+        // Attach it to the Maven reactor so that it will also get deployed
+        projectHelper.attachArtifact(project, this.resourceFileType.getArtifactType(), classifier.getValue(), file);
+    }
+
+    private File writeManifests(KubernetesList resources, ResourceClassifier classifier) throws MojoExecutionException {
         // write kubernetes.yml / openshift.yml
         File resourceFileBase = new File(this.targetDir, classifier.getValue());
 
         File file =
-            writeResourcesIndividualAndComposite(resources, resourceFileBase, this.resourceFileType, log);
+            writeResourcesIndividualAndComposite(resources, resourceFileBase, this.resourceFileType, kindFilenameMappings, log);
         // Resolve template placeholders
         if (classifier == ResourceClassifier.KUBERNETES) {
             resolveTemplateVariablesIfAny(resources);
         }
-
-        // Attach it to the Maven reactor so that it will also get deployed
-        projectHelper.attachArtifact(project, this.resourceFileType.getArtifactType(), classifier.getValue(), file);
+        return file;
     }
 
     private void resolveTemplateVariablesIfAny(KubernetesList resources) throws MojoExecutionException {
@@ -684,4 +786,30 @@ public class ResourceMojo extends AbstractFabric8Mojo {
         return clusterConfigurationBuilder.from(System.getProperties())
                 .from(project.getProperties()).build();
     }
+
+    /**
+     * Listener waiting at the end of the session for the manifests of resources which have been handed over,
+     * but never taken by resource-apply
+     */
+    static class HandoffCheck extends SessionEndListener {
+
+        private final ResourceHandoff resourceHandoff;
+
+        HandoffCheck(ExecutionListener delegate, ResourceHandoff resourceHandoff) {
+            super(delegate);
+            this.resourceHandoff = resourceHandoff;
+        }
+
+        @Override
+        protected void onSessionEnd(MavenSession session) {
+            for (Map.Entry<String, ResourceHandoff.ModuleResources> entry : resourceHandoff.takeAll(session.getRequest()).entrySet()) {
+                try {
+                    entry.getValue().awaitWritten();
+                } catch (Fabric8ServiceException e) {
+                    session.getResult().addException(new MojoExecutionException(
+                        "Failed to write the generated manifests of " + entry.getKey() + ": " + e.getMessage(), e));
+                }
+            }
+        }
+    }
 }
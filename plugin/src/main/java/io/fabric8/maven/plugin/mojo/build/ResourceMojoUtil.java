@@ -32,6 +32,7 @@ import org.apache.maven.project.MavenProject;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 class ResourceMojoUtil {
 
@@ -66,14 +67,14 @@ class ResourceMojoUtil {
     }
 
     static void writeIndividualResources(KubernetesList resources, File targetDir,
-        ResourceFileType resourceFileType, Logger log) throws MojoExecutionException {
+        ResourceFileType resourceFileType, Map<String, List<String>> kindFilenameMappings, Logger log) throws MojoExecutionException {
         for (HasMetadata item : resources.getItems()) {
             String name = KubernetesHelper.getName(item);
             if (StringUtils.isBlank(name)) {
                 log.error("No name for generated item %s", item);
                 continue;
             }
-            String itemFile = KubernetesResourceUtil.getNameWithSuffix(name, item.getKind());
+            String itemFile = KubernetesResourceUtil.getNameWithSuffix(name, item.getKind(), kindFilenameMappings);
 
             File itemTarget = new File(targetDir, itemFile);
             writeResource(itemTarget, item, resourceFileType);
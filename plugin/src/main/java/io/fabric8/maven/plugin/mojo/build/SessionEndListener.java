@@ -0,0 +1,186 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.plugin.mojo.build;
+
+import java.util.function.Function;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Execution listener doing a check or report at the end of the session. It is chained in front of the listener
+ * of the session, to which all events are passed on.
+ *
+ * Exceptions added to the result of the session before the session end is passed on fail the build.
+ */
+abstract class SessionEndListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+
+    SessionEndListener(ExecutionListener delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Install a listener once per session. The request is shared by all modules of the session,
+     * also when they are built in parallel.
+     *
+     * @param session the session
+     * @param type type of the listener, nothing is installed if a listener of this type is already chained
+     * @param factory creates the listener from the listener to which it passes on the events
+     */
+    static void install(MavenSession session, Class<? extends SessionEndListener> type,
+                        Function<ExecutionListener, SessionEndListener> factory) {
+        MavenExecutionRequest request = session.getRequest();
+        synchronized (request) {
+            ExecutionListener listener = request.getExecutionListener();
+            for (ExecutionListener chained = listener; chained instanceof SessionEndListener;
+                 chained = ((SessionEndListener) chained).delegate) {
+                if (type.isInstance(chained)) {
+                    return;
+                }
+            }
+            request.setExecutionListener(factory.apply(listener));
+        }
+    }
+
+    /**
+     * Check or report at the end of the session. Exceptions added to the result of the session fail the build.
+     */
+    protected abstract void onSessionEnd(MavenSession session);
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        onSessionEnd(event.getSession());
+        if (delegate != null) {
+            delegate.sessionEnded(event);
+        }
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectDiscoveryStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionStarted(event);
+        }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSkipped(event);
+        }
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectStarted(event);
+        }
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectFailed(event);
+        }
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSkipped(event);
+        }
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoStarted(event);
+        }
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSucceeded(event);
+        }
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoFailed(event);
+        }
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkStarted(event);
+        }
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkFailed(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectStarted(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectFailed(event);
+        }
+    }
+}
@@ -92,6 +92,11 @@ public class DebugMojo extends ApplyMojo {
         portForwardService = new PortForwardService(kubernetes, log);
     }
 
+    @Override
+    protected boolean isAggregateSupported() {
+        return false;
+    }
+
     protected void applyEntities(KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
         LabelSelector firstSelector = null;
         for (HasMetadata entity : entities) {
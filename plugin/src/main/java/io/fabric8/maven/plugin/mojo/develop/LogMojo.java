@@ -42,6 +42,11 @@ public class LogMojo extends ApplyMojo {
     @Parameter(property = "fabric8.log.pod")
     private String podName;
 
+    @Override
+    protected boolean isAggregateSupported() {
+        return false;
+    }
+
     @Override
     protected void applyEntities(final KubernetesClient kubernetes, final String namespace, String fileName, final Set<HasMetadata> entities) throws Exception {
         getLogService().tailAppPodsLogs(kubernetes, namespace, entities, false, null, followLog, null, true);
@@ -20,13 +20,13 @@ import java.util.Set;
 
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.maven.core.service.UndeployService;
 import io.fabric8.maven.plugin.mojo.build.ApplyMojo;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
-import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.deleteEntities;
-
 /**
  * Undeploys (deletes) the kubernetes resources generated by the current project.
  * <br>
@@ -34,10 +34,22 @@ import static io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil.deleteE
  */
 @Mojo(name = "undeploy", requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.INSTALL)
 public class UndeployMojo extends ApplyMojo {
+
+    /**
+     * Number of seconds to wait until the pods of the project are deleted. If 0, don't wait.
+     */
+    @Parameter(property = "fabric8.undeploy.waitSeconds", defaultValue = "0")
+    private long undeployWaitSeconds;
+
+    @Override
+    protected boolean isAggregateSupported() {
+        return false;
+    }
+
     @Override
     protected void applyEntities(KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
         deleteCustomEntities(kubernetes, namespace, resources != null ? resources.getCrdContexts() : null);
-        deleteEntities(kubernetes, namespace, entities, s2iBuildNameSuffix, log);
+        new UndeployService(kubernetes, log).undeploy(namespace, entities, s2iBuildNameSuffix, undeployWaitSeconds);
     }
 
     private void deleteCustomEntities(KubernetesClient kubernetes, String namespace, List<String> customResourceDefinitions) throws Exception {
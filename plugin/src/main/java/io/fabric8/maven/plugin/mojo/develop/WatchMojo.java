@@ -20,11 +20,16 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.maven.core.access.ClusterAccess;
 import io.fabric8.maven.core.access.ClusterConfiguration;
+import io.fabric8.maven.core.config.JibBuildTarget;
 import io.fabric8.maven.core.config.OpenShiftBuildStrategy;
 import io.fabric8.maven.core.config.RuntimeMode;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.service.Fabric8ServiceHub;
+import io.fabric8.maven.core.service.kubernetes.jib.JibAssemblyManager;
+import io.fabric8.maven.core.service.kubernetes.jib.JibCacheManager;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.core.util.ProfileUtil;
+import io.fabric8.maven.core.util.ReproducibleBuildUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
 import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
 import io.fabric8.maven.docker.config.ImageConfiguration;
@@ -128,6 +133,15 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
     @Parameter(property = "fabric8.profile")
     private String profile;
 
+    /**
+     * Measure wall time, CPU time and allocations of each generator and of the watcher, log them and write them
+     * to <code>target/fabric8/processor-profile.json</code>
+     */
+    @Parameter(property = "fabric8.profiler", defaultValue = "false")
+    private boolean profileProcessors;
+
+    private ProcessorProfiler processorProfiler = ProcessorProfiler.DISABLED;
+
     /**
      * Folder where to find project specific files, e.g a custom profile
      */
@@ -148,9 +162,37 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
     @Parameter(property = "fabric8.verbose", defaultValue = "false")
     protected String verbose;
 
+    /**
+     * Rebuild images with JIB instead of a Docker daemon. The rebuilt image is pushed to the
+     * registry from which the cluster pulls it, unchanged layers are taken from the JIB cache.
+     */
+    @Parameter(property = "fabric8.build.jib", defaultValue = "false")
+    private boolean isJib;
+
+    @Parameter(property = "fabric8.build.jib.layers")
+    private List<String> jibLayers;
+
+    @Parameter(property = "fabric8.build.jib.cacheDirectory", defaultValue = "${user.home}/.fabric8/jib-cache")
+    private File jibCacheDirectory;
+
+    @Parameter(property = "fabric8.build.jib.cacheMaxSize", defaultValue = "5120")
+    private long jibCacheMaxSize;
+
+    /**
+     * Registry to push JIB images to
+     */
+    @Parameter(property = "docker.push.registry")
+    private String pushRegistry;
+
     @Component
     protected RepositorySystem repositorySystem;
 
+    @Component
+    protected JibAssemblyManager jibAssemblyManager;
+
+    @Component
+    protected JibCacheManager jibCacheManager;
+
     private ClusterAccess clusterAccess;
     private KubernetesClient kubernetes;
     private ServiceHub hub;
@@ -164,14 +206,25 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
         log = new AnsiLogger(getLog(), useColor, verbose, !settings.getInteractiveMode(), getLogPrefix());
         clusterAccess = new ClusterAccess(getClusterConfiguration());
         kubernetes = clusterAccess.createDefaultClient(log);
+        processorProfiler = new ProcessorProfiler(profileProcessors);
 
-        if(clusterAccess.resolveRuntimeMode(mode, log).equals(RuntimeMode.kubernetes)) {
-            super.execute();
-        } else {
-            executeInternal(null);
+        try {
+            if (clusterAccess.resolveRuntimeMode(mode, log).equals(RuntimeMode.kubernetes)) {
+                super.execute();
+            } else {
+                executeInternal(null);
+            }
+        } finally {
+            clusterAccess.reportMetrics(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
+            processorProfiler.report(new File(project.getBuild().getDirectory()), execution.getGoal(), log);
         }
     }
 
+    @Override
+    protected boolean isDockerAccessRequired() {
+        return !isJib;
+    }
+
     protected ClusterConfiguration getClusterConfiguration() {
         if(access == null) {
             access = new ClusterConfiguration.Builder().build();
@@ -203,7 +256,7 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
             Set<HasMetadata> resources = KubernetesResourceUtil.loadResources(manifest);
             WatcherContext context = getWatcherContext();
 
-            WatcherManager.watch(getResolvedImages(), resources, context);
+            WatcherManager.watch(getResolvedImages(), resources, context, processorProfiler);
 
         } catch (KubernetesClientException ex) {
             KubernetesResourceUtil.handleKubernetesClientException(ex, this.log);
@@ -238,15 +291,28 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
         }
     }
 
-    protected Fabric8ServiceHub getFabric8ServiceHub() {
-        return new Fabric8ServiceHub.Builder()
+    protected Fabric8ServiceHub getFabric8ServiceHub() throws MojoExecutionException {
+        Fabric8ServiceHub.Builder builder = new Fabric8ServiceHub.Builder()
                 .log(log)
                 .clusterAccess(clusterAccess)
                 .dockerServiceHub(hub)
                 .platformMode(mode)
                 .repositorySystem(repositorySystem)
-                .mavenProject(project)
-                .build();
+                .mavenProject(project);
+        if (isJib) {
+            jibCacheManager.configure(session.getRequest(), jibCacheDirectory, jibCacheMaxSize * 1024 * 1024, 0);
+            builder.isJibMode(true)
+                   .assemblyManager(jibAssemblyManager)
+                   .jibCacheManager(jibCacheManager)
+                   .buildServiceConfig(new io.fabric8.maven.core.service.BuildService.BuildServiceConfig.Builder()
+                       .dockerMojoParameters(createMojoParameters())
+                       .jibLayers(jibLayers)
+                       .jibBuildTarget(JibBuildTarget.registry)
+                       .pushRegistryConfig(getRegistryConfig(pushRegistry))
+                       .buildDirectory(project.getBuild().getDirectory())
+                       .build());
+        }
+        return builder.build();
     }
 
     @Override
@@ -260,10 +326,11 @@ public class WatchMojo extends io.fabric8.maven.docker.WatchMojo {
                     .runtimeMode(mode)
                     .strategy(buildStrategy)
                     .useProjectClasspath(useProjectClasspath)
+                    .reproducibleBuild(ReproducibleBuildUtil.isReproducibleBuild(project))
                     .artifactResolver(serviceHub.getArtifactResolverService())
                     .generatorMode(GeneratorMode.WATCH)
                     .build();
-            return GeneratorManager.generate(configs, ctx, false);
+            return GeneratorManager.generate(configs, ctx, false, processorProfiler);
         } catch (MojoExecutionException e) {
             throw new IllegalArgumentException("Cannot extract generator config: " + e, e);
         }
@@ -23,6 +23,7 @@ import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.core.util.PluginServiceFactory;
+import io.fabric8.maven.core.util.ProcessorProfiler;
 import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.util.Logger;
@@ -38,6 +39,11 @@ import io.fabric8.maven.watcher.api.WatcherContext;
 public class WatcherManager {
 
     public static void watch(List<ImageConfiguration> ret, Set<HasMetadata> resources, WatcherContext watcherCtx) throws Exception {
+        watch(ret, resources, watcherCtx, ProcessorProfiler.DISABLED);
+    }
+
+    public static void watch(List<ImageConfiguration> ret, Set<HasMetadata> resources, WatcherContext watcherCtx,
+                             ProcessorProfiler profiler) throws Exception {
 
         PluginServiceFactory<WatcherContext> pluginFactory =
                 watcherCtx.isUseProjectClasspath() ?
@@ -59,7 +65,7 @@ public class WatcherManager {
         log.verbose(Logger.LogVerboseCategory.BUILD, "Watchers:");
         Watcher chosen = null;
         for (Watcher watcher : usableWatchers) {
-            if (watcher.isApplicable(ret, resources, mode)) {
+            if (profiler.profile("watcher", watcher.getName(), "applicable", mode, () -> watcher.isApplicable(ret, resources, mode))) {
                 if (chosen == null) {
                     log.verbose(Logger.LogVerboseCategory.BUILD, " - %s [selected]", watcher.getName());
                     chosen = watcher;
@@ -77,6 +83,10 @@ public class WatcherManager {
 
 
         log.info("Running watcher %s", chosen.getName());
-        chosen.watch(ret, resources, mode);
+        Watcher selected = chosen;
+        profiler.profile("watcher", selected.getName(), "watch", mode, () -> {
+            selected.watch(ret, resources, mode);
+            return null;
+        });
     }
 }
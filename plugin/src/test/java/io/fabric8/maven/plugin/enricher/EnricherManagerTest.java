@@ -24,10 +24,15 @@ import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.model.Configuration;
 import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.enricher.api.Enricher;
 import io.fabric8.maven.enricher.api.MavenEnricherContext;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -36,8 +41,10 @@ import mockit.Mocked;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author roland
@@ -113,4 +120,110 @@ public class EnricherManagerTest {
         assertEquals("fabric8", labels.get("provider"));
     }
 
+    @Test
+    public void prepareOncePerEnricherAndPlatformMode() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        EnricherManager manager = createManager(new RecordingEnricher("a", events), new RecordingEnricher("b", events));
+        ProcessorConfig config = new ProcessorConfig(Arrays.asList("a", "b"), null, null);
+
+        manager.createDefaultResources(PlatformMode.kubernetes, config, new KubernetesListBuilder());
+        manager.enrich(PlatformMode.kubernetes, config, new KubernetesListBuilder());
+        manager.createDefaultResources(PlatformMode.kubernetes, config, new KubernetesListBuilder());
+        manager.createDefaultResources(PlatformMode.openshift, config, new KubernetesListBuilder());
+
+        assertEquals(1, Collections.frequency(events, "prepare a kubernetes"));
+        assertEquals(1, Collections.frequency(events, "prepare b kubernetes"));
+        assertEquals(1, Collections.frequency(events, "prepare a openshift"));
+        assertEquals(1, Collections.frequency(events, "prepare b openshift"));
+        assertEquals(4, events.stream().filter(event -> event.startsWith("prepare")).count());
+    }
+
+    @Test
+    public void prepareBeforeAnyCreate() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        EnricherManager manager = createManager(new RecordingEnricher("a", events), new RecordingEnricher("b", events));
+
+        manager.createDefaultResources(PlatformMode.kubernetes, new ProcessorConfig(Arrays.asList("a", "b"), null, null),
+                                       new KubernetesListBuilder());
+
+        assertEquals(4, events.size());
+        assertTrue(events.subList(0, 2).containsAll(Arrays.asList("prepare a kubernetes", "prepare b kubernetes")));
+        assertEquals(Arrays.asList("create a kubernetes", "create b kubernetes"), events.subList(2, 4));
+    }
+
+    @Test
+    public void filteredOutEnrichersAreNotPrepared() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        EnricherManager manager = createManager(new RecordingEnricher("a", events), new RecordingEnricher("b", events));
+
+        manager.createDefaultResources(PlatformMode.kubernetes, new ProcessorConfig(Arrays.asList("a", "b"), Collections.singleton("b"), null),
+                                       new KubernetesListBuilder());
+
+        assertEquals(Arrays.asList("prepare a kubernetes", "create a kubernetes"), events);
+    }
+
+    @Test
+    public void failingPrepareFailsCreation() throws Exception {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        EnricherManager manager = createManager(new RecordingEnricher("a", events), new RecordingEnricher("b", events) {
+            @Override
+            public void prepare(PlatformMode platformMode) {
+                throw new IllegalStateException("Cannot read b");
+            }
+        });
+
+        try {
+            manager.createDefaultResources(PlatformMode.kubernetes, new ProcessorConfig(Arrays.asList("a", "b"), null, null),
+                                           new KubernetesListBuilder());
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Cannot read b", e.getMessage());
+        }
+        assertFalse(events.stream().anyMatch(event -> event.startsWith("create")));
+    }
+
+    private EnricherManager createManager(Enricher... enrichers) throws ReflectiveOperationException {
+        new Expectations() {{
+            context.getConfiguration();
+            result = new Configuration.Builder()
+                .processorConfig(ProcessorConfig.EMPTY)
+                .build();
+        }};
+        EnricherManager manager = new EnricherManager(null, context, Optional.empty());
+        Field field = EnricherManager.class.getDeclaredField("enrichers");
+        field.setAccessible(true);
+        field.set(manager, Arrays.asList(enrichers));
+        return manager;
+    }
+
+    private static class RecordingEnricher implements Enricher {
+
+        private final String name;
+        private final List<String> events;
+
+        RecordingEnricher(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void prepare(PlatformMode platformMode) {
+            events.add("prepare " + name + " " + platformMode);
+        }
+
+        @Override
+        public void create(PlatformMode platformMode, KubernetesListBuilder builder) {
+            events.add("create " + name + " " + platformMode);
+        }
+
+        @Override
+        public void enrich(PlatformMode platformMode, KubernetesListBuilder builder) {
+            events.add("enrich " + name + " " + platformMode);
+        }
+    }
 }
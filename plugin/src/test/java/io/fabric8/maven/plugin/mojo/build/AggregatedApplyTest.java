@@ -0,0 +1,217 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.plugin.mojo.build;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import io.fabric8.maven.core.service.ApplyAggregator;
+import io.fabric8.maven.core.service.ResourceHandoff;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.descriptor.MojoDescriptor;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AggregatedApplyTest {
+
+    @Mocked
+    private Logger log;
+
+    private PluginDescriptor plugin;
+
+    private MavenExecutionRequest request;
+
+    private Properties userProperties;
+
+    @Before
+    public void setUp() {
+        plugin = new PluginDescriptor();
+        plugin.setGroupId("io.fabric8");
+        plugin.setArtifactId("fabric8-maven-plugin");
+        plugin.setGoalPrefix("fabric8");
+        request = new DefaultMavenExecutionRequest();
+        userProperties = request.getUserProperties();
+    }
+
+    @Test
+    public void lastProjectRunningGoalFromCommandLineApplies() {
+        userProperties.setProperty(AggregatedApply.AGGREGATE_PROPERTY, "true");
+        MavenProject first = createProject("first");
+        MavenProject last = createProject("last");
+        MavenSession session = createSession(Arrays.asList("install", "fabric8:apply"), first, last);
+
+        assertSame(last, AggregatedApply.getApplier(session, first, plugin));
+        assertSame(last, AggregatedApply.getApplier(session, last, plugin));
+        assertEquals(Arrays.asList(first, last), AggregatedApply.getRegisteringProjects(session, plugin));
+    }
+
+    @Test
+    public void projectsWithoutBoundGoalDontApply() {
+        MavenProject first = createProject("first", "resource-apply");
+        MavenProject second = createProject("second", "apply");
+        MavenProject parent = createProject("parent");
+        first.getProperties().setProperty(AggregatedApply.AGGREGATE_PROPERTY, "true");
+        second.getPlugin(plugin.getPluginLookupKey()).setConfiguration(configuration("aggregate", "true"));
+        MavenSession session = createSession(Collections.singletonList("install"), first, second, parent);
+
+        assertSame(second, AggregatedApply.getApplier(session, first, plugin));
+        assertEquals(Arrays.asList(first, second), AggregatedApply.getRegisteringProjects(session, plugin));
+    }
+
+    @Test
+    public void projectsSkippingApplyDontApply() {
+        userProperties.setProperty(AggregatedApply.AGGREGATE_PROPERTY, "true");
+        MavenProject first = createProject("first");
+        MavenProject skipped = createProject("skipped", "apply");
+        MavenProject configured = createProject("configured", "apply");
+        skipped.getProperties().setProperty(AggregatedApply.SKIP_PROPERTY, "true");
+        configured.getPlugin(plugin.getPluginLookupKey()).getExecutions().get(0).setConfiguration(configuration("skipApply", "true"));
+        MavenSession session = createSession(Collections.singletonList("io.fabric8:fabric8-maven-plugin:apply"), first, skipped, configured);
+
+        assertSame(first, AggregatedApply.getApplier(session, first, plugin));
+    }
+
+    @Test
+    public void sessionEndFailsBuildIfManifestsWereNotApplied(@Mocked ExecutionListener delegate, @Mocked ExecutionEvent event) {
+        ApplyAggregator aggregator = new ApplyAggregator();
+        MavenSession session = createSession(Collections.emptyList(), createProject("first"));
+        request.setExecutionListener(delegate);
+        new Expectations() {{
+            event.getSession();
+            result = session;
+        }};
+
+        AggregatedApply.checkAppliedAtSessionEnd(session, aggregator);
+        AggregatedApply.checkAppliedAtSessionEnd(session, aggregator);
+        aggregator.register(request, new ApplyAggregator.ModuleManifests("io.fabric8:first:1.0", null, null, null, null));
+        ExecutionListener check = request.getExecutionListener();
+        check.sessionEnded(event);
+
+        assertTrue(check instanceof AggregatedApply.SessionEndCheck);
+        assertEquals(1, session.getResult().getExceptions().size());
+        assertTrue(session.getResult().getExceptions().get(0).getMessage().contains("io.fabric8:first:1.0"));
+        assertTrue(aggregator.drain(request).isEmpty());
+        new Verifications() {{
+            delegate.sessionEnded(event);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void sessionEndPassesIfManifestsWereApplied(@Mocked ExecutionEvent event) {
+        ApplyAggregator aggregator = new ApplyAggregator();
+        MavenSession session = createSession(Collections.emptyList(), createProject("first"));
+        new Expectations() {{
+            event.getSession();
+            result = session;
+        }};
+
+        AggregatedApply.checkAppliedAtSessionEnd(session, aggregator);
+        aggregator.register(request, new ApplyAggregator.ModuleManifests("io.fabric8:first:1.0", null, null, null, null));
+        aggregator.drain(request);
+        request.getExecutionListener().sessionEnded(event);
+
+        assertFalse(session.getResult().hasExceptions());
+    }
+
+    @Test
+    public void moduleBeforeApplierOnlyRegisters() throws Exception {
+        userProperties.setProperty(AggregatedApply.AGGREGATE_PROPERTY, "true");
+        MavenProject first = createProject("first");
+        MavenProject last = createProject("last");
+        MavenSession mavenSession = createSession(Collections.singletonList("fabric8:apply"), first, last);
+        ApplyAggregator aggregator = new ApplyAggregator();
+        MojoDescriptor mojoDescriptor = new MojoDescriptor();
+        mojoDescriptor.setPluginDescriptor(plugin);
+        ApplyMojo mojo = new ApplyMojo() {{
+            this.project = first;
+            this.session = mavenSession;
+            this.execution = new MojoExecution(mojoDescriptor);
+            this.log = AggregatedApplyTest.this.log;
+            this.applyAggregator = aggregator;
+            this.resourceHandoff = new ResourceHandoff();
+        }};
+        setField(mojo, "aggregate", true);
+        setField(mojo, "kubernetesManifest", new File("kubernetes.yml"));
+
+        mojo.executeInternal();
+
+        assertTrue(request.getExecutionListener() instanceof AggregatedApply.SessionEndCheck);
+        List<ApplyAggregator.ModuleManifests> registered = aggregator.drain(request);
+        assertEquals(1, registered.size());
+        assertEquals(first.getId(), registered.get(0).getProjectId());
+    }
+
+    private MavenSession createSession(List<String> goals, MavenProject... projects) {
+        request.setGoals(goals);
+        return new MavenSession(null, request, new DefaultMavenExecutionResult(), Arrays.asList(projects));
+    }
+
+    private MavenProject createProject(String artifactId, String... boundGoals) {
+        MavenProject project = new MavenProject();
+        project.setGroupId("io.fabric8");
+        project.setArtifactId(artifactId);
+        project.setVersion("1.0");
+        if (boundGoals.length > 0) {
+            Plugin buildPlugin = new Plugin();
+            buildPlugin.setGroupId(plugin.getGroupId());
+            buildPlugin.setArtifactId(plugin.getArtifactId());
+            PluginExecution execution = new PluginExecution();
+            execution.setGoals(Arrays.asList(boundGoals));
+            buildPlugin.addExecution(execution);
+            project.getBuild().addPlugin(buildPlugin);
+        }
+        return project;
+    }
+
+    private static Xpp3Dom configuration(String name, String value) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        Xpp3Dom child = new Xpp3Dom(name);
+        child.setValue(value);
+        configuration.addChild(child);
+        return configuration;
+    }
+
+    private static void setField(Object object, String name, Object value) throws ReflectiveOperationException {
+        Field field = ApplyMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(object, value);
+    }
+}
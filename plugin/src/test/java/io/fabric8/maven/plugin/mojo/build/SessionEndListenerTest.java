@@ -0,0 +1,133 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.plugin.mojo.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.fabric8.maven.core.service.ApplyAggregator;
+import io.fabric8.maven.core.service.ResourceHandoff;
+import io.fabric8.maven.core.service.kubernetes.jib.JibCacheManager;
+import io.fabric8.maven.core.util.ResourceClassifier;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Expectations;
+import mockit.Mocked;
+import mockit.Verifications;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SessionEndListenerTest {
+
+    private static final File MANIFEST = new File("target/classes/META-INF/fabric8/kubernetes.yml");
+
+    @Mocked
+    private ExecutionEvent event;
+
+    private MavenExecutionRequest request;
+
+    private MavenSession session;
+
+    @Before
+    public void setUp() {
+        request = new DefaultMavenExecutionRequest();
+        session = new MavenSession(null, request, new DefaultMavenExecutionResult(), Collections.emptyList());
+        new Expectations() {{
+            event.getSession();
+            result = session;
+            minTimes = 0;
+        }};
+    }
+
+    @Test
+    public void installedOncePerType(@Mocked ExecutionListener delegate) {
+        ResourceHandoff handoff = new ResourceHandoff();
+        request.setExecutionListener(delegate);
+
+        SessionEndListener.install(session, ResourceMojo.HandoffCheck.class, listener -> new ResourceMojo.HandoffCheck(listener, handoff));
+        AggregatedApply.checkAppliedAtSessionEnd(session, new ApplyAggregator());
+        ExecutionListener installed = request.getExecutionListener();
+        SessionEndListener.install(session, ResourceMojo.HandoffCheck.class, listener -> new ResourceMojo.HandoffCheck(listener, handoff));
+        AggregatedApply.checkAppliedAtSessionEnd(session, new ApplyAggregator());
+
+        assertSame(installed, request.getExecutionListener());
+        assertTrue(installed instanceof AggregatedApply.SessionEndCheck);
+        installed.sessionEnded(event);
+        installed.mojoStarted(event);
+        new Verifications() {{
+            delegate.sessionEnded(event);
+            times = 1;
+            delegate.mojoStarted(event);
+            times = 1;
+        }};
+    }
+
+    @Test
+    public void manifestsNotTakenAreWrittenAtSessionEnd() throws Exception {
+        ResourceHandoff handoff = new ResourceHandoff();
+        AtomicBoolean written = new AtomicBoolean();
+        handoff.open(request, "g:a:jar:1").add(ResourceClassifier.KUBERNETES, MANIFEST, null, () -> {
+            Thread.sleep(100);
+            written.set(true);
+            return null;
+        });
+        new ResourceMojo.HandoffCheck(null, handoff).sessionEnded(event);
+
+        assertTrue(written.get());
+        assertFalse(session.getResult().hasExceptions());
+        assertTrue(handoff.takeAll(request).isEmpty());
+    }
+
+    @Test
+    public void manifestsNotTakenFailBuildIfNotWritten() throws Exception {
+        ResourceHandoff handoff = new ResourceHandoff();
+        handoff.open(request, "g:a:jar:1").add(ResourceClassifier.KUBERNETES, MANIFEST, null, () -> {
+            throw new IOException("disk full");
+        });
+
+        new ResourceMojo.HandoffCheck(null, handoff).sessionEnded(event);
+
+        assertEquals(1, session.getResult().getExceptions().size());
+        assertEquals("Failed to write the generated manifests of g:a:jar:1: disk full",
+                     session.getResult().getExceptions().get(0).getMessage());
+        assertTrue(handoff.takeAll(request).isEmpty());
+    }
+
+    @Test
+    public void cacheStatisticsAreLoggedAtSessionEnd(@Mocked JibCacheManager cacheManager, @Mocked Logger log,
+                                                     @Mocked ExecutionListener delegate) {
+        new BuildMojo.CacheStatisticsLogger(delegate, cacheManager, log).sessionEnded(event);
+
+        new Verifications() {{
+            cacheManager.logStatistics(log);
+            times = 1;
+            delegate.sessionEnded(event);
+            times = 1;
+        }};
+    }
+}
@@ -15,8 +15,11 @@
  */
 package io.fabric8.maven.watcher.standard;
 
+import java.io.IOException;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import io.fabric8.kubernetes.api.model.Container;
@@ -33,29 +36,45 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.maven.core.access.ClusterAccess;
 import io.fabric8.maven.core.config.PlatformMode;
+import io.fabric8.maven.core.util.Configs;
+import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
 import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
 import io.fabric8.maven.core.util.kubernetes.OpenshiftHelper;
 import io.fabric8.maven.docker.access.DockerAccessException;
+import io.fabric8.maven.docker.assembly.AssemblyFiles;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.service.BuildService;
 import io.fabric8.maven.docker.service.ServiceHub;
 import io.fabric8.maven.docker.service.WatchService;
 import io.fabric8.maven.docker.util.ImageNameFormatter;
-import io.fabric8.maven.docker.util.Task;
+import io.fabric8.maven.docker.util.MojoParameters;
 import io.fabric8.maven.watcher.api.BaseWatcher;
 import io.fabric8.maven.watcher.api.WatcherContext;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.api.model.DeploymentConfigSpec;
-import io.fabric8.openshift.client.OpenShiftClient;
 import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.plugin.MojoFailureException;
 
 /**
- *
+ * Watcher which rebuilds the image when the assembly changes and rolls out the new image by patching
+ * the image of the containers in the controllers. For JIB builds only the changed layers are built
+ * again, the dependency layers are taken from the JIB cache.
  */
 public class DockerImageWatcher extends BaseWatcher {
 
+    // Available configuration keys
+    private enum Config implements Configs.Key {
+
+        // Time in milliseconds in which the assembly must not change before a JIB build is started
+        quietPeriodMillis {{ d = "1000"; }};
+
+        public String def() { return d; } protected String d;
+    }
+
+    // Client and namespace are created once and kept for the whole session
+    private KubernetesClient client;
+    private String namespace;
+
     public DockerImageWatcher(WatcherContext watcherContext) {
         super(watcherContext, "docker-image");
     }
@@ -67,6 +86,16 @@ public class DockerImageWatcher extends BaseWatcher {
 
     @Override
     public void watch(List<ImageConfiguration> configs, final Set<HasMetadata> resources, PlatformMode mode) {
+        if (getContext().getFabric8ServiceHub() != null && getContext().getFabric8ServiceHub().isJibMode()) {
+            try {
+                watchWithJib(configs, resources);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+                throw new RuntimeException("Error while watching", ex);
+            }
+            return;
+        }
 
         BuildService.BuildContext buildContext = getContext().getBuildContext();
         WatchService.WatchContext watchContext = getContext().getWatchContext();
@@ -84,6 +113,54 @@ public class DockerImageWatcher extends BaseWatcher {
         }
     }
 
+    // Poll the assembly files and rebuild with JIB once they stopped changing, so that a burst of
+    // changes (e.g. while "mvn package" is running) results in a single build and rollout
+    private void watchWithJib(List<ImageConfiguration> configs, Set<HasMetadata> resources) throws Exception {
+        WatchService.WatchContext watchContext = getContext().getWatchContext();
+        MojoParameters mojoParameters = watchContext.getMojoParameters();
+        Map<ImageConfiguration, AssemblyFiles> assemblies = new LinkedHashMap<>();
+        for (ImageConfiguration imageConfig : configs) {
+            if (imageConfig.getBuildConfiguration() != null && imageConfig.getBuildConfiguration().getAssemblyConfiguration() != null) {
+                assemblies.put(imageConfig, getContext().getServiceHub().getArchiveService().getAssemblyFiles(imageConfig, mojoParameters));
+                log.info("Watching %s for rebuilding with JIB", imageConfig.getDescription());
+            }
+        }
+        long interval = watchContext.getWatchInterval();
+        long quietPeriod = Configs.asInt(getConfig(Config.quietPeriodMillis));
+        while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(interval);
+            for (Map.Entry<ImageConfiguration, AssemblyFiles> assembly : assemblies.entrySet()) {
+                if (isChanged(assembly.getValue())) {
+                    ImageConfiguration imageConfig = assembly.getKey();
+                    waitForQuietPeriod(assembly.getValue(), quietPeriod);
+                    try {
+                        log.info("%s: Assembly changed. Rebuild ...", imageConfig.getDescription());
+                        buildImage(imageConfig);
+                        getContext().getFabric8ServiceHub().getBuildService().build(imageConfig);
+                        rollout(imageConfig, resources);
+                    } catch (Exception e) {
+                        log.error("%s: Error when rebuilding - %s", imageConfig.getDescription(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void waitForQuietPeriod(AssemblyFiles assemblyFiles, long quietPeriod) throws InterruptedException {
+        long lastChange = System.currentTimeMillis();
+        while (System.currentTimeMillis() - lastChange < quietPeriod) {
+            Thread.sleep(Math.min(quietPeriod, 200));
+            if (isChanged(assemblyFiles)) {
+                lastChange = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private static boolean isChanged(AssemblyFiles assemblyFiles) {
+        List<AssemblyFiles.Entry> entries = assemblyFiles.getUpdatedEntriesAndRefresh();
+        return entries != null && !entries.isEmpty();
+    }
+
     protected void buildImage(ImageConfiguration imageConfig) throws DockerAccessException, MojoExecutionException {
         String imageName = imageConfig.getName();
         // lets regenerate the label
@@ -112,17 +189,15 @@ public class DockerImageWatcher extends BaseWatcher {
     }
 
     protected void restartContainer(WatchService.ImageWatcher watcher, Set<HasMetadata> resources) throws MojoExecutionException {
-        ImageConfiguration imageConfig = watcher.getImageConfiguration();
+        rollout(watcher.getImageConfiguration(), resources);
+    }
+
+    private void rollout(ImageConfiguration imageConfig, Set<HasMetadata> resources) throws MojoExecutionException {
         String imageName = imageConfig.getName();
         try {
-            ClusterAccess clusterAccess = new ClusterAccess(getContext().getClusterConfiguration());
-            KubernetesClient client = clusterAccess.createDefaultClient(log);
-
-            String namespace = clusterAccess.getNamespace();
-
             String imagePrefix = getImagePrefix(imageName);
             for (HasMetadata entity : resources) {
-                updateImageName(client, namespace, entity, imagePrefix, imageName);
+                updateImageName(entity, imagePrefix, imageName);
             }
         } catch (KubernetesClientException e) {
             KubernetesResourceUtil.handleKubernetesClientException(e, this.log);
@@ -133,59 +208,59 @@ public class DockerImageWatcher extends BaseWatcher {
         }
     }
 
-    private void updateImageName(KubernetesClient kubernetes, String namespace, HasMetadata entity, String imagePrefix, String imageName) {
-        String name = KubernetesHelper.getName(entity);
+    private synchronized KubernetesClient getClient() {
+        if (client == null) {
+            ClusterAccess clusterAccess = new ClusterAccess(getContext().getClusterConfiguration());
+            client = getContext().getKubernetesClient() != null ?
+                getContext().getKubernetesClient() : clusterAccess.createDefaultClient(log);
+            namespace = clusterAccess.getNamespace();
+        }
+        return client;
+    }
+
+    private void updateImageName(HasMetadata entity, String imagePrefix, String imageName) throws IOException {
+        PodTemplateSpec template = null;
         if (entity instanceof Deployment) {
-            Deployment resource = (Deployment) entity;
-            DeploymentSpec spec = resource.getSpec();
-            if (spec != null) {
-                if (updateImageName(entity, spec.getTemplate(), imagePrefix, imageName)) {
-                    kubernetes.extensions().deployments().inNamespace(namespace).withName(name).replace(resource);
-                }
-            }
+            DeploymentSpec spec = ((Deployment) entity).getSpec();
+            template = spec != null ? spec.getTemplate() : null;
         } else if (entity instanceof ReplicaSet) {
-            ReplicaSet resource = (ReplicaSet) entity;
-            ReplicaSetSpec spec = resource.getSpec();
-            if (spec != null) {
-                if (updateImageName(entity, spec.getTemplate(), imagePrefix, imageName)) {
-                    kubernetes.extensions().replicaSets().inNamespace(namespace).withName(name).replace(resource);
-                }
-            }
+            ReplicaSetSpec spec = ((ReplicaSet) entity).getSpec();
+            template = spec != null ? spec.getTemplate() : null;
         } else if (entity instanceof ReplicationController) {
-            ReplicationController resource = (ReplicationController) entity;
-            ReplicationControllerSpec spec = resource.getSpec();
-            if (spec != null) {
-                if (updateImageName(entity, spec.getTemplate(), imagePrefix, imageName)) {
-                    kubernetes.replicationControllers().inNamespace(namespace).withName(name).replace(resource);
-                }
-            }
+            ReplicationControllerSpec spec = ((ReplicationController) entity).getSpec();
+            template = spec != null ? spec.getTemplate() : null;
         } else if (entity instanceof DeploymentConfig) {
-            DeploymentConfig resource = (DeploymentConfig) entity;
-            DeploymentConfigSpec spec = resource.getSpec();
-            if (spec != null) {
-                if (updateImageName(entity, spec.getTemplate(), imagePrefix, imageName)) {
-                    OpenShiftClient openshiftClient = OpenshiftHelper.asOpenShiftClient(kubernetes);
-                    if (openshiftClient == null) {
-                        log.warn("Ignoring DeploymentConfig %s as not connected to an OpenShift cluster", name);
-                    }
-                    openshiftClient.deploymentConfigs().inNamespace(namespace).withName(name).replace(resource);
-                }
+            DeploymentConfigSpec spec = ((DeploymentConfig) entity).getSpec();
+            template = spec != null ? spec.getTemplate() : null;
+            if (template != null && OpenshiftHelper.asOpenShiftClient(getClient()) == null) {
+                log.warn("Ignoring DeploymentConfig %s as not connected to an OpenShift cluster", KubernetesHelper.getName(entity));
+                return;
             }
         }
+        if (template == null) {
+            return;
+        }
+        Map<Integer, String> images = updateImageName(entity, template, imagePrefix, imageName);
+        if (!images.isEmpty()) {
+            KubernetesClient kubernetes = getClient();
+            KubernetesClientUtil.patchContainerImages(kubernetes, namespace, entity, images);
+        }
     }
 
-    private boolean updateImageName(HasMetadata entity, PodTemplateSpec template, String imagePrefix, String imageName) {
-        boolean answer = false;
+    // Returns the new images by index of the container
+    private Map<Integer, String> updateImageName(HasMetadata entity, PodTemplateSpec template, String imagePrefix, String imageName) {
+        Map<Integer, String> answer = new LinkedHashMap<>();
         PodSpec spec = template.getSpec();
         if (spec != null) {
             List<Container> containers = spec.getContainers();
             if (containers != null) {
-                for (Container container : containers) {
+                for (int i = 0; i < containers.size(); i++) {
+                    Container container = containers.get(i);
                     String image = container.getImage();
-                    if (image != null && image.startsWith(imagePrefix)) {
+                    if (image != null && image.startsWith(imagePrefix) && !image.equals(imageName)) {
                         container.setImage(imageName);
                         log.info("Updating " + KubernetesHelper.getKind(entity) + " " + KubernetesHelper.getName(entity) + " to use image: " + imageName);
-                        answer = true;
+                        answer.put(i, imageName);
                     }
                 }
             }
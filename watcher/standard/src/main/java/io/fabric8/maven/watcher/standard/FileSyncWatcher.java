@@ -0,0 +1,461 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.watcher.standard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.LabelSelector;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.ExecListener;
+import io.fabric8.kubernetes.client.dsl.ExecWatch;
+import io.fabric8.maven.core.config.PlatformMode;
+import io.fabric8.maven.core.service.PodLogService;
+import io.fabric8.maven.core.util.Configs;
+import io.fabric8.maven.core.util.kubernetes.KubernetesClientUtil;
+import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
+import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
+import io.fabric8.maven.docker.config.ImageConfiguration;
+import io.fabric8.maven.watcher.api.BaseWatcher;
+import io.fabric8.maven.watcher.api.WatcherContext;
+import okhttp3.Response;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Watcher which copies changed classes and resources into the containers of the running pods
+ * instead of building a new image. The changed files are streamed as a tar archive into each
+ * container through the exec API, optionally followed by a command which reloads the application.
+ *
+ * The container has to provide <code>sh</code>, <code>mkdir</code>, <code>rm</code>, <code>head</code>
+ * supporting <code>-c</code> and <code>tar</code>. The exec API doesn't close the standard input of the
+ * command, so the size of the archive is calculated in advance and exactly that many bytes are read
+ * with <code>head -c</code>.
+ */
+public class FileSyncWatcher extends BaseWatcher {
+
+    // Available configuration keys
+    private enum Config implements Configs.Key {
+
+        // Comma separated list of directories to watch, relative to the project's base directory
+        paths {{ d = "target/classes"; }},
+
+        // Directory in the container into which the content of the watched directories is copied
+        targetDir {{ d = "/deployments/classes"; }},
+
+        // Name of the container to sync into, by default the first container of the pod
+        container,
+
+        // Time in milliseconds without further changes before the files are synced
+        debounceMillis {{ d = "500"; }},
+
+        // Shell command run in the container after the files have been synced
+        restartCommand,
+
+        // Time in seconds to wait for a sync or the restart command to finish in a container
+        execTimeoutSeconds {{ d = "30"; }};
+
+        public String def() { return d; } protected String d;
+    }
+
+    public FileSyncWatcher(WatcherContext watcherContext) {
+        super(watcherContext, "file-sync");
+    }
+
+    @Override
+    public boolean isApplicable(List<ImageConfiguration> configs, Set<HasMetadata> resources, PlatformMode mode) {
+        return KubernetesResourceUtil.getPodLabelSelector(resources) != null && !getWatchedDirectories().isEmpty();
+    }
+
+    @Override
+    public void watch(List<ImageConfiguration> configs, Set<HasMetadata> resources, PlatformMode mode) throws Exception {
+        KubernetesClient kubernetes = getContext().getKubernetesClient();
+        String namespace = getContext().getClusterConfiguration().getNamespace();
+        LabelSelector selector = KubernetesResourceUtil.getPodLabelSelector(resources);
+
+        PodLogService.PodLogServiceContext logContext = new PodLogService.PodLogServiceContext.Builder()
+                .log(log)
+                .newPodLog(getContext().getNewPodLogger())
+                .oldPodLog(getContext().getOldPodLogger())
+                .build();
+        new PodLogService(logContext).tailAppPodsLogs(kubernetes, namespace, resources, false, null, true, null, false);
+
+        List<Path> roots = getWatchedDirectories();
+        long debounceMillis = Configs.asInt(getConfig(Config.debounceMillis));
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            for (Path root : roots) {
+                registerRecursively(watchService, keys, root);
+                log.info("Watching %s for changes", root);
+            }
+
+            Map<Path, Path> changed = new HashMap<>();
+            Set<Path> deleted = new TreeSet<>();
+            while (true) {
+                WatchKey key = changed.isEmpty() && deleted.isEmpty() ?
+                    watchService.take() : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    // No further changes within the debounce interval
+                    sync(kubernetes, namespace, selector, changed, deleted);
+                    changed.clear();
+                    deleted.clear();
+                    continue;
+                }
+                Path dir = keys.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null || event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path path = dir.resolve((Path) event.context());
+                    Path root = getRoot(roots, path);
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        changed.remove(path);
+                        deleted.add(root.relativize(path));
+                    } else if (Files.isDirectory(path)) {
+                        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            registerRecursively(watchService, keys, path);
+                            addFilesRecursively(changed, deleted, root, path);
+                        }
+                    } else {
+                        changed.put(path, root);
+                        deleted.remove(root.relativize(path));
+                    }
+                }
+                if (!key.reset()) {
+                    keys.remove(key);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.info("Stopped watching for changes");
+        }
+    }
+
+    private void sync(KubernetesClient kubernetes, String namespace, LabelSelector selector, Map<Path, Path> changed, Set<Path> deleted) {
+        List<Pod> pods = getRunningPods(kubernetes, namespace, selector);
+        if (pods.isEmpty()) {
+            log.warn("No running pods found to sync %d changed files into", changed.size() + deleted.size());
+            return;
+        }
+        List<SyncFile> files = getSyncFiles(changed);
+        String command;
+        try {
+            command = createSyncCommand(getConfig(Config.targetDir), deleted, getArchiveSize(files));
+        } catch (IOException e) {
+            log.error("Cannot sync changed files: %s", e.getMessage());
+            return;
+        }
+        String restartCommand = getConfig(Config.restartCommand);
+        for (Pod pod : pods) {
+            // A failing pod must not keep the others from being synced
+            try {
+                String container = getContainerName(pod);
+                long start = System.currentTimeMillis();
+                exec(kubernetes, namespace, pod, container, command, files);
+                if (StringUtils.isNotBlank(restartCommand)) {
+                    exec(kubernetes, namespace, pod, container, restartCommand, null);
+                }
+                log.info("Synced %d changed and %d deleted files into %s/%s in %d ms",
+                         changed.size(), deleted.size(), KubernetesHelper.getName(pod), container, System.currentTimeMillis() - start);
+            } catch (IOException | IllegalStateException e) {
+                log.error("Cannot sync changed files into %s: %s", KubernetesHelper.getName(pod), e.getMessage());
+            }
+        }
+    }
+
+    private void exec(KubernetesClient kubernetes, String namespace, Pod pod, String container, String command, List<SyncFile> files)
+        throws IOException {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ExecListener listener = new ExecListener() {
+            @Override
+            public void onOpen(Response response) {
+            }
+
+            @Override
+            public void onFailure(Throwable t, Response response) {
+                failure.set(t);
+                finished.countDown();
+            }
+
+            @Override
+            public void onClose(int code, String reason) {
+                finished.countDown();
+            }
+        };
+
+        log.debug("Running '%s' in %s/%s", command, KubernetesHelper.getName(pod), container);
+        InputStream input = files != null && !files.isEmpty() ? streamArchive(files) : new ByteArrayInputStream(new byte[0]);
+        ExecWatch watch = kubernetes.pods().inNamespace(namespace).withName(KubernetesHelper.getName(pod))
+                                    .inContainer(container)
+                                    .readingInput(input)
+                                    .writingOutput(new ByteArrayOutputStream())
+                                    .writingError(err)
+                                    .usingListener(listener)
+                                    .exec("sh", "-c", command);
+        try {
+            if (!finished.await(Configs.asInt(getConfig(Config.execTimeoutSeconds)), TimeUnit.SECONDS)) {
+                throw new IOException("Timeout while running '" + command + "' in " + KubernetesHelper.getName(pod));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running '" + command + "' in " + KubernetesHelper.getName(pod), e);
+        } finally {
+            watch.close();
+            // Stops the thread writing the archive if the command didn't read all of it
+            input.close();
+        }
+        if (failure.get() != null) {
+            throw new IOException("Failed to run '" + command + "' in " + KubernetesHelper.getName(pod) + ": " + failure.get().getMessage(), failure.get());
+        }
+        String errorOutput = new String(err.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (!errorOutput.isEmpty()) {
+            log.warn("%s: %s", KubernetesHelper.getName(pod), errorOutput);
+        }
+    }
+
+    // tar has to stop after the archive because stdin isn't closed by the exec API, so exactly the size of the archive is read
+    static String createSyncCommand(String targetDir, Set<Path> deleted, long archiveSize) {
+        StringBuilder command = new StringBuilder("mkdir -p ").append(quote(targetDir));
+        for (Path path : deleted) {
+            command.append(" && rm -rf ").append(quote(targetDir + "/" + toArchivePath(path)));
+        }
+        if (archiveSize > 0) {
+            command.append(" && head -c ").append(archiveSize).append(" | tar -xf - -C ").append(quote(targetDir));
+        }
+        return command.toString();
+    }
+
+    // Remember the size of the files, so that the archive has the same size as calculated even if a file changes meanwhile
+    static List<SyncFile> getSyncFiles(Map<Path, Path> files) {
+        List<SyncFile> ret = new ArrayList<>();
+        for (Map.Entry<Path, Path> file : files.entrySet()) {
+            if (Files.isRegularFile(file.getKey())) {
+                File source = file.getKey().toFile();
+                ret.add(new SyncFile(source, toArchivePath(file.getValue().relativize(file.getKey())), source.length(), source.lastModified()));
+            }
+        }
+        return ret;
+    }
+
+    static long getArchiveSize(List<SyncFile> files) throws IOException {
+        if (files.isEmpty()) {
+            return 0;
+        }
+        CountingOutputStream out = new CountingOutputStream();
+        writeArchive(files, out, false);
+        return out.count;
+    }
+
+    static void writeArchive(List<SyncFile> files, OutputStream out, boolean withContent) throws IOException {
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(out)) {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            byte[] buffer = new byte[8192];
+            for (SyncFile file : files) {
+                TarArchiveEntry entry = new TarArchiveEntry(file.name);
+                entry.setSize(file.size);
+                entry.setModTime(file.lastModified);
+                tar.putArchiveEntry(entry);
+                long written = 0;
+                if (withContent && file.source.isFile()) {
+                    try (InputStream in = Files.newInputStream(file.source.toPath())) {
+                        int read;
+                        while (written < file.size && (read = in.read(buffer, 0, (int) Math.min(buffer.length, file.size - written))) != -1) {
+                            tar.write(buffer, 0, read);
+                            written += read;
+                        }
+                    }
+                }
+                if (written < file.size) {
+                    // A file which shrank or vanished is padded, its next change is synced again
+                    Arrays.fill(buffer, (byte) 0);
+                    while (written < file.size) {
+                        int length = (int) Math.min(buffer.length, file.size - written);
+                        tar.write(buffer, 0, length);
+                        written += length;
+                    }
+                }
+                tar.closeArchiveEntry();
+            }
+        }
+    }
+
+    // Write the archive into a pipe in the background, so that it never has to be kept in memory
+    private InputStream streamArchive(List<SyncFile> files) throws IOException {
+        PipedInputStream in = new PipedInputStream(64 * 1024);
+        PipedOutputStream out = new PipedOutputStream(in);
+        Thread writer = new Thread(() -> {
+            try {
+                writeArchive(files, out, true);
+            } catch (IOException e) {
+                log.debug("Stopped writing archive: %s", e.getMessage());
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }, "fabric8-file-sync");
+        writer.setDaemon(true);
+        writer.start();
+        return in;
+    }
+
+    private List<Pod> getRunningPods(KubernetesClient kubernetes, String namespace, LabelSelector selector) {
+        List<Pod> ret = new ArrayList<>();
+        PodList list = KubernetesClientUtil.withSelector(kubernetes.pods().inNamespace(namespace), selector, log).list();
+        if (list != null) {
+            for (Pod pod : list.getItems()) {
+                if (KubernetesHelper.isPodRunning(pod)) {
+                    ret.add(pod);
+                }
+            }
+        }
+        return ret;
+    }
+
+    private String getContainerName(Pod pod) {
+        String container = getConfig(Config.container);
+        if (StringUtils.isNotBlank(container)) {
+            return container;
+        }
+        List<Container> containers = KubernetesHelper.getContainers(pod);
+        if (containers.isEmpty()) {
+            throw new IllegalStateException("No container found in pod " + KubernetesHelper.getName(pod));
+        }
+        return containers.get(0).getName();
+    }
+
+    private List<Path> getWatchedDirectories() {
+        List<Path> ret = new ArrayList<>();
+        File baseDir = getContext().getProject().getBasedir();
+        for (String path : StringUtils.split(getConfig(Config.paths), ',')) {
+            File dir = new File(path.trim());
+            if (!dir.isAbsolute()) {
+                dir = new File(baseDir, path.trim());
+            }
+            if (dir.isDirectory()) {
+                ret.add(dir.toPath().toAbsolutePath().normalize());
+            }
+        }
+        return ret;
+    }
+
+    private static Path getRoot(List<Path> roots, Path path) {
+        for (Path root : roots) {
+            if (path.startsWith(root)) {
+                return root;
+            }
+        }
+        throw new IllegalStateException("No watched directory contains " + path);
+    }
+
+    private static void registerRecursively(final WatchService watchService, final Map<WatchKey, Path> keys, Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                      StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Files created together with a new directory may have been written before the directory was registered
+    private static void addFilesRecursively(final Map<Path, Path> changed, final Set<Path> deleted, final Path root, Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                changed.put(file, root);
+                deleted.remove(root.relativize(file));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String toArchivePath(Path path) {
+        return path.toString().replace(File.separatorChar, '/');
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    /**
+     * Changed file to copy into the containers
+     */
+    static class SyncFile {
+        private final File source;
+        private final String name;
+        private final long size;
+        private final long lastModified;
+
+        SyncFile(File source, String name, long size, long lastModified) {
+            this.source = source;
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -16,28 +16,34 @@
 package io.fabric8.maven.watcher.standard;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.io.Closeables;
-import io.fabric8.kubernetes.api.model.DoneableService;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.dsl.Resource;
 import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.core.service.PodLogService;
 import io.fabric8.maven.core.service.PortForwardService;
+import io.fabric8.maven.core.service.ServiceUrlDiscovery;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.util.IoUtil;
@@ -45,8 +51,6 @@ import io.fabric8.maven.core.util.MavenUtil;
 import io.fabric8.maven.core.util.PrefixedLogger;
 import io.fabric8.maven.core.util.SpringBootConfigurationHelper;
 import io.fabric8.maven.core.util.SpringBootUtil;
-import io.fabric8.maven.core.util.kubernetes.Fabric8Annotations;
-import io.fabric8.maven.core.util.kubernetes.KubernetesHelper;
 import io.fabric8.maven.core.util.kubernetes.KubernetesResourceUtil;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.util.Logger;
@@ -60,6 +64,7 @@ import static io.fabric8.maven.core.util.SpringBootConfigurationHelper.DEV_TOOLS
 
 public class SpringBootWatcher extends BaseWatcher {
 
+    private static final String REMOTE_SPRING_APPLICATION = "org.springframework.boot.devtools.RemoteSpringApplication";
 
     private final PortForwardService portForwardService;
 
@@ -67,7 +72,10 @@ public class SpringBootWatcher extends BaseWatcher {
     private enum Config implements Configs.Key {
 
         // The time to wait for the service to be exposed (by the expose controller)
-        serviceUrlWaitTimeSeconds {{ d = "5"; }};
+        serviceUrlWaitTimeSeconds {{ d = "5"; }},
+
+        // Whether to run RemoteSpringApplication within the Maven JVM instead of forking a new JVM
+        inProcess {{ d = "false"; }};
 
         public String def() { return d; } protected String d;
     }
@@ -131,34 +139,19 @@ public class SpringBootWatcher extends BaseWatcher {
 
     private String getServiceExposeUrl(KubernetesClient kubernetes, Set<HasMetadata> resources) throws InterruptedException {
         long serviceUrlWaitTimeSeconds = Configs.asInt(getConfig(Config.serviceUrlWaitTimeSeconds));
+        List<Service> services = new ArrayList<>();
         for (HasMetadata entity : resources) {
             if (entity instanceof Service) {
-                Service service = (Service) entity;
-                String name = KubernetesHelper.getName(service);
-                Resource<Service, DoneableService> serviceResource = kubernetes.services().inNamespace(getContext().getClusterConfiguration().getNamespace()).withName(name);
-                String url = null;
-                // lets wait a little while until there is a service URL in case the exposecontroller is running slow
-                for (int i = 0; i < serviceUrlWaitTimeSeconds; i++) {
-                    if (i > 0) {
-                        Thread.sleep(1000);
-                    }
-                    Service s = serviceResource.get();
-                    if (s != null) {
-                        url = KubernetesHelper.getOrCreateAnnotations(s).get(Fabric8Annotations.SERVICE_EXPOSE_URL);
-                        if (StringUtils.isNotBlank(url)) {
-                            break;
-                        }
-                    }
-                    if (!isExposeService(service)) {
-                        break;
-                    }
-                }
+                services.add((Service) entity);
+            }
+        }
 
-                // lets not wait for other services
-                serviceUrlWaitTimeSeconds = 1;
-                if (StringUtils.isNotBlank(url) && url.startsWith("http")) {
-                    return url;
-                }
+        // lets wait a little while until there is a service URL in case the exposecontroller is running slow
+        Map<String, String> urls = new ServiceUrlDiscovery(kubernetes, getContext().getClusterConfiguration().getNamespace(), log)
+            .discoverServiceUrls(services, serviceUrlWaitTimeSeconds);
+        for (String url : urls.values()) {
+            if (url.startsWith("http")) {
+                return url;
             }
         }
 
@@ -166,11 +159,6 @@ public class SpringBootWatcher extends BaseWatcher {
         return null;
     }
 
-    private boolean isExposeService(Service service) {
-        String expose = KubernetesHelper.getLabels(service).get("expose");
-        return expose != null && expose.toLowerCase().equals("true");
-    }
-
     private void runRemoteSpringApplication(String url) {
         log.info("Running RemoteSpringApplication against endpoint: " + url);
 
@@ -185,18 +173,14 @@ public class SpringBootWatcher extends BaseWatcher {
 
                 URLClassLoader[] classLoaders = {projectClassLoader, pluginClassLoader};
 
-                StringBuilder buffer = new StringBuilder("java -cp ");
-                int count = 0;
+                List<File> classpath = new ArrayList<>();
                 for (URLClassLoader urlClassLoader : classLoaders) {
                     URL[] urLs = urlClassLoader.getURLs();
                     for (URL u : urLs) {
-                        if (count++ > 0) {
-                            buffer.append(File.pathSeparator);
-                        }
                         try {
                             URI uri = u.toURI();
                             File file = new File(uri);
-                            buffer.append(file.getCanonicalPath());
+                            classpath.add(file.getCanonicalFile());
                         } catch (Exception e) {
                             throw new IllegalStateException("Failed to create classpath: " + e, e);
                         }
@@ -206,42 +190,15 @@ public class SpringBootWatcher extends BaseWatcher {
                 // Add dev tools to the classpath (the main class is not read from BOOT-INF/lib)
                 try {
                     File devtools = getSpringBootDevToolsJar(getContext().getProject());
-                    buffer.append(File.pathSeparator);
-                    buffer.append(devtools.getCanonicalPath());
+                    classpath.add(devtools.getCanonicalFile());
                 } catch (Exception e) {
                     throw new IllegalStateException("Failed to include devtools in the classpath: " + e, e);
                 }
 
-                buffer.append(" -Dspring.devtools.remote.secret=");
-                buffer.append(remoteSecret);
-                buffer.append(" org.springframework.boot.devtools.RemoteSpringApplication ");
-                buffer.append(url);
-
-                try {
-                    String command = buffer.toString();
-                    log.debug("Running: " + command);
-                    final Process process = Runtime.getRuntime().exec(command);
-
-                    final AtomicBoolean outputEnabled = new AtomicBoolean(true);
-                    Runtime.getRuntime().addShutdownHook(new Thread("fabric8:watch [spring-boot] shutdown hook") {
-                        @Override
-                        public void run() {
-                            log.info("Terminating the Spring remote client...");
-                            outputEnabled.set(false);
-                            process.destroy();
-                        }
-                    });
-                    Logger logger = new PrefixedLogger("Spring-Remote", log);
-                    Thread stdOutPrinter = startOutputProcessor(logger, process.getInputStream(), false, outputEnabled);
-                    Thread stdErrPrinter = startOutputProcessor(logger, process.getErrorStream(), true, outputEnabled);
-                    int status = process.waitFor();
-                    stdOutPrinter.join();
-                    stdErrPrinter.join();
-                    if (status != 0) {
-                        log.warn("Process returned status: %s", status);
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to run RemoteSpringApplication: " + e, e);
+                if (Configs.asBoolean(getConfig(Config.inProcess))) {
+                    runRemoteSpringApplicationInProcess(classpath, remoteSecret, url);
+                } else {
+                    runRemoteSpringApplicationProcess(classpath, remoteSecret, url);
                 }
             } catch (DependencyResolutionRequiredException e) {
                 log.warn("Instructed to use project classpath, but cannot. Continuing build if we can: ", e);
@@ -253,6 +210,175 @@ public class SpringBootWatcher extends BaseWatcher {
         }
     }
 
+    private void runRemoteSpringApplicationProcess(List<File> classpath, String remoteSecret, String url) {
+        StringBuilder buffer = new StringBuilder("java -cp ");
+        int count = 0;
+        for (File file : classpath) {
+            if (count++ > 0) {
+                buffer.append(File.pathSeparator);
+            }
+            buffer.append(file.getPath());
+        }
+
+        buffer.append(" -D" + DEV_TOOLS_REMOTE_SECRET + "=");
+        buffer.append(remoteSecret);
+        buffer.append(" " + REMOTE_SPRING_APPLICATION + " ");
+        buffer.append(url);
+
+        try {
+            String command = buffer.toString();
+            log.debug("Running: " + command);
+            final Process process = Runtime.getRuntime().exec(command);
+
+            final AtomicBoolean outputEnabled = new AtomicBoolean(true);
+            Runtime.getRuntime().addShutdownHook(new Thread("fabric8:watch [spring-boot] shutdown hook") {
+                @Override
+                public void run() {
+                    log.info("Terminating the Spring remote client...");
+                    outputEnabled.set(false);
+                    process.destroy();
+                }
+            });
+            Logger logger = new PrefixedLogger("Spring-Remote", log);
+            Thread stdOutPrinter = startOutputProcessor(logger, process.getInputStream(), false, outputEnabled);
+            Thread stdErrPrinter = startOutputProcessor(logger, process.getErrorStream(), true, outputEnabled);
+            int status = process.waitFor();
+            stdOutPrinter.join();
+            stdErrPrinter.join();
+            if (status != 0) {
+                log.warn("Process returned status: %s", status);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to run RemoteSpringApplication: " + e, e);
+        }
+    }
+
+    /**
+     * Runs RemoteSpringApplication in this JVM. It gets its own class loader, which doesn't delegate to the plugin
+     * class loader, and its own thread group. Everything written to stdout/stderr by threads of this group
+     * goes to the plugin logger.
+     */
+    private void runRemoteSpringApplicationInProcess(List<File> classpath, String remoteSecret, String url) throws IOException {
+        URL[] urls = new URL[classpath.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = classpath.get(i).toURI().toURL();
+        }
+        log.debug("Running %s in-process with classpath %s", REMOTE_SPRING_APPLICATION, classpath);
+
+        // Parent is the platform (or extension) class loader so that no plugin classes leak into the application
+        final URLClassLoader remoteClassLoader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+        final ThreadGroup threadGroup = new ThreadGroup("spring-remote");
+        final AtomicBoolean outputEnabled = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Logger logger = new PrefixedLogger("Spring-Remote", log);
+
+        // Secret is passed as command line property, so that it doesn't end up in the system properties of the build
+        final String[] args = { url, "--" + DEV_TOOLS_REMOTE_SECRET + "=" + remoteSecret };
+        Thread remoteThread = new Thread(threadGroup, () -> {
+            try {
+                Class<?> mainClass = remoteClassLoader.loadClass(REMOTE_SPRING_APPLICATION);
+                mainClass.getMethod("main", String[].class).invoke(null, (Object) args);
+            } catch (InvocationTargetException e) {
+                failure.set(e.getCause());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        }, "spring-remote-main");
+        remoteThread.setContextClassLoader(remoteClassLoader);
+        remoteThread.setDaemon(true);
+
+        PrintStream stdOut = System.out;
+        PrintStream stdErr = System.err;
+        System.setOut(new ThreadGroupPrintStream(stdOut, threadGroup, logger, false, outputEnabled));
+        System.setErr(new ThreadGroupPrintStream(stdErr, threadGroup, logger, true, outputEnabled));
+
+        Runtime.getRuntime().addShutdownHook(new Thread("fabric8:watch [spring-boot] shutdown hook") {
+            @Override
+            public void run() {
+                log.info("Terminating the Spring remote client...");
+                outputEnabled.set(false);
+                // RemoteSpringApplication waits forever, its context is closed by its own shutdown hook
+                threadGroup.interrupt();
+            }
+        });
+
+        try {
+            remoteThread.start();
+            remoteThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            System.setOut(stdOut);
+            System.setErr(stdErr);
+            // Classes may still be needed by the shutdown hook of the application while it's running
+            if (!remoteThread.isAlive()) {
+                remoteClassLoader.close();
+            }
+        }
+        if (failure.get() != null) {
+            throw new RuntimeException("Failed to run RemoteSpringApplication: " + failure.get(), failure.get());
+        }
+    }
+
+    // Print stream which sends lines written by threads of a given group to a logger
+    private static class ThreadGroupPrintStream extends PrintStream {
+
+        private final ThreadGroup threadGroup;
+        private final ThreadLocal<ByteArrayOutputStream> lineBuffer = ThreadLocal.withInitial(ByteArrayOutputStream::new);
+        private final Logger logger;
+        private final boolean error;
+        private final AtomicBoolean outputEnabled;
+
+        ThreadGroupPrintStream(PrintStream delegate, ThreadGroup threadGroup, Logger logger, boolean error, AtomicBoolean outputEnabled) {
+            super(delegate, true);
+            this.threadGroup = threadGroup;
+            this.logger = logger;
+            this.error = error;
+            this.outputEnabled = outputEnabled;
+        }
+
+        @Override
+        public void write(int b) {
+            if (!isGroupThread()) {
+                super.write(b);
+                return;
+            }
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                lineBuffer.get().write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            if (!isGroupThread()) {
+                super.write(buf, off, len);
+                return;
+            }
+            for (int i = off; i < off + len; i++) {
+                write(buf[i]);
+            }
+        }
+
+        private boolean isGroupThread() {
+            return threadGroup.parentOf(Thread.currentThread().getThreadGroup());
+        }
+
+        private void flushLine() {
+            ByteArrayOutputStream buffer = lineBuffer.get();
+            String line = new String(buffer.toByteArray(), Charset.defaultCharset());
+            buffer.reset();
+            if (outputEnabled.get()) {
+                if (error) {
+                    logger.error("%s", line);
+                } else {
+                    logger.info("%s", line);
+                }
+            }
+        }
+    }
+
     protected Thread startOutputProcessor(final Logger logger, final InputStream inputStream, final boolean error, final AtomicBoolean outputEnabled) throws IOException {
         Thread printer = new Thread() {
             @Override
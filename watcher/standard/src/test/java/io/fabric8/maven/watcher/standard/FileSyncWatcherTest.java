@@ -0,0 +1,129 @@
+/**
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.watcher.standard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FileSyncWatcherTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void syncCommandQuotesPathsAndDeletesFirst() {
+        Set<Path> deleted = new LinkedHashSet<>(Arrays.asList(Paths.get("com/example/Old.class"), Paths.get("it's.properties")));
+
+        String command = FileSyncWatcher.createSyncCommand("/deployments/my classes", deleted, 2048);
+
+        assertEquals("mkdir -p '/deployments/my classes'" +
+                     " && rm -rf '/deployments/my classes/com/example/Old.class'" +
+                     " && rm -rf '/deployments/my classes/it'\\''s.properties'" +
+                     " && head -c 2048 | tar -xf - -C '/deployments/my classes'", command);
+    }
+
+    @Test
+    public void syncCommandWithoutChangedFiles() throws IOException {
+        Set<Path> deleted = Collections.singleton(Paths.get("a.txt"));
+
+        assertEquals(0, FileSyncWatcher.getArchiveSize(Collections.emptyList()));
+        assertEquals("mkdir -p '/tmp' && rm -rf '/tmp/a.txt'", FileSyncWatcher.createSyncCommand("/tmp", deleted, 0));
+    }
+
+    @Test
+    public void archiveContainsChangedFilesRelativeToRoot() throws IOException {
+        Path root = temporaryFolder.newFolder("classes").toPath();
+        Path clazz = write(root.resolve("com/example/App.class"), "class content");
+        Path properties = write(root.resolve("application.properties"), "a=b");
+        Path directory = Files.createDirectories(root.resolve("empty"));
+        Map<Path, Path> changed = new LinkedHashMap<>();
+        changed.put(clazz, root);
+        changed.put(properties, root);
+        changed.put(directory, root);
+
+        List<FileSyncWatcher.SyncFile> files = FileSyncWatcher.getSyncFiles(changed);
+        byte[] archive = writeArchive(files);
+
+        assertEquals(FileSyncWatcher.getArchiveSize(files), archive.length);
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(archive))) {
+            assertEntry(tar, "com/example/App.class", "class content");
+            assertEntry(tar, "application.properties", "a=b");
+            assertNull(tar.getNextTarEntry());
+        }
+    }
+
+    @Test
+    public void archiveKeepsCalculatedSizeWhenFilesChange() throws IOException {
+        Path root = temporaryFolder.newFolder("classes").toPath();
+        String longName = String.join("/", Collections.nCopies(20, "directory")) + "/App.class";
+        Path shrunk = write(root.resolve(longName), "long content");
+        Path grown = write(root.resolve("grown.txt"), "short");
+        Map<Path, Path> changed = new LinkedHashMap<>();
+        changed.put(shrunk, root);
+        changed.put(grown, root);
+
+        List<FileSyncWatcher.SyncFile> files = FileSyncWatcher.getSyncFiles(changed);
+        long size = FileSyncWatcher.getArchiveSize(files);
+        write(shrunk, "long");
+        write(grown, "short and longer");
+        byte[] archive = writeArchive(files);
+
+        assertEquals(size, archive.length);
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(new ByteArrayInputStream(archive))) {
+            assertEntry(tar, longName, "long\0\0\0\0\0\0\0\0");
+            assertEntry(tar, "grown.txt", "short");
+        }
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] writeArchive(List<FileSyncWatcher.SyncFile> files) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FileSyncWatcher.writeArchive(files, out, true);
+        return out.toByteArray();
+    }
+
+    private static void assertEntry(TarArchiveInputStream tar, String name, String content) throws IOException {
+        TarArchiveEntry entry = tar.getNextTarEntry();
+        assertEquals(name, entry.getName());
+        assertEquals(content, new String(IOUtils.toByteArray(tar), StandardCharsets.UTF_8));
+    }
+}